@@ -0,0 +1,32 @@
+package org.jpires.dominoes.game.browser.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Dominoes Context Listener stops the default {@link DominoesNode} when the application is undeployed, so the
+ * threads of the node (the stock shuffler, the node transport and the scheduler of the web-socket endpoint) don't
+ * outlive the application.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class DominoesContextListener implements ServletContextListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DominoesContextListener.class);
+
+    @Override
+    public void contextInitialized(final ServletContextEvent event) {
+        //The default node is created on its first use
+    }
+
+    @Override
+    public void contextDestroyed(final ServletContextEvent event) {
+        final DominoesNode node = DominoesNode.getDefault();
+        LOGGER.info("Stopping node {}", node.getNodeId());
+        node.stop();
+        DominoesWebSocket.stopScheduler();
+    }
+}
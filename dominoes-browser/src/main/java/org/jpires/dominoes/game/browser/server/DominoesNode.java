@@ -0,0 +1,565 @@
+package org.jpires.dominoes.game.browser.server;
+
+import org.jpires.dominoes.game.browser.server.admin.NodeMetrics;
+import org.jpires.dominoes.game.browser.server.admission.AdmissionController;
+import org.jpires.dominoes.game.browser.server.cluster.ConsistentHashGameRouter;
+import org.jpires.dominoes.game.browser.server.cluster.GameRouter;
+import org.jpires.dominoes.game.browser.server.cluster.GlobalLobby;
+import org.jpires.dominoes.game.browser.server.cluster.InMemoryClusterStore;
+import org.jpires.dominoes.game.browser.server.cluster.LocalGameRouter;
+import org.jpires.dominoes.game.browser.server.cluster.RelayedSession;
+import org.jpires.dominoes.game.browser.server.cluster.RoutedMessage;
+import org.jpires.dominoes.game.browser.server.cluster.SocketNodeTransport;
+import org.jpires.dominoes.game.browser.server.drain.NodeDrainer;
+import org.jpires.dominoes.game.browser.server.multiplex.MultiplexedConnection;
+import org.jpires.dominoes.game.browser.server.ratelimit.RateLimiter;
+import org.jpires.dominoes.game.browser.server.replay.ReplayWindow;
+import org.jpires.dominoes.lib.StockPool;
+import org.jpires.dominoes.lib.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Dominoes Node represents a server node: its {@link SessionStore} and its {@link GameRouter}.
+ * On local mode (the default) the node owns all games. On distributed mode the games are partitioned across the
+ * nodes of a cluster, and the commands of a player are forwarded to the node owning the player's game.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class DominoesNode {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DominoesNode.class);
+
+    /**
+     * The system property with the id of this node.
+     */
+    public static final String NODE_ID_PROPERTY = "dominoes.node.id";
+
+    /**
+     * The system property with the nodes of the cluster (e.g. {@code node1=127.0.0.1:7101,node2=127.0.0.1:7102}).
+     * If it's set, the node runs on distributed mode.
+     */
+    public static final String CLUSTER_NODES_PROPERTY = "dominoes.cluster.nodes";
+
+    /**
+     * The default node, used by the web-socket endpoint.
+     */
+    private static volatile DominoesNode defaultNode = fromSystemProperties();
+
+    /**
+     * The id of this node.
+     */
+    private final String nodeId;
+
+    /**
+     * The store of the games played on this node.
+     */
+    private final SessionStore sessionStore;
+
+    /**
+     * The router of games across nodes.
+     */
+    private final GameRouter gameRouter;
+
+    /**
+     * The rate limiter of the sessions connected to this node.
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * The admission controller of the connections and players of this node.
+     */
+    private final AdmissionController admissionController;
+
+    /**
+     * The histograms of this node.
+     */
+    private final NodeMetrics metrics = new NodeMetrics();
+
+    /**
+     * The stocks shuffled in advance for the games created on this node.
+     */
+    private final StockPool stockPool = new StockPool(Constants.STOCK_POOL_SIZE);
+
+    /**
+     * The sessions connected to this node, whose games are owned by other nodes.
+     * The key is the session id, and the value the node owning the game.
+     */
+    private final Map<String, String> routedSessions = new ConcurrentHashMap<>();
+
+    /**
+     * The sessions of players connected to other nodes, whose games are owned by this node.
+     * The key is the id of the relayed session (see {@link RelayedSession#key(String, String)}).
+     */
+    private final Map<String, RelayedSession> relayedSessions = new ConcurrentHashMap<>();
+
+    /**
+     * The multiplexed connections to this node. The key is the session id of the connection.
+     */
+    private final Map<String, MultiplexedConnection> multiplexedConnections = new ConcurrentHashMap<>();
+
+    /**
+     * The responses to the last numbered commands of each session whose game is played on this node.
+     * The key is the session id. The window of a dropped player is kept while the seat is held, and moved to the new
+     * session when the player resumes the game.
+     */
+    private final Map<String, ReplayWindow> replayWindows = new ConcurrentHashMap<>();
+
+    /**
+     * The global lobby, used when this node is the lobby node of the cluster.
+     */
+    private final GlobalLobby globalLobby = new GlobalLobby();
+
+    /**
+     * The sessions connected to this node, whose players are seeking an opponent on the global lobby.
+     */
+    private final Set<String> seekingSessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Whether there are players waiting on the global lobby, as announced by the lobby node.
+     */
+    private volatile boolean lobbyWaiting;
+
+    /**
+     * The future completed when this node is drained, or null if the node isn't draining.
+     */
+    private final AtomicReference<CompletableFuture<Void>> drained = new AtomicReference<>();
+
+    /**
+     * Constructs a node.
+     *
+     * @param nodeId       the id of this node
+     * @param sessionStore the store of the games played on this node
+     * @param gameRouter   the router of games across nodes
+     */
+    public DominoesNode(final String nodeId, final SessionStore sessionStore, final GameRouter gameRouter) {
+        this(nodeId, sessionStore, gameRouter, RateLimiter.fromSystemProperties());
+    }
+
+    /**
+     * Constructs a node with a certain rate limiter.
+     *
+     * @param nodeId       the id of this node
+     * @param sessionStore the store of the games played on this node
+     * @param gameRouter   the router of games across nodes
+     * @param rateLimiter  the rate limiter of the sessions connected to this node
+     */
+    public DominoesNode(final String nodeId, final SessionStore sessionStore, final GameRouter gameRouter,
+                        final RateLimiter rateLimiter) {
+        this(nodeId, sessionStore, gameRouter, rateLimiter, AdmissionController.fromSystemProperties());
+    }
+
+    /**
+     * Constructs a node with a certain rate limiter and admission controller.
+     *
+     * @param nodeId              the id of this node
+     * @param sessionStore        the store of the games played on this node
+     * @param gameRouter          the router of games across nodes
+     * @param rateLimiter         the rate limiter of the sessions connected to this node
+     * @param admissionController the admission controller of the connections and players of this node
+     */
+    public DominoesNode(final String nodeId, final SessionStore sessionStore, final GameRouter gameRouter,
+                        final RateLimiter rateLimiter, final AdmissionController admissionController) {
+        this.nodeId = nodeId;
+        this.sessionStore = sessionStore;
+        this.gameRouter = gameRouter;
+        this.rateLimiter = rateLimiter;
+        this.admissionController = admissionController;
+    }
+
+    /**
+     * Creates a node configured by system properties.
+     * See {@link #NODE_ID_PROPERTY} and {@link #CLUSTER_NODES_PROPERTY}.
+     *
+     * @return the node
+     */
+    private static DominoesNode fromSystemProperties() {
+        final DominoesNode node = createFromSystemProperties();
+
+        //On a rolling deploy, the node is drained before the JVM exits
+        if (Constants.DRAIN_ON_SHUTDOWN) {
+            NodeDrainer.drainOnShutdown(node);
+        }
+        return node;
+    }
+
+    /**
+     * Creates a node configured by system properties, on local or distributed mode.
+     *
+     * @return the node
+     */
+    private static DominoesNode createFromSystemProperties() {
+        final String nodeId = System.getProperty(NODE_ID_PROPERTY, "local");
+        final String clusterNodes = System.getProperty(CLUSTER_NODES_PROPERTY);
+
+        if (clusterNodes == null) {
+            return new DominoesNode(nodeId, new InMemorySessionStore(), new LocalGameRouter(nodeId));
+        }
+
+        LOGGER.info("Starting node {} on distributed mode with nodes {}", nodeId, clusterNodes);
+        final InMemoryClusterStore clusterStore = InMemoryClusterStore.fromSpecification(clusterNodes);
+        final DominoesNode node = new DominoesNode(nodeId, new InMemorySessionStore(),
+                new ConsistentHashGameRouter(nodeId, clusterStore, new SocketNodeTransport(clusterStore),
+                        ConsistentHashGameRouter.DEFAULT_VIRTUAL_NODES));
+        try {
+            node.start();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Error starting node " + nodeId, e);
+        }
+        return node;
+    }
+
+    /**
+     * Gets the default node.
+     *
+     * @return the default node
+     */
+    public static DominoesNode getDefault() {
+        return defaultNode;
+    }
+
+    /**
+     * Sets the default node.
+     *
+     * @param node the new default node
+     */
+    public static void setDefault(final DominoesNode node) {
+        defaultNode = node;
+    }
+
+    /**
+     * Starts receiving messages forwarded by other nodes.
+     *
+     * @throws IOException in case of any error starting the router
+     */
+    public void start() throws IOException {
+        gameRouter.start(this::receive);
+    }
+
+    /**
+     * Drains this node: it stops matching players, lets the games going on finish, and then stops (and exits the JVM,
+     * if {@link Constants#DRAIN_EXIT} is set).
+     * Draining a node already draining has no effect.
+     *
+     * @return the future completed when the node is drained
+     */
+    public CompletableFuture<Void> drain() {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        if (!drained.compareAndSet(null, future)) {
+            return drained.get();
+        }
+
+        new NodeDrainer(this, future, Constants.DRAIN_CHECK_MILLIS, Constants.DRAIN_TIMEOUT_MILLIS,
+                Constants.DRAIN_EXIT ? NodeDrainer::exit : () -> { }).start();
+        return future;
+    }
+
+    /**
+     * Verifies if this node is draining (or drained).
+     *
+     * @return true if the node is draining, false otherwise
+     */
+    public boolean isDraining() {
+        return drained.get() != null;
+    }
+
+    /**
+     * Verifies if this node is drained: no game is going on, and the node is stopped.
+     *
+     * @return true if the node is drained, false otherwise
+     */
+    public boolean isDrained() {
+        final CompletableFuture<Void> future = drained.get();
+        return future != null && future.isDone();
+    }
+
+    /**
+     * Stops receiving messages forwarded by other nodes, and stops shuffling stocks in advance.
+     */
+    public void stop() {
+        gameRouter.stop();
+        stockPool.stop();
+    }
+
+    /**
+     * Handles a message forwarded by another node.
+     *
+     * @param message the message
+     */
+    private void receive(final RoutedMessage message) {
+        LOGGER.trace("Node {} received: {}", nodeId, message);
+        try {
+            new DominoesWebSocket(this).onRoutedMessage(message);
+        } catch (final Exception e) {
+            LOGGER.error("Error handling routed message {}: {}", message, e);
+        }
+    }
+
+    /**
+     * Gets the id of this node.
+     *
+     * @return the node id
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Gets the store of the games played on this node.
+     *
+     * @return the session store
+     */
+    public SessionStore getSessionStore() {
+        return sessionStore;
+    }
+
+    /**
+     * Gets the router of games across nodes.
+     *
+     * @return the game router
+     */
+    public GameRouter getGameRouter() {
+        return gameRouter;
+    }
+
+    /**
+     * Gets the rate limiter of the sessions connected to this node.
+     *
+     * @return the rate limiter
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Gets the admission controller of the connections and players of this node.
+     *
+     * @return the admission controller
+     */
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    /**
+     * Gets the histograms of this node.
+     *
+     * @return the metrics
+     */
+    public NodeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the stocks shuffled in advance for the games created on this node.
+     *
+     * @return the stock pool
+     */
+    public StockPool getStockPool() {
+        return stockPool;
+    }
+
+    /**
+     * Registers a session connected to this node, whose game is owned by another node.
+     *
+     * @param sessionId the session id
+     * @param ownerNode the node owning the game
+     */
+    void routeSession(final String sessionId, final String ownerNode) {
+        routedSessions.put(sessionId, ownerNode);
+    }
+
+    /**
+     * Gets the node owning the game of a session connected to this node.
+     *
+     * @param sessionId the session id
+     * @return the owner node id, or null if the game (if any) is owned by this node
+     */
+    String getOwnerNode(final String sessionId) {
+        return routedSessions.get(sessionId);
+    }
+
+    /**
+     * Unregisters a session connected to this node, whose game is owned by another node.
+     *
+     * @param sessionId the session id
+     * @return the owner node id, or null if the session wasn't routed
+     */
+    String unrouteSession(final String sessionId) {
+        return routedSessions.remove(sessionId);
+    }
+
+    /**
+     * Gets (or creates) the session of a player connected to another node.
+     *
+     * @param sessionId  the session id
+     * @param originNode the node where the player is connected
+     * @return the relayed session
+     */
+    RelayedSession relayedSession(final String sessionId, final String originNode) {
+        return relayedSessions.computeIfAbsent(RelayedSession.key(originNode, sessionId),
+                id -> new RelayedSession(sessionId, originNode, gameRouter));
+    }
+
+    /**
+     * Gets the session of a player connected to another node.
+     *
+     * @param id the id of the relayed session (see {@link RelayedSession#key(String, String)})
+     * @return the relayed session, or null if there's no such session
+     */
+    RelayedSession getRelayedSession(final String id) {
+        return relayedSessions.get(id);
+    }
+
+    /**
+     * Removes the session of a player connected to another node.
+     *
+     * @param id the id of the relayed session (see {@link RelayedSession#key(String, String)})
+     * @return the removed session, or null if there was no such session
+     */
+    RelayedSession removeRelayedSession(final String id) {
+        return relayedSessions.remove(id);
+    }
+
+    /**
+     * Adds a multiplexed connection to this node.
+     *
+     * @param connection the connection
+     */
+    void addMultiplexedConnection(final MultiplexedConnection connection) {
+        multiplexedConnections.put(connection.getSession().getId(), connection);
+    }
+
+    /**
+     * Gets a multiplexed connection to this node.
+     *
+     * @param sessionId the session id of the connection
+     * @return the connection, or null if it isn't a multiplexed connection
+     */
+    MultiplexedConnection getMultiplexedConnection(final String sessionId) {
+        return multiplexedConnections.get(sessionId);
+    }
+
+    /**
+     * Removes a multiplexed connection from this node.
+     *
+     * @param sessionId the session id of the connection
+     * @return the removed connection, or null if it wasn't a multiplexed connection
+     */
+    MultiplexedConnection removeMultiplexedConnection(final String sessionId) {
+        return multiplexedConnections.remove(sessionId);
+    }
+
+    /**
+     * Gets the replay window of a session, creating it on the first numbered command.
+     *
+     * @param sessionId the session id
+     * @return the replay window
+     */
+    ReplayWindow replayWindow(final String sessionId) {
+        return replayWindows.computeIfAbsent(sessionId, id -> new ReplayWindow(Constants.REPLAY_WINDOW_SIZE));
+    }
+
+    /**
+     * Removes the replay window of a session which is gone for good.
+     *
+     * @param sessionId the session id
+     */
+    void removeReplayWindow(final String sessionId) {
+        replayWindows.remove(sessionId);
+    }
+
+    /**
+     * Moves the replay window of a session to a new session, when a player resumes the game.
+     * The player may send again the commands sent before the connection dropped, with the same sequence numbers.
+     *
+     * @param sessionId    the old session id
+     * @param newSessionId the new session id
+     */
+    void moveReplayWindow(final String sessionId, final String newSessionId) {
+        final ReplayWindow replayWindow = replayWindows.remove(sessionId);
+        if (replayWindow != null) {
+            replayWindows.put(newSessionId, replayWindow);
+        }
+    }
+
+    /**
+     * Verifies if this node is part of a cluster with other nodes.
+     *
+     * @return true if there are other nodes, false otherwise
+     */
+    boolean isClustered() {
+        return gameRouter.getNodeIds().size() > 1;
+    }
+
+    /**
+     * Gets the node of the cluster keeping the global lobby.
+     *
+     * @return the lobby node id
+     */
+    String getLobbyNode() {
+        return gameRouter.ownerOf(GlobalLobby.LOBBY_KEY);
+    }
+
+    /**
+     * Gets the global lobby, used when this node is the lobby node.
+     *
+     * @return the global lobby
+     */
+    GlobalLobby getGlobalLobby() {
+        return globalLobby;
+    }
+
+    /**
+     * Registers a session whose player is seeking an opponent on the global lobby.
+     *
+     * @param sessionId the session id
+     */
+    void addSeekingSession(final String sessionId) {
+        seekingSessions.add(sessionId);
+    }
+
+    /**
+     * Unregisters a session whose player was seeking an opponent on the global lobby.
+     *
+     * @param sessionId the session id
+     * @return true if the player was seeking an opponent, false otherwise
+     */
+    boolean removeSeekingSession(final String sessionId) {
+        return seekingSessions.remove(sessionId);
+    }
+
+    /**
+     * Verifies if the player of a session is seeking an opponent on the global lobby.
+     *
+     * @param sessionId the session id
+     * @return true if the player is seeking an opponent, false otherwise
+     */
+    boolean isSeekingSession(final String sessionId) {
+        return seekingSessions.contains(sessionId);
+    }
+
+    /**
+     * Verifies if there are players waiting on the global lobby.
+     *
+     * @return true if there are players waiting, false otherwise
+     */
+    boolean isLobbyWaiting() {
+        return lobbyWaiting;
+    }
+
+    /**
+     * Sets whether there are players waiting on the global lobby.
+     *
+     * @param lobbyWaiting true if there are players waiting, false otherwise
+     */
+    void setLobbyWaiting(final boolean lobbyWaiting) {
+        this.lobbyWaiting = lobbyWaiting;
+    }
+}
@@ -3,14 +3,12 @@ package org.jpires.dominoes.game.browser.server;
 import org.jpires.dominoes.lib.WebGame;
 import org.jpires.dominoes.lib.model.WebPlayer;
 
-import java.util.Map;
 import java.util.Optional;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Predicate;
 
 /**
  * Dominoes Sessions represents an internal memory of Dominoes games and web-socket sessions.
+ * It's a static access to the {@link SessionStore} of the default {@link DominoesNode}.
  *
  * @author Joao Pires (jppires91@gmail.com)
  */
@@ -24,16 +22,13 @@ public final class DominoesSessions {
     }
 
     /**
-     * Map to store all games session.
-     * The key is a session id, and the value a specific game.
-     * A game must be represented by two keys (session of player 1 and session of player 2).
-     */
-    private static final Map<String, WebGame> GAMES_SESSIONS_MAP = new ConcurrentHashMap<>();
-
-    /**
-     * Queue with players waiting for opponents to play.
+     * Gets the store of the default node.
+     *
+     * @return the session store
      */
-    private static final Queue<WebPlayer> WAITING_PLAYERS = new LinkedBlockingQueue<>();
+    private static SessionStore store() {
+        return DominoesNode.getDefault().getSessionStore();
+    }
 
     /**
      * Gets a player from waiting queue.
@@ -41,7 +36,17 @@ public final class DominoesSessions {
      * @return Optional of the waiting player from queue, or empty if no player is waiting to play on the queue.
      */
     public static Optional<WebPlayer> getPlayerFromQueue() {
-        return Optional.ofNullable(WAITING_PLAYERS.poll());
+        return store().getPlayerFromQueue();
+    }
+
+    /**
+     * Gets the first player from waiting queue who is an eligible opponent.
+     *
+     * @param opponent the condition of an eligible opponent
+     * @return Optional of the waiting player from queue, or empty if no eligible player is waiting on the queue.
+     */
+    public static Optional<WebPlayer> getPlayerFromQueue(final Predicate<WebPlayer> opponent) {
+        return store().getPlayerFromQueue(opponent);
     }
 
     /**
@@ -50,7 +55,56 @@ public final class DominoesSessions {
      * @param player the player to be added
      */
     public static void addPlayerToQueue(final WebPlayer player) {
-        WAITING_PLAYERS.offer(player);
+        store().addPlayerToQueue(player);
+    }
+
+    /**
+     * Verifies if a player is waiting on the queue.
+     *
+     * @param player the player
+     * @return true if the player is waiting for an opponent, false otherwise
+     */
+    public static boolean isPlayerInQueue(final WebPlayer player) {
+        return store().isPlayerInQueue(player);
+    }
+
+    /**
+     * Removes a player from the waiting queue.
+     *
+     * @param player the player
+     * @return true if the player was waiting on the queue, false otherwise
+     */
+    public static boolean removePlayerFromQueue(final WebPlayer player) {
+        return store().removePlayerFromQueue(player);
+    }
+
+    /**
+     * Puts a player on the Players Sessions Map.
+     *
+     * @param sessionId the session id
+     * @param player    the player connected with the session
+     */
+    public static void putPlayer(final String sessionId, final WebPlayer player) {
+        store().putPlayer(sessionId, player);
+    }
+
+    /**
+     * Given a session id, returns the corresponding player.
+     *
+     * @param sessionId the session id
+     * @return the corresponding player, or null if there's no player connected with the session
+     */
+    public static WebPlayer getPlayer(final String sessionId) {
+        return store().getPlayer(sessionId);
+    }
+
+    /**
+     * Removes a player from the map, when the session is closed.
+     *
+     * @param sessionId the session id which is closed
+     */
+    public static void removePlayer(final String sessionId) {
+        store().removePlayer(sessionId);
     }
 
     /**
@@ -60,7 +114,7 @@ public final class DominoesSessions {
      * @param game      the game
      */
     public static void putGame(final String sessionId, final WebGame game) {
-        GAMES_SESSIONS_MAP.put(sessionId, game);
+        store().putGame(sessionId, game);
     }
 
     /**
@@ -70,7 +124,7 @@ public final class DominoesSessions {
      * @return the corresponding game
      */
     public static WebGame getGame(final String sessionId) {
-        return GAMES_SESSIONS_MAP.get(sessionId);
+        return store().getGame(sessionId);
     }
 
     /**
@@ -79,11 +133,51 @@ public final class DominoesSessions {
      * @param sessionId the session id which is closed
      */
     public static void removeGame(final String sessionId) {
-        GAMES_SESSIONS_MAP.remove(sessionId);
+        store().removeGame(sessionId);
+    }
+
+    /**
+     * Removes a game from the map, only if the session is still attached to that game.
+     *
+     * @param sessionId the session id
+     * @param game      the game to be removed
+     * @return true if the game was removed, false otherwise
+     */
+    public static boolean removeGame(final String sessionId, final WebGame game) {
+        return store().removeGame(sessionId, game);
+    }
+
+    /**
+     * Puts a game on the Resume Tokens Map.
+     *
+     * @param resumeToken the resume token (representing a player)
+     * @param game        the game
+     */
+    public static void putResumeToken(final String resumeToken, final WebGame game) {
+        store().putResumeToken(resumeToken, game);
+    }
+
+    /**
+     * Given a resume token, returns the corresponding game.
+     *
+     * @param resumeToken the resume token
+     * @return the corresponding game, or null if the token is unknown (or expired)
+     */
+    public static WebGame getGameByResumeToken(final String resumeToken) {
+        return store().getGameByResumeToken(resumeToken);
+    }
+
+    /**
+     * Removes a resume token from the map, when the game is removed from memory.
+     *
+     * @param resumeToken the resume token
+     * @param game        the game the token belongs to
+     */
+    public static void removeResumeToken(final String resumeToken, final WebGame game) {
+        store().removeResumeToken(resumeToken, game);
     }
 
     public static void clear() {
-        GAMES_SESSIONS_MAP.clear();
-        WAITING_PLAYERS.clear();
+        store().clear();
     }
 }
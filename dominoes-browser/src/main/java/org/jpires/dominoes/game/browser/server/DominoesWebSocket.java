@@ -1,19 +1,31 @@
 package org.jpires.dominoes.game.browser.server;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.jpires.dominoes.lib.model.DominoPiece;
 import org.jpires.dominoes.lib.utils.GameMessageWrapper;
 import org.jpires.dominoes.lib.utils.MessageType;
 import org.jpires.dominoes.lib.model.Place;
 import org.jpires.dominoes.lib.WebGame;
+import org.jpires.dominoes.game.browser.server.admission.AdmissionController;
+import org.jpires.dominoes.game.browser.server.cluster.GlobalLobby;
+import org.jpires.dominoes.game.browser.server.cluster.RelayedSession;
+import org.jpires.dominoes.game.browser.server.cluster.RoutedMessage;
+import org.jpires.dominoes.game.browser.server.drain.NodeDrainer;
 import org.jpires.dominoes.game.browser.server.model.WebMessage;
 import org.jpires.dominoes.game.browser.server.model.WebMessageDecoder;
 import org.jpires.dominoes.game.browser.server.model.WebMessageEncoder;
+import org.jpires.dominoes.game.browser.server.multiplex.MultiplexedConnection;
+import org.jpires.dominoes.game.browser.server.multiplex.TableSession;
+import org.jpires.dominoes.game.browser.server.replay.ReplayWindow;
 import org.jpires.dominoes.lib.model.WebPlayer;
 import org.jpires.dominoes.lib.utils.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.websocket.CloseReason;
+import javax.websocket.DecodeException;
 import javax.websocket.EncodeException;
 import javax.websocket.OnClose;
 import javax.websocket.OnError;
@@ -23,7 +35,15 @@ import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents the web-socket connection.
@@ -32,13 +52,64 @@ import java.util.Optional;
  */
 @ServerEndpoint(
         value = "/dominoes/{username}",
-        encoders = WebMessageEncoder.class,
-        decoders = WebMessageDecoder.class
+        encoders = WebMessageEncoder.class
 )
 public class DominoesWebSocket {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DominoesWebSocket.class);
 
+    /**
+     * Scheduler to release the seats of dropped players when the resume grace window expires, and to spill waiting
+     * players over to the global lobby.
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("dominoes-scheduler-%d").setDaemon(true).build());
+
+    /**
+     * Decoder of the messages received from browsers, used once the rate limits were checked.
+     */
+    private static final WebMessageDecoder DECODER = new WebMessageDecoder();
+
+    /**
+     * The numbered command being handled by the current thread, if any. The responses sent to its session are
+     * numbered and recorded, to be sent again if the command is repeated.
+     */
+    private static final ThreadLocal<NumberedCommand> CURRENT_COMMAND = new ThreadLocal<>();
+
+    /**
+     * The node where this endpoint is running.
+     */
+    private final DominoesNode node;
+
+    /**
+     * The store of the games played on the node.
+     */
+    private final SessionStore sessionStore;
+
+    /**
+     * Constructs the endpoint on the default node.
+     */
+    public DominoesWebSocket() {
+        this(DominoesNode.getDefault());
+    }
+
+    /**
+     * Constructs the endpoint on a certain node.
+     *
+     * @param node the node
+     */
+    public DominoesWebSocket(final DominoesNode node) {
+        this.node = node;
+        this.sessionStore = node.getSessionStore();
+    }
+
+    /**
+     * Stops the scheduler of the seats held and of the spill-overs, when the application is undeployed.
+     */
+    static void stopScheduler() {
+        SCHEDULER.shutdownNow();
+    }
+
     /**
      * Opens a new web-socket connection with a new browser (player) and the server.
      *
@@ -49,49 +120,266 @@ public class DominoesWebSocket {
      */
     @OnOpen
     public void onOpen(final Session session, @PathParam("username") final String username) throws IOException, EncodeException {
+        //Bigger frames are refused by the container, before being buffered or decoded
+        session.setMaxTextMessageBufferSize(Constants.MAX_MESSAGE_BYTES);
+        node.getRateLimiter().register(session.getId(), remoteAddressOf(session));
 
-        //Gets a player from queue
-        final Optional<WebPlayer> playerFromQueue = DominoesSessions.getPlayerFromQueue();
+        //Under a burst, the connections beyond the capacity of the node are rejected fast, asking to retry later
+        if (!node.getAdmissionController().tryAdmitConnection(session.getId())) {
+            rejectSession(session, "Too many connections");
+            return;
+        }
+
+        //A multiplexed connection plays several games at once, joined later one by one
+        if (isMultiplexed(session)) {
+            node.addMultiplexedConnection(new MultiplexedConnection(session, username));
+            return;
+        }
+
+        //If the browser is resuming a game (reconnecting with a resume token), reattach it to its seat
+        if (resumeGame(session, username)) {
+            return;
+        }
+
+        final String rejection = admitNewPlayer();
+        if (rejection != null) {
+            rejectSession(session, rejection);
+            return;
+        }
 
         //Creates a new player with this session
         final WebPlayer player = new WebPlayer(username, session.getId(), session);
+        sessionStore.putPlayer(session.getId(), player);
 
-        //If there is a player in the queue, the game can start
-        if (playerFromQueue.isPresent() && playerFromQueue.get().getSocketSession().isOpen()) {
-            final WebGame game = new WebGame(playerFromQueue.get(), player);
-            DominoesSessions.putGame(playerFromQueue.get().getSessionId(), game);
-            DominoesSessions.putGame(player.getSessionId(), game);
+        matchPlayer(player);
+    }
 
-            game.start();
+    /**
+     * Method that is triggered when a new message arrives from browser to server.
+     * The rate limits of the session are checked before decoding the message: a session exceeding them is closed.
+     *
+     * @param session the session which represents the web-socket connection
+     * @param text    the message received on the server, not decoded yet
+     * @throws IOException     in case of any error sending the response message
+     * @throws EncodeException in case of any error encoding the response message
+     */
+    @OnMessage
+    public void onText(final Session session, final String text) throws IOException, EncodeException {
+        if (!node.getRateLimiter().tryAcquire(session.getId())) {
+            closeAbusiveSession(session, "Too many messages");
+            return;
+        }
 
-            sendMessage(playerFromQueue.get(), GameMessageWrapper.toWebMessage(MessageType.NEW_GAME, game, playerFromQueue.get()));
-            sendMessage(player, GameMessageWrapper.toWebMessage(MessageType.NEW_GAME, game, player));
+        //The latency of the messages tells whether the node is overloaded
+        final long start = System.nanoTime();
+        try {
+            handleText(session, text);
+        } finally {
+            final long latency = System.nanoTime() - start;
+            node.getAdmissionController().recordLatency(latency);
+            node.getMetrics().getMessageLatency().record(TimeUnit.NANOSECONDS.toMicros(latency));
+        }
+    }
 
+    /**
+     * Decodes and handles a message received from a browser.
+     *
+     * @param session the session which represents the web-socket connection
+     * @param text    the message received on the server, not decoded yet
+     * @throws IOException     in case of any error sending the response message
+     * @throws EncodeException in case of any error encoding the response message
+     */
+    private void handleText(final Session session, final String text) throws IOException, EncodeException {
+        final MultiplexedConnection connection = node.getMultiplexedConnection(session.getId());
+
+        final WebMessage message;
+        try {
+            message = DECODER.decode(text);
+        } catch (final DecodeException e) {
+            LOGGER.info("Invalid message from session {}: {}", session.getId(), e.getMessage());
+            if (connection != null) {
+                connection.send(GameMessageWrapper.errorMessage("Invalid message"));
+            } else {
+                SessionSender.send(session, GameMessageWrapper.errorMessage("Invalid message"));
+            }
+            countError(session);
+            return;
         }
-        // Else, this player will be added to the queue, to wait for a new player to join
-        else {
-            DominoesSessions.addPlayerToQueue(player);
-            sendMessage(player, new WebMessage(MessageType.WAITING_FOR_PLAYER));
+
+        //On a multiplexed connection, the message is about one of its games
+        if (connection != null) {
+            onGameMessage(connection, message);
+            return;
         }
+
+        onMessage(session, message);
     }
 
     /**
-     * Method that is triggered when a new message arrives from browser to server.
+     * Handles a message received on a multiplexed connection.
+     * Each game joined on the connection has its own session, so the message is handled as if it was received on a
+     * connection of its own. The errors about the connection are sent through it, as the messages of its games.
+     *
+     * @param connection the multiplexed connection
+     * @param message    the message received on the server
+     * @throws IOException     in case of any error sending the response message
+     * @throws EncodeException in case of any error encoding the response message
+     */
+    private void onGameMessage(final MultiplexedConnection connection, final WebMessage message) throws IOException, EncodeException {
+        final Session session = connection.getSession();
+        final String gameId = message.getGameId();
+
+        if (gameId == null) {
+            connection.send(GameMessageWrapper.errorMessage("The message has no game id"));
+            countError(session);
+            return;
+        }
+
+        //The player joins a new game, and waits for an opponent as on a connection of its own
+        if (MessageType.JOIN_GAME.equals(message.getType())) {
+            if (connection.getTableCount() >= Constants.MAX_GAMES_PER_CONNECTION) {
+                connection.send(GameMessageWrapper.errorMessage("Too many games on this connection").withGameId(gameId));
+                return;
+            }
+
+            final String rejection = admitNewPlayer();
+            if (rejection != null) {
+                connection.send(GameMessageWrapper.retryLaterMessage(rejection,
+                        AdmissionController.retryAfterMillis()).withGameId(gameId));
+                return;
+            }
+
+            final TableSession table = connection.openTable(gameId, this::closeTable);
+            if (table == null) {
+                connection.send(GameMessageWrapper.errorMessage("You already joined that game").withGameId(gameId));
+                countError(session);
+                return;
+            }
+
+            final WebPlayer player = new WebPlayer(connection.getUsername(), table.getId(), table);
+            sessionStore.putPlayer(table.getId(), player);
+            matchPlayer(player);
+            return;
+        }
+
+        final boolean leaving = MessageType.LEAVE_GAME.equals(message.getType());
+        final TableSession table = leaving ? connection.removeTable(gameId) : connection.getTable(gameId);
+        if (table == null) {
+            connection.send(GameMessageWrapper.errorMessage("You are not playing that game").withGameId(gameId));
+            countError(session);
+            return;
+        }
+
+        //Leaving a game is the same as closing the connection of a single game
+        if (leaving) {
+            onClose(table);
+        } else {
+            onMessage(table, message);
+        }
+    }
+
+    /**
+     * Leaves a game of a multiplexed connection, closed by the server (e.g. by the node owning the game).
+     *
+     * @param table the session of the game
+     */
+    private void closeTable(final TableSession table) {
+        try {
+            onClose(table);
+        } catch (final IOException | EncodeException e) {
+            LOGGER.error("Error leaving the game {} of session {}: {}", table.getGameId(),
+                    table.getConnection().getSession().getId(), e);
+        }
+    }
+
+    /**
+     * Handles a decoded message from browser to server (or forwarded by another node).
      *
      * @param session the session which represents the web-socket connection
      * @param message the message received on the server
      * @throws IOException     in case of any error sending the response message
      * @throws EncodeException in case of any error encoding the response message
      */
-    @OnMessage
     public void onMessage(final Session session, final WebMessage message) throws IOException, EncodeException {
+        //If the game of this session is owned by another node, forwards the message to that node
+        final String ownerNode = node.getOwnerNode(session.getId());
+        if (ownerNode != null) {
+            node.getGameRouter().forward(ownerNode, RoutedMessage.command(node.getNodeId(), session.getId(), message));
+            return;
+        }
+
+        final Long seq = message.getSeq();
+        if (seq == null) {
+            handleMessage(session, message);
+            return;
+        }
+        if (seq < 0) {
+            SessionSender.send(session, GameMessageWrapper.errorMessage("Invalid sequence number"));
+            countError(session);
+            return;
+        }
+
+        //A numbered command sent again is answered with the responses of the first time, instead of being handled again
+        final ReplayWindow replayWindow = node.replayWindow(session.getId());
+        final List<WebMessage> responses = replayWindow.getResponses(seq);
+        if (responses != null) {
+            LOGGER.info("Replaying {} responses to command {} of session {}", responses.size(), seq, session.getId());
+            for (final WebMessage response : responses) {
+                SessionSender.send(session, response);
+            }
+            return;
+        }
+        if (replayWindow.isStale(seq)) {
+            LOGGER.info("Ignoring stale command {} of session {}", seq, session.getId());
+            return;
+        }
+
+        final NumberedCommand command = new NumberedCommand(session.getId(), seq);
+        CURRENT_COMMAND.set(command);
+        try {
+            handleMessage(session, message);
+        } finally {
+            CURRENT_COMMAND.remove();
+            replayWindow.record(seq, command.responses);
+        }
+    }
+
+    /**
+     * Handles a message of a game played on this node.
+     *
+     * @param session the session which represents the web-socket connection
+     * @param message the message received on the server
+     * @throws IOException     in case of any error sending the response message
+     * @throws EncodeException in case of any error encoding the response message
+     */
+    private void handleMessage(final Session session, final WebMessage message) throws IOException, EncodeException {
+        //A draining node doesn't start new matches: the player is asked to play again on another node
+        if (node.isDraining() && (MessageType.REMATCH.equals(message.getType()) || MessageType.REQUEUE.equals(message.getType()))) {
+            rejectSession(session, NodeDrainer.DRAINING_REASON);
+            return;
+        }
+
         //Gets the game
-        final WebGame game = DominoesSessions.getGame(session.getId());
+        final WebGame game = sessionStore.getGame(session.getId());
+
+        //If the player isn't playing any game (e.g. the opponent left), he's only able to wait for a new opponent
+        final WebPlayer idlePlayer = game == null ? sessionStore.getPlayer(session.getId()) : null;
+        if (idlePlayer != null) {
+            if (MessageType.REQUEUE.equals(message.getType()) && !sessionStore.isPlayerInQueue(idlePlayer)
+                    && !node.isSeekingSession(session.getId())) {
+                idlePlayer.reset();
+                matchPlayer(idlePlayer);
+            } else {
+                sendMessage(idlePlayer, GameMessageWrapper.errorMessage("You are not playing any game"));
+                countError(session);
+            }
+            return;
+        }
 
         //If the game wasn't found in memory, close the session
         if (game == null) {
             LOGGER.error("Game for session {} not found in memory", session.getId());
-            session.getBasicRemote().sendObject(GameMessageWrapper.errorMessage("Game not found in memory. Closing the session"));
+            SessionSender.send(session, GameMessageWrapper.errorMessage("Game not found in memory. Closing the session"));
             onClose(session);
             return;
         }
@@ -118,9 +406,22 @@ public class DominoesWebSocket {
                 case GET_FROM_STOCK:
                     handleGetFromStock(game, thisPlayer, otherPlayer);
                     break;
+                //The player wants to get pieces from stock until they are able to play
+                case DRAW_FROM_STOCK:
+                    handleDrawFromStock(game, thisPlayer, otherPlayer);
+                    break;
+                //The game is over and the player wants to play again with the same opponent
+                case REMATCH:
+                    handleRematch(game, thisPlayer, otherPlayer);
+                    break;
+                //The game is over and the player wants to play with a new opponent
+                case REQUEUE:
+                    handleRequeue(game, thisPlayer);
+                    break;
                 //Invalid message
                 default:
                     sendMessage(thisPlayer, GameMessageWrapper.errorMessage("Unrecognized message type"));
+                    countError(session);
                     break;
             }
         } catch (final IllegalArgumentException e) {
@@ -128,46 +429,584 @@ public class DominoesWebSocket {
             //Info message since it's not a server internal error but an unexpected behaviour from the player
             LOGGER.info("Invalid play: {}", e.getMessage());
             sendMessage(thisPlayer, GameMessageWrapper.errorMessage(e));
+            countError(session);
         } catch (final Exception e) {
             //Internal error while playing
             LOGGER.error("Generic error: {}", e);
             sendMessage(thisPlayer, GameMessageWrapper.errorMessage("Generic error"));
+        } finally {
+            //The admin endpoints read the state of the game from its snapshot
+            game.publishSnapshot();
         }
     }
 
     /**
      * Method that is triggered when a web-socket connection is closed.
-     * In this method the game is removed from memory and the other related session is closed.
+     * If the game is still going on, the player's seat is held open during the resume grace window,
+     * waiting for the player to reconnect. Otherwise, the game is removed from memory and the other player
+     * is notified, keeping his connection open to play again.
      *
      * @param session the session that is being closed
-     * @throws IOException in case of any error closing the other session
+     * @throws IOException     in case of any error sending the message to the other player
+     * @throws EncodeException in case of any error encoding the message to the other player
      */
     @OnClose
-    public void onClose(final Session session) throws IOException {
+    public void onClose(final Session session) throws IOException, EncodeException {
         LOGGER.info("Closing the session: {}", session.getId());
 
+        node.getRateLimiter().unregister(session.getId());
+        node.getAdmissionController().release(session.getId());
+
+        //A multiplexed connection leaves all its games
+        final MultiplexedConnection connection = node.removeMultiplexedConnection(session.getId());
+        if (connection != null) {
+            for (final TableSession table : connection.removeTables()) {
+                onClose(table);
+            }
+            return;
+        }
+
+        sessionStore.removePlayer(session.getId());
+
+        //If the player was seeking an opponent on the global lobby, withdraws him
+        if (node.removeSeekingSession(session.getId())) {
+            node.getGameRouter().forward(node.getLobbyNode(), RoutedMessage.withdraw(node.getNodeId(), session.getId()));
+        }
+
+        //If the game of this session is owned by another node, lets that node handle it
+        final String ownerNode = node.unrouteSession(session.getId());
+        if (ownerNode != null) {
+            node.removeReplayWindow(session.getId());
+            node.getGameRouter().forward(ownerNode, RoutedMessage.close(node.getNodeId(), session.getId()));
+            return;
+        }
+
         //Gets the game for this session
-        final WebGame game = DominoesSessions.getGame(session.getId());
+        final WebGame game = sessionStore.getGame(session.getId());
 
         //If there is no game in memory, there's nothing to do
         if (game == null) {
             LOGGER.info("There's no game going on. Nothing to do here.");
+            node.removeReplayWindow(session.getId());
             return;
         }
 
         final WebPlayer thisPlayer = game.getPlayerBySession(session.getId());
 
-        final WebPlayer otherPlayer = game.getOtherPlayer(thisPlayer);
+        //If the game is going on, hold the seat open, waiting for the player to resume the game
+        //(unless a game of a multiplexed connection was left on purpose, with the connection still open)
+        final boolean leftOnPurpose = session instanceof TableSession
+                && ((TableSession) session).getConnection().getSession().isOpen();
+        if (!game.isOver() && Constants.RESUME_GRACE_MILLIS > 0 && !leftOnPurpose) {
+            LOGGER.info("Holding the seat of {} for {} ms", thisPlayer.getName(), Constants.RESUME_GRACE_MILLIS);
+            thisPlayer.markDisconnected(System.currentTimeMillis());
+            SCHEDULER.schedule(() -> expireSeat(game, thisPlayer, session.getId()),
+                    Constants.RESUME_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            //The replay window is kept too, since the player may send a command again after resuming the game
+            return;
+        }
 
-        //Closes the session of the other player in game
-        if (otherPlayer.getSocketSession().isOpen()) {
-            LOGGER.info("Closing the session: {}", otherPlayer.getSessionId());
-            otherPlayer.getSocketSession().close();
+        node.removeReplayWindow(session.getId());
+        leaveGame(game, thisPlayer);
+    }
+
+    /**
+     * Verifies if two sessions are games of the same multiplexed connection.
+     *
+     * @param session      a session
+     * @param otherSession the other session
+     * @return true if both are games of the same connection, false otherwise
+     */
+    private static boolean sameConnection(final Session session, final Session otherSession) {
+        return session instanceof TableSession && otherSession instanceof TableSession
+                && ((TableSession) session).getConnection() == ((TableSession) otherSession).getConnection();
+    }
+
+    /**
+     * Verifies if a session is a multiplexed connection, asked with the query parameter {@code multiplex=true}.
+     *
+     * @param session the session
+     * @return true if the connection plays several games at once, false otherwise
+     */
+    private static boolean isMultiplexed(final Session session) {
+        final Map<String, List<String>> parameters = session.getRequestParameterMap();
+        return parameters != null && parameters.get(Constants.MULTIPLEX_PARAMETER) != null
+                && parameters.get(Constants.MULTIPLEX_PARAMETER).contains("true");
+    }
+
+    /**
+     * Releases the seat of a dropped player, when the resume grace window expires.
+     * If the player didn't resume the game meanwhile (with the same session), the game is removed from memory
+     * and the other player is notified.
+     *
+     * @param game      the game
+     * @param player    the dropped player
+     * @param sessionId the session id that was closed
+     */
+    @VisibleForTesting
+    void expireSeat(final WebGame game, final WebPlayer player, final String sessionId) {
+        //If the player resumed the game, the replay window was moved to the new session
+        node.removeReplayWindow(sessionId);
+        if (!player.isDisconnected() || !sessionId.equals(player.getSessionId())
+                || sessionStore.getGame(sessionId) != game) {
+            return;
         }
 
+        LOGGER.info("Player {} didn't resume the game. Releasing the seat.", player.getName());
+        try {
+            leaveGame(game, player);
+        } catch (final IOException | EncodeException e) {
+            LOGGER.error("Error releasing the seat of {}: {}", player.getName(), e);
+        }
+    }
+
+    /**
+     * Removes the game from memory, since a player left it.
+     * The other player is notified, and he's able to wait for a new opponent on the same connection.
+     *
+     * @param game       the game to be removed
+     * @param thisPlayer the player leaving the game
+     * @throws IOException     in case of any error sending the message to the other player
+     * @throws EncodeException in case of any error encoding the message to the other player
+     */
+    private void leaveGame(final WebGame game, final WebPlayer thisPlayer) throws IOException, EncodeException {
+        final WebPlayer otherPlayer = game.getOtherPlayer(thisPlayer);
+
         //Remove game from memory
-        DominoesSessions.removeGame(thisPlayer.getSessionId());
-        DominoesSessions.removeGame(otherPlayer.getSessionId());
+        sessionStore.removeGame(thisPlayer.getSessionId(), game);
+        final boolean otherPlayerInGame = sessionStore.removeGame(otherPlayer.getSessionId(), game);
+        sessionStore.removeResumeToken(thisPlayer.getResumeToken(), game);
+        sessionStore.removeResumeToken(otherPlayer.getResumeToken(), game);
+
+        //Lets the other player know, if he's still on this game
+        if (otherPlayerInGame && otherPlayer.getSocketSession().isOpen()) {
+            sendMessage(otherPlayer, new WebMessage(MessageType.PLAYER_LEFT));
+        }
+    }
+
+    /**
+     * Matches a player with an opponent.
+     * If there is a player waiting in the queue, a new game starts. Otherwise, the player will be added to the queue,
+     * to wait for a new player to join.
+     *
+     * @param player the player looking for an opponent
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error on encoding the message to send
+     */
+    private void matchPlayer(final WebPlayer player) throws IOException, EncodeException {
+        //Players connected to other nodes are matched on their own node
+        if (player.getSocketSession() instanceof RelayedSession) {
+            final RelayedSession relayedSession = (RelayedSession) player.getSocketSession();
+            sessionStore.removePlayer(player.getSessionId());
+            node.removeRelayedSession(player.getSessionId());
+            node.getGameRouter().forward(relayedSession.getOriginNode(),
+                    RoutedMessage.release(node.getNodeId(), relayedSession.getOriginSessionId()));
+            return;
+        }
+
+        //Gets a player from queue (not a game of the same multiplexed connection: a player doesn't play against himself)
+        final Optional<WebPlayer> playerFromQueue = sessionStore.getPlayerFromQueue(
+                waitingPlayer -> !sameConnection(waitingPlayer.getSocketSession(), player.getSocketSession()));
+
+        //If there is a player in the queue, the game can start (on the node owning the new game)
+        if (playerFromQueue.isPresent() && playerFromQueue.get().getSocketSession().isOpen()) {
+            final String gameId = UUID.randomUUID().toString();
+            final String ownerNode = node.getGameRouter().ownerOf(gameId);
+
+            if (node.getNodeId().equals(ownerNode)) {
+                startGame(new WebGame(gameId, playerFromQueue.get(), player, node.getStockPool().take()));
+            } else {
+                node.routeSession(playerFromQueue.get().getSessionId(), ownerNode);
+                node.routeSession(player.getSessionId(), ownerNode);
+                node.getGameRouter().forward(ownerNode, RoutedMessage.startGame(node.getNodeId(), gameId,
+                        playerFromQueue.get().getSessionId(), playerFromQueue.get().getName(),
+                        player.getSessionId(), player.getName()));
+            }
+        }
+        // Else, if players of other nodes are waiting on the global lobby, this player seeks one of them right away
+        else if (node.isLobbyWaiting() && node.isClustered()) {
+            sendMessage(player, new WebMessage(MessageType.WAITING_FOR_PLAYER));
+            seekOpponent(player);
+        }
+        // Else, this player will be added to the queue, to wait for a new player to join
+        else {
+            node.getMetrics().getQueueDepth().record(sessionStore.getQueueSize());
+            sessionStore.addPlayerToQueue(player);
+            sendMessage(player, new WebMessage(MessageType.WAITING_FOR_PLAYER));
+
+            //If no player joins this node meanwhile, he seeks an opponent on the whole cluster
+            if (node.isClustered()) {
+                SCHEDULER.schedule(() -> spillOver(player), Constants.MATCHMAKING_SPILLOVER_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Moves a player waiting on this node's queue to the global lobby, when the spill-over wait expires.
+     * If the player found an opponent (or left) meanwhile, there's nothing to do.
+     *
+     * @param player the waiting player
+     */
+    @VisibleForTesting
+    void spillOver(final WebPlayer player) {
+        if (!player.getSocketSession().isOpen() || !sessionStore.removePlayerFromQueue(player)) {
+            return;
+        }
+
+        LOGGER.info("Player {} didn't find an opponent on node {}. Seeking one on the cluster.",
+                player.getName(), node.getNodeId());
+        try {
+            seekOpponent(player);
+        } catch (final IOException e) {
+            LOGGER.error("Error seeking an opponent for {}: {}", player.getName(), e);
+            node.removeSeekingSession(player.getSessionId());
+            sessionStore.addPlayerToQueue(player);
+        }
+    }
+
+    /**
+     * Seeks an opponent for a player on the global lobby.
+     *
+     * @param player the player
+     * @throws IOException in case of any error sending the message to the lobby node
+     */
+    private void seekOpponent(final WebPlayer player) throws IOException {
+        node.addSeekingSession(player.getSessionId());
+        node.getGameRouter().forward(node.getLobbyNode(),
+                RoutedMessage.seek(node.getNodeId(), player.getSessionId(), player.getName()));
+    }
+
+    /**
+     * Matches a player seeking an opponent on the global lobby (on the lobby node).
+     * If there's another player waiting, a new game starts on the node owning it. Otherwise, the player waits on the
+     * lobby, and all nodes are told so.
+     *
+     * @param seek the seek message of the player
+     * @throws IOException in case of any error sending a message to other nodes
+     */
+    private void matchOnLobby(final RoutedMessage seek) throws IOException {
+        final GlobalLobby globalLobby = node.getGlobalLobby();
+        final RoutedMessage opponent = globalLobby.match(seek);
+
+        if (opponent == null) {
+            announceLobby(true);
+            return;
+        }
+
+        final String gameId = UUID.randomUUID().toString();
+        final String ownerNode = node.getGameRouter().ownerOf(gameId);
+
+        node.getGameRouter().forward(ownerNode, RoutedMessage.startGame(node.getNodeId(), gameId,
+                opponent.getOriginNode(), opponent.getSessionId(), opponent.getPlayerName(),
+                seek.getOriginNode(), seek.getSessionId(), seek.getPlayerName()));
+        node.getGameRouter().forward(opponent.getOriginNode(),
+                RoutedMessage.matched(node.getNodeId(), opponent.getSessionId(), ownerNode));
+        node.getGameRouter().forward(seek.getOriginNode(),
+                RoutedMessage.matched(node.getNodeId(), seek.getSessionId(), ownerNode));
+
+        if (globalLobby.isEmpty()) {
+            announceLobby(false);
+        }
+    }
+
+    /**
+     * Tells all nodes of the cluster whether there are players waiting on the global lobby.
+     *
+     * @param waiting true if there are players waiting, false otherwise
+     */
+    private void announceLobby(final boolean waiting) {
+        for (final String nodeId : node.getGameRouter().getNodeIds()) {
+            try {
+                node.getGameRouter().forward(nodeId, RoutedMessage.lobby(node.getNodeId(), waiting));
+            } catch (final IOException e) {
+                LOGGER.error("Error announcing the global lobby to node {}: {}", nodeId, e);
+            }
+        }
+    }
+
+    /**
+     * Starts a new game on this node, sending the new game message to both players.
+     *
+     * @param game the game
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error on encoding the message to send
+     */
+    private void startGame(final WebGame game) throws IOException, EncodeException {
+        sessionStore.putGame(game.getPlayer1().getSessionId(), game);
+        sessionStore.putGame(game.getPlayer2().getSessionId(), game);
+
+        game.start();
+        game.publishSnapshot();
+        game.getSeed().ifPresent(seed -> LOGGER.info("Game {} dealt with the seed {}", game.getId(), seed));
+
+        sendMessage(game.getPlayer1(), GameMessageWrapper.toWebMessage(MessageType.NEW_GAME, game, game.getPlayer1(),
+                issueResumeToken(game, game.getPlayer1())));
+        sendMessage(game.getPlayer2(), GameMessageWrapper.toWebMessage(MessageType.NEW_GAME, game, game.getPlayer2(),
+                issueResumeToken(game, game.getPlayer2())));
+    }
+
+    /**
+     * Handles a message forwarded by another node of the cluster.
+     *
+     * @param message the routed message
+     * @throws IOException     in case of any error sending a message
+     * @throws EncodeException in case of any error encoding a message
+     */
+    void onRoutedMessage(final RoutedMessage message) throws IOException, EncodeException {
+        switch (message.getKind()) {
+            //This node owns a new game of two players
+            case START_GAME:
+                final WebPlayer player1 = participant(message.getPlayerNode(), message.getSessionId(), message.getPlayerName());
+                final WebPlayer player2 = participant(message.getOtherPlayerNode(), message.getOtherSessionId(),
+                        message.getOtherPlayerName());
+
+                //If a player left before the game started, the other one is able to wait for a new opponent
+                if (player1 == null || player2 == null) {
+                    final WebPlayer remainingPlayer = player1 == null ? player2 : player1;
+                    if (remainingPlayer != null && remainingPlayer.getSocketSession().isOpen()) {
+                        sendMessage(remainingPlayer, new WebMessage(MessageType.PLAYER_LEFT));
+                    }
+                    return;
+                }
+
+                startGame(new WebGame(message.getGameId(), player1, player2, node.getStockPool().take()));
+                break;
+            //A player connected to the origin node sent a message
+            case COMMAND:
+                final RelayedSession commandSession = node.getRelayedSession(
+                        RelayedSession.key(message.getOriginNode(), message.getSessionId()));
+                if (commandSession == null) {
+                    LOGGER.error("Relayed session {} not found on node {}", message.getSessionId(), node.getNodeId());
+                    node.getGameRouter().forward(message.getOriginNode(),
+                            RoutedMessage.disconnect(node.getNodeId(), message.getSessionId()));
+                    return;
+                }
+                onMessage(commandSession, message.getMessage());
+                break;
+            //The connection of a player was closed on the origin node
+            case CLOSE:
+                final RelayedSession closedSession = node.removeRelayedSession(
+                        RelayedSession.key(message.getOriginNode(), message.getSessionId()));
+                if (closedSession != null) {
+                    closedSession.markClosed();
+                    onClose(closedSession);
+                }
+                break;
+            //A message to be delivered to a player connected to this node
+            case DELIVER:
+                final WebPlayer player = sessionStore.getPlayer(message.getSessionId());
+                if (player != null && player.getSocketSession().isOpen()) {
+                    sendMessage(player, message.getMessage());
+                }
+                break;
+            //The node owning the game closed the session of a player connected to this node
+            case DISCONNECT:
+                node.unrouteSession(message.getSessionId());
+                final WebPlayer disconnectedPlayer = sessionStore.getPlayer(message.getSessionId());
+                if (disconnectedPlayer != null && disconnectedPlayer.getSocketSession().isOpen()) {
+                    disconnectedPlayer.getSocketSession().close();
+                }
+                break;
+            //The owner node released a player connected to this node, who wants a new opponent
+            case RELEASE:
+                node.unrouteSession(message.getSessionId());
+                final WebPlayer releasedPlayer = sessionStore.getPlayer(message.getSessionId());
+                if (releasedPlayer != null && releasedPlayer.getSocketSession().isOpen()) {
+                    releasedPlayer.reset();
+                    matchPlayer(releasedPlayer);
+                }
+                break;
+            //A player of a game owned by this node reconnected to the origin node, with a resume token
+            case RESUME:
+                resumeRelayedGame(message);
+                break;
+            //A player of another node seeks an opponent on the global lobby (this is the lobby node)
+            case SEEK:
+                matchOnLobby(message);
+                break;
+            //A player seeking an opponent on the global lobby left (this is the lobby node)
+            case WITHDRAW:
+                if (node.getGlobalLobby().withdraw(message.getOriginNode(), message.getSessionId())
+                        && node.getGlobalLobby().isEmpty()) {
+                    announceLobby(false);
+                }
+                break;
+            //A player of this node, seeking an opponent on the global lobby, was matched
+            case MATCHED:
+                node.removeSeekingSession(message.getSessionId());
+                if (!node.getNodeId().equals(message.getOwnerNode())) {
+                    final WebPlayer matchedPlayer = sessionStore.getPlayer(message.getSessionId());
+                    if (matchedPlayer != null && matchedPlayer.getSocketSession().isOpen()) {
+                        node.routeSession(message.getSessionId(), message.getOwnerNode());
+                    } else {
+                        node.getGameRouter().forward(message.getOwnerNode(),
+                                RoutedMessage.close(node.getNodeId(), message.getSessionId()));
+                    }
+                }
+                break;
+            //The lobby node announced whether there are players waiting on the global lobby
+            case LOBBY_WAITING:
+            case LOBBY_EMPTY:
+                node.setLobbyWaiting(RoutedMessage.Kind.LOBBY_WAITING.equals(message.getKind()));
+                break;
+            default:
+                LOGGER.error("Unrecognized routed message: {}", message);
+                break;
+        }
+    }
+
+    /**
+     * Gets a participant of a new game owned by this node.
+     *
+     * @param playerNode the node where the player is connected
+     * @param sessionId  the session id of the player
+     * @param name       the name of the player
+     * @return the player, or null if the player is connected to this node and already left
+     */
+    private WebPlayer participant(final String playerNode, final String sessionId, final String name) {
+        if (!node.getNodeId().equals(playerNode)) {
+            return relayedPlayer(name, sessionId, playerNode);
+        }
+
+        final WebPlayer player = sessionStore.getPlayer(sessionId);
+        return player != null && player.getSocketSession().isOpen() ? player : null;
+    }
+
+    /**
+     * Creates a player connected to another node, whose game is owned by this node.
+     * The player is kept by the id of the relayed session, since session ids are only unique on their own node.
+     *
+     * @param name       the name of the player
+     * @param sessionId  the session id of the player
+     * @param originNode the node where the player is connected
+     * @return the player
+     */
+    private WebPlayer relayedPlayer(final String name, final String sessionId, final String originNode) {
+        final RelayedSession session = node.relayedSession(sessionId, originNode);
+        final WebPlayer player = new WebPlayer(name, session.getId(), session);
+        sessionStore.putPlayer(session.getId(), player);
+        return player;
+    }
+
+    /**
+     * Resumes a game, if the session was opened with a valid resume token.
+     * The new session is reattached to the player's seat and a single snapshot of the game is sent to the player.
+     * If the game is owned by another node, the resume is forwarded to that node and the session is routed there.
+     *
+     * @param session  the new session
+     * @param username the name of the player
+     * @return true if the game was resumed (or forwarded to the owner node), false if there's no game to be resumed
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error encoding the message to send
+     */
+    private boolean resumeGame(final Session session, final String username) throws IOException, EncodeException {
+        final Map<String, List<String>> parameters = session.getRequestParameterMap();
+        if (parameters == null || parameters.get(Constants.RESUME_PARAMETER) == null
+                || parameters.get(Constants.RESUME_PARAMETER).isEmpty()) {
+            return false;
+        }
+
+        final String resumeToken = parameters.get(Constants.RESUME_PARAMETER).get(0);
+
+        //The token was issued by another node of the cluster, owning the game: that node reattaches the seat
+        final String ownerNode = ownerOfResumeToken(resumeToken);
+        if (ownerNode != null && !node.getNodeId().equals(ownerNode)
+                && node.getGameRouter().getNodeIds().contains(ownerNode)) {
+            LOGGER.info("Forwarding the resume of session {} to node {}", session.getId(), ownerNode);
+            sessionStore.putPlayer(session.getId(), new WebPlayer(username, session.getId(), session));
+            node.routeSession(session.getId(), ownerNode);
+            node.getGameRouter().forward(ownerNode, RoutedMessage.resume(node.getNodeId(), session.getId(), resumeToken));
+            return true;
+        }
+
+        final WebGame game = sessionStore.getGameByResumeToken(resumeToken);
+        final WebPlayer player = game == null ? null : game.getPlayerByResumeToken(resumeToken);
+
+        //The token is unknown or expired: the browser will join as a new player
+        if (player == null) {
+            LOGGER.info("There's no game to resume for session {}", session.getId());
+            return false;
+        }
+
+        reattachSeat(game, player, session, resumeToken);
+        return true;
+    }
+
+    /**
+     * Resumes a game owned by this node, for a player who reconnected to another node.
+     * If there's no game to be resumed, the origin node is asked to match the player with a new opponent.
+     *
+     * @param message the routed message
+     * @throws IOException     in case of any error sending a message
+     * @throws EncodeException in case of any error encoding a message
+     */
+    private void resumeRelayedGame(final RoutedMessage message) throws IOException, EncodeException {
+        final WebGame game = sessionStore.getGameByResumeToken(message.getResumeToken());
+        final WebPlayer player = game == null ? null : game.getPlayerByResumeToken(message.getResumeToken());
+
+        //The token is unknown or expired: the browser will join as a new player
+        if (player == null) {
+            LOGGER.info("There's no game to resume for session {} of node {}", message.getSessionId(), message.getOriginNode());
+            node.getGameRouter().forward(message.getOriginNode(),
+                    RoutedMessage.release(node.getNodeId(), message.getSessionId()));
+            return;
+        }
+
+        reattachSeat(game, player, node.relayedSession(message.getSessionId(), message.getOriginNode()),
+                message.getResumeToken());
+    }
+
+    /**
+     * Moves the seat of a player from the old session to a new one, and sends a snapshot of the game to the player.
+     *
+     * @param game        the game
+     * @param player      the player resuming the game
+     * @param session     the new session (connected to this node, or relayed from another one)
+     * @param resumeToken the resume token of the player
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error encoding the message to send
+     */
+    private void reattachSeat(final WebGame game, final WebPlayer player, final Session session,
+                              final String resumeToken) throws IOException, EncodeException {
+        LOGGER.info("Player {} resumed the game with session {}", player.getName(), session.getId());
+
+        synchronized (game) {
+            //The old session may have been relayed from another node
+            sessionStore.removeGame(player.getSessionId());
+            node.removeRelayedSession(player.getSessionId());
+            node.moveReplayWindow(player.getSessionId(), session.getId());
+            player.reattach(session.getId(), session);
+            sessionStore.putGame(session.getId(), game);
+            sessionStore.putPlayer(session.getId(), player);
+        }
+
+        sendMessage(player, GameMessageWrapper.toWebMessage(MessageType.GAME_RESUMED, game, player, resumeToken));
+    }
+
+    /**
+     * Issues a new resume token for a player, allowing the player to resume the game if the connection drops.
+     * The token is qualified by the id of this node, so the player is able to resume the game on any node.
+     *
+     * @param game   the game
+     * @param player the player
+     * @return the resume token
+     */
+    private String issueResumeToken(final WebGame game, final WebPlayer player) {
+        final String resumeToken = node.getNodeId() + "/" + UUID.randomUUID();
+        player.setResumeToken(resumeToken);
+        sessionStore.putResumeToken(resumeToken, game);
+        return resumeToken;
+    }
+
+    /**
+     * Gets the node owning the game of a resume token (the node which issued it).
+     *
+     * @param resumeToken the resume token
+     * @return the owner node id, or null if the token isn't qualified by a node id
+     */
+    private static String ownerOfResumeToken(final String resumeToken) {
+        final int separator = resumeToken.lastIndexOf('/');
+        return separator > 0 ? resumeToken.substring(0, separator) : null;
     }
 
     /**
@@ -181,6 +1020,95 @@ public class DominoesWebSocket {
         LOGGER.error("Error on session {}: {}", session.getId(), throwable);
     }
 
+    /**
+     * Counts an invalid message sent by a session, closing the session if it sends too many of them.
+     *
+     * @param session the session
+     * @throws IOException in case of any error closing the session
+     */
+    private void countError(final Session session) throws IOException {
+        //The games of a multiplexed connection count the errors of the connection
+        final Session connection = session instanceof TableSession
+                ? ((TableSession) session).getConnection().getSession() : session;
+
+        if (!node.getRateLimiter().tryAcquireError(connection.getId())) {
+            closeAbusiveSession(connection, "Too many invalid messages");
+        }
+    }
+
+    /**
+     * Verifies if a new player can be admitted on the node.
+     * An overloaded node also sheds the players waiting for an opponent: they are the lowest priority work of the
+     * node, since no game was started for them yet.
+     *
+     * @return the reason to reject the player, or null if the player is admitted
+     * @throws IOException     in case of any error rejecting the waiting players
+     * @throws EncodeException in case of any error encoding the message to the waiting players
+     */
+    private String admitNewPlayer() throws IOException, EncodeException {
+        //A draining node doesn't match players anymore
+        if (node.isDraining()) {
+            return NodeDrainer.DRAINING_REASON;
+        }
+
+        final AdmissionController admissionController = node.getAdmissionController();
+        final String rejection = admissionController.checkNewPlayer(sessionStore.getGameCount(), sessionStore.getQueueSize());
+
+        if (rejection != null && admissionController.isOverloaded()) {
+            Optional<WebPlayer> waitingPlayer;
+            while ((waitingPlayer = sessionStore.getPlayerFromQueue()).isPresent()) {
+                rejectSession(waitingPlayer.get().getSocketSession(), rejection);
+            }
+        }
+        return rejection;
+    }
+
+    /**
+     * Rejects a session, since the node is at its capacity: the browser is asked to retry later.
+     *
+     * @param session the session
+     * @param reason  the reason to reject it
+     * @throws IOException     in case of any error sending the message or closing the session
+     * @throws EncodeException in case of any error encoding the message
+     */
+    private static void rejectSession(final Session session, final String reason) throws IOException, EncodeException {
+        LOGGER.warn("Rejecting session {}: {}", session.getId(), reason);
+        if (session.isOpen()) {
+            SessionSender.send(session, GameMessageWrapper.retryLaterMessage(reason, AdmissionController.retryAfterMillis()));
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, reason));
+        }
+    }
+
+    /**
+     * Closes a session exceeding its rate limits.
+     *
+     * @param session the session
+     * @param reason  the reason to close it
+     * @throws IOException in case of any error closing the session
+     */
+    private static void closeAbusiveSession(final Session session, final String reason) throws IOException {
+        LOGGER.warn("Closing session {}: {}", session.getId(), reason);
+        if (session.isOpen()) {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, reason));
+        }
+    }
+
+    /**
+     * Gets the remote address of a session, as given by the container.
+     *
+     * @param session the session
+     * @return the remote address, or null if it's unknown
+     */
+    private static String remoteAddressOf(final Session session) {
+        final Map<String, Object> userProperties = session.getUserProperties();
+        final Object address = userProperties == null ? null : userProperties.get(Constants.REMOTE_ADDRESS_PROPERTY);
+
+        if (address instanceof InetSocketAddress && ((InetSocketAddress) address).getAddress() != null) {
+            return ((InetSocketAddress) address).getAddress().getHostAddress();
+        }
+        return address == null ? null : address.toString();
+    }
+
     /**
      * Sends a message to the player.
      *
@@ -190,9 +1118,33 @@ public class DominoesWebSocket {
      * @throws EncodeException in case of any error encoding the message to be sent
      */
     private static void sendMessage(final WebPlayer player, final WebMessage message) throws IOException, EncodeException {
+        //The responses to a numbered command are numbered as well, and recorded
+        final NumberedCommand command = CURRENT_COMMAND.get();
+        if (command != null && command.sessionId.equals(player.getSessionId())) {
+            sendNumberedMessage(player, command.answer(message));
+            return;
+        }
+        sendNumberedMessage(player, message);
+    }
+
+    /**
+     * Sends a message (already numbered, if needed) to the player.
+     *
+     * @param player  the player who will receive the message
+     * @param message the message to be sent
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error encoding the message to be sent
+     */
+    private static void sendNumberedMessage(final WebPlayer player, final WebMessage message) throws IOException, EncodeException {
+        //A dropped player will receive a snapshot of the game when resuming it
+        if (player.isDisconnected()) {
+            LOGGER.info("Player {} is disconnected. Message type {} not sent", player.getName(), message.getType());
+            return;
+        }
+
         LOGGER.info("Sending message type {} to {}", message.getType(), player.getName());
         LOGGER.trace("Message being sent to {}: {}", player.getName(), message);
-        player.getSocketSession().getBasicRemote().sendObject(message);
+        SessionSender.send(player.getSocketSession(), message);
     }
 
     /**
@@ -229,6 +1181,35 @@ public class DominoesWebSocket {
 
     }
 
+    /**
+     * Handles a draw from stock message: the player gets pieces from stock until they are able to play, and all the
+     * drawn pieces are sent on a single message.
+     * If the stock runs out before that, the player loses the turn of play (or the game is over).
+     *
+     * @param game        the game board
+     * @param thisPlayer  the player asking for pieces from the board
+     * @param otherPlayer the other player
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error encoding the message to be sent
+     */
+    private static void handleDrawFromStock(final WebGame game,
+                                            final WebPlayer thisPlayer,
+                                            final WebPlayer otherPlayer) throws IOException, EncodeException {
+
+        final List<DominoPiece> piecesFromStock = game.drawUntilPlayable(thisPlayer);
+
+        if (!game.playerNeedsFromStock(thisPlayer)) {
+            sendMessage(thisPlayer, GameMessageWrapper.piecesFromStockMessage(MessageType.PIECES_FROM_STOCK, game, thisPlayer, piecesFromStock));
+        } else if (game.isOver()) {
+            sendMessage(thisPlayer, GameMessageWrapper.gameOverMessage(game));
+            sendMessage(otherPlayer, GameMessageWrapper.gameOverMessage(game));
+        } else {
+            game.switchPlayer();
+            sendMessage(thisPlayer, GameMessageWrapper.piecesFromStockMessage(MessageType.NO_PIECES_ON_STOCK, game, thisPlayer, piecesFromStock));
+            sendMessage(otherPlayer, GameMessageWrapper.toWebMessage(MessageType.NEXT_PLAY, game, otherPlayer));
+        }
+    }
+
     /**
      * Handles a get from stock message.
      *
@@ -264,4 +1245,108 @@ public class DominoesWebSocket {
             sendMessage(thisPlayer, GameMessageWrapper.toWebMessage(MessageType.NEW_PIECE_FROM_STOCK, game, thisPlayer, pieceFromStock));
         }
     }
+
+    /**
+     * Handles a rematch message.
+     * When both players asked for a rematch, the same game is reset and started again.
+     *
+     * @param game        the game board
+     * @param thisPlayer  the player asking for a rematch
+     * @param otherPlayer the other player
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error encoding the message to be sent
+     */
+    private void handleRematch(final WebGame game,
+                                      final WebPlayer thisPlayer,
+                                      final WebPlayer otherPlayer) throws IOException, EncodeException {
+
+        //Verifies if the game is over
+        Preconditions.checkArgument(game.isOver(), "The game is not over yet");
+
+        synchronized (game) {
+            thisPlayer.setRematchRequested(true);
+
+            //Waits for the other player to accept the rematch
+            if (!otherPlayer.isRematchRequested()) {
+                sendMessage(thisPlayer, new WebMessage(MessageType.WAITING_FOR_PLAYER));
+                sendMessage(otherPlayer, new WebMessage(MessageType.REMATCH));
+                return;
+            }
+
+            //Both players want to play again: reuse the game
+            game.reset(node.getStockPool().take());
+            game.start();
+            game.publishSnapshot();
+            game.getSeed().ifPresent(seed -> LOGGER.info("Game {} dealt again with the seed {}", game.getId(), seed));
+
+            sendMessage(game.getPlayer1(), GameMessageWrapper.toWebMessage(MessageType.NEW_GAME, game, game.getPlayer1(),
+                    game.getPlayer1().getResumeToken()));
+            sendMessage(game.getPlayer2(), GameMessageWrapper.toWebMessage(MessageType.NEW_GAME, game, game.getPlayer2(),
+                    game.getPlayer2().getResumeToken()));
+        }
+    }
+
+    /**
+     * Handles a requeue message.
+     * The player leaves the game and waits for a new opponent, on the same connection.
+     *
+     * @param game       the game board
+     * @param thisPlayer the player asking for a new opponent
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error encoding the message to be sent
+     */
+    private void handleRequeue(final WebGame game, final WebPlayer thisPlayer) throws IOException, EncodeException {
+
+        //Verifies if the game is over
+        Preconditions.checkArgument(game.isOver(), "The game is not over yet");
+
+        leaveGame(game, thisPlayer);
+
+        thisPlayer.reset();
+        matchPlayer(thisPlayer);
+    }
+
+    /**
+     * A numbered command being handled, and its responses.
+     */
+    private static final class NumberedCommand {
+
+        /**
+         * The session which sent the command.
+         */
+        private final String sessionId;
+
+        /**
+         * The sequence number of the command.
+         */
+        private final long seq;
+
+        /**
+         * The responses sent to the session.
+         */
+        private final List<WebMessage> responses = new ArrayList<>();
+
+        /**
+         * Constructs a numbered command.
+         *
+         * @param sessionId the session which sent the command
+         * @param seq       the sequence number of the command
+         */
+        private NumberedCommand(final String sessionId, final long seq) {
+            this.sessionId = sessionId;
+            this.seq = seq;
+        }
+
+        /**
+         * Numbers and records a response to the command.
+         *
+         * @param message the response
+         * @return the numbered response
+         */
+        private WebMessage answer(final WebMessage message) {
+            final WebMessage response = message.withSeq(seq);
+            responses.add(response);
+            return response;
+        }
+    }
 }
@@ -0,0 +1,179 @@
+package org.jpires.dominoes.game.browser.server;
+
+import org.jpires.dominoes.lib.WebGame;
+import org.jpires.dominoes.lib.model.WebPlayer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Predicate;
+
+/**
+ * In memory implementation of {@link SessionStore}.
+ * It's the default store: the games live in the memory of the node where they are being played.
+ * The resume tokens are kept with the games, so a player reconnecting to another node is forwarded to this one.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class InMemorySessionStore implements SessionStore {
+
+    /**
+     * Map to store all games session.
+     * The key is a session id, and the value a specific game.
+     * A game must be represented by two keys (session of player 1 and session of player 2).
+     */
+    private final Map<String, WebGame> gamesSessionsMap = new ConcurrentHashMap<>();
+
+    /**
+     * The number of sessions of each live game (games are compared by identity, as on {@link #gamesSessionsMap}).
+     */
+    private final Map<WebGame, Integer> sessionsPerGame = new ConcurrentHashMap<>();
+
+    /**
+     * Map to store all connected players.
+     * The key is a session id, and the value the player connected with that session (playing, waiting or idle).
+     */
+    private final Map<String, WebPlayer> playersSessionsMap = new ConcurrentHashMap<>();
+
+    /**
+     * Queue with players waiting for opponents to play.
+     */
+    private final Queue<WebPlayer> waitingPlayers = new LinkedBlockingQueue<>();
+
+    /**
+     * Map to store the games that can be resumed.
+     * The key is a resume token, and the value the game the token's owner is playing.
+     */
+    private final Map<String, WebGame> resumeTokensMap = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<WebPlayer> getPlayerFromQueue() {
+        return Optional.ofNullable(waitingPlayers.poll());
+    }
+
+    @Override
+    public Optional<WebPlayer> getPlayerFromQueue(final Predicate<WebPlayer> opponent) {
+        for (final WebPlayer waitingPlayer : waitingPlayers) {
+            if (opponent.test(waitingPlayer) && removePlayerFromQueue(waitingPlayer)) {
+                return Optional.of(waitingPlayer);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void addPlayerToQueue(final WebPlayer player) {
+        waitingPlayers.offer(player);
+    }
+
+    @Override
+    public boolean isPlayerInQueue(final WebPlayer player) {
+        //Players are compared by identity, as on removePlayerFromQueue
+        return waitingPlayers.stream().anyMatch(waitingPlayer -> waitingPlayer == player);
+    }
+
+    @Override
+    public boolean removePlayerFromQueue(final WebPlayer player) {
+        //Players are compared by identity, since two waiting players may have the same name and no pieces
+        return waitingPlayers.removeIf(waitingPlayer -> waitingPlayer == player);
+    }
+
+    @Override
+    public int getQueueSize() {
+        return waitingPlayers.size();
+    }
+
+    @Override
+    public void putPlayer(final String sessionId, final WebPlayer player) {
+        playersSessionsMap.put(sessionId, player);
+    }
+
+    @Override
+    public WebPlayer getPlayer(final String sessionId) {
+        return playersSessionsMap.get(sessionId);
+    }
+
+    @Override
+    public void removePlayer(final String sessionId) {
+        playersSessionsMap.remove(sessionId);
+    }
+
+    @Override
+    public void putGame(final String sessionId, final WebGame game) {
+        final WebGame previous = gamesSessionsMap.put(sessionId, game);
+        if (previous != game) {
+            sessionsPerGame.merge(game, 1, Integer::sum);
+            releaseGame(previous);
+        }
+    }
+
+    @Override
+    public WebGame getGame(final String sessionId) {
+        return gamesSessionsMap.get(sessionId);
+    }
+
+    @Override
+    public void removeGame(final String sessionId) {
+        releaseGame(gamesSessionsMap.remove(sessionId));
+    }
+
+    @Override
+    public boolean removeGame(final String sessionId, final WebGame game) {
+        if (gamesSessionsMap.remove(sessionId, game)) {
+            releaseGame(game);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int getGameCount() {
+        return sessionsPerGame.size();
+    }
+
+    @Override
+    public Collection<WebGame> getGames() {
+        return new ArrayList<>(sessionsPerGame.keySet());
+    }
+
+    /**
+     * Releases a session of a game, forgetting the game when it has no sessions left.
+     *
+     * @param game the game, or null if there was no game
+     */
+    private void releaseGame(final WebGame game) {
+        if (game != null) {
+            sessionsPerGame.computeIfPresent(game, (key, sessions) -> sessions == 1 ? null : sessions - 1);
+        }
+    }
+
+    @Override
+    public void putResumeToken(final String resumeToken, final WebGame game) {
+        resumeTokensMap.put(resumeToken, game);
+    }
+
+    @Override
+    public WebGame getGameByResumeToken(final String resumeToken) {
+        return resumeTokensMap.get(resumeToken);
+    }
+
+    @Override
+    public void removeResumeToken(final String resumeToken, final WebGame game) {
+        if (resumeToken != null) {
+            resumeTokensMap.remove(resumeToken, game);
+        }
+    }
+
+    @Override
+    public void clear() {
+        gamesSessionsMap.clear();
+        sessionsPerGame.clear();
+        playersSessionsMap.clear();
+        waitingPlayers.clear();
+        resumeTokensMap.clear();
+    }
+}
@@ -0,0 +1,42 @@
+package org.jpires.dominoes.game.browser.server;
+
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+
+import javax.websocket.EncodeException;
+import javax.websocket.Session;
+import java.io.IOException;
+
+/**
+ * Session Sender sends messages to web-socket sessions, one at a time per session.
+ * <p>
+ * The remote endpoint of a session refuses a write while another one is going on, and a session is written by
+ * several threads: the ones handling its own messages and its opponent's, the scheduler of the seats held, the
+ * drain and the node transport. So every write to a session goes through here, serialized on the session
+ * (a multiplexed connection serializes the writes of its games on its own, see
+ * {@link org.jpires.dominoes.game.browser.server.multiplex.MultiplexedConnection#send(WebMessage)}).
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public final class SessionSender {
+
+    /**
+     * Empty constructor since it's a utility class.
+     */
+    private SessionSender() {
+
+    }
+
+    /**
+     * Sends a message to a session, waiting for the writes of other threads to the same session.
+     *
+     * @param session the session
+     * @param message the message to be sent
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error encoding the message
+     */
+    public static void send(final Session session, final WebMessage message) throws IOException, EncodeException {
+        synchronized (session) {
+            session.getBasicRemote().sendObject(message);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.jpires.dominoes.game.browser.server;
+
+import org.jpires.dominoes.lib.WebGame;
+import org.jpires.dominoes.lib.model.WebPlayer;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Session Store represents the memory of Dominoes games and web-socket sessions of a server node.
+ * It's pluggable, so a node may keep its games in memory or elsewhere.
+ * It isn't shared by the nodes of a cluster: a game lives only on the node owning it (see
+ * {@link org.jpires.dominoes.game.browser.server.cluster.GameRouter}), and the other nodes forward the messages of
+ * its players to that node.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public interface SessionStore {
+
+    /**
+     * Gets a player from waiting queue.
+     *
+     * @return Optional of the waiting player from queue, or empty if no player is waiting to play on the queue.
+     */
+    Optional<WebPlayer> getPlayerFromQueue();
+
+    /**
+     * Gets the first player from waiting queue who is an eligible opponent.
+     *
+     * @param opponent the condition of an eligible opponent
+     * @return Optional of the waiting player from queue, or empty if no eligible player is waiting on the queue.
+     */
+    Optional<WebPlayer> getPlayerFromQueue(Predicate<WebPlayer> opponent);
+
+    /**
+     * Adds a player to the waiting queue.
+     *
+     * @param player the player to be added
+     */
+    void addPlayerToQueue(WebPlayer player);
+
+    /**
+     * Verifies if a player is waiting on the queue.
+     *
+     * @param player the player
+     * @return true if the player is waiting for an opponent, false otherwise
+     */
+    boolean isPlayerInQueue(WebPlayer player);
+
+    /**
+     * Removes a player from the waiting queue.
+     *
+     * @param player the player
+     * @return true if the player was waiting on the queue, false otherwise
+     */
+    boolean removePlayerFromQueue(WebPlayer player);
+
+    /**
+     * Gets the number of players waiting on the queue.
+     *
+     * @return the number of waiting players
+     */
+    int getQueueSize();
+
+    /**
+     * Puts a connected player on the store.
+     *
+     * @param sessionId the session id
+     * @param player    the player connected with the session
+     */
+    void putPlayer(String sessionId, WebPlayer player);
+
+    /**
+     * Given a session id, returns the corresponding player.
+     *
+     * @param sessionId the session id
+     * @return the corresponding player, or null if there's no player connected with the session
+     */
+    WebPlayer getPlayer(String sessionId);
+
+    /**
+     * Removes a player from the store, when the session is closed.
+     *
+     * @param sessionId the session id which is closed
+     */
+    void removePlayer(String sessionId);
+
+    /**
+     * Puts a game on the store.
+     *
+     * @param sessionId the session id (representing a player)
+     * @param game      the game
+     */
+    void putGame(String sessionId, WebGame game);
+
+    /**
+     * Given a session id, returns the corresponding game.
+     *
+     * @param sessionId the session id
+     * @return the corresponding game
+     */
+    WebGame getGame(String sessionId);
+
+    /**
+     * Removes a game from the store, when the session is closed.
+     *
+     * @param sessionId the session id which is closed
+     */
+    void removeGame(String sessionId);
+
+    /**
+     * Removes a game from the store, only if the session is still attached to that game.
+     *
+     * @param sessionId the session id
+     * @param game      the game to be removed
+     * @return true if the game was removed, false otherwise
+     */
+    boolean removeGame(String sessionId, WebGame game);
+
+    /**
+     * Gets the number of live games on the store (games with at least one session).
+     *
+     * @return the number of live games
+     */
+    int getGameCount();
+
+    /**
+     * Gets the live games on the store (games with at least one session).
+     *
+     * @return the live games
+     */
+    Collection<WebGame> getGames();
+
+    /**
+     * Puts a resume token on the store.
+     *
+     * @param resumeToken the resume token (representing a player)
+     * @param game        the game
+     */
+    void putResumeToken(String resumeToken, WebGame game);
+
+    /**
+     * Given a resume token, returns the corresponding game.
+     *
+     * @param resumeToken the resume token
+     * @return the corresponding game, or null if the token is unknown (or expired)
+     */
+    WebGame getGameByResumeToken(String resumeToken);
+
+    /**
+     * Removes a resume token from the store, when the game is removed from memory.
+     *
+     * @param resumeToken the resume token
+     * @param game        the game the token belongs to
+     */
+    void removeResumeToken(String resumeToken, WebGame game);
+
+    /**
+     * Clears the store.
+     */
+    void clear();
+}
@@ -0,0 +1,238 @@
+package org.jpires.dominoes.game.browser.server.admin;
+
+import com.google.common.collect.ImmutableMap;
+import org.jpires.dominoes.game.browser.server.DominoesNode;
+import org.jpires.dominoes.game.browser.server.SessionStore;
+import org.jpires.dominoes.game.browser.server.drain.NodeDrainer;
+import org.jpires.dominoes.lib.GameSnapshot;
+import org.jpires.dominoes.lib.WebGame;
+import org.jpires.dominoes.lib.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin Servlet exposes the admin endpoints of the node, as JSON:
+ * <ul>
+ * <li>{@code GET /admin/games}: the live games, with their age, number of moves and stock size</li>
+ * <li>{@code GET /admin/games/{id}}: the state of a game</li>
+ * <li>{@code GET /admin/metrics}: the depth of the waiting queue, and the histograms of the node</li>
+ * <li>{@code GET /admin/drain}: the drain status of the node</li>
+ * <li>{@code POST /admin/drain}: drains the node (see {@link DominoesNode#drain()})</li>
+ * </ul>
+ * The games are read from their snapshots (see {@link GameSnapshot}) and the histograms are lock-free, so polling
+ * these endpoints never blocks the game threads.
+ * Only the loopback addresses (and the address configured on {@link Constants#ADMIN_ALLOWED_ADDRESS}) are allowed.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class AdminServlet extends HttpServlet {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdminServlet.class);
+
+    /**
+     * The path of the drain endpoint.
+     */
+    private static final String DRAIN_PATH = "/drain";
+
+    /**
+     * The path of the games endpoint.
+     */
+    private static final String GAMES_PATH = "/games";
+
+    /**
+     * The path of the metrics endpoint.
+     */
+    private static final String METRICS_PATH = "/metrics";
+
+    /**
+     * The node being administered.
+     */
+    private final transient DominoesNode node;
+
+    /**
+     * Constructs the servlet on the default node.
+     */
+    public AdminServlet() {
+        this(DominoesNode.getDefault());
+    }
+
+    /**
+     * Constructs the servlet on a certain node.
+     *
+     * @param node the node being administered
+     */
+    public AdminServlet(final DominoesNode node) {
+        this.node = node;
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        if (!isAllowed(request, response)) {
+            return;
+        }
+
+        final String path = request.getPathInfo() == null ? "" : request.getPathInfo();
+        if (DRAIN_PATH.equals(path)) {
+            writeJson(response, HttpServletResponse.SC_OK, drainStatus());
+        } else if (GAMES_PATH.equals(path)) {
+            writeJson(response, HttpServletResponse.SC_OK, liveGames());
+        } else if (path.startsWith(GAMES_PATH + "/")) {
+            final GameSnapshot game = findGame(path.substring(GAMES_PATH.length() + 1));
+            if (game == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Game not found");
+            } else {
+                writeJson(response, HttpServletResponse.SC_OK, game);
+            }
+        } else if (METRICS_PATH.equals(path)) {
+            writeJson(response, HttpServletResponse.SC_OK, metrics());
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown admin endpoint");
+        }
+    }
+
+    @Override
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        if (!isAllowed(request, response)) {
+            return;
+        }
+
+        if (DRAIN_PATH.equals(request.getPathInfo())) {
+            LOGGER.info("Drain of node {} asked by {}", node.getNodeId(), request.getRemoteAddr());
+            node.drain();
+            writeJson(response, HttpServletResponse.SC_ACCEPTED, drainStatus());
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown admin endpoint");
+        }
+    }
+
+    /**
+     * Gets the summary of the live games of the node (the games not started yet are left out).
+     *
+     * @return the live games
+     */
+    private List<Map<String, Object>> liveGames() {
+        final long now = System.currentTimeMillis();
+        final List<Map<String, Object>> games = new ArrayList<>();
+
+        for (final WebGame game : node.getSessionStore().getGames()) {
+            final GameSnapshot snapshot = game.getSnapshot();
+            if (snapshot != null) {
+                final Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("id", snapshot.getGameId());
+                summary.put("ageMillis", now - snapshot.getStartedAt());
+                summary.put("moves", snapshot.getMoves());
+                summary.put("stockSize", snapshot.getStockSize());
+                summary.put("playingPlayer", snapshot.getPlayingPlayer());
+                summary.put("over", snapshot.isOver());
+                games.add(summary);
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Finds a live game of the node.
+     *
+     * @param gameId the game id
+     * @return the snapshot of the game, or null if there's no such game (or it wasn't started yet)
+     */
+    private GameSnapshot findGame(final String gameId) {
+        for (final WebGame game : node.getSessionStore().getGames()) {
+            if (game.getId().equals(gameId)) {
+                return game.getSnapshot();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the metrics of the node.
+     *
+     * @return the metrics
+     */
+    private Map<String, Object> metrics() {
+        final SessionStore sessionStore = node.getSessionStore();
+
+        return ImmutableMap.<String, Object>builder()
+                .put("node", node.getNodeId())
+                .put("queueDepth", sessionStore.getQueueSize())
+                .put("liveGames", sessionStore.getGameCount())
+                .put("connections", node.getAdmissionController().getConnections())
+                .put("overloaded", node.getAdmissionController().isOverloaded())
+                .put("messageLatencyMicros", node.getMetrics().getMessageLatency().snapshot())
+                .put("queueDepthOnJoin", node.getMetrics().getQueueDepth().snapshot())
+                .put("stockPool", ImmutableMap.of("size", node.getStockPool().size(),
+                        "misses", node.getStockPool().getMisses()))
+                .build();
+    }
+
+    /**
+     * Gets the drain status of the node.
+     *
+     * @return the status
+     */
+    private Map<String, Object> drainStatus() {
+        final SessionStore sessionStore = node.getSessionStore();
+        final long gamesGoingOn = NodeDrainer.countGamesGoingOn(sessionStore);
+
+        return ImmutableMap.<String, Object>builder()
+                .put("node", node.getNodeId())
+                .put("draining", node.isDraining())
+                .put("drained", node.isDrained())
+                .put("liveGames", sessionStore.getGameCount())
+                .put("gamesGoingOn", gamesGoingOn)
+                .put("waitingPlayers", sessionStore.getQueueSize())
+                .put("connections", node.getAdmissionController().getConnections())
+                .build();
+    }
+
+    /**
+     * Verifies if the request comes from an allowed address. If not, the request is refused.
+     *
+     * @param request  the request
+     * @param response the response
+     * @return true if the request is allowed, false otherwise
+     * @throws IOException in case of any error refusing the request
+     */
+    private static boolean isAllowed(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final String address = request.getRemoteAddr();
+        if (address != null && (address.equals(Constants.ADMIN_ALLOWED_ADDRESS)
+                || InetAddress.getByName(address).isLoopbackAddress())) {
+            return true;
+        }
+
+        LOGGER.warn("Admin request refused from {}", address);
+        response.sendError(HttpServletResponse.SC_FORBIDDEN, "Admin endpoints are only allowed locally");
+        return false;
+    }
+
+    /**
+     * Writes a JSON response.
+     *
+     * @param response the response
+     * @param status   the status code
+     * @param content  the content to be written as JSON
+     * @throws IOException in case of any error writing the response
+     */
+    private static void writeJson(final HttpServletResponse response, final int status, final Object content) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        Constants.OBJECT_MAPPER.writeValue(response.getWriter(), content);
+    }
+}
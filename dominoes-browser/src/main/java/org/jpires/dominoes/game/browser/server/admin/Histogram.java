@@ -0,0 +1,105 @@
+package org.jpires.dominoes.game.browser.server.admin;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram counts values on buckets of powers of two: the bucket {@code b} counts the values from {@code 2^(b-1)}
+ * to {@code 2^b - 1} (the bucket 0 counts the zeros).
+ * Recording and reading are lock-free, so a histogram read by the admin endpoints never blocks the game threads.
+ * The percentiles are approximated by the upper bound of their bucket.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class Histogram {
+
+    /**
+     * The number of buckets (one for zero, and one per bit of a long).
+     */
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    /**
+     * The count of each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The maximum value recorded.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value (negative values are recorded as zero).
+     *
+     * @param value the value
+     */
+    public void record(final long value) {
+        final long positive = Math.max(value, 0);
+        counts.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(positive));
+        max.accumulateAndGet(positive, Math::max);
+    }
+
+    /**
+     * Takes a snapshot of the histogram: its count, maximum, percentiles and non-empty buckets (by upper bound).
+     *
+     * @return the snapshot
+     */
+    public Map<String, Object> snapshot() {
+        final long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            snapshot[bucket] = counts.get(bucket);
+            count += snapshot[bucket];
+        }
+
+        final Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (snapshot[bucket] > 0) {
+                buckets.put("<=" + upperBound(bucket), snapshot[bucket]);
+            }
+        }
+
+        return ImmutableMap.<String, Object>builder()
+                .put("count", count)
+                .put("max", max.get())
+                .put("p50", percentile(snapshot, count, 0.50))
+                .put("p90", percentile(snapshot, count, 0.90))
+                .put("p99", percentile(snapshot, count, 0.99))
+                .put("buckets", buckets)
+                .build();
+    }
+
+    /**
+     * Gets a percentile of a snapshot of the buckets.
+     *
+     * @param snapshot   the count of each bucket
+     * @param count      the total count
+     * @param percentile the percentile (from 0 to 1)
+     * @return the upper bound of the bucket of the percentile, or 0 if the histogram is empty
+     */
+    private static long percentile(final long[] snapshot, final long count, final double percentile) {
+        final long rank = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= rank && seen > 0) {
+                return upperBound(bucket);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the upper bound of the values of a bucket.
+     *
+     * @param bucket the bucket
+     * @return the upper bound
+     */
+    private static long upperBound(final int bucket) {
+        return bucket == Long.SIZE ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,41 @@
+package org.jpires.dominoes.game.browser.server.admin;
+
+/**
+ * Node Metrics keeps the histograms of a node, shown by the admin endpoints:
+ * <ul>
+ * <li>the latency (in micros) of the messages handled</li>
+ * <li>the depth of the waiting queue, seen by each player joining it</li>
+ * </ul>
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class NodeMetrics {
+
+    /**
+     * The latency (in micros) of the messages handled.
+     */
+    private final Histogram messageLatency = new Histogram();
+
+    /**
+     * The depth of the waiting queue, seen by each player joining it.
+     */
+    private final Histogram queueDepth = new Histogram();
+
+    /**
+     * Gets the histogram of the latency (in micros) of the messages handled.
+     *
+     * @return the histogram
+     */
+    public Histogram getMessageLatency() {
+        return messageLatency;
+    }
+
+    /**
+     * Gets the histogram of the depth of the waiting queue, seen by each player joining it.
+     *
+     * @return the histogram
+     */
+    public Histogram getQueueDepth() {
+        return queueDepth;
+    }
+}
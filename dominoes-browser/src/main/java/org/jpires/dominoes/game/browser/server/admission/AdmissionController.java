@@ -0,0 +1,232 @@
+package org.jpires.dominoes.game.browser.server.admission;
+
+import org.jpires.dominoes.lib.utils.Constants;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Admission Controller caps the work accepted by a node, so a burst of connections is rejected fast (asking the
+ * browsers to retry later) instead of growing the memory and the latency of the games going on:
+ * <ul>
+ * <li>a cap on the connections to the node</li>
+ * <li>a cap on the live games, and on the players waiting for an opponent, checked for new players</li>
+ * <li>an overload state, when the heap usage or the latency of the messages crosses a threshold, where new players
+ * are rejected and the waiting players are shed (the games going on are never shed)</li>
+ * </ul>
+ * A cap (or threshold) of 0 disables it.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class AdmissionController {
+
+    /**
+     * The weight of the last message on the average latency.
+     */
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    /**
+     * The sessions admitted on the node.
+     */
+    private final Set<String> admittedSessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The number of sessions admitted on the node.
+     */
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * The maximum number of connections.
+     */
+    private final int maxConnections;
+
+    /**
+     * The maximum number of live games.
+     */
+    private final int maxGames;
+
+    /**
+     * The maximum number of players waiting for an opponent.
+     */
+    private final int maxWaitingPlayers;
+
+    /**
+     * The heap usage (from 0 to 1) above which the node is overloaded.
+     */
+    private final double heapThreshold;
+
+    /**
+     * The average latency (in nanos) above which the node is overloaded.
+     */
+    private final long latencyThresholdNanos;
+
+    /**
+     * Supplies the heap usage (from 0 to 1).
+     */
+    private final DoubleSupplier heapUsage;
+
+    /**
+     * The average latency (in nanos) of the messages handled, smoothed exponentially.
+     */
+    private volatile double averageLatencyNanos;
+
+    /**
+     * Constructs an admission controller, measuring the heap usage of this JVM.
+     *
+     * @param maxConnections         the maximum number of connections
+     * @param maxGames               the maximum number of live games
+     * @param maxWaitingPlayers      the maximum number of players waiting for an opponent
+     * @param heapThreshold          the heap usage (from 0 to 1) above which the node is overloaded
+     * @param latencyThresholdMillis the average latency (in millis) above which the node is overloaded
+     */
+    public AdmissionController(final int maxConnections, final int maxGames, final int maxWaitingPlayers,
+                               final double heapThreshold, final long latencyThresholdMillis) {
+        this(maxConnections, maxGames, maxWaitingPlayers, heapThreshold, latencyThresholdMillis,
+                AdmissionController::currentHeapUsage);
+    }
+
+    /**
+     * Constructs an admission controller.
+     *
+     * @param maxConnections         the maximum number of connections
+     * @param maxGames               the maximum number of live games
+     * @param maxWaitingPlayers      the maximum number of players waiting for an opponent
+     * @param heapThreshold          the heap usage (from 0 to 1) above which the node is overloaded
+     * @param latencyThresholdMillis the average latency (in millis) above which the node is overloaded
+     * @param heapUsage              supplies the heap usage (from 0 to 1)
+     */
+    public AdmissionController(final int maxConnections, final int maxGames, final int maxWaitingPlayers,
+                               final double heapThreshold, final long latencyThresholdMillis,
+                               final DoubleSupplier heapUsage) {
+        this.maxConnections = maxConnections;
+        this.maxGames = maxGames;
+        this.maxWaitingPlayers = maxWaitingPlayers;
+        this.heapThreshold = heapThreshold;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.heapUsage = heapUsage;
+    }
+
+    /**
+     * Creates an admission controller with the caps configured on {@link Constants}.
+     *
+     * @return the admission controller
+     */
+    public static AdmissionController fromSystemProperties() {
+        return new AdmissionController(Constants.ADMISSION_MAX_CONNECTIONS, Constants.ADMISSION_MAX_GAMES,
+                Constants.ADMISSION_MAX_WAITING_PLAYERS, Constants.ADMISSION_HEAP_THRESHOLD_PERCENT / 100.0,
+                Constants.ADMISSION_LATENCY_THRESHOLD_MILLIS);
+    }
+
+    /**
+     * Creates an admission controller without caps (e.g. for benchmarks).
+     *
+     * @return the admission controller
+     */
+    public static AdmissionController unlimited() {
+        return new AdmissionController(0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Admits a new connection, if the node isn't at its cap of connections.
+     *
+     * @param sessionId the session id of the connection
+     * @return true if the connection was admitted, false if it should be rejected
+     */
+    public boolean tryAdmitConnection(final String sessionId) {
+        while (true) {
+            final int current = connections.get();
+            if (maxConnections > 0 && current >= maxConnections) {
+                return false;
+            }
+            if (connections.compareAndSet(current, current + 1)) {
+                admittedSessions.add(sessionId);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a closed connection. Connections which weren't admitted are ignored.
+     *
+     * @param sessionId the session id of the connection
+     */
+    public void release(final String sessionId) {
+        if (admittedSessions.remove(sessionId)) {
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of connections admitted on the node.
+     *
+     * @return the number of connections
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Verifies if a new player can be admitted: the node isn't overloaded, nor at its cap of live games (the player
+     * would wait for a game that can't start) or waiting players.
+     *
+     * @param liveGames      the number of live games on the node
+     * @param waitingPlayers the number of players waiting for an opponent on the node
+     * @return the reason to reject the player, or null if the player is admitted
+     */
+    public String checkNewPlayer(final int liveGames, final int waitingPlayers) {
+        if (isOverloaded()) {
+            return "The server is overloaded";
+        }
+        if (maxGames > 0 && liveGames >= maxGames) {
+            return "Too many games on the server";
+        }
+        if (maxWaitingPlayers > 0 && waitingPlayers >= maxWaitingPlayers) {
+            return "Too many players waiting";
+        }
+        return null;
+    }
+
+    /**
+     * Verifies if the node is overloaded: its heap usage or the average latency of the messages crossed the threshold.
+     *
+     * @return true if the node is overloaded, false otherwise
+     */
+    public boolean isOverloaded() {
+        return (latencyThresholdNanos > 0 && averageLatencyNanos > latencyThresholdNanos)
+                || (heapThreshold > 0 && heapUsage.getAsDouble() > heapThreshold);
+    }
+
+    /**
+     * Records the time spent handling a message.
+     *
+     * @param latencyNanos the time (in nanos)
+     */
+    public void recordLatency(final long latencyNanos) {
+        //A lost update between concurrent messages only makes the average a bit less smooth
+        averageLatencyNanos += LATENCY_SMOOTHING * (latencyNanos - averageLatencyNanos);
+    }
+
+    /**
+     * Gets the time a rejected browser should wait before connecting again: the configured time, plus a random delay
+     * up to the same time, so the rejected browsers don't reconnect all at once.
+     *
+     * @return the time (in millis)
+     */
+    public static long retryAfterMillis() {
+        return Constants.ADMISSION_RETRY_AFTER_MILLIS + ThreadLocalRandom.current().nextLong(Constants.ADMISSION_RETRY_AFTER_MILLIS + 1);
+    }
+
+    /**
+     * Gets the heap usage of this JVM.
+     *
+     * @return the heap usage (from 0 to 1)
+     */
+    private static double currentHeapUsage() {
+        final Runtime runtime = Runtime.getRuntime();
+        return (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+    }
+}
@@ -0,0 +1,36 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import java.util.Map;
+
+/**
+ * Cluster Store represents the membership of a cluster, which must be the same on all server nodes.
+ * It keeps the nodes (and their addresses) where the games are partitioned. The games, the queue of waiting players
+ * and the resume tokens aren't kept here: they live on the nodes (see
+ * {@link org.jpires.dominoes.game.browser.server.SessionStore}).
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public interface ClusterStore {
+
+    /**
+     * Adds a node to the cluster.
+     *
+     * @param nodeId  the node id
+     * @param address the address where the node receives routed messages (host:port)
+     */
+    void join(String nodeId, String address);
+
+    /**
+     * Removes a node from the cluster.
+     *
+     * @param nodeId the node id
+     */
+    void leave(String nodeId);
+
+    /**
+     * Gets the nodes of the cluster.
+     *
+     * @return an unmodifiable map of the nodes, where the key is the node id and the value the node address
+     */
+    Map<String, String> getNodes();
+}
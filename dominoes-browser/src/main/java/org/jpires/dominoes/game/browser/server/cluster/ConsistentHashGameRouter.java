@@ -0,0 +1,106 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Distributed implementation of {@link GameRouter}.
+ * Games are partitioned across the nodes of the {@link ClusterStore} by consistent hashing of the game id, and
+ * messages are forwarded through a {@link NodeTransport}.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class ConsistentHashGameRouter implements GameRouter {
+
+    /**
+     * The default number of positions of each node on the ring.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    /**
+     * The id of this node.
+     */
+    private final String nodeId;
+
+    /**
+     * The cluster store, with the nodes of the cluster.
+     */
+    private final ClusterStore clusterStore;
+
+    /**
+     * The transport to forward messages.
+     */
+    private final NodeTransport transport;
+
+    /**
+     * The number of positions of each node on the ring.
+     */
+    private final int virtualNodes;
+
+    /**
+     * The ring, rebuilt whenever the cluster membership changes.
+     */
+    private volatile ConsistentHashRing ring;
+
+    /**
+     * Constructs a consistent hash router.
+     *
+     * @param nodeId       the id of this node
+     * @param clusterStore the cluster store, with the nodes of the cluster
+     * @param transport    the transport to forward messages
+     * @param virtualNodes the number of positions of each node on the ring
+     */
+    public ConsistentHashGameRouter(final String nodeId, final ClusterStore clusterStore,
+                                    final NodeTransport transport, final int virtualNodes) {
+        this.nodeId = nodeId;
+        this.clusterStore = clusterStore;
+        this.transport = transport;
+        this.virtualNodes = virtualNodes;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Set<String> getNodeIds() {
+        return getRing().getNodes();
+    }
+
+    @Override
+    public String ownerOf(final String gameId) {
+        return getRing().ownerOf(gameId);
+    }
+
+    /**
+     * Gets the ring of the current cluster membership.
+     *
+     * @return the ring
+     */
+    private ConsistentHashRing getRing() {
+        final Set<String> nodes = clusterStore.getNodes().keySet();
+        ConsistentHashRing current = ring;
+        if (current == null || !current.getNodes().equals(nodes)) {
+            current = new ConsistentHashRing(nodes, virtualNodes);
+            ring = current;
+        }
+        return current;
+    }
+
+    @Override
+    public void forward(final String nodeId, final RoutedMessage message) throws IOException {
+        transport.send(nodeId, message);
+    }
+
+    @Override
+    public void start(final Consumer<RoutedMessage> receiver) throws IOException {
+        transport.start(nodeId, receiver);
+    }
+
+    @Override
+    public void stop() {
+        transport.stop();
+    }
+}
@@ -0,0 +1,86 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring of nodes.
+ * Each node is placed on the ring several times (virtual nodes), so the keys are evenly partitioned and only a
+ * small share of keys moves when a node joins or leaves the cluster.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public final class ConsistentHashRing {
+
+    /**
+     * The hash function used to place nodes and keys on the ring.
+     */
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * The ring: the key is a position, and the value the node placed on it.
+     */
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * The nodes placed on the ring.
+     */
+    private final Set<String> nodes;
+
+    /**
+     * Constructs a ring given the nodes.
+     *
+     * @param nodes        the node ids
+     * @param virtualNodes the number of positions of each node on the ring
+     */
+    public ConsistentHashRing(final Collection<String> nodes, final int virtualNodes) {
+        Preconditions.checkArgument(!nodes.isEmpty(), "The ring needs at least one node");
+        Preconditions.checkArgument(virtualNodes > 0, "The number of virtual nodes should be positive");
+
+        this.nodes = ImmutableSet.copyOf(nodes);
+        for (final String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * Gets the node owning a certain key: the first node found clockwise from the key position.
+     *
+     * @param key the key (e.g. a game id)
+     * @return the owner node id
+     */
+    public String ownerOf(final String key) {
+        final Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Gets the nodes placed on the ring.
+     *
+     * @return the node ids
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Hashes a value into a position on the ring.
+     *
+     * @param value the value
+     * @return the position
+     */
+    private static long hash(final String value) {
+        return HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+}
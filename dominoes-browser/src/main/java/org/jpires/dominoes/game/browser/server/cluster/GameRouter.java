@@ -0,0 +1,67 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Game Router decides which server node owns a game, and forwards messages between nodes.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public interface GameRouter {
+
+    /**
+     * Gets the id of this node.
+     *
+     * @return the node id
+     */
+    String getNodeId();
+
+    /**
+     * Gets the ids of all nodes of the cluster, including this node.
+     *
+     * @return the node ids
+     */
+    Set<String> getNodeIds();
+
+    /**
+     * Gets the node owning a game.
+     *
+     * @param gameId the game id
+     * @return the owner node id
+     */
+    String ownerOf(String gameId);
+
+    /**
+     * Verifies if a game is owned by this node.
+     *
+     * @param gameId the game id
+     * @return true if the game is owned by this node, false otherwise
+     */
+    default boolean isLocal(final String gameId) {
+        return getNodeId().equals(ownerOf(gameId));
+    }
+
+    /**
+     * Forwards a message to another node.
+     *
+     * @param nodeId  the destination node id
+     * @param message the message
+     * @throws IOException in case of any error sending the message
+     */
+    void forward(String nodeId, RoutedMessage message) throws IOException;
+
+    /**
+     * Starts receiving messages forwarded by other nodes.
+     *
+     * @param receiver the consumer of the received messages
+     * @throws IOException in case of any error starting the router
+     */
+    void start(Consumer<RoutedMessage> receiver) throws IOException;
+
+    /**
+     * Stops receiving messages forwarded by other nodes.
+     */
+    void stop();
+}
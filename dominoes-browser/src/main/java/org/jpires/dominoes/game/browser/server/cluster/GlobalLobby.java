@@ -0,0 +1,79 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Global Lobby keeps the players of the whole cluster who didn't find an opponent on their own node.
+ * It lives on a single node of the cluster (the lobby node), and pairs the seeking players in arrival order.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class GlobalLobby {
+
+    /**
+     * The key of the lobby on the hash ring: the node owning this key is the lobby node.
+     */
+    public static final String LOBBY_KEY = "dominoes-global-lobby";
+
+    /**
+     * The seeking players, in arrival order.
+     * The key is the node and the session id of the player, and the value the player's seek message.
+     */
+    private final Map<String, RoutedMessage> seekers = new LinkedHashMap<>();
+
+    /**
+     * Matches a seeking player with the longest waiting player.
+     * If there's no one else waiting, the seeking player is added to the lobby.
+     *
+     * @param seek the seek message of the player
+     * @return the seek message of the opponent, or null if the player was added to the lobby
+     */
+    public synchronized RoutedMessage match(final RoutedMessage seek) {
+        final String key = keyOf(seek.getOriginNode(), seek.getSessionId());
+
+        final Iterator<Map.Entry<String, RoutedMessage>> iterator = seekers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, RoutedMessage> entry = iterator.next();
+            if (!entry.getKey().equals(key)) {
+                iterator.remove();
+                return entry.getValue();
+            }
+        }
+
+        seekers.put(key, seek);
+        return null;
+    }
+
+    /**
+     * Removes a seeking player from the lobby.
+     *
+     * @param originNode the node where the player is connected
+     * @param sessionId  the session id of the player
+     * @return true if the player was on the lobby, false otherwise
+     */
+    public synchronized boolean withdraw(final String originNode, final String sessionId) {
+        return seekers.remove(keyOf(originNode, sessionId)) != null;
+    }
+
+    /**
+     * Verifies if there are players waiting on the lobby.
+     *
+     * @return true if there are no players waiting, false otherwise
+     */
+    public synchronized boolean isEmpty() {
+        return seekers.isEmpty();
+    }
+
+    /**
+     * Gets the key of a player on the lobby, since session ids are only unique within a node.
+     *
+     * @param originNode the node where the player is connected
+     * @param sessionId  the session id of the player
+     * @return the key
+     */
+    private static String keyOf(final String originNode, final String sessionId) {
+        return originNode + '/' + sessionId;
+    }
+}
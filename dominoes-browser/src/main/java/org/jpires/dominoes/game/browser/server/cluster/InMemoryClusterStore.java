@@ -0,0 +1,55 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In memory implementation of {@link ClusterStore}.
+ * Nodes on the same JVM may share the same instance. Nodes on different JVMs (e.g. several servers on localhost)
+ * don't see each other's changes, so they must be created with the same nodes specification.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class InMemoryClusterStore implements ClusterStore {
+
+    /**
+     * The nodes of the cluster, sorted by node id.
+     */
+    private final Map<String, String> nodes = new ConcurrentSkipListMap<>();
+
+    /**
+     * Creates a cluster store given a nodes specification, e.g. {@code node1=127.0.0.1:7101,node2=127.0.0.1:7102}.
+     *
+     * @param nodesSpecification the nodes specification
+     * @return a new cluster store with the specified nodes
+     * @throws IllegalArgumentException if the specification is not valid
+     */
+    public static InMemoryClusterStore fromSpecification(final String nodesSpecification) {
+        final InMemoryClusterStore store = new InMemoryClusterStore();
+        for (final String node : Splitter.on(',').trimResults().omitEmptyStrings().split(nodesSpecification)) {
+            final int separator = node.indexOf('=');
+            Preconditions.checkArgument(separator > 0, "Invalid node specification: %s", node);
+            store.join(node.substring(0, separator).trim(), node.substring(separator + 1).trim());
+        }
+        return store;
+    }
+
+    @Override
+    public void join(final String nodeId, final String address) {
+        nodes.put(nodeId, address);
+    }
+
+    @Override
+    public void leave(final String nodeId) {
+        nodes.remove(nodeId);
+    }
+
+    @Override
+    public Map<String, String> getNodes() {
+        return Collections.unmodifiableMap(nodes);
+    }
+}
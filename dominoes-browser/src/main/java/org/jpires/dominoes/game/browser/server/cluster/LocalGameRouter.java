@@ -0,0 +1,56 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Local implementation of {@link GameRouter}.
+ * It's the default router: the node owns all games, and there are no other nodes to forward messages to.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class LocalGameRouter implements GameRouter {
+
+    /**
+     * The id of this node.
+     */
+    private final String nodeId;
+
+    /**
+     * Constructs a local router.
+     *
+     * @param nodeId the id of this node
+     */
+    public LocalGameRouter(final String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Set<String> getNodeIds() {
+        return Collections.singleton(nodeId);
+    }
+
+    @Override
+    public String ownerOf(final String gameId) {
+        return nodeId;
+    }
+
+    @Override
+    public void forward(final String nodeId, final RoutedMessage message) {
+        throw new IllegalStateException("There are no other nodes to forward messages to");
+    }
+
+    @Override
+    public void start(final Consumer<RoutedMessage> receiver) {
+    }
+
+    @Override
+    public void stop() {
+    }
+}
@@ -0,0 +1,49 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM implementation of {@link NodeTransport}.
+ * Messages are handed directly to the receiver of the destination node, which must be running on the same JVM.
+ * Useful to run several nodes of a cluster on a single process (e.g. on tests).
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class LocalNodeTransport implements NodeTransport {
+
+    /**
+     * The receivers of all nodes running on this JVM.
+     * The key is the node id and the value the receiver of the node.
+     */
+    private static final Map<String, Consumer<RoutedMessage>> RECEIVERS = new ConcurrentHashMap<>();
+
+    /**
+     * The id of the node using this transport.
+     */
+    private String nodeId;
+
+    @Override
+    public void start(final String nodeId, final Consumer<RoutedMessage> receiver) {
+        this.nodeId = nodeId;
+        RECEIVERS.put(nodeId, receiver);
+    }
+
+    @Override
+    public void send(final String nodeId, final RoutedMessage message) throws IOException {
+        final Consumer<RoutedMessage> receiver = RECEIVERS.get(nodeId);
+        if (receiver == null) {
+            throw new IOException(String.format("Node %s is not running", nodeId));
+        }
+        receiver.accept(message);
+    }
+
+    @Override
+    public void stop() {
+        if (nodeId != null) {
+            RECEIVERS.remove(nodeId);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Node Transport represents the channel where server nodes trade {@link RoutedMessage}s.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public interface NodeTransport {
+
+    /**
+     * Starts receiving messages sent to a node.
+     *
+     * @param nodeId   the id of the node receiving the messages
+     * @param receiver the consumer of the received messages
+     * @throws IOException in case of any error starting the transport
+     */
+    void start(String nodeId, Consumer<RoutedMessage> receiver) throws IOException;
+
+    /**
+     * Sends a message to a node.
+     *
+     * @param nodeId  the destination node id
+     * @param message the message
+     * @throws IOException in case of any error sending the message
+     */
+    void send(String nodeId, RoutedMessage message) throws IOException;
+
+    /**
+     * Stops receiving messages and releases the resources of the transport.
+     */
+    void stop();
+}
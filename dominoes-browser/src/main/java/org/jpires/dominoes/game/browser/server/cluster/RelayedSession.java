@@ -0,0 +1,326 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+
+import javax.websocket.CloseReason;
+import javax.websocket.EncodeException;
+import javax.websocket.Extension;
+import javax.websocket.MessageHandler;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import javax.websocket.WebSocketContainer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Relayed Session represents, on the node owning a game, the web-socket session of a player connected to another
+ * node (the origin node).
+ * Messages sent to this session are forwarded to the origin node, to be delivered to the player.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class RelayedSession implements Session {
+
+    /**
+     * The session id (the same id of the session on the origin node).
+     */
+    private final String sessionId;
+
+    /**
+     * The id of this session on the node owning the game (see {@link #key(String, String)}).
+     */
+    private final String id;
+
+    /**
+     * The node where the player is connected.
+     */
+    private final String originNode;
+
+    /**
+     * The router to forward messages to the origin node.
+     */
+    private final GameRouter router;
+
+    /**
+     * The remote endpoint, forwarding messages to the origin node.
+     */
+    private final RemoteEndpoint.Basic basicRemote = new RelayedRemoteEndpoint();
+
+    /**
+     * Indicates if the session is open.
+     */
+    private volatile boolean open = true;
+
+    /**
+     * Constructs a relayed session.
+     *
+     * @param sessionId  the session id
+     * @param originNode the node where the player is connected
+     * @param router     the router to forward messages to the origin node
+     */
+    public RelayedSession(final String sessionId, final String originNode, final GameRouter router) {
+        this.sessionId = sessionId;
+        this.originNode = originNode;
+        this.router = router;
+        this.id = key(originNode, sessionId);
+    }
+
+    /**
+     * Gets the id of the session of a player connected to another node, on the node owning the game.
+     * Session ids are only unique on the node where the sessions were opened, so it's qualified by the origin node.
+     *
+     * @param originNode the node where the player is connected
+     * @param sessionId  the session id on the origin node
+     * @return the id of the relayed session
+     */
+    public static String key(final String originNode, final String sessionId) {
+        return originNode + "/" + sessionId;
+    }
+
+    /**
+     * Gets the id of the session on the origin node.
+     *
+     * @return the session id on the origin node
+     */
+    public String getOriginSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Gets the node where the player is connected.
+     *
+     * @return the origin node id
+     */
+    public String getOriginNode() {
+        return originNode;
+    }
+
+    /**
+     * Marks the session as closed, since the player's connection was closed on the origin node.
+     */
+    public void markClosed() {
+        this.open = false;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public RemoteEndpoint.Basic getBasicRemote() {
+        return basicRemote;
+    }
+
+    /**
+     * Closes the session: the origin node is asked to close the player's connection.
+     *
+     * @throws IOException in case of any error forwarding the message
+     */
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            router.forward(originNode, RoutedMessage.disconnect(router.getNodeId(), sessionId));
+        }
+    }
+
+    @Override
+    public void close(final CloseReason closeReason) throws IOException {
+        close();
+    }
+
+    @Override
+    public Map<String, List<String>> getRequestParameterMap() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, String> getPathParameters() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public String getQueryString() {
+        return null;
+    }
+
+    @Override
+    public WebSocketContainer getContainer() {
+        return null;
+    }
+
+    @Override
+    public void addMessageHandler(final MessageHandler messageHandler) {
+        throw new UnsupportedOperationException("Relayed sessions don't have message handlers");
+    }
+
+    @Override
+    public <T> void addMessageHandler(final Class<T> aClass, final MessageHandler.Whole<T> whole) {
+        throw new UnsupportedOperationException("Relayed sessions don't have message handlers");
+    }
+
+    @Override
+    public <T> void addMessageHandler(final Class<T> aClass, final MessageHandler.Partial<T> partial) {
+        throw new UnsupportedOperationException("Relayed sessions don't have message handlers");
+    }
+
+    @Override
+    public Set<MessageHandler> getMessageHandlers() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public void removeMessageHandler(final MessageHandler messageHandler) {
+    }
+
+    @Override
+    public String getProtocolVersion() {
+        return null;
+    }
+
+    @Override
+    public String getNegotiatedSubprotocol() {
+        return null;
+    }
+
+    @Override
+    public List<Extension> getNegotiatedExtensions() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public long getMaxIdleTimeout() {
+        return 0;
+    }
+
+    @Override
+    public void setMaxIdleTimeout(final long timeout) {
+    }
+
+    @Override
+    public void setMaxBinaryMessageBufferSize(final int size) {
+    }
+
+    @Override
+    public int getMaxBinaryMessageBufferSize() {
+        return 0;
+    }
+
+    @Override
+    public void setMaxTextMessageBufferSize(final int size) {
+    }
+
+    @Override
+    public int getMaxTextMessageBufferSize() {
+        return 0;
+    }
+
+    @Override
+    public RemoteEndpoint.Async getAsyncRemote() {
+        throw new UnsupportedOperationException("Relayed sessions only support the basic remote endpoint");
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> getUserProperties() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public Set<Session> getOpenSessions() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Remote endpoint forwarding {@link WebMessage}s to the origin node.
+     */
+    private class RelayedRemoteEndpoint implements RemoteEndpoint.Basic {
+
+        @Override
+        public void sendObject(final Object object) throws IOException, EncodeException {
+            if (!(object instanceof WebMessage)) {
+                throw new EncodeException(object, "Only web messages can be relayed");
+            }
+            router.forward(originNode, RoutedMessage.deliver(router.getNodeId(), sessionId, (WebMessage) object));
+        }
+
+        @Override
+        public void sendText(final String text) {
+            throw new UnsupportedOperationException("Relayed sessions only relay web messages");
+        }
+
+        @Override
+        public void sendBinary(final ByteBuffer data) {
+            throw new UnsupportedOperationException("Relayed sessions only relay web messages");
+        }
+
+        @Override
+        public void sendText(final String partialMessage, final boolean isLast) {
+            throw new UnsupportedOperationException("Relayed sessions only relay web messages");
+        }
+
+        @Override
+        public void sendBinary(final ByteBuffer partialByte, final boolean isLast) {
+            throw new UnsupportedOperationException("Relayed sessions only relay web messages");
+        }
+
+        @Override
+        public OutputStream getSendStream() {
+            throw new UnsupportedOperationException("Relayed sessions only relay web messages");
+        }
+
+        @Override
+        public Writer getSendWriter() {
+            throw new UnsupportedOperationException("Relayed sessions only relay web messages");
+        }
+
+        @Override
+        public void setBatchingAllowed(final boolean allowed) {
+        }
+
+        @Override
+        public boolean getBatchingAllowed() {
+            return false;
+        }
+
+        @Override
+        public void flushBatch() {
+        }
+
+        @Override
+        public void sendPing(final ByteBuffer applicationData) {
+        }
+
+        @Override
+        public void sendPong(final ByteBuffer applicationData) {
+        }
+    }
+}
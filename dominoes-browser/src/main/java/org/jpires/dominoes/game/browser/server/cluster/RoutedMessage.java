@@ -0,0 +1,460 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+
+/**
+ * Routed Message represents a message to be traded between server nodes of a cluster.
+ * It carries the commands of players connected to a node to the node owning their game, and the messages to be
+ * delivered back to the players.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class RoutedMessage {
+
+    /**
+     * The kind of routed message.
+     */
+    public enum Kind {
+        /**
+         * Starts a new game on the owner node, with two players connected to their own nodes.
+         */
+        START_GAME,
+
+        /**
+         * A message from a player, to be handled by the owner node.
+         */
+        COMMAND,
+
+        /**
+         * The player's connection was closed on the origin node.
+         */
+        CLOSE,
+
+        /**
+         * A message to be delivered to a player connected to the origin node.
+         */
+        DELIVER,
+
+        /**
+         * The owner node closed the player's session: the origin node closes the player's connection.
+         */
+        DISCONNECT,
+
+        /**
+         * The owner node released the player's session: the origin node matches the player with a new opponent.
+         */
+        RELEASE,
+
+        /**
+         * A player reconnected to the origin node with a resume token: the owner node reattaches the player's seat.
+         */
+        RESUME,
+
+        /**
+         * A player waiting for too long on the origin node seeks an opponent on the global lobby.
+         */
+        SEEK,
+
+        /**
+         * A player seeking an opponent on the global lobby left.
+         */
+        WITHDRAW,
+
+        /**
+         * A player seeking an opponent on the global lobby was matched: the game is owned by the owner node.
+         */
+        MATCHED,
+
+        /**
+         * There are players waiting on the global lobby.
+         */
+        LOBBY_WAITING,
+
+        /**
+         * There are no players waiting on the global lobby.
+         */
+        LOBBY_EMPTY
+    }
+
+    /**
+     * The kind of routed message.
+     */
+    @JsonProperty
+    private Kind kind;
+
+    /**
+     * The node that sent the message.
+     */
+    @JsonProperty
+    private String originNode;
+
+    /**
+     * The game id (only for {@link Kind#START_GAME}).
+     */
+    @JsonProperty
+    private String gameId;
+
+    /**
+     * The session id of the player.
+     */
+    @JsonProperty
+    private String sessionId;
+
+    /**
+     * The name of the player (only for {@link Kind#START_GAME}).
+     */
+    @JsonProperty
+    private String playerName;
+
+    /**
+     * The node where the player is connected (only for {@link Kind#START_GAME}).
+     */
+    @JsonProperty
+    private String playerNode;
+
+    /**
+     * The node where the other player is connected (only for {@link Kind#START_GAME}).
+     */
+    @JsonProperty
+    private String otherPlayerNode;
+
+    /**
+     * The node owning the game (only for {@link Kind#MATCHED}).
+     */
+    @JsonProperty
+    private String ownerNode;
+
+    /**
+     * The session id of the other player (only for {@link Kind#START_GAME}).
+     */
+    @JsonProperty
+    private String otherSessionId;
+
+    /**
+     * The name of the other player (only for {@link Kind#START_GAME}).
+     */
+    @JsonProperty
+    private String otherPlayerName;
+
+    /**
+     * The resume token of the player (only for {@link Kind#RESUME}).
+     */
+    @JsonProperty
+    private String resumeToken;
+
+    /**
+     * The web message (only for {@link Kind#COMMAND} and {@link Kind#DELIVER}).
+     */
+    @JsonProperty
+    private WebMessage message;
+
+    /**
+     * Default empty constructor to allow json deserialization.
+     */
+    public RoutedMessage() {
+    }
+
+    /**
+     * Constructs a routed message about a player's session.
+     *
+     * @param kind       the kind of message
+     * @param originNode the node sending the message
+     * @param sessionId  the session id of the player
+     * @param message    the web message, or null
+     */
+    private RoutedMessage(final Kind kind, final String originNode, final String sessionId, final WebMessage message) {
+        this.kind = kind;
+        this.originNode = originNode;
+        this.sessionId = sessionId;
+        this.message = message;
+    }
+
+    /**
+     * Creates a message to start a new game on the owner node, with two players connected to the origin node.
+     *
+     * @param originNode      the node where the players are connected
+     * @param gameId          the game id
+     * @param sessionId       the session id of the player 1
+     * @param playerName      the name of the player 1
+     * @param otherSessionId  the session id of the player 2
+     * @param otherPlayerName the name of the player 2
+     * @return the routed message
+     */
+    public static RoutedMessage startGame(final String originNode, final String gameId,
+                                          final String sessionId, final String playerName,
+                                          final String otherSessionId, final String otherPlayerName) {
+        return startGame(originNode, gameId, originNode, sessionId, playerName, originNode, otherSessionId, otherPlayerName);
+    }
+
+    /**
+     * Creates a message to start a new game on the owner node, with two players connected to their own nodes.
+     *
+     * @param originNode      the node sending the message
+     * @param gameId          the game id
+     * @param playerNode      the node where the player 1 is connected
+     * @param sessionId       the session id of the player 1
+     * @param playerName      the name of the player 1
+     * @param otherPlayerNode the node where the player 2 is connected
+     * @param otherSessionId  the session id of the player 2
+     * @param otherPlayerName the name of the player 2
+     * @return the routed message
+     */
+    public static RoutedMessage startGame(final String originNode, final String gameId,
+                                          final String playerNode, final String sessionId, final String playerName,
+                                          final String otherPlayerNode, final String otherSessionId,
+                                          final String otherPlayerName) {
+        final RoutedMessage routedMessage = new RoutedMessage(Kind.START_GAME, originNode, sessionId, null);
+        routedMessage.gameId = gameId;
+        routedMessage.playerNode = playerNode;
+        routedMessage.playerName = playerName;
+        routedMessage.otherPlayerNode = otherPlayerNode;
+        routedMessage.otherSessionId = otherSessionId;
+        routedMessage.otherPlayerName = otherPlayerName;
+        return routedMessage;
+    }
+
+    /**
+     * Creates a message carrying a player's command to the owner node.
+     *
+     * @param originNode the node where the player is connected
+     * @param sessionId  the session id of the player
+     * @param message    the player's message
+     * @return the routed message
+     */
+    public static RoutedMessage command(final String originNode, final String sessionId, final WebMessage message) {
+        return new RoutedMessage(Kind.COMMAND, originNode, sessionId, message);
+    }
+
+    /**
+     * Creates a message telling the owner node that a player's connection was closed.
+     *
+     * @param originNode the node where the player was connected
+     * @param sessionId  the session id of the player
+     * @return the routed message
+     */
+    public static RoutedMessage close(final String originNode, final String sessionId) {
+        return new RoutedMessage(Kind.CLOSE, originNode, sessionId, null);
+    }
+
+    /**
+     * Creates a message to be delivered to a player connected to another node.
+     *
+     * @param originNode the node owning the game
+     * @param sessionId  the session id of the player
+     * @param message    the message to be delivered
+     * @return the routed message
+     */
+    public static RoutedMessage deliver(final String originNode, final String sessionId, final WebMessage message) {
+        return new RoutedMessage(Kind.DELIVER, originNode, sessionId, message);
+    }
+
+    /**
+     * Creates a message telling the node where a player is connected to close the player's connection.
+     *
+     * @param originNode the node owning the game
+     * @param sessionId  the session id of the player
+     * @return the routed message
+     */
+    public static RoutedMessage disconnect(final String originNode, final String sessionId) {
+        return new RoutedMessage(Kind.DISCONNECT, originNode, sessionId, null);
+    }
+
+    /**
+     * Creates a message telling the node where a player is connected to match the player with a new opponent.
+     *
+     * @param originNode the node owning the player's last game
+     * @param sessionId  the session id of the player
+     * @return the routed message
+     */
+    public static RoutedMessage release(final String originNode, final String sessionId) {
+        return new RoutedMessage(Kind.RELEASE, originNode, sessionId, null);
+    }
+
+    /**
+     * Creates a message asking the owner node to reattach a player's seat to a new connection.
+     *
+     * @param originNode  the node where the player reconnected
+     * @param sessionId   the new session id of the player
+     * @param resumeToken the resume token of the player
+     * @return the routed message
+     */
+    public static RoutedMessage resume(final String originNode, final String sessionId, final String resumeToken) {
+        final RoutedMessage routedMessage = new RoutedMessage(Kind.RESUME, originNode, sessionId, null);
+        routedMessage.resumeToken = resumeToken;
+        return routedMessage;
+    }
+
+    /**
+     * Creates a message asking the global lobby for an opponent.
+     *
+     * @param originNode the node where the player is connected
+     * @param sessionId  the session id of the player
+     * @param playerName the name of the player
+     * @return the routed message
+     */
+    public static RoutedMessage seek(final String originNode, final String sessionId, final String playerName) {
+        final RoutedMessage routedMessage = new RoutedMessage(Kind.SEEK, originNode, sessionId, null);
+        routedMessage.playerName = playerName;
+        return routedMessage;
+    }
+
+    /**
+     * Creates a message telling the global lobby that a seeking player left.
+     *
+     * @param originNode the node where the player was connected
+     * @param sessionId  the session id of the player
+     * @return the routed message
+     */
+    public static RoutedMessage withdraw(final String originNode, final String sessionId) {
+        return new RoutedMessage(Kind.WITHDRAW, originNode, sessionId, null);
+    }
+
+    /**
+     * Creates a message telling the node where a seeking player is connected that the player was matched.
+     *
+     * @param originNode the node of the global lobby
+     * @param sessionId  the session id of the player
+     * @param ownerNode  the node owning the new game
+     * @return the routed message
+     */
+    public static RoutedMessage matched(final String originNode, final String sessionId, final String ownerNode) {
+        final RoutedMessage routedMessage = new RoutedMessage(Kind.MATCHED, originNode, sessionId, null);
+        routedMessage.ownerNode = ownerNode;
+        return routedMessage;
+    }
+
+    /**
+     * Creates a message announcing whether there are players waiting on the global lobby.
+     *
+     * @param originNode the node of the global lobby
+     * @param waiting    true if there are players waiting, false otherwise
+     * @return the routed message
+     */
+    public static RoutedMessage lobby(final String originNode, final boolean waiting) {
+        return new RoutedMessage(waiting ? Kind.LOBBY_WAITING : Kind.LOBBY_EMPTY, originNode, null, null);
+    }
+
+    /**
+     * Gets the kind of message.
+     *
+     * @return the kind of message
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the node that sent the message.
+     *
+     * @return the origin node id
+     */
+    public String getOriginNode() {
+        return originNode;
+    }
+
+    /**
+     * Gets the game id.
+     *
+     * @return the game id
+     */
+    public String getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Gets the session id of the player.
+     *
+     * @return the session id
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Gets the name of the player.
+     *
+     * @return the player name
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * Gets the node where the player is connected.
+     *
+     * @return the player node id
+     */
+    public String getPlayerNode() {
+        return playerNode;
+    }
+
+    /**
+     * Gets the node where the other player is connected.
+     *
+     * @return the other player node id
+     */
+    public String getOtherPlayerNode() {
+        return otherPlayerNode;
+    }
+
+    /**
+     * Gets the node owning the game.
+     *
+     * @return the owner node id
+     */
+    public String getOwnerNode() {
+        return ownerNode;
+    }
+
+    /**
+     * Gets the session id of the other player.
+     *
+     * @return the other session id
+     */
+    public String getOtherSessionId() {
+        return otherSessionId;
+    }
+
+    /**
+     * Gets the name of the other player.
+     *
+     * @return the other player name
+     */
+    public String getOtherPlayerName() {
+        return otherPlayerName;
+    }
+
+    /**
+     * Gets the resume token of the player.
+     *
+     * @return the resume token
+     */
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    /**
+     * Gets the web message.
+     *
+     * @return the web message
+     */
+    public WebMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * To string method, to be easier to append in logs.
+     *
+     * @return a string representation of this object
+     */
+    @Override
+    public String toString() {
+        return "RoutedMessage{" +
+                "kind=" + kind +
+                ", originNode=" + originNode +
+                ", sessionId=" + sessionId +
+                ", message=" + message +
+                '}';
+    }
+}
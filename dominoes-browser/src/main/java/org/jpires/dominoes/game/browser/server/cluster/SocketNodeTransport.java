@@ -0,0 +1,274 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import com.google.common.base.Preconditions;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jpires.dominoes.lib.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * TCP implementation of {@link NodeTransport}.
+ * Each node listens on the address registered on the {@link ClusterStore}, and messages are sent as json lines
+ * over a persistent connection per destination node.
+ * <p>
+ * The routed messages are trusted (they carry the commands of any player), so a node only accepts them from the other
+ * nodes: the first line of a connection is the secret shared by the cluster (see {@link Constants#CLUSTER_SECRET}),
+ * and without a secret a node only listens on a loopback address. The lines longer than
+ * {@link Constants#CLUSTER_MAX_MESSAGE_CHARS} close the connection.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class SocketNodeTransport implements NodeTransport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SocketNodeTransport.class);
+
+    /**
+     * The cluster store, with the addresses of the nodes.
+     */
+    private final ClusterStore clusterStore;
+
+    /**
+     * The secret shared by the nodes of the cluster, or null if the nodes only listen on loopback addresses.
+     */
+    private final String secret;
+
+    /**
+     * The connections to other nodes, where the key is the node id.
+     */
+    private final Map<String, Writer> connections = new ConcurrentHashMap<>();
+
+    /**
+     * The threads accepting and reading connections from other nodes.
+     */
+    private final ExecutorService readers = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("dominoes-node-transport-%d").setDaemon(true).build());
+
+    /**
+     * The server socket receiving connections from other nodes.
+     */
+    private ServerSocket serverSocket;
+
+    /**
+     * Constructs a socket transport, with the secret configured on {@link Constants#CLUSTER_SECRET}.
+     *
+     * @param clusterStore the cluster store, with the addresses of the nodes
+     */
+    public SocketNodeTransport(final ClusterStore clusterStore) {
+        this(clusterStore, Constants.CLUSTER_SECRET);
+    }
+
+    /**
+     * Constructs a socket transport.
+     *
+     * @param clusterStore the cluster store, with the addresses of the nodes
+     * @param secret       the secret shared by the nodes of the cluster, or null to only listen on a loopback address
+     */
+    public SocketNodeTransport(final ClusterStore clusterStore, final String secret) {
+        Preconditions.checkArgument(secret == null || !secret.isEmpty() && secret.indexOf('\n') < 0,
+                "The secret of the cluster should be a non empty single line");
+        this.clusterStore = clusterStore;
+        this.secret = secret;
+    }
+
+    @Override
+    public void start(final String nodeId, final Consumer<RoutedMessage> receiver) throws IOException {
+        final String address = clusterStore.getNodes().get(nodeId);
+        Preconditions.checkArgument(address != null, "Node %s is not registered on the cluster", nodeId);
+
+        final HostAndPort hostAndPort = HostAndPort.fromString(address);
+        final InetAddress bindAddress = InetAddress.getByName(hostAndPort.getHost());
+        Preconditions.checkState(secret != null || bindAddress.isLoopbackAddress(),
+                "Node %s can't listen on %s without the secret of the cluster", nodeId, address);
+
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(bindAddress, hostAndPort.getPort()));
+
+        readers.execute(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    readers.execute(() -> read(socket, receiver));
+                } catch (final IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        LOGGER.error("Error accepting a node connection: {}", e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the messages sent by another node, until the connection is closed.
+     * The connection is closed right away if it doesn't start with the secret of the cluster.
+     *
+     * @param socket   the connection
+     * @param receiver the consumer of the received messages
+     */
+    private void read(final Socket socket, final Consumer<RoutedMessage> receiver) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            final String handshake = readLine(reader, Constants.CLUSTER_MAX_MESSAGE_CHARS);
+            if (handshake == null || !MessageDigest.isEqual(handshake.getBytes(StandardCharsets.UTF_8),
+                    handshake().getBytes(StandardCharsets.UTF_8))) {
+                LOGGER.warn("Refused a node connection from {}, without the secret of the cluster",
+                        socket.getRemoteSocketAddress());
+                socket.close();
+                return;
+            }
+
+            String line;
+            while ((line = readLine(reader, Constants.CLUSTER_MAX_MESSAGE_CHARS)) != null) {
+                try {
+                    receiver.accept(Constants.OBJECT_MAPPER.readValue(line, RoutedMessage.class));
+                } catch (final Exception e) {
+                    LOGGER.error("Error handling a routed message: {}", e);
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.info("Node connection closed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a line, refusing the lines longer than a certain length (so a peer can't run the node out of memory).
+     *
+     * @param reader   the reader
+     * @param maxChars the maximum length of the line
+     * @return the line (without its line feed), or null if the end of the stream was reached
+     * @throws IOException if the line is too long, or in case of any error reading it
+     */
+    static String readLine(final Reader reader, final int maxChars) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = reader.read()) >= 0) {
+            if (c == '\n') {
+                return line.toString();
+            }
+            if (line.length() == maxChars) {
+                throw new IOException(String.format("A line longer than %d chars", maxChars));
+            }
+            line.append((char) c);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+
+    /**
+     * Gets the first line of a connection to another node.
+     *
+     * @return the secret of the cluster, or an empty line if there's none
+     */
+    private String handshake() {
+        return secret == null ? "" : secret;
+    }
+
+    @Override
+    public void send(final String nodeId, final RoutedMessage message) throws IOException {
+        final String line = Constants.OBJECT_MAPPER.writeValueAsString(message);
+        final Writer writer = connection(nodeId);
+
+        try {
+            synchronized (writer) {
+                writer.write(line);
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (final IOException e) {
+            connections.remove(nodeId, writer);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the connection to a node, opening it if there is none.
+     * The connection is opened outside of the map, so a slow connect doesn't hold the sends to other nodes: if two
+     * threads connect to the same node at once, the first connection published is kept and the other one is closed.
+     *
+     * @param nodeId the node id
+     * @return the writer of the connection
+     * @throws IOException if the node is not reachable
+     */
+    private Writer connection(final String nodeId) throws IOException {
+        final Writer writer = connections.get(nodeId);
+        if (writer != null) {
+            return writer;
+        }
+
+        final Writer connected = connect(nodeId);
+        if (connected == null) {
+            throw new IOException(String.format("Node %s is not reachable", nodeId));
+        }
+
+        final Writer published = connections.putIfAbsent(nodeId, connected);
+        if (published == null) {
+            return connected;
+        }
+
+        connected.close();
+        return published;
+    }
+
+    /**
+     * Opens a connection to a node, waiting at most {@link Constants#CLUSTER_CONNECT_TIMEOUT_MILLIS} (the players
+     * sending a message to that node are waiting), and sends the secret of the cluster.
+     *
+     * @param nodeId the node id
+     * @return the writer of the connection, or null if the node is not reachable
+     */
+    private Writer connect(final String nodeId) {
+        final String address = clusterStore.getNodes().get(nodeId);
+        if (address == null) {
+            return null;
+        }
+
+        try {
+            final HostAndPort hostAndPort = HostAndPort.fromString(address);
+            final Socket socket = new Socket();
+            socket.connect(new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort()),
+                    Constants.CLUSTER_CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            writer.write(handshake());
+            writer.write('\n');
+            return writer;
+        } catch (final IOException e) {
+            LOGGER.error("Error connecting to node {}: {}", nodeId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+            for (final Writer writer : connections.values()) {
+                writer.close();
+            }
+        } catch (final IOException e) {
+            LOGGER.error("Error stopping the node transport: {}", e);
+        }
+        connections.clear();
+        readers.shutdownNow();
+    }
+}
@@ -0,0 +1,202 @@
+package org.jpires.dominoes.game.browser.server.drain;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jpires.dominoes.game.browser.server.DominoesNode;
+import org.jpires.dominoes.game.browser.server.SessionSender;
+import org.jpires.dominoes.game.browser.server.SessionStore;
+import org.jpires.dominoes.game.browser.server.admission.AdmissionController;
+import org.jpires.dominoes.lib.WebGame;
+import org.jpires.dominoes.lib.model.WebPlayer;
+import org.jpires.dominoes.lib.utils.Constants;
+import org.jpires.dominoes.lib.utils.GameMessageWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.CloseReason;
+import javax.websocket.EncodeException;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Node Drainer empties a node before it's shut down (e.g. on a rolling deploy), without dropping games:
+ * <ul>
+ * <li>the node stops matching players: new players, rematches and requeues are asked to retry later (the browsers
+ * reconnect after a random delay, so they don't reconnect all at once)</li>
+ * <li>the players waiting for an opponent are asked to retry later right away</li>
+ * <li>the games going on are played until the end (or until the drain times out)</li>
+ * </ul>
+ * Once no game is going on, the remaining players are asked to retry later, the node is stopped and the process is
+ * shut down (see {@link Constants#DRAIN_EXIT}).
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class NodeDrainer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NodeDrainer.class);
+
+    /**
+     * The reason given to the players asked to retry later.
+     */
+    public static final String DRAINING_REASON = "The server is restarting";
+
+    /**
+     * The node being drained.
+     */
+    private final DominoesNode node;
+
+    /**
+     * The future completed when the node is drained.
+     */
+    private final CompletableFuture<Void> drained;
+
+    /**
+     * The interval (in millis) between the checks for games still going on.
+     */
+    private final long checkMillis;
+
+    /**
+     * The time (in millis) when the drain times out.
+     */
+    private final long deadline;
+
+    /**
+     * The action shutting down the process once the node is drained.
+     */
+    private final Runnable shutdown;
+
+    /**
+     * Scheduler of the checks for games still going on.
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("dominoes-drain-%d").setDaemon(true).build());
+
+    /**
+     * Constructs a node drainer.
+     *
+     * @param node          the node being drained
+     * @param drained       the future completed when the node is drained
+     * @param checkMillis   the interval (in millis) between the checks for games still going on
+     * @param timeoutMillis the maximum time (in millis) to wait for the games to finish
+     * @param shutdown      the action shutting down the process once the node is drained (e.g. {@link #exit()})
+     */
+    public NodeDrainer(final DominoesNode node, final CompletableFuture<Void> drained,
+                       final long checkMillis, final long timeoutMillis, final Runnable shutdown) {
+        this.node = node;
+        this.drained = drained;
+        this.checkMillis = checkMillis;
+        this.deadline = System.currentTimeMillis() + timeoutMillis;
+        this.shutdown = shutdown;
+    }
+
+    /**
+     * Exits the JVM, running its shutdown hooks (the container is shut down as well).
+     * If the drain was started by the shutdown of the JVM (see {@link #drainOnShutdown(DominoesNode)}), the JVM is
+     * already exiting, and this call only blocks the drain thread.
+     */
+    public static void exit() {
+        LOGGER.info("Exiting the JVM, since the node is drained");
+        System.exit(0);
+    }
+
+    /**
+     * Drains the node when the JVM is shut down (e.g. on a SIGTERM), holding the shutdown until the node is drained
+     * or the drain times out.
+     *
+     * @param node the node
+     */
+    public static void drainOnShutdown(final DominoesNode node) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                node.drain().get(Constants.DRAIN_TIMEOUT_MILLIS + Constants.DRAIN_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException | TimeoutException e) {
+                LOGGER.warn("Error draining node {} on shutdown: {}", node.getNodeId(), e);
+            }
+        }, "dominoes-drain-on-shutdown"));
+    }
+
+    /**
+     * Starts draining the node.
+     */
+    public void start() {
+        LOGGER.info("Draining node {}", node.getNodeId());
+
+        final SessionStore sessionStore = node.getSessionStore();
+        Optional<WebPlayer> waitingPlayer;
+        while ((waitingPlayer = sessionStore.getPlayerFromQueue()).isPresent()) {
+            askToRetryLater(waitingPlayer.get().getSocketSession());
+        }
+
+        scheduler.scheduleWithFixedDelay(this::check, 0, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks for games still going on. If there are none (or the drain timed out), the node is stopped and the
+     * process is shut down.
+     */
+    private void check() {
+        final long gamesGoingOn = countGamesGoingOn(node.getSessionStore());
+        if (gamesGoingOn > 0 && System.currentTimeMillis() < deadline) {
+            LOGGER.info("Node {} is draining: {} games going on", node.getNodeId(), gamesGoingOn);
+            return;
+        }
+
+        if (gamesGoingOn > 0) {
+            LOGGER.warn("Node {} didn't drain in time: stopping with {} games going on", node.getNodeId(), gamesGoingOn);
+        }
+
+        for (final WebGame game : node.getSessionStore().getGames()) {
+            //Under the lock of the game, so the players are asked to leave between two moves
+            synchronized (game) {
+                askToRetryLater(game.getPlayer1().getSocketSession());
+                askToRetryLater(game.getPlayer2().getSocketSession());
+            }
+        }
+
+        node.stop();
+        scheduler.shutdown();
+        LOGGER.info("Node {} is drained", node.getNodeId());
+        drained.complete(null);
+        shutdown.run();
+    }
+
+    /**
+     * Counts the games going on (not over) on a store, from their snapshots.
+     *
+     * @param sessionStore the store
+     * @return the number of games going on
+     */
+    public static long countGamesGoingOn(final SessionStore sessionStore) {
+        return sessionStore.getGames().stream()
+                .map(WebGame::getSnapshot)
+                .filter(snapshot -> snapshot == null || !snapshot.isOver())
+                .count();
+    }
+
+    /**
+     * Asks a player to connect again later (to another node), and closes the session.
+     *
+     * @param session the session of the player
+     */
+    private static void askToRetryLater(final Session session) {
+        if (!session.isOpen()) {
+            return;
+        }
+
+        try {
+            SessionSender.send(session, GameMessageWrapper.retryLaterMessage(DRAINING_REASON,
+                    AdmissionController.retryAfterMillis()));
+            session.close(new CloseReason(CloseReason.CloseCodes.SERVICE_RESTART, DRAINING_REASON));
+        } catch (final IOException | EncodeException e) {
+            LOGGER.warn("Error closing session {}: {}", session.getId(), e);
+        }
+    }
+}
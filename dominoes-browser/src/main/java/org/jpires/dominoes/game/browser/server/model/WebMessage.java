@@ -1,5 +1,6 @@
 package org.jpires.dominoes.game.browser.server.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.jpires.dominoes.lib.utils.MessageType;
 
@@ -27,6 +28,22 @@ public class WebMessage {
     @JsonProperty
     private Map<String, Object> content;
 
+    /**
+     * The game id, on a multiplexed connection (chosen by the client when joining the game).
+     * It's null on a connection playing a single game.
+     */
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String gameId;
+
+    /**
+     * The sequence number of a command sent by the client (echoed on the responses to the command), so a command
+     * sent again is recognized as a duplicate. It's null if the client doesn't number its commands.
+     */
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long seq;
+
     /**
      * Default empty constructor to allow json deserialization.
      */
@@ -55,6 +72,32 @@ public class WebMessage {
         this.content = content;
     }
 
+    /**
+     * Constructs a message with type, content and game id.
+     *
+     * @param type    the type of message
+     * @param content the content of message
+     * @param gameId  the game id, on a multiplexed connection
+     */
+    public WebMessage(final MessageType type, final Map<String, Object> content, final String gameId) {
+        this(type, content, gameId, null);
+    }
+
+    /**
+     * Constructs a message with type, content, game id and sequence number.
+     *
+     * @param type    the type of message
+     * @param content the content of message
+     * @param gameId  the game id, on a multiplexed connection
+     * @param seq     the sequence number of the command
+     */
+    public WebMessage(final MessageType type, final Map<String, Object> content, final String gameId, final Long seq) {
+        this.type = type;
+        this.content = content;
+        this.gameId = gameId;
+        this.seq = seq;
+    }
+
     /**
      * Gets the type of the message.
      *
@@ -73,6 +116,44 @@ public class WebMessage {
         return Collections.unmodifiableMap(content);
     }
 
+    /**
+     * Gets the game id, on a multiplexed connection.
+     *
+     * @return the game id, or null if the message isn't about a game of a multiplexed connection
+     */
+    public String getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Creates a copy of this message, for a game of a multiplexed connection.
+     *
+     * @param gameId the game id
+     * @return the message with the game id
+     */
+    public WebMessage withGameId(final String gameId) {
+        return new WebMessage(type, content, gameId, seq);
+    }
+
+    /**
+     * Gets the sequence number of the command.
+     *
+     * @return the sequence number, or null if the message isn't numbered
+     */
+    public Long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Creates a copy of this message, answering a numbered command.
+     *
+     * @param seq the sequence number of the command
+     * @return the message with the sequence number
+     */
+    public WebMessage withSeq(final Long seq) {
+        return new WebMessage(type, content, gameId, seq);
+    }
+
     /**
      * To string method, to be easier to append in logs.
      *
@@ -83,6 +164,8 @@ public class WebMessage {
         return "WebMessage{" +
                 "type=" + type +
                 ", content=" + content +
+                (gameId == null ? "" : ", gameId=" + gameId) +
+                (seq == null ? "" : ", seq=" + seq) +
                 '}';
     }
 
@@ -92,11 +175,13 @@ public class WebMessage {
         if (o == null || getClass() != o.getClass()) return false;
         WebMessage message = (WebMessage) o;
         return type == message.type &&
-                Objects.equals(content, message.content);
+                Objects.equals(content, message.content) &&
+                Objects.equals(gameId, message.gameId) &&
+                Objects.equals(seq, message.seq);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, content);
+        return Objects.hash(type, content, gameId, seq);
     }
 }
@@ -0,0 +1,163 @@
+package org.jpires.dominoes.game.browser.server.multiplex;
+
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+
+import javax.websocket.EncodeException;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Multiplexed Connection is a web-socket connection playing several games at once.
+ * Each game joined on the connection has its own {@link TableSession}, identified by the game id chosen by the
+ * client, so the server handles it as if it was a connection of its own.
+ * <p>
+ * The games are played on different threads, but a web-socket session doesn't allow concurrent writes, so every
+ * message sent over the connection goes through {@link #send(WebMessage)}.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class MultiplexedConnection {
+
+    /**
+     * The web-socket session of the connection.
+     */
+    private final Session session;
+
+    /**
+     * The name of the player.
+     */
+    private final String username;
+
+    /**
+     * The sessions of the games joined on this connection. The key is the game id.
+     */
+    private final Map<String, TableSession> tables = new ConcurrentHashMap<>();
+
+    /**
+     * The lock of the writes to the web-socket session.
+     */
+    private final Object sendLock = new Object();
+
+    /**
+     * Constructs a multiplexed connection.
+     *
+     * @param session  the web-socket session of the connection
+     * @param username the name of the player
+     */
+    public MultiplexedConnection(final Session session, final String username) {
+        this.session = session;
+        this.username = username;
+    }
+
+    /**
+     * Gets the web-socket session of the connection.
+     *
+     * @return the session
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Gets the name of the player.
+     *
+     * @return the name of the player
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Sends a message over the connection, one write at a time.
+     *
+     * @param message the message
+     * @throws IOException     in case of any error sending the message
+     * @throws EncodeException in case of any error encoding the message
+     */
+    public void send(final WebMessage message) throws IOException, EncodeException {
+        synchronized (sendLock) {
+            session.getBasicRemote().sendObject(message);
+        }
+    }
+
+    /**
+     * Joins a new game on this connection.
+     *
+     * @param gameId       the game id chosen by the client
+     * @param closeHandler the handler of the session being closed by the server (e.g. by the node owning the game)
+     * @return the session of the game, or null if a game with the same id was already joined
+     */
+    public TableSession openTable(final String gameId, final Consumer<TableSession> closeHandler) {
+        final TableSession table = new TableSession(this, gameId, closeHandler);
+        return tables.putIfAbsent(gameId, table) == null ? table : null;
+    }
+
+    /**
+     * Gets the session of a game joined on this connection.
+     *
+     * @param gameId the game id
+     * @return the session of the game, or null if there's no such game
+     */
+    public TableSession getTable(final String gameId) {
+        return tables.get(gameId);
+    }
+
+    /**
+     * Leaves a game joined on this connection.
+     *
+     * @param gameId the game id
+     * @return the session of the game (marked as closed), or null if there was no such game
+     */
+    public TableSession removeTable(final String gameId) {
+        final TableSession table = tables.remove(gameId);
+        if (table != null) {
+            table.markClosed();
+        }
+        return table;
+    }
+
+    /**
+     * Leaves a game joined on this connection, if it's still the given session (and not a game joined later with the
+     * same id).
+     *
+     * @param table the session of the game
+     * @return true if the game was left, false if it was already left
+     */
+    boolean removeTable(final TableSession table) {
+        if (tables.remove(table.getGameId(), table)) {
+            table.markClosed();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Leaves all the games joined on this connection (e.g. when the connection is closed).
+     *
+     * @return the sessions of the games (marked as closed)
+     */
+    public Collection<TableSession> removeTables() {
+        final Collection<TableSession> removed = new ArrayList<>();
+        for (final String gameId : tables.keySet()) {
+            final TableSession table = removeTable(gameId);
+            if (table != null) {
+                removed.add(table);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the number of games joined on this connection.
+     *
+     * @return the number of games
+     */
+    public int getTableCount() {
+        return tables.size();
+    }
+}
@@ -0,0 +1,311 @@
+package org.jpires.dominoes.game.browser.server.multiplex;
+
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+
+import javax.websocket.CloseReason;
+import javax.websocket.EncodeException;
+import javax.websocket.Extension;
+import javax.websocket.MessageHandler;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import javax.websocket.WebSocketContainer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Table Session represents one of the games joined on a {@link MultiplexedConnection}.
+ * Messages sent to this session are tagged with the game id, and sent over the connection.
+ * Everything else is delegated to the session of the connection.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class TableSession implements Session {
+
+    /**
+     * The connection where the game was joined.
+     */
+    private final MultiplexedConnection connection;
+
+    /**
+     * The game id chosen by the client.
+     */
+    private final String gameId;
+
+    /**
+     * The session id (the id of the connection, followed by the game id).
+     */
+    private final String sessionId;
+
+    /**
+     * The handler of the session being closed by the server.
+     */
+    private final Consumer<TableSession> closeHandler;
+
+    /**
+     * The remote endpoint, tagging the messages with the game id.
+     */
+    private final RemoteEndpoint.Basic basicRemote = new TableRemoteEndpoint();
+
+    /**
+     * Indicates if the game was left.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a table session.
+     *
+     * @param connection   the connection where the game was joined
+     * @param gameId       the game id chosen by the client
+     * @param closeHandler the handler of the session being closed by the server
+     */
+    TableSession(final MultiplexedConnection connection, final String gameId, final Consumer<TableSession> closeHandler) {
+        this.connection = connection;
+        this.gameId = gameId;
+        this.sessionId = connection.getSession().getId() + "/" + gameId;
+        this.closeHandler = closeHandler;
+    }
+
+    /**
+     * Gets the connection where the game was joined.
+     *
+     * @return the connection
+     */
+    public MultiplexedConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets the game id chosen by the client.
+     *
+     * @return the game id
+     */
+    public String getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Marks the session as closed, since the game was left (or the connection was closed).
+     */
+    void markClosed() {
+        this.closed = true;
+    }
+
+    @Override
+    public String getId() {
+        return sessionId;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed && connection.getSession().isOpen();
+    }
+
+    @Override
+    public RemoteEndpoint.Basic getBasicRemote() {
+        return basicRemote;
+    }
+
+    /**
+     * Closes the session: the game is left, but the connection stays open for the other games.
+     */
+    @Override
+    public void close() {
+        if (connection.removeTable(this)) {
+            closeHandler.accept(this);
+        }
+    }
+
+    @Override
+    public void close(final CloseReason closeReason) {
+        close();
+    }
+
+    @Override
+    public Map<String, List<String>> getRequestParameterMap() {
+        return connection.getSession().getRequestParameterMap();
+    }
+
+    @Override
+    public Map<String, String> getPathParameters() {
+        return connection.getSession().getPathParameters();
+    }
+
+    @Override
+    public String getQueryString() {
+        return connection.getSession().getQueryString();
+    }
+
+    @Override
+    public WebSocketContainer getContainer() {
+        return connection.getSession().getContainer();
+    }
+
+    @Override
+    public void addMessageHandler(final MessageHandler messageHandler) {
+        throw new UnsupportedOperationException("Table sessions don't have message handlers");
+    }
+
+    @Override
+    public <T> void addMessageHandler(final Class<T> aClass, final MessageHandler.Whole<T> whole) {
+        throw new UnsupportedOperationException("Table sessions don't have message handlers");
+    }
+
+    @Override
+    public <T> void addMessageHandler(final Class<T> aClass, final MessageHandler.Partial<T> partial) {
+        throw new UnsupportedOperationException("Table sessions don't have message handlers");
+    }
+
+    @Override
+    public Set<MessageHandler> getMessageHandlers() {
+        return connection.getSession().getMessageHandlers();
+    }
+
+    @Override
+    public void removeMessageHandler(final MessageHandler messageHandler) {
+    }
+
+    @Override
+    public String getProtocolVersion() {
+        return connection.getSession().getProtocolVersion();
+    }
+
+    @Override
+    public String getNegotiatedSubprotocol() {
+        return connection.getSession().getNegotiatedSubprotocol();
+    }
+
+    @Override
+    public List<Extension> getNegotiatedExtensions() {
+        return connection.getSession().getNegotiatedExtensions();
+    }
+
+    @Override
+    public boolean isSecure() {
+        return connection.getSession().isSecure();
+    }
+
+    @Override
+    public long getMaxIdleTimeout() {
+        return connection.getSession().getMaxIdleTimeout();
+    }
+
+    @Override
+    public void setMaxIdleTimeout(final long timeout) {
+    }
+
+    @Override
+    public void setMaxBinaryMessageBufferSize(final int size) {
+    }
+
+    @Override
+    public int getMaxBinaryMessageBufferSize() {
+        return connection.getSession().getMaxBinaryMessageBufferSize();
+    }
+
+    @Override
+    public void setMaxTextMessageBufferSize(final int size) {
+    }
+
+    @Override
+    public int getMaxTextMessageBufferSize() {
+        return connection.getSession().getMaxTextMessageBufferSize();
+    }
+
+    @Override
+    public RemoteEndpoint.Async getAsyncRemote() {
+        throw new UnsupportedOperationException("Table sessions only support the basic remote endpoint");
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return connection.getSession().getRequestURI();
+    }
+
+    @Override
+    public Map<String, Object> getUserProperties() {
+        return connection.getSession().getUserProperties();
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return connection.getSession().getUserPrincipal();
+    }
+
+    @Override
+    public Set<Session> getOpenSessions() {
+        return connection.getSession().getOpenSessions();
+    }
+
+    /**
+     * Remote endpoint tagging {@link WebMessage}s with the game id, and sending them over the connection.
+     */
+    private class TableRemoteEndpoint implements RemoteEndpoint.Basic {
+
+        @Override
+        public void sendObject(final Object object) throws IOException, EncodeException {
+            if (!(object instanceof WebMessage)) {
+                throw new EncodeException(object, "Only web messages can be sent to a game");
+            }
+            connection.send(((WebMessage) object).withGameId(gameId));
+        }
+
+        @Override
+        public void sendText(final String text) {
+            throw new UnsupportedOperationException("Table sessions only send web messages");
+        }
+
+        @Override
+        public void sendBinary(final ByteBuffer data) {
+            throw new UnsupportedOperationException("Table sessions only send web messages");
+        }
+
+        @Override
+        public void sendText(final String partialMessage, final boolean isLast) {
+            throw new UnsupportedOperationException("Table sessions only send web messages");
+        }
+
+        @Override
+        public void sendBinary(final ByteBuffer partialByte, final boolean isLast) {
+            throw new UnsupportedOperationException("Table sessions only send web messages");
+        }
+
+        @Override
+        public OutputStream getSendStream() {
+            throw new UnsupportedOperationException("Table sessions only send web messages");
+        }
+
+        @Override
+        public Writer getSendWriter() {
+            throw new UnsupportedOperationException("Table sessions only send web messages");
+        }
+
+        @Override
+        public void setBatchingAllowed(final boolean allowed) {
+        }
+
+        @Override
+        public boolean getBatchingAllowed() {
+            return false;
+        }
+
+        @Override
+        public void flushBatch() {
+        }
+
+        @Override
+        public void sendPing(final ByteBuffer applicationData) {
+        }
+
+        @Override
+        public void sendPong(final ByteBuffer applicationData) {
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package org.jpires.dominoes.game.browser.server.ratelimit;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.jpires.dominoes.lib.utils.Constants;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate Limiter keeps the {@link TokenBucket}s of the web-socket sessions of a node:
+ * <ul>
+ * <li>one bucket per session, for every frame it sends</li>
+ * <li>one bucket per remote address, shared by all its sessions</li>
+ * <li>one bucket per session, for the invalid messages it sends (answered with an error)</li>
+ * </ul>
+ * A session exceeding any of them should be closed.
+ * <p>
+ * The bucket of a remote address outlives its sessions: it's only forgotten once the address has no sessions and its
+ * bucket has been full for a while, so a session closed for flooding can't reconnect with a full burst of its address.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class RateLimiter {
+
+    /**
+     * The limits of each session. The key is the session id.
+     */
+    private final Map<String, SessionLimits> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * The limits of each remote address. The key is the address.
+     */
+    private final Map<String, AddressLimits> addresses = new ConcurrentHashMap<>();
+
+    /**
+     * Frames per second allowed to a session.
+     */
+    private final int sessionRate;
+
+    /**
+     * Burst of frames allowed to a session.
+     */
+    private final int sessionBurst;
+
+    /**
+     * Frames per second allowed to a remote address.
+     */
+    private final int addressRate;
+
+    /**
+     * Burst of frames allowed to a remote address.
+     */
+    private final int addressBurst;
+
+    /**
+     * Invalid messages per second allowed to a session.
+     */
+    private final int errorRate;
+
+    /**
+     * Burst of invalid messages allowed to a session.
+     */
+    private final int errorBurst;
+
+    /**
+     * The time (nanos) the limits of a remote address are kept once it has no sessions and its bucket is full.
+     */
+    private final long addressIdleNanos;
+
+    /**
+     * The time (nanos) of the last sweep of the idle remote addresses.
+     */
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    /**
+     * Constructs a rate limiter, keeping idle remote addresses for {@link Constants#RATE_LIMIT_ADDRESS_IDLE_MILLIS}.
+     * A rate of 0 disables the corresponding limit.
+     *
+     * @param sessionRate  frames per second allowed to a session
+     * @param sessionBurst burst of frames allowed to a session
+     * @param addressRate  frames per second allowed to a remote address
+     * @param addressBurst burst of frames allowed to a remote address
+     * @param errorRate    invalid messages per second allowed to a session
+     * @param errorBurst   burst of invalid messages allowed to a session
+     */
+    public RateLimiter(final int sessionRate, final int sessionBurst,
+                       final int addressRate, final int addressBurst,
+                       final int errorRate, final int errorBurst) {
+        this(sessionRate, sessionBurst, addressRate, addressBurst, errorRate, errorBurst,
+                Constants.RATE_LIMIT_ADDRESS_IDLE_MILLIS);
+    }
+
+    /**
+     * Constructs a rate limiter. A rate of 0 disables the corresponding limit.
+     *
+     * @param sessionRate       frames per second allowed to a session
+     * @param sessionBurst      burst of frames allowed to a session
+     * @param addressRate       frames per second allowed to a remote address
+     * @param addressBurst      burst of frames allowed to a remote address
+     * @param errorRate         invalid messages per second allowed to a session
+     * @param errorBurst        burst of invalid messages allowed to a session
+     * @param addressIdleMillis the time (in millis) the limits of a remote address are kept once it has no sessions
+     *                          and its bucket is full
+     */
+    public RateLimiter(final int sessionRate, final int sessionBurst,
+                       final int addressRate, final int addressBurst,
+                       final int errorRate, final int errorBurst, final long addressIdleMillis) {
+        this.sessionRate = sessionRate;
+        this.sessionBurst = sessionBurst;
+        this.addressRate = addressRate;
+        this.addressBurst = addressBurst;
+        this.errorRate = errorRate;
+        this.errorBurst = errorBurst;
+        this.addressIdleNanos = TimeUnit.MILLISECONDS.toNanos(addressIdleMillis);
+    }
+
+    /**
+     * Creates a rate limiter with the limits configured on {@link Constants}.
+     *
+     * @return the rate limiter
+     */
+    public static RateLimiter fromSystemProperties() {
+        return new RateLimiter(Constants.RATE_LIMIT_SESSION_PER_SECOND, Constants.RATE_LIMIT_SESSION_BURST,
+                Constants.RATE_LIMIT_ADDRESS_PER_SECOND, Constants.RATE_LIMIT_ADDRESS_BURST,
+                Constants.RATE_LIMIT_ERRORS_PER_SECOND, Constants.RATE_LIMIT_ERRORS_BURST);
+    }
+
+    /**
+     * Creates a rate limiter without limits (e.g. for benchmarks).
+     *
+     * @return the rate limiter
+     */
+    public static RateLimiter unlimited() {
+        return new RateLimiter(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Registers a new session.
+     *
+     * @param sessionId the session id
+     * @param address   the remote address of the session, or null if it's unknown
+     */
+    public void register(final String sessionId, final String address) {
+        sweepIdleAddresses(System.nanoTime());
+
+        final AddressLimits addressLimits = address == null ? null
+                : addresses.compute(address, (key, limits) -> (limits == null ? new AddressLimits() : limits).retain());
+
+        sessions.put(sessionId, new SessionLimits(new TokenBucket(sessionRate, sessionBurst),
+                new TokenBucket(errorRate, errorBurst), address, addressLimits));
+    }
+
+    /**
+     * Unregisters a closed session.
+     * The limits of its remote address are kept, until they're idle (see {@link #sweepIdleAddresses(long)}).
+     *
+     * @param sessionId the session id
+     */
+    public void unregister(final String sessionId) {
+        final SessionLimits limits = sessions.remove(sessionId);
+        if (limits != null && limits.address != null) {
+            addresses.computeIfPresent(limits.address, (key, addressLimits) -> addressLimits.release());
+        }
+    }
+
+    /**
+     * Forgets the remote addresses with no sessions whose bucket has been full for the idle time.
+     * It sweeps at most once per idle time, so registering a session stays cheap.
+     *
+     * @param nowNanos the current time (nanos, as given by {@link System#nanoTime()})
+     */
+    private void sweepIdleAddresses(final long nowNanos) {
+        final long last = lastSweep.get();
+        if (nowNanos - last < addressIdleNanos || !lastSweep.compareAndSet(last, nowNanos)) {
+            return;
+        }
+
+        for (final String address : addresses.keySet()) {
+            addresses.computeIfPresent(address, (key, limits) -> limits.isIdle(nowNanos) ? null : limits);
+        }
+    }
+
+    /**
+     * Gets the number of remote addresses whose limits are kept.
+     *
+     * @return the number of remote addresses
+     */
+    @VisibleForTesting
+    int getAddressCount() {
+        return addresses.size();
+    }
+
+    /**
+     * Takes a token for a frame sent by a session.
+     * Unregistered sessions (e.g. sessions relayed by other nodes, already limited on their own node) are not limited.
+     *
+     * @param sessionId the session id
+     * @return true if the frame is allowed, false if the session exceeded its limits
+     */
+    public boolean tryAcquire(final String sessionId) {
+        final SessionLimits limits = sessions.get(sessionId);
+        if (limits == null) {
+            return true;
+        }
+
+        final long now = System.nanoTime();
+        return limits.frames.tryAcquire(now) && (limits.addressLimits == null || limits.addressLimits.frames.tryAcquire(now));
+    }
+
+    /**
+     * Takes a token for an invalid message sent by a session.
+     *
+     * @param sessionId the session id
+     * @return true if the invalid message is tolerated, false if the session is abusive
+     */
+    public boolean tryAcquireError(final String sessionId) {
+        final SessionLimits limits = sessions.get(sessionId);
+        return limits == null || limits.errors.tryAcquire();
+    }
+
+    /**
+     * The limits of a session.
+     */
+    private static final class SessionLimits {
+
+        /**
+         * The bucket of frames.
+         */
+        private final TokenBucket frames;
+
+        /**
+         * The bucket of invalid messages.
+         */
+        private final TokenBucket errors;
+
+        /**
+         * The remote address, or null if it's unknown.
+         */
+        private final String address;
+
+        /**
+         * The limits of the remote address, or null if it's unknown.
+         */
+        private final AddressLimits addressLimits;
+
+        /**
+         * Constructs the limits of a session.
+         *
+         * @param frames        the bucket of frames
+         * @param errors        the bucket of invalid messages
+         * @param address       the remote address, or null if it's unknown
+         * @param addressLimits the limits of the remote address, or null if it's unknown
+         */
+        private SessionLimits(final TokenBucket frames, final TokenBucket errors,
+                              final String address, final AddressLimits addressLimits) {
+            this.frames = frames;
+            this.errors = errors;
+            this.address = address;
+            this.addressLimits = addressLimits;
+        }
+    }
+
+    /**
+     * The limits of a remote address, kept while it has open sessions or its bucket isn't idle.
+     */
+    private final class AddressLimits {
+
+        /**
+         * The bucket of frames.
+         */
+        private final TokenBucket frames = new TokenBucket(addressRate, addressBurst);
+
+        /**
+         * The number of open sessions (only changed inside {@link Map#compute}, which is atomic per address).
+         */
+        private int openSessions;
+
+        /**
+         * Counts a new session.
+         *
+         * @return this
+         */
+        private AddressLimits retain() {
+            openSessions++;
+            return this;
+        }
+
+        /**
+         * Counts a closed session.
+         *
+         * @return this
+         */
+        private AddressLimits release() {
+            openSessions--;
+            return this;
+        }
+
+        /**
+         * Verifies if the limits are idle: the address has no open sessions and its bucket has been full for the
+         * idle time, so forgetting them is the same as starting a new bucket.
+         *
+         * @param nowNanos the current time (nanos, as given by {@link System#nanoTime()})
+         * @return true if the limits are idle, false otherwise
+         */
+        private boolean isIdle(final long nowNanos) {
+            return openSessions == 0 && frames.isIdle(nowNanos, addressIdleNanos);
+        }
+    }
+}
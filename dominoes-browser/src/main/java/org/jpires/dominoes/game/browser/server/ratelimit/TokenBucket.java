@@ -0,0 +1,90 @@
+package org.jpires.dominoes.game.browser.server.ratelimit;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token Bucket allows a certain number of events per second, with bursts up to a certain size.
+ * <p>
+ * The bucket is lock-free: its whole state is the time (nanos) when the bucket would be full again, kept in a single
+ * {@link AtomicLong} (the "theoretical arrival time" of the generic cell rate algorithm). Taking a token moves that
+ * time one emission interval forward, and it's refused if the time would go further than a full burst ahead.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class TokenBucket {
+
+    /**
+     * The time (nanos) between two tokens, or 0 if the bucket is unlimited.
+     */
+    private final long emissionIntervalNanos;
+
+    /**
+     * The time (nanos) it takes to refill a full burst.
+     */
+    private final long burstNanos;
+
+    /**
+     * The time (nanos) when the bucket will be full again.
+     */
+    private final AtomicLong fullAt;
+
+    /**
+     * Constructs a full token bucket.
+     *
+     * @param tokensPerSecond the refill rate (if it's 0 or less, the bucket is unlimited)
+     * @param burst           the size of the bucket
+     */
+    public TokenBucket(final int tokensPerSecond, final int burst) {
+        Preconditions.checkArgument(tokensPerSecond <= 0 || burst > 0, "The burst must be positive");
+        this.emissionIntervalNanos = tokensPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / tokensPerSecond;
+        this.burstNanos = emissionIntervalNanos * burst;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes a token from the bucket.
+     *
+     * @return true if there was a token, false if the rate was exceeded
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * Takes a token from the bucket, at a certain time.
+     *
+     * @param nowNanos the current time (nanos, as given by {@link System#nanoTime()})
+     * @return true if there was a token, false if the rate was exceeded
+     */
+    public boolean tryAcquire(final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return true;
+        }
+
+        while (true) {
+            final long current = fullAt.get();
+            final long next = Math.max(current, nowNanos) + emissionIntervalNanos;
+
+            if (next - nowNanos > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Verifies if the bucket has been full for a certain time (a bucket idle since then is the same as a new one).
+     *
+     * @param nowNanos  the current time (nanos, as given by {@link System#nanoTime()})
+     * @param idleNanos the time (nanos)
+     * @return true if the bucket has been full for that time, false otherwise
+     */
+    public boolean isIdle(final long nowNanos, final long idleNanos) {
+        return nowNanos - fullAt.get() >= idleNanos;
+    }
+}
@@ -0,0 +1,93 @@
+package org.jpires.dominoes.game.browser.server.replay;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replay Window keeps the responses to the last commands of a session, by sequence number, so a command sent
+ * again by the client (e.g. a retry after a lag spike) is answered with the same responses instead of being handled
+ * twice.
+ * <p>
+ * The window is a ring: the command with sequence number {@code n} takes the slot {@code n % size}, and commands
+ * older than {@code size} sequence numbers are stale.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class ReplayWindow {
+
+    /**
+     * The sequence number of the command on each slot (-1 if the slot is empty).
+     */
+    private final long[] sequences;
+
+    /**
+     * The responses to the command on each slot.
+     */
+    private final Object[] responses;
+
+    /**
+     * The highest sequence number recorded, or -1 if none was recorded yet.
+     */
+    private long highestSequence = -1;
+
+    /**
+     * Constructs an empty replay window.
+     *
+     * @param size the number of commands kept
+     */
+    public ReplayWindow(final int size) {
+        Preconditions.checkArgument(size > 0, "The size of the window must be positive");
+        this.sequences = new long[size];
+        this.responses = new Object[size];
+        Arrays.fill(sequences, -1);
+    }
+
+    /**
+     * Gets the responses to a command handled before.
+     *
+     * @param sequence the sequence number of the command
+     * @return the responses, or null if the command wasn't handled yet (or it's no longer on the window)
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<WebMessage> getResponses(final long sequence) {
+        final int slot = slotOf(sequence);
+        return sequences[slot] == sequence ? (List<WebMessage>) responses[slot] : null;
+    }
+
+    /**
+     * Verifies if a command is too old to be on the window: it was certainly handled before, but its responses are
+     * no longer kept.
+     *
+     * @param sequence the sequence number of the command
+     * @return true if the command is stale, false otherwise
+     */
+    public synchronized boolean isStale(final long sequence) {
+        return sequence <= highestSequence - sequences.length;
+    }
+
+    /**
+     * Records the responses to a command just handled.
+     *
+     * @param sequence  the sequence number of the command
+     * @param responses the responses sent to the session
+     */
+    public synchronized void record(final long sequence, final List<WebMessage> responses) {
+        final int slot = slotOf(sequence);
+        this.sequences[slot] = sequence;
+        this.responses[slot] = responses;
+        this.highestSequence = Math.max(highestSequence, sequence);
+    }
+
+    /**
+     * Gets the slot of a sequence number.
+     *
+     * @param sequence the sequence number
+     * @return the slot
+     */
+    private int slotOf(final long sequence) {
+        return (int) Math.floorMod(sequence, (long) sequences.length);
+    }
+}
@@ -0,0 +1,240 @@
+package org.jpires.dominoes.lib;
+
+import com.google.common.collect.ImmutableList;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.model.WebPlayer;
+
+import java.util.List;
+
+/**
+ * Game Snapshot is an immutable copy of the state of a {@link WebGame}, published after each change of the game.
+ * It's read without locking the game (e.g. by the admin endpoints), so reading it never blocks the players.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public final class GameSnapshot {
+
+    /**
+     * The game id.
+     */
+    private final String gameId;
+
+    /**
+     * The seed the stock was shuffled with, or null if the stock was given.
+     */
+    private final Long seed;
+
+    /**
+     * The time (in millis) the game started.
+     */
+    private final long startedAt;
+
+    /**
+     * The time (in millis) the snapshot was taken.
+     */
+    private final long takenAt;
+
+    /**
+     * The number of pieces played.
+     */
+    private final int moves;
+
+    /**
+     * The stock size.
+     */
+    private final int stockSize;
+
+    /**
+     * The pieces on the board.
+     */
+    private final List<DominoPiece> board;
+
+    /**
+     * The name of the player 1.
+     */
+    private final String player1;
+
+    /**
+     * The name of the player 2.
+     */
+    private final String player2;
+
+    /**
+     * The pieces of the player 1.
+     */
+    private final List<DominoPiece> player1Pieces;
+
+    /**
+     * The pieces of the player 2.
+     */
+    private final List<DominoPiece> player2Pieces;
+
+    /**
+     * The name of the player owning the turn, or null if the game isn't started.
+     */
+    private final String playingPlayer;
+
+    /**
+     * Indicates if the game is over.
+     */
+    private final boolean over;
+
+    /**
+     * The name of the winner, or null if there's no winner (yet).
+     */
+    private final String winner;
+
+    /**
+     * Takes a snapshot of a game. The caller must hold the lock of the game.
+     *
+     * @param game      the game
+     * @param startedAt the time (in millis) the game started
+     * @param moves     the number of pieces played
+     */
+    GameSnapshot(final WebGame game, final long startedAt, final int moves) {
+        final WebPlayer playing = (WebPlayer) game.getPlayingPlayer();
+
+        this.gameId = game.getId();
+        this.seed = game.getSeed().isPresent() ? Long.valueOf(game.getSeed().getAsLong()) : null;
+        this.startedAt = startedAt;
+        this.takenAt = System.currentTimeMillis();
+        this.moves = moves;
+        this.stockSize = game.getStockSize();
+        this.board = ImmutableList.copyOf(game.getBoard());
+        this.player1 = game.getPlayer1().getName();
+        this.player2 = game.getPlayer2().getName();
+        this.player1Pieces = ImmutableList.copyOf(game.getPlayer1().getPieces());
+        this.player2Pieces = ImmutableList.copyOf(game.getPlayer2().getPieces());
+        this.playingPlayer = playing == null ? null : playing.getName();
+        this.over = playing != null && game.isOver();
+        this.winner = over ? game.getWinner().map(Player::getName).orElse(null) : null;
+    }
+
+    /**
+     * Gets the game id.
+     *
+     * @return the game id
+     */
+    public String getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Gets the seed the stock was shuffled with, so the game is able to be replayed exactly (see
+     * {@link Game#Game(Player, Player, long)}).
+     *
+     * @return the seed, or null if the stock was given
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the time (in millis) the game started.
+     *
+     * @return the time the game started
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Gets the time (in millis) the snapshot was taken.
+     *
+     * @return the time the snapshot was taken
+     */
+    public long getTakenAt() {
+        return takenAt;
+    }
+
+    /**
+     * Gets the number of pieces played.
+     *
+     * @return the number of moves
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * Gets the stock size.
+     *
+     * @return the stock size
+     */
+    public int getStockSize() {
+        return stockSize;
+    }
+
+    /**
+     * Gets the pieces on the board.
+     *
+     * @return the board
+     */
+    public List<DominoPiece> getBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the name of the player 1.
+     *
+     * @return the name of the player 1
+     */
+    public String getPlayer1() {
+        return player1;
+    }
+
+    /**
+     * Gets the name of the player 2.
+     *
+     * @return the name of the player 2
+     */
+    public String getPlayer2() {
+        return player2;
+    }
+
+    /**
+     * Gets the pieces of the player 1.
+     *
+     * @return the pieces of the player 1
+     */
+    public List<DominoPiece> getPlayer1Pieces() {
+        return player1Pieces;
+    }
+
+    /**
+     * Gets the pieces of the player 2.
+     *
+     * @return the pieces of the player 2
+     */
+    public List<DominoPiece> getPlayer2Pieces() {
+        return player2Pieces;
+    }
+
+    /**
+     * Gets the name of the player owning the turn.
+     *
+     * @return the name of the playing player, or null if the game isn't started
+     */
+    public String getPlayingPlayer() {
+        return playingPlayer;
+    }
+
+    /**
+     * Verifies if the game is over.
+     *
+     * @return true if the game is over, false otherwise
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * Gets the name of the winner.
+     *
+     * @return the name of the winner, or null if there's no winner (yet)
+     */
+    public String getWinner() {
+        return winner;
+    }
+}
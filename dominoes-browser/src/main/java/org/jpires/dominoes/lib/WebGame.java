@@ -2,11 +2,14 @@ package org.jpires.dominoes.lib;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
 import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.model.Stock;
 import org.jpires.dominoes.lib.model.WebPlayer;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.UUID;
 
 /**
  * WebGame is an extension of {@link Game} class to facilitate the interaction with web application.
@@ -16,6 +19,26 @@ import java.util.Queue;
  */
 public class WebGame extends Game {
 
+    /**
+     * The game id.
+     */
+    private final String id;
+
+    /**
+     * The time (in millis) the game started.
+     */
+    private long startedAt;
+
+    /**
+     * The number of pieces played.
+     */
+    private int moves;
+
+    /**
+     * The last snapshot of the game, or null if the game wasn't started yet.
+     */
+    private volatile GameSnapshot snapshot;
+
     /**
      * Constructs a new WebGame given two WebPlayers.
      *
@@ -23,7 +46,33 @@ public class WebGame extends Game {
      * @param player2 the {@link WebPlayer} 2
      */
     public WebGame(final WebPlayer player1, final WebPlayer player2) {
+        this(UUID.randomUUID().toString(), player1, player2);
+    }
+
+    /**
+     * Constructs a new WebGame given its id and two WebPlayers.
+     *
+     * @param id      the game id
+     * @param player1 the {@link WebPlayer} 1
+     * @param player2 the {@link WebPlayer} 2
+     */
+    public WebGame(final String id, final WebPlayer player1, final WebPlayer player2) {
         super(player1, player2);
+        this.id = id;
+    }
+
+    /**
+     * Constructs a new WebGame given its id, two WebPlayers and its stock (e.g. a stock dealt in advance by a
+     * {@link StockPool}).
+     *
+     * @param id      the game id
+     * @param player1 the {@link WebPlayer} 1
+     * @param player2 the {@link WebPlayer} 2
+     * @param stock   the stock
+     */
+    public WebGame(final String id, final WebPlayer player1, final WebPlayer player2, final Stock stock) {
+        super(player1, player2, stock);
+        this.id = id;
     }
 
     /**
@@ -37,6 +86,58 @@ public class WebGame extends Game {
     @VisibleForTesting
     WebGame(final WebPlayer player1, final WebPlayer player2, final Queue<DominoPiece> stock, final LinkedList<DominoPiece> board) {
         super(player1, player2, stock, board);
+        this.id = UUID.randomUUID().toString();
+    }
+
+    /**
+     * Gets the game id.
+     *
+     * @return the game id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Starts a new game given a custom number of pieces for each player.
+     *
+     * @param nrPieces the number of pieces to give each player
+     */
+    @Override
+    public synchronized void start(final int nrPieces) {
+        super.start(nrPieces);
+        this.startedAt = System.currentTimeMillis();
+        this.moves = 0;
+    }
+
+    /**
+     * Applies a move (play) on the board, counting it.
+     *
+     * @param player the player to make the move.
+     * @param piece  the piece to be played
+     * @param place  the place (left or right) to be played
+     */
+    @Override
+    public synchronized void play(final Player player, final DominoPiece piece, final Place place) {
+        super.play(player, piece, place);
+        moves++;
+    }
+
+    /**
+     * Publishes a snapshot of the current state of the game, to be read without locking the game.
+     * It should be called after each change of the game.
+     */
+    public synchronized void publishSnapshot() {
+        this.snapshot = new GameSnapshot(this, startedAt, moves);
+    }
+
+    /**
+     * Gets the last snapshot of the game, without locking it.
+     *
+     * @return the snapshot, or null if the game wasn't started yet
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
@@ -55,6 +156,24 @@ public class WebGame extends Game {
         }
     }
 
+    /**
+     * Finds the player in the game given a resume token.
+     *
+     * @param resumeToken the resume token
+     * @return the corresponding player of the given resume token, or null if no player owns it
+     */
+    public WebPlayer getPlayerByResumeToken(final String resumeToken) {
+        if (resumeToken == null) {
+            return null;
+        } else if (resumeToken.equals(getPlayer1().getResumeToken())) {
+            return getPlayer1();
+        } else if (resumeToken.equals(getPlayer2().getResumeToken())) {
+            return getPlayer2();
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Gets the player 1 (wrapper to facilitate to get {@link WebPlayer} instead of {@link Player}).
      *
@@ -23,6 +23,25 @@ public class WebPlayer extends Player {
     @JsonIgnore
     private Session socketSession;
 
+    /**
+     * The token that allows this player to resume the game after a dropped connection.
+     * It will be ignored when encoding to json, since it's only sent to the player who owns it.
+     */
+    @JsonIgnore
+    private String resumeToken;
+
+    /**
+     * The time (in millis) when the player's connection was dropped, or 0 if the player is connected.
+     */
+    @JsonIgnore
+    private volatile long disconnectedAt;
+
+    /**
+     * Indicates if the player asked for a rematch, after the game is over.
+     */
+    @JsonIgnore
+    private volatile boolean rematchRequested;
+
     /**
      * Constructs a new web player with name, list of dominoes pieces, session id and a session socket.
      *
@@ -53,4 +72,82 @@ public class WebPlayer extends Player {
     public Session getSocketSession() {
         return socketSession;
     }
+
+    /**
+     * Reattaches this player to a new web-socket session (e.g. after a reconnection).
+     * The player is considered connected again.
+     *
+     * @param sessionId the new session id
+     * @param socket    the new web socket session connection
+     */
+    public synchronized void reattach(final String sessionId, final Session socket) {
+        this.sessionId = sessionId;
+        this.socketSession = socket;
+        this.disconnectedAt = 0;
+    }
+
+    /**
+     * Gets the resume token of this player.
+     *
+     * @return the resume token, or null if no token was issued
+     */
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    /**
+     * Sets the resume token of this player.
+     *
+     * @param resumeToken the resume token
+     */
+    public void setResumeToken(final String resumeToken) {
+        this.resumeToken = resumeToken;
+    }
+
+    /**
+     * Marks this player as disconnected, holding the seat on the game.
+     *
+     * @param disconnectedAt the time (in millis) when the connection was dropped
+     */
+    public void markDisconnected(final long disconnectedAt) {
+        this.disconnectedAt = disconnectedAt;
+    }
+
+    /**
+     * Verifies if this player's connection is dropped.
+     *
+     * @return true if the player is disconnected and waiting to resume, false otherwise
+     */
+    @JsonIgnore
+    public boolean isDisconnected() {
+        return disconnectedAt != 0;
+    }
+
+    /**
+     * Verifies if the player asked for a rematch.
+     *
+     * @return true if the player asked for a rematch, false otherwise
+     */
+    @JsonIgnore
+    public boolean isRematchRequested() {
+        return rematchRequested;
+    }
+
+    /**
+     * Sets if the player asked for a rematch.
+     *
+     * @param rematchRequested true if the player asked for a rematch, false otherwise
+     */
+    public void setRematchRequested(final boolean rematchRequested) {
+        this.rematchRequested = rematchRequested;
+    }
+
+    /**
+     * Resets the player to play a new game on the same connection.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        this.rematchRequested = false;
+    }
 }
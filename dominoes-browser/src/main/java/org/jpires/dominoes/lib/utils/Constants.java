@@ -34,6 +34,17 @@ public final class Constants {
      */
     public static final String NEW_PIECE_FROM_STOCK_FIELD = "newPiece";
 
+    /**
+     * The new pieces from stock field name on the message (the pieces drawn at once, in order).
+     */
+    public static final String NEW_PIECES_FROM_STOCK_FIELD = "newPieces";
+
+    /**
+     * The playable moves field name on the message: a bitmask of (piece, place) pairs, with the bit {@code 2 * i} for
+     * the piece {@code i} on the left, and the bit {@code 2 * i + 1} for the piece {@code i} on the right.
+     */
+    public static final String PLAYABLE_MOVES_FIELD = "playableMoves";
+
     /**
      * The place field name on the message.
      */
@@ -64,4 +75,200 @@ public final class Constants {
      */
     public static final String ERROR_FIELD = "error";
 
+    /**
+     * The retry after (in millis) field name on the message.
+     */
+    public static final String RETRY_AFTER_FIELD = "retryAfterMillis";
+
+    /**
+     * The resume token field name on the message.
+     */
+    public static final String RESUME_TOKEN_FIELD = "resumeToken";
+
+    /**
+     * The query parameter used by a reconnecting browser to send its resume token.
+     */
+    public static final String RESUME_PARAMETER = "resume";
+
+    /**
+     * The query parameter used by a client to open a multiplexed connection (e.g. {@code ?multiplex=true}), playing
+     * several games at once.
+     */
+    public static final String MULTIPLEX_PARAMETER = "multiplex";
+
+    /**
+     * The maximum number of games played at once on a multiplexed connection.
+     * It can be configured with the system property {@code dominoes.maxGamesPerConnection}.
+     */
+    public static final int MAX_GAMES_PER_CONNECTION = Integer.getInteger("dominoes.maxGamesPerConnection", 16);
+
+    /**
+     * The number of numbered commands of a session whose responses are kept, to answer the commands sent again.
+     * It can be configured with the system property {@code dominoes.replayWindow}.
+     */
+    public static final int REPLAY_WINDOW_SIZE = Integer.getInteger("dominoes.replayWindow", 32);
+
+    /**
+     * The time (in millis) a dropped player's seat is held open, waiting for the player to resume the game.
+     * It can be configured with the system property {@code dominoes.resume.graceMillis}.
+     */
+    public static final long RESUME_GRACE_MILLIS = Long.getLong("dominoes.resume.graceMillis", 30_000L);
+
+    /**
+     * The secret shared by the nodes of a cluster, sent when a node connects to another one. Without it, the nodes
+     * only listen on loopback addresses.
+     * It can be configured with the system property {@code dominoes.cluster.secret}.
+     */
+    public static final String CLUSTER_SECRET = System.getProperty("dominoes.cluster.secret");
+
+    /**
+     * The time (in millis) a node waits to connect to another node of the cluster.
+     * It can be configured with the system property {@code dominoes.cluster.connectTimeoutMillis}.
+     */
+    public static final int CLUSTER_CONNECT_TIMEOUT_MILLIS = Integer.getInteger("dominoes.cluster.connectTimeoutMillis", 2_000);
+
+    /**
+     * The maximum length (in chars) of a message routed between the nodes of a cluster.
+     * It can be configured with the system property {@code dominoes.cluster.maxMessageChars}.
+     */
+    public static final int CLUSTER_MAX_MESSAGE_CHARS = Integer.getInteger("dominoes.cluster.maxMessageChars", 64 * 1024);
+
+    /**
+     * The time (in millis) a player waits for an opponent on his own node, before seeking one on the whole cluster.
+     * It can be configured with the system property {@code dominoes.matchmaking.spilloverMillis}.
+     */
+    public static final long MATCHMAKING_SPILLOVER_MILLIS = Long.getLong("dominoes.matchmaking.spilloverMillis", 1_000L);
+
+    /**
+     * The messages per second allowed to a web-socket session (0 disables the limit).
+     * It can be configured with the system property {@code dominoes.rateLimit.sessionPerSecond}.
+     */
+    public static final int RATE_LIMIT_SESSION_PER_SECOND = Integer.getInteger("dominoes.rateLimit.sessionPerSecond", 20);
+
+    /**
+     * The burst of messages allowed to a web-socket session.
+     * It can be configured with the system property {@code dominoes.rateLimit.sessionBurst}.
+     */
+    public static final int RATE_LIMIT_SESSION_BURST = Integer.getInteger("dominoes.rateLimit.sessionBurst", 40);
+
+    /**
+     * The messages per second allowed to all web-socket sessions of a remote address (0 disables the limit).
+     * It can be configured with the system property {@code dominoes.rateLimit.addressPerSecond}.
+     */
+    public static final int RATE_LIMIT_ADDRESS_PER_SECOND = Integer.getInteger("dominoes.rateLimit.addressPerSecond", 200);
+
+    /**
+     * The burst of messages allowed to all web-socket sessions of a remote address.
+     * It can be configured with the system property {@code dominoes.rateLimit.addressBurst}.
+     */
+    public static final int RATE_LIMIT_ADDRESS_BURST = Integer.getInteger("dominoes.rateLimit.addressBurst", 400);
+
+    /**
+     * The time (in millis) the limit of a remote address is kept once it has no sessions and its burst is refilled,
+     * so reconnecting doesn't reset it.
+     * It can be configured with the system property {@code dominoes.rateLimit.addressIdleMillis}.
+     */
+    public static final long RATE_LIMIT_ADDRESS_IDLE_MILLIS = Long.getLong("dominoes.rateLimit.addressIdleMillis", 60_000);
+
+    /**
+     * The invalid messages (answered with an error) per second allowed to a web-socket session (0 disables the limit).
+     * It can be configured with the system property {@code dominoes.rateLimit.errorsPerSecond}.
+     */
+    public static final int RATE_LIMIT_ERRORS_PER_SECOND = Integer.getInteger("dominoes.rateLimit.errorsPerSecond", 1);
+
+    /**
+     * The burst of invalid messages allowed to a web-socket session.
+     * It can be configured with the system property {@code dominoes.rateLimit.errorsBurst}.
+     */
+    public static final int RATE_LIMIT_ERRORS_BURST = Integer.getInteger("dominoes.rateLimit.errorsBurst", 10);
+
+    /**
+     * The maximum size (in bytes) of a message received from a browser. Bigger frames are refused by the container,
+     * before being buffered or decoded.
+     * It can be configured with the system property {@code dominoes.maxMessageBytes}.
+     */
+    public static final int MAX_MESSAGE_BYTES = Integer.getInteger("dominoes.maxMessageBytes", 4096);
+
+    /**
+     * The maximum number of connections to a node (0 disables the cap).
+     * It can be configured with the system property {@code dominoes.admission.maxConnections}.
+     */
+    public static final int ADMISSION_MAX_CONNECTIONS = Integer.getInteger("dominoes.admission.maxConnections", 10_000);
+
+    /**
+     * The maximum number of live games on a node, above which new players are rejected (0 disables the cap).
+     * It can be configured with the system property {@code dominoes.admission.maxGames}.
+     */
+    public static final int ADMISSION_MAX_GAMES = Integer.getInteger("dominoes.admission.maxGames", 5_000);
+
+    /**
+     * The maximum number of players waiting for an opponent on a node, above which new players are rejected
+     * (0 disables the cap).
+     * It can be configured with the system property {@code dominoes.admission.maxWaitingPlayers}.
+     */
+    public static final int ADMISSION_MAX_WAITING_PLAYERS = Integer.getInteger("dominoes.admission.maxWaitingPlayers", 1_000);
+
+    /**
+     * The heap usage (in percentage) above which a node is overloaded, and sheds new and waiting players
+     * (0 disables it).
+     * It can be configured with the system property {@code dominoes.admission.heapThresholdPercent}.
+     */
+    public static final int ADMISSION_HEAP_THRESHOLD_PERCENT = Integer.getInteger("dominoes.admission.heapThresholdPercent", 90);
+
+    /**
+     * The average latency (in millis) of the messages above which a node is overloaded, and sheds new and waiting
+     * players (0 disables it).
+     * It can be configured with the system property {@code dominoes.admission.latencyThresholdMillis}.
+     */
+    public static final long ADMISSION_LATENCY_THRESHOLD_MILLIS = Long.getLong("dominoes.admission.latencyThresholdMillis", 200L);
+
+    /**
+     * The time (in millis) a rejected browser is asked to wait before connecting again.
+     * It can be configured with the system property {@code dominoes.admission.retryAfterMillis}.
+     */
+    public static final long ADMISSION_RETRY_AFTER_MILLIS = Long.getLong("dominoes.admission.retryAfterMillis", 5_000L);
+
+    /**
+     * The maximum time (in millis) a draining node waits for its games to finish, before shutting down anyway.
+     * It can be configured with the system property {@code dominoes.drain.timeoutMillis}.
+     */
+    public static final long DRAIN_TIMEOUT_MILLIS = Long.getLong("dominoes.drain.timeoutMillis", 600_000L);
+
+    /**
+     * The interval (in millis) between the checks of a draining node for games still going on.
+     * It can be configured with the system property {@code dominoes.drain.checkMillis}.
+     */
+    public static final long DRAIN_CHECK_MILLIS = Long.getLong("dominoes.drain.checkMillis", 1_000L);
+
+    /**
+     * Whether a node is drained when the JVM is shut down (e.g. on a SIGTERM), holding the shutdown until its games
+     * finish.
+     * It can be configured with the system property {@code dominoes.drain.onShutdown}.
+     */
+    public static final boolean DRAIN_ON_SHUTDOWN = Boolean.getBoolean("dominoes.drain.onShutdown");
+
+    /**
+     * Whether the JVM exits once a node is drained, so the orchestrator of the node (e.g. docker with a restart policy)
+     * replaces it. Otherwise, the node only stops, and the orchestrator is expected to poll the drain status.
+     * It can be configured with the system property {@code dominoes.drain.exit}.
+     */
+    public static final boolean DRAIN_EXIT = Boolean.getBoolean("dominoes.drain.exit");
+
+    /**
+     * The address allowed to use the admin endpoints, besides the loopback addresses.
+     * It can be configured with the system property {@code dominoes.admin.allowedAddress}.
+     */
+    public static final String ADMIN_ALLOWED_ADDRESS = System.getProperty("dominoes.admin.allowedAddress");
+
+    /**
+     * The number of stocks a node keeps shuffled in advance for new games (0 shuffles each stock on the spot).
+     * It can be configured with the system property {@code dominoes.stockPool.size}.
+     */
+    public static final int STOCK_POOL_SIZE = Integer.getInteger("dominoes.stockPool.size", 256);
+
+    /**
+     * The user property of a web-socket session with its remote address (set by the containers).
+     */
+    public static final String REMOTE_ADDRESS_PROPERTY = "javax.websocket.endpoint.remoteAddress";
+
 }
@@ -6,6 +6,7 @@ import org.jpires.dominoes.lib.Game;
 import org.jpires.dominoes.lib.model.DominoPiece;
 import org.jpires.dominoes.lib.model.Player;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -37,6 +38,7 @@ public final class GameMessageWrapper {
                 .put(Constants.PLAYING_PLAYER_FIELD, game.getPlayingPlayer().getName())
                 .put(Constants.OTHER_PLAYER_FIELD, game.getOtherPlayer(player).getName())
                 .put(Constants.STOCK_SIZE_FIELD, game.getStockSize())
+                .put(Constants.PLAYABLE_MOVES_FIELD, playableMoves(game, player))
                 .build();
 
         return new WebMessage(messageType, content);
@@ -60,11 +62,75 @@ public final class GameMessageWrapper {
                 .put(Constants.OTHER_PLAYER_FIELD, game.getOtherPlayer(player).getName())
                 .put(Constants.NEW_PIECE_FROM_STOCK_FIELD, pieceFromStock)
                 .put(Constants.STOCK_SIZE_FIELD, game.getStockSize())
+                .put(Constants.PLAYABLE_MOVES_FIELD, playableMoves(game, player))
                 .build();
 
         return new WebMessage(messageType, content);
     }
 
+    /**
+     * Creates a new message, given his type, the game board, the destination player, and the pieces drawn from stock.
+     * Normally to be used when MessageType.DRAW_FROM_STOCK is invoked.
+     *
+     * @param messageType     the type of the message
+     * @param game            the board
+     * @param player          the destination player
+     * @param piecesFromStock the pieces from stock given to the destination player, in the order they were drawn
+     * @return a new {@link WebMessage} ready to be sent
+     */
+    public static WebMessage piecesFromStockMessage(final MessageType messageType, final Game game, final Player player,
+                                                    final List<DominoPiece> piecesFromStock) {
+        final Map<String, Object> content = ImmutableMap.<String, Object>builder()
+                .put(Constants.BOARD_FIELD, game.getBoard())
+                .put(Constants.PLAYER_FIELD, player)
+                .put(Constants.PLAYING_PLAYER_FIELD, game.getPlayingPlayer().getName())
+                .put(Constants.OTHER_PLAYER_FIELD, game.getOtherPlayer(player).getName())
+                .put(Constants.NEW_PIECES_FROM_STOCK_FIELD, piecesFromStock)
+                .put(Constants.STOCK_SIZE_FIELD, game.getStockSize())
+                .put(Constants.PLAYABLE_MOVES_FIELD, playableMoves(game, player))
+                .build();
+
+        return new WebMessage(messageType, content);
+    }
+
+    /**
+     * Creates a new message for a player who owns a resume token (e.g. NEW_GAME or GAME_RESUMED).
+     * The message contains the game board and the token, so the player is able to resume the game if the
+     * connection drops.
+     *
+     * @param messageType the type of the message
+     * @param game        the board
+     * @param player      the destination player
+     * @param resumeToken the resume token of the destination player (it's not sent if null)
+     * @return a new {@link WebMessage} ready to be sent
+     */
+    public static WebMessage toWebMessage(final MessageType messageType, final Game game, final Player player, final String resumeToken) {
+        final ImmutableMap.Builder<String, Object> content = ImmutableMap.<String, Object>builder()
+                .put(Constants.BOARD_FIELD, game.getBoard())
+                .put(Constants.PLAYER_FIELD, player)
+                .put(Constants.PLAYING_PLAYER_FIELD, game.getPlayingPlayer().getName())
+                .put(Constants.OTHER_PLAYER_FIELD, game.getOtherPlayer(player).getName())
+                .put(Constants.STOCK_SIZE_FIELD, game.getStockSize())
+                .put(Constants.PLAYABLE_MOVES_FIELD, playableMoves(game, player));
+
+        if (resumeToken != null) {
+            content.put(Constants.RESUME_TOKEN_FIELD, resumeToken);
+        }
+
+        return new WebMessage(messageType, content.build());
+    }
+
+    /**
+     * Gets the playable moves of the destination player, so the browser is able to disable the illegal moves.
+     *
+     * @param game   the board
+     * @param player the destination player
+     * @return the bitmask of playable moves (see {@link Game#getPlayableMoves}), or 0 if it's not the player's turn
+     */
+    private static long playableMoves(final Game game, final Player player) {
+        return game.getPlayingPlayer() == player ? game.getPlayableMoves(player) : 0;
+    }
+
     /**
      * Creates a new error message to be sent, given an exception.
      *
@@ -89,6 +155,22 @@ public final class GameMessageWrapper {
         return new WebMessage(MessageType.ERROR_MESSAGE, content);
     }
 
+    /**
+     * Creates the message asking the browser to retry later, since the server is at its capacity.
+     *
+     * @param reason     the reason of the rejection
+     * @param retryAfter the time (in millis) to wait before retrying
+     * @return a new retry later message
+     */
+    public static WebMessage retryLaterMessage(final String reason, final long retryAfter) {
+        final Map<String, Object> content = ImmutableMap.<String, Object>builder()
+                .put(Constants.ERROR_FIELD, reason)
+                .put(Constants.RETRY_AFTER_FIELD, retryAfter)
+                .build();
+
+        return new WebMessage(MessageType.RETRY_LATER, content);
+    }
+
     /**
      * Creates the game over message.
      * It contains the winner of the game, if there is a winner.
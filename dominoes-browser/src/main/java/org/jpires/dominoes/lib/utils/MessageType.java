@@ -46,6 +46,57 @@ public enum MessageType {
      */
     NO_PIECES_ON_STOCK,
 
+    /**
+     * Game resumed message (a snapshot of the game sent to a reconnected player).
+     */
+    GAME_RESUMED,
+
+    /**
+     * Rematch message.
+     * Sent by a player, when the game is over, to play again with the same opponent.
+     * Sent to the opponent, to let him know a rematch was asked.
+     */
+    REMATCH,
+
+    /**
+     * Requeue message.
+     * Sent by a player, when the game is over, to wait for a new opponent on the same connection.
+     */
+    REQUEUE,
+
+    /**
+     * Player left message (the opponent left the game).
+     */
+    PLAYER_LEFT,
+
+    /**
+     * Draw from stock message.
+     * Sent by a player to get pieces from stock until they are able to play (or the stock is empty), at once.
+     */
+    DRAW_FROM_STOCK,
+
+    /**
+     * Pieces from stock message (the pieces drawn for a DRAW_FROM_STOCK, after which the player is able to play).
+     */
+    PIECES_FROM_STOCK,
+
+    /**
+     * Join game message.
+     * Sent on a multiplexed connection to join a new game, with the game id chosen by the client.
+     */
+    JOIN_GAME,
+
+    /**
+     * Leave game message.
+     * Sent on a multiplexed connection to leave one of its games, keeping the connection open for the others.
+     */
+    LEAVE_GAME,
+
+    /**
+     * Retry later message (the server is at its capacity, and the connection or game was rejected).
+     */
+    RETRY_LATER,
+
     /**
      * Error message.
      */
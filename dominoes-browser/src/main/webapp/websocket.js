@@ -1,5 +1,23 @@
 var ws;
 var playerName;
+var resumeToken = null;
+var gameOver = false;
+var reconnectAttempts = 0;
+var playableMoves = 0;
+var retryAfterMillis = null;
+
+var MAX_RECONNECT_ATTEMPTS = 5;
+var RECONNECT_DELAY_MS = 1000;
+
+//The log keeps only the last lines (a ring), so it doesn't grow for the whole session
+var MAX_LOG_LINES = 200;
+var logLines = [];
+
+//Commands are numbered, and sent again if not answered in time (the server answers a repeated command only once)
+var COMMAND_RETRY_DELAY_MS = 2000;
+var MAX_COMMAND_RETRIES = 3;
+var commandSequence = 0;
+var pendingCommand = null;
 
 function connect() {
     if (ws != null) {
@@ -9,108 +27,280 @@ function connect() {
     playerName = document.getElementById("username").value;
     document.getElementById("username").value = "";
 
-    //clear log
-    document.getElementById("log").innerHTML = "";
+    clearLog();
+
+    resumeToken = null;
+    gameOver = false;
+    reconnectAttempts = 0;
+
+    openSocket("");
 
+    setVisible("new_game", false);
+}
+
+function openSocket(query) {
     var host = document.location.host;
     var pathname = document.location.pathname;
 
-    ws = new WebSocket("ws://" +host  + pathname + "dominoes/" + playerName);
-
-    document.getElementById("new_game").style = "display:none";
+    ws = new WebSocket("ws://" +host  + pathname + "dominoes/" + playerName + query);
 
     ws.onmessage = function(event) { handleMessage(event); };
     ws.onclose = function(event) {
+        //If the server asked to retry later (e.g. it's restarting), connect again after the given delay
+        if (retryAfterMillis != null) {
+            var delay = retryAfterMillis;
+            retryAfterMillis = null;
+            resumeToken = null;
+            gameOver = false;
+            setTimeout(function() { openSocket(""); }, delay);
+            return;
+        }
+        //If the connection dropped during a game, try to resume it
+        if (resumeToken != null && !gameOver && reconnectAttempts < MAX_RECONNECT_ATTEMPTS) {
+            reconnectAttempts++;
+            logLine("Connection lost. Trying to resume the game...");
+            setTimeout(function() { openSocket("?resume=" + encodeURIComponent(resumeToken)); }, RECONNECT_DELAY_MS);
+            return;
+        }
         newGame();
     }
 }
 
 function newGame() {
     ws = null;
-    document.getElementById("new_game").style = "";
+    resumeToken = null;
+    setVisible("play_again", false);
+    setVisible("new_game", true);
     document.getElementById("players").innerHTML = "";
-    document.getElementById("place").style = "display:none";
+    document.getElementById("players").removeAttribute("data-players");
+    setVisible("place", false);
     document.getElementById("pieces").innerHTML = "";
-    document.getElementById("play_moves").style = "display:none";
+    document.getElementById("board").innerHTML = "";
+    setVisible("play_moves", false);
 }
 
 function handleMessage(event) {
-    var log = document.getElementById("log");
     console.log(event.data);
     var message = JSON.parse(event.data);
+    if (pendingCommand != null && message.seq === pendingCommand.seq) {
+        clearTimeout(pendingCommand.timer);
+        pendingCommand = null;
+    }
     if (message.type === "WAITING_FOR_PLAYER") {
-        log.innerHTML += "Waiting for new player to join\n";
-    } else if (message.type === "NEW_GAME") {
-        log.innerHTML += "New game started!\n" +
-        "The board is: " + boardToString(message.content.board) + "\n";
-
-        fulfilPlayerPieces(message.content.player.pieces);
-        fulfilPlayers(message.content.player.name, message.content.otherPlayer, message.content.playingPlayer);
-
-        document.getElementById("stockSize").innerHTML = "Stock size: " + message.content.stockSize;
-
-        document.getElementById("place").style = "";
-        if (message.content.player.name == message.content.playingPlayer) {
-            log.innerHTML += "Your turn to play, " + message.content.player.name + "\n";
-            document.getElementById("play_moves").style = "";
-        }
-
+        logLine("Waiting for new player to join");
+    } else if (message.type === "NEW_GAME" || message.type === "GAME_RESUMED") {
+        resumeToken = message.content.resumeToken;
+        gameOver = false;
+        setVisible("play_again", false);
+        reconnectAttempts = 0;
+        logLine(message.type === "NEW_GAME" ? "New game started!" : "Game resumed!");
 
+        //A new board: it's rendered from scratch
+        document.getElementById("board").innerHTML = "";
+        renderTurn(message.content);
+        setVisible("place", true);
     } else if (message.type === "NEXT_PLAY") {
-        log.innerHTML += "The board is: " + boardToString(message.content.board) + "\n";
-        fulfilPlayerPieces(message.content.player.pieces);
-        fulfilPlayers(message.content.player.name, message.content.otherPlayer, message.content.playingPlayer);
-        document.getElementById("stockSize").innerHTML = "Stock size: " + message.content.stockSize;
-        if (message.content.player.name == message.content.playingPlayer) {
-            log.innerHTML += "Your turn to play, " + message.content.player.name + "\n";
-            document.getElementById("play_moves").style = "";
-        } else {
-            document.getElementById("play_moves").style = "display:none";
-        }
+        renderTurn(message.content);
     } else if (message.type === "NEW_PIECE_FROM_STOCK") {
-        log.innerHTML += "Here's a new piece: " + pieceToString(message.content.newPiece) + "\n";
-        fulfilPlayerPieces(message.content.player.pieces);
-        document.getElementById("stockSize").innerHTML = "Stock size: " + message.content.stockSize;
+        logLine("Here's a new piece: " + pieceToString(message.content.newPiece));
+        fulfilPlayerPieces(message.content.player.pieces, message.content.playableMoves);
+        setText("stockSize", "Stock size: " + message.content.stockSize);
+    } else if (message.type === "PIECES_FROM_STOCK") {
+        logLine("Here are new pieces: " + boardToString(message.content.newPieces));
+        fulfilPlayerPieces(message.content.player.pieces, message.content.playableMoves);
+        setText("stockSize", "Stock size: " + message.content.stockSize);
     } else if (message.type === "NO_PIECES_ON_STOCK") {
-        log.innerHTML += "No Pieces left on stock. You lose your turn\n";
+        if (message.content.newPieces && message.content.newPieces.length > 0) {
+            logLine("Here are new pieces: " + boardToString(message.content.newPieces));
+            fulfilPlayerPieces(message.content.player.pieces, message.content.playableMoves);
+            setText("stockSize", "Stock size: " + message.content.stockSize);
+        }
+        logLine("No Pieces left on stock. You lose your turn");
+        setVisible("play_moves", false);
         fulfilPlayers(message.content.player.name, message.content.otherPlayer, message.content.playingPlayer);
     } else if (message.type === "GAME_OVER") {
-        log.innerHTML += "The game is over!\n";
+        gameOver = true;
+        logLine("The game is over!");
         if (message.content.winnerPlayer == "") {
-            log.innerHTML += "The game was a draw.\n";
+            logLine("The game was a draw.");
         } else if (message.content.winnerPlayer == playerName) {
-            log.innerHTML += "You win, " + playerName + "!!!\n";
+            logLine("You win, " + playerName + "!!!");
         } else {
-            log.innerHTML += "You lose, " + playerName + ". The Player " + message.content.winnerPlayer + " got the win.\n";
+            logLine("You lose, " + playerName + ". The Player " + message.content.winnerPlayer + " got the win.");
         }
 
-        ws.close();
+        //Keeps the connection open, to play again with the same opponent or with a new one
+        setVisible("play_moves", false);
+        setVisible("play_again", true);
+        setVisible("rematch", true);
+
+    } else if (message.type === "REMATCH") {
+        logLine("Your opponent wants a rematch");
+    } else if (message.type === "PLAYER_LEFT") {
+        logLine("Your opponent left the game");
+        gameOver = true;
+        setVisible("play_moves", false);
+        setVisible("play_again", true);
+        setVisible("rematch", false);
 
+    } else if (message.type === "RETRY_LATER") {
+        logLine(message.content.error + ". Connecting again in "
+            + Math.ceil(message.content.retryAfterMillis / 1000) + " seconds...");
+        if (message.gameId == null) {
+            retryAfterMillis = message.content.retryAfterMillis;
+        }
     } else if (message.type === "ERROR_MESSAGE") {
-         log.innerHTML += "Error: " + message.content.error + "\n";
+        logLine("Error: " + message.content.error);
+    }
+
+}
+
+//Renders a turn of play (the board, the hand, the players and the stock), only touching what changed
+function renderTurn(content) {
+    renderBoard(content.board);
+    fulfilPlayerPieces(content.player.pieces, content.playableMoves);
+    fulfilPlayers(content.player.name, content.otherPlayer, content.playingPlayer);
+    setText("stockSize", "Stock size: " + content.stockSize);
+
+    var myTurn = content.player.name == content.playingPlayer;
+    if (myTurn && !isVisible("play_moves")) {
+        logLine("Your turn to play, " + content.player.name);
     }
+    setVisible("play_moves", myTurn);
+}
 
+//Each move adds one piece to one of the ends of the board, so only that end is patched.
+//Anything else (e.g. the first turn of a game) renders the whole board.
+function renderBoard(board) {
+    var row = document.getElementById("board");
+    var rendered = row.cells.length;
+
+    if (rendered > 0 && board.length === rendered + 1) {
+        if (row.cells[0].textContent === pieceToString(board[1])) {
+            row.insertCell(0).textContent = pieceToString(board[0]);
+            logLine("Board: " + pieceToString(board[0]) + " played on the left");
+        } else {
+            row.insertCell(-1).textContent = pieceToString(board[board.length - 1]);
+            logLine("Board: " + pieceToString(board[board.length - 1]) + " played on the right");
+        }
+    } else if (board.length !== rendered) {
+        row.innerHTML = "";
+        for (var i = 0; i < board.length; i++) {
+            row.insertCell(-1).textContent = pieceToString(board[i]);
+        }
+        logLine("The board is: " + boardToString(board));
+    }
 }
 
+//The players' names only change on a new game: on every turn, just the turn cell is updated
 function fulfilPlayers(player, otherPlayer, playingPlayer) {
-    var html = "<td>" + player + "</td>";
-    html+= "<td> VS </td>";
-    html+= "<td>" + otherPlayer + "</td>";
-    html+= "<td><b> Player turn: " + playingPlayer;
-    if (playingPlayer === player) {
-        html+= " (you)";
+    var row = document.getElementById("players");
+    if (row.dataset.players !== player + "|" + otherPlayer) {
+        row.dataset.players = player + "|" + otherPlayer;
+        row.innerHTML = "<td></td><td> VS </td><td></td><td><b id=\"turn\"></b></td>";
+        row.cells[0].textContent = player;
+        row.cells[2].textContent = otherPlayer;
     }
-    html+="</b></td>";
-    document.getElementById("players").innerHTML = html;
+    setText("turn", " Player turn: " + playingPlayer + (playingPlayer === player ? " (you)" : ""));
 }
 
-function fulfilPlayerPieces(playerPieces) {
-    var str = ""
+//Patches the hand: the cells of played pieces are removed, the new pieces (from stock) are inserted, and the
+//remaining cells only get their index and playable state updated
+function fulfilPlayerPieces(playerPieces, moves) {
+    playableMoves = moves || 0;
+    var row = document.getElementById("pieces");
+
+    var inHand = {};
+    for (var i = 0; i < playerPieces.length; i++) {
+        inHand[getPieceId(playerPieces[i])] = true;
+    }
+    for (var c = row.cells.length - 1; c >= 0; c--) {
+        if (!inHand[row.cells[c].dataset.piece]) {
+            row.deleteCell(c);
+        }
+    }
+
     for (var i = 0; i < playerPieces.length; i++) {
-        str += "<td><input type=\"radio\" name=\"pieces\" id=" + getPieceId(playerPieces[i]) + " value=" + JSON.stringify(playerPieces[i]) +
-        " >" + pieceToString(playerPieces[i]) + "</td>";
+        var pieceId = getPieceId(playerPieces[i]);
+        var cell = row.cells[i];
+        if (cell == null || cell.dataset.piece !== pieceId) {
+            var moved = document.getElementById(pieceId);
+            if (moved != null) {
+                row.deleteCell(moved.parentNode.cellIndex);
+            }
+            cell = row.insertCell(i);
+            cell.dataset.piece = pieceId;
+            cell.innerHTML = "<input type=\"radio\" name=\"pieces\" id=" + pieceId + " value=" + JSON.stringify(playerPieces[i]) +
+            " onchange=\"selectPiece(parseInt(this.dataset.index));\" >" + pieceToString(playerPieces[i]);
+        }
+
+        var input = cell.firstChild;
+        if (input.dataset.index !== String(i)) {
+            input.dataset.index = i;
+        }
+        var disabled = !(isPlayableMove(i, "L") || isPlayableMove(i, "R"));
+        if (input.disabled !== disabled) {
+            input.disabled = disabled;
+            if (disabled) {
+                input.checked = false;
+            }
+        }
+    }
+
+    document.getElementById("play_button").disabled = playableMoves === 0;
+    var selected = document.querySelector('input[name="pieces"]:checked');
+    selectPiece(selected == null ? -1 : parseInt(selected.dataset.index));
+}
+
+function logLine(line) {
+    logLines.push(line);
+    if (logLines.length > MAX_LOG_LINES) {
+        logLines.shift();
+    }
+    var log = document.getElementById("log");
+    log.value = logLines.join("\n");
+    log.scrollTop = log.scrollHeight;
+}
+
+function clearLog() {
+    logLines = [];
+    document.getElementById("log").value = "";
+}
+
+function setText(id, text) {
+    var element = document.getElementById(id);
+    if (element.textContent !== text) {
+        element.textContent = text;
+    }
+}
+
+function isVisible(id) {
+    return document.getElementById(id).style.display !== "none";
+}
+
+function setVisible(id, visible) {
+    if (isVisible(id) !== visible) {
+        document.getElementById(id).style.display = visible ? "" : "none";
+    }
+}
+
+//The playable moves are a bitmask sent by the server: the bit 2*i is the piece i on the left, and the bit 2*i+1 the
+//piece i on the right. The mask may be wider than 32 bits, so it's read with arithmetic instead of bitwise operators.
+function isPlayableMove(index, place) {
+    var bit = 2 * index + (place === "L" ? 0 : 1);
+    return Math.floor(playableMoves / Math.pow(2, bit)) % 2 === 1;
+}
+
+//Enables only the places where the selected piece is playable (no piece selected disables both)
+function selectPiece(index) {
+    var places = [["place_left", "L"], ["place_right", "R"]];
+    for (var i = 0; i < places.length; i++) {
+        var input = document.getElementById(places[i][0]);
+        input.disabled = index < 0 || !isPlayableMove(index, places[i][1]);
+        if (input.disabled) {
+            input.checked = false;
+        }
     }
-    document.getElementById("pieces").innerHTML = str;
 }
 
 function pieceToSimpleValue(piece) {
@@ -137,7 +327,7 @@ function getPieceId(piece) {
 function play() {
     var pieceToPlay = document.querySelector('input[name="pieces"]:checked');
     var place = document.querySelector('input[name="place"]:checked');
-    if (pieceToPlay == null || place == null) {
+    if (pieceToPlay == null || place == null || !isPlayableMove(parseInt(pieceToPlay.dataset.index), place.value)) {
         console.log("Not a valid play.")
         return;
     }
@@ -146,20 +336,54 @@ function play() {
         "piece": JSON.parse(pieceToPlay.value),
         "place": place.value
     };
-    var json = JSON.stringify({
+    sendCommand({
         "type": "PLAY_A_PIECE",
         "content": content
     });
 
-    ws.send(json);
-
     place.checked = false;
 }
 
 function getFromStock() {
-    var json = JSON.stringify({
-        "type": "GET_FROM_STOCK"
+    //Draws from stock until there's a piece to play, on a single round trip
+    sendCommand({
+        "type": "DRAW_FROM_STOCK"
+    });
+}
+
+function rematch() {
+    sendCommand({
+        "type": "REMATCH"
     });
+}
+
+function requeue() {
+    sendCommand({
+        "type": "REQUEUE"
+    });
+    setVisible("play_again", false);
+}
+
+function sendCommand(command) {
+    if (pendingCommand != null) {
+        clearTimeout(pendingCommand.timer);
+    }
+    command.seq = ++commandSequence;
+    pendingCommand = {"seq": command.seq, "json": JSON.stringify(command), "retries": 0, "timer": null};
+    sendPendingCommand(pendingCommand);
+}
+
+function sendPendingCommand(command) {
+    ws.send(command.json);
+    command.timer = setTimeout(function() {
+        if (pendingCommand === command && command.retries < MAX_COMMAND_RETRIES
+                && ws != null && ws.readyState === WebSocket.OPEN) {
+            command.retries++;
+            sendPendingCommand(command);
+        }
+    }, COMMAND_RETRY_DELAY_MS);
+}
 
-    ws.send(json);
+function leave() {
+    ws.close();
 }
@@ -0,0 +1,114 @@
+package org.jpires.dominoes.game.browser.load;
+
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+import org.jpires.dominoes.game.browser.server.model.WebMessageDecoder;
+import org.jpires.dominoes.game.browser.server.model.WebMessageEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.ClientEndpoint;
+import javax.websocket.EncodeException;
+import javax.websocket.OnClose;
+import javax.websocket.OnError;
+import javax.websocket.OnMessage;
+import javax.websocket.OnOpen;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Bot Endpoint is the web-socket client of a {@link BotPlayer}: it sends the bot's answers to the server, and
+ * closes the connection when the bot finishes.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+@ClientEndpoint(encoders = WebMessageEncoder.class, decoders = WebMessageDecoder.class)
+public class BotEndpoint {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BotEndpoint.class);
+
+    /**
+     * The bot.
+     */
+    private final BotPlayer bot;
+
+    /**
+     * The metrics of the load run.
+     */
+    private final LoadMetrics metrics;
+
+    /**
+     * Latch counted down when the connection is closed.
+     */
+    private final CountDownLatch closed;
+
+    /**
+     * The time (nanos) when the connection was asked.
+     */
+    private final long connectingSince = System.nanoTime();
+
+    /**
+     * Constructs the endpoint of a bot. It should be connected right away, to measure the connection setup time.
+     *
+     * @param bot     the bot
+     * @param metrics the metrics of the load run
+     * @param closed  latch counted down when the connection is closed
+     */
+    public BotEndpoint(final BotPlayer bot, final LoadMetrics metrics, final CountDownLatch closed) {
+        this.bot = bot;
+        this.metrics = metrics;
+        this.closed = closed;
+    }
+
+    /**
+     * The connection is open: the bot waits for an opponent.
+     *
+     * @param session the session
+     */
+    @OnOpen
+    public void onOpen(final Session session) {
+        metrics.getConnectLatency().record(System.nanoTime() - connectingSince);
+        bot.onOpen();
+    }
+
+    /**
+     * Answers a message from the server.
+     *
+     * @param session the session
+     * @param message the message
+     * @throws IOException     in case of any error sending the answer
+     * @throws EncodeException in case of any error encoding the answer
+     */
+    @OnMessage
+    public void onMessage(final Session session, final WebMessage message) throws IOException, EncodeException {
+        final WebMessage answer = bot.onMessage(message);
+        if (answer != null) {
+            session.getBasicRemote().sendObject(answer);
+        }
+        if (bot.isFinished()) {
+            session.close();
+        }
+    }
+
+    /**
+     * The connection was closed.
+     *
+     * @param session the session
+     */
+    @OnClose
+    public void onClose(final Session session) {
+        closed.countDown();
+    }
+
+    /**
+     * There was an error on the connection.
+     *
+     * @param session   the session
+     * @param throwable the error
+     */
+    @OnError
+    public void onError(final Session session, final Throwable throwable) {
+        LOGGER.error("Error on bot {}: {}", bot.getName(), throwable);
+        metrics.error();
+    }
+}
@@ -0,0 +1,200 @@
+package org.jpires.dominoes.game.browser.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.utils.Constants;
+import org.jpires.dominoes.lib.utils.MessageType;
+
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Bot Player plays complete games, answering the server messages with the moves of {@link BotStrategy}.
+ * It doesn't know about the connection: it gets a message from the server and returns the answer to be sent (if any),
+ * so the same bot drives a real web-socket client or an in-process endpoint.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class BotPlayer {
+
+    /**
+     * The type reference of the board, to convert it from a message.
+     */
+    private static final TypeReference<LinkedList<DominoPiece>> BOARD_TYPE = new TypeReference<LinkedList<DominoPiece>>() {
+    };
+
+    /**
+     * The name of the bot (it must be unique, since it identifies the player playing).
+     */
+    private final String name;
+
+    /**
+     * The metrics of the load run.
+     */
+    private final LoadMetrics metrics;
+
+    /**
+     * The number of games left to play.
+     */
+    private int gamesLeft;
+
+    /**
+     * The time (nanos) when the bot started waiting for an opponent.
+     */
+    private long waitingSince;
+
+    /**
+     * The time (nanos) when the last move was sent, or 0 if there's no move waiting for an answer.
+     */
+    private long moveSentAt;
+
+    /**
+     * Whether the bot is playing a game.
+     */
+    private boolean inGame;
+
+    /**
+     * Whether the bot played all its games.
+     */
+    private boolean finished;
+
+    /**
+     * Constructs a bot.
+     *
+     * @param name    the name of the bot
+     * @param games   the number of games to play
+     * @param metrics the metrics of the load run
+     */
+    public BotPlayer(final String name, final int games, final LoadMetrics metrics) {
+        this.name = name;
+        this.gamesLeft = games;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the name of the bot.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Method to be called when the connection is open, and the bot starts waiting for an opponent.
+     */
+    public synchronized void onOpen() {
+        waitingSince = System.nanoTime();
+    }
+
+    /**
+     * Handles a message from the server.
+     *
+     * @param message the message
+     * @return the answer to be sent to the server, or null if there's nothing to send
+     */
+    public synchronized WebMessage onMessage(final WebMessage message) {
+        final long now = System.nanoTime();
+
+        //The first answer to a move closes its round trip
+        if (moveSentAt != 0 && isAnswerToMove(message.getType())) {
+            metrics.getMoveLatency().record(now - moveSentAt);
+            moveSentAt = 0;
+        }
+
+        switch (message.getType()) {
+            case NEW_GAME:
+                metrics.getMatchmakingLatency().record(now - waitingSince);
+                inGame = true;
+                return nextMove(message);
+            case NEXT_PLAY:
+            case NEW_PIECE_FROM_STOCK:
+            case PIECES_FROM_STOCK:
+            case GAME_RESUMED:
+                return nextMove(message);
+            case GAME_OVER:
+                inGame = false;
+                metrics.gameCompleted();
+                return nextGame();
+            case PLAYER_LEFT:
+                //Only if the opponent left before the game was over
+                if (!inGame) {
+                    return null;
+                }
+                inGame = false;
+                metrics.gameAbandoned();
+                return nextGame();
+            case ERROR_MESSAGE:
+                metrics.error();
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Verifies if the bot played all its games.
+     *
+     * @return true if the bot finished, false otherwise
+     */
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Verifies if a message type is the answer of the server to the bot's move.
+     *
+     * @param type the message type
+     * @return true if the message answers a move, false otherwise
+     */
+    private static boolean isAnswerToMove(final MessageType type) {
+        switch (type) {
+            case NEXT_PLAY:
+            case NEW_PIECE_FROM_STOCK:
+            case PIECES_FROM_STOCK:
+            case NO_PIECES_ON_STOCK:
+            case GAME_OVER:
+            case ERROR_MESSAGE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Chooses the next move, if it's the bot's turn to play.
+     *
+     * @param message the message with the game state
+     * @return the move, or null if it's not the bot's turn
+     */
+    private WebMessage nextMove(final WebMessage message) {
+        final Map<String, Object> content = message.getContent();
+        if (!name.equals(content.get(Constants.PLAYING_PLAYER_FIELD))) {
+            return null;
+        }
+
+        final Player player = Constants.OBJECT_MAPPER.convertValue(content.get(Constants.PLAYER_FIELD), Player.class);
+        final LinkedList<DominoPiece> board = Constants.OBJECT_MAPPER.convertValue(content.get(Constants.BOARD_FIELD), BOARD_TYPE);
+
+        final WebMessage move = BotStrategy.nextMove(player.getPieces(), board);
+        moveSentAt = System.nanoTime();
+        return move;
+    }
+
+    /**
+     * Asks for a new opponent, if there are games left to play.
+     *
+     * @return the requeue message, or null if the bot finished
+     */
+    private WebMessage nextGame() {
+        if (--gamesLeft <= 0) {
+            finished = true;
+            return null;
+        }
+
+        waitingSince = System.nanoTime();
+        return new WebMessage(MessageType.REQUEUE);
+    }
+}
@@ -0,0 +1,68 @@
+package org.jpires.dominoes.game.browser.load;
+
+import com.google.common.collect.ImmutableMap;
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
+import org.jpires.dominoes.lib.utils.Constants;
+import org.jpires.dominoes.lib.utils.MessageType;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Bot Strategy is the built-in strategy of the load bots: a greedy player.
+ * It plays the playable piece with more points, or draws from stock until there's a playable piece.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public final class BotStrategy {
+
+    /**
+     * Empty constructor since it's a utility class.
+     */
+    private BotStrategy() {
+
+    }
+
+    /**
+     * Chooses the next move.
+     *
+     * @param pieces the bot's pieces
+     * @param board  the board
+     * @return the message with the move (play a piece, or draw from stock)
+     */
+    public static WebMessage nextMove(final List<DominoPiece> pieces, final LinkedList<DominoPiece> board) {
+        DominoPiece bestPiece = null;
+        Place bestPlace = null;
+
+        for (final DominoPiece piece : pieces) {
+            final Place place = board.getFirst().isPlayableOnLeft(piece) ? Place.L
+                    : board.getLast().isPlayableOnRight(piece) ? Place.R : null;
+
+            if (place != null && (bestPiece == null || points(piece) > points(bestPiece))) {
+                bestPiece = piece;
+                bestPlace = place;
+            }
+        }
+
+        if (bestPiece == null) {
+            return new WebMessage(MessageType.DRAW_FROM_STOCK);
+        }
+
+        return new WebMessage(MessageType.PLAY_A_PIECE, ImmutableMap.<String, Object>builder()
+                .put(Constants.PIECE_FIELD, bestPiece)
+                .put(Constants.PLACE_FIELD, bestPlace.name())
+                .build());
+    }
+
+    /**
+     * Gets the points of a piece.
+     *
+     * @param piece the piece
+     * @return the sum of both sides
+     */
+    private static int points(final DominoPiece piece) {
+        return piece.getLeft() + piece.getRight();
+    }
+}
@@ -0,0 +1,134 @@
+package org.jpires.dominoes.game.browser.load;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency Recorder keeps latency samples (in nanos) and reports their percentiles.
+ * It's thread safe, so it's shared by all bots of a load run.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class LatencyRecorder {
+
+    /**
+     * The name of the measured latency, to be shown on the report.
+     */
+    private final String name;
+
+    /**
+     * The samples (in nanos).
+     */
+    private long[] samples = new long[1024];
+
+    /**
+     * The number of samples.
+     */
+    private int count;
+
+    /**
+     * Constructs a latency recorder.
+     *
+     * @param name the name of the measured latency
+     */
+    public LatencyRecorder(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a latency sample.
+     *
+     * @param nanos the latency (in nanos)
+     */
+    public synchronized void record(final long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    /**
+     * Records all samples of another recorder (e.g. to merge the recorders of several threads).
+     *
+     * @param other the other recorder
+     */
+    public void recordAll(final LatencyRecorder other) {
+        final long[] otherSamples = other.sortedSamples();
+        synchronized (this) {
+            for (final long sample : otherSamples) {
+                record(sample);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of samples.
+     *
+     * @return the number of samples
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets a percentile of the samples.
+     *
+     * @param percentile the percentile (between 0 and 100)
+     * @return the latency (in nanos) of the percentile, or 0 if there are no samples
+     */
+    public long getPercentile(final double percentile) {
+        return percentileOf(sortedSamples(), percentile);
+    }
+
+    /**
+     * Gets a summary of the samples: count, p50, p90, p99, p99.9 and max (in millis).
+     *
+     * @return the summary
+     */
+    public String summary() {
+        final long[] sorted = sortedSamples();
+        return String.format("%-12s n=%-8d p50=%8.3fms p90=%8.3fms p99=%8.3fms p99.9=%8.3fms max=%8.3fms",
+                name, sorted.length,
+                toMillis(percentileOf(sorted, 50)),
+                toMillis(percentileOf(sorted, 90)),
+                toMillis(percentileOf(sorted, 99)),
+                toMillis(percentileOf(sorted, 99.9)),
+                toMillis(percentileOf(sorted, 100)));
+    }
+
+    /**
+     * Gets a sorted copy of the samples.
+     *
+     * @return the sorted samples
+     */
+    private synchronized long[] sortedSamples() {
+        final long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Gets a percentile (nearest rank) of sorted samples.
+     *
+     * @param sorted     the sorted samples
+     * @param percentile the percentile (between 0 and 100)
+     * @return the sample of the percentile, or 0 if there are no samples
+     */
+    private static long percentileOf(final long[] sorted, final double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+
+    /**
+     * Converts nanos to millis, keeping the fraction.
+     *
+     * @param nanos the nanos
+     * @return the millis
+     */
+    private static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
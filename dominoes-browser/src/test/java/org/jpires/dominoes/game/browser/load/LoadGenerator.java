@@ -0,0 +1,124 @@
+package org.jpires.dominoes.game.browser.load;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.ContainerProvider;
+import javax.websocket.DeploymentException;
+import javax.websocket.Session;
+import javax.websocket.WebSocketContainer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load Generator opens many web-socket connections to a local Dominoes server, and plays complete games with
+ * {@link BotPlayer} bots. At the end, it reports the connection setup time, the matchmaking wait, the move
+ * round-trip latency percentiles and the games completed per second.
+ * <p>
+ * Usage: {@code LoadGenerator [url] [clients] [gamesPerClient]}, e.g.
+ * {@code LoadGenerator ws://localhost:8080/dominoes-browser/dominoes 1000 5}.
+ * The connections are opened by {@value #CONNECT_THREADS_PROPERTY} threads (default 16), and the run gives up
+ * after {@value #TIMEOUT_PROPERTY} seconds (default 300).
+ * <p>
+ * Bots answer right away and all connect from the same address, so the server should run with its rate limits
+ * raised or disabled, e.g. {@code -Ddominoes.rateLimit.sessionPerSecond=0 -Ddominoes.rateLimit.addressPerSecond=0}.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class LoadGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+
+    /**
+     * The default url of the endpoint (without the username).
+     */
+    private static final String DEFAULT_URL = "ws://localhost:8080/dominoes-browser/dominoes";
+
+    /**
+     * The system property with the number of threads opening connections.
+     */
+    private static final String CONNECT_THREADS_PROPERTY = "dominoes.load.connectThreads";
+
+    /**
+     * The system property with the timeout (in seconds) of the run.
+     */
+    private static final String TIMEOUT_PROPERTY = "dominoes.load.timeoutSeconds";
+
+    /**
+     * Runs the load generator.
+     *
+     * @param args the url of the endpoint, the number of clients and the number of games per client
+     * @throws Exception in case of any error on the run
+     */
+    public static void main(final String[] args) throws Exception {
+        final URI url = URI.create(args.length > 0 ? args[0] : DEFAULT_URL);
+        final int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        final int games = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Preconditions.checkArgument(InetAddress.getByName(url.getHost()).isLoopbackAddress(),
+                "The load generator only runs against a localhost server");
+        Preconditions.checkArgument(clients > 1 && clients % 2 == 0, "The number of clients must be even");
+
+        final LoadMetrics metrics = new LoadMetrics();
+        final List<Session> sessions = new CopyOnWriteArrayList<>();
+        final CountDownLatch closed = new CountDownLatch(clients);
+
+        final WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        final ExecutorService connectors = Executors.newFixedThreadPool(Integer.getInteger(CONNECT_THREADS_PROPERTY, 16),
+                new ThreadFactoryBuilder().setNameFormat("dominoes-load-connect-%d").setDaemon(true).build());
+
+        LOGGER.info("Connecting {} bots to {}, playing {} games each", clients, url, games);
+        for (int i = 0; i < clients; i++) {
+            final BotPlayer bot = new BotPlayer("bot-" + i, games, metrics);
+            connectors.execute(() -> connect(container, url, bot, metrics, sessions, closed));
+        }
+        connectors.shutdown();
+
+        if (!closed.await(Integer.getInteger(TIMEOUT_PROPERTY, 300), TimeUnit.SECONDS)) {
+            LOGGER.warn("Timeout: {} bots didn't finish", closed.getCount());
+        }
+
+        metrics.report(System.out);
+
+        for (final Session session : sessions) {
+            if (session.isOpen()) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Connects a bot to the server.
+     *
+     * @param container the web-socket container
+     * @param url       the url of the endpoint (without the username)
+     * @param bot       the bot
+     * @param metrics   the metrics of the load run
+     * @param sessions  the list of open sessions
+     * @param closed    latch counted down when the connection is closed
+     */
+    private static void connect(final WebSocketContainer container,
+                                final URI url,
+                                final BotPlayer bot,
+                                final LoadMetrics metrics,
+                                final List<Session> sessions,
+                                final CountDownLatch closed) {
+        try {
+            sessions.add(container.connectToServer(new BotEndpoint(bot, metrics, closed),
+                    URI.create(url + "/" + bot.getName())));
+        } catch (final DeploymentException | IOException e) {
+            LOGGER.error("Error connecting bot {}: {}", bot.getName(), e.getMessage());
+            metrics.error();
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.jpires.dominoes.game.browser.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load Metrics gathers the measures of a load run, shared by all bots.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class LoadMetrics {
+
+    /**
+     * Time from asking for a connection until it's open.
+     */
+    private final LatencyRecorder connectLatency = new LatencyRecorder("connect");
+
+    /**
+     * Time from joining (or rejoining) the queue until a new game starts.
+     */
+    private final LatencyRecorder matchmakingLatency = new LatencyRecorder("matchmaking");
+
+    /**
+     * Time from sending a move until the server's answer arrives.
+     */
+    private final LatencyRecorder moveLatency = new LatencyRecorder("move rtt");
+
+    /**
+     * Number of games finished, counted once per player.
+     */
+    private final AtomicLong playerGamesCompleted = new AtomicLong();
+
+    /**
+     * Number of games abandoned by the opponent.
+     */
+    private final AtomicLong gamesAbandoned = new AtomicLong();
+
+    /**
+     * Number of error messages received, and of connection errors.
+     */
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * The time when the run started.
+     */
+    private final long startedAt = System.nanoTime();
+
+    /**
+     * Gets the connection setup latency.
+     *
+     * @return the latency recorder
+     */
+    public LatencyRecorder getConnectLatency() {
+        return connectLatency;
+    }
+
+    /**
+     * Gets the matchmaking wait latency.
+     *
+     * @return the latency recorder
+     */
+    public LatencyRecorder getMatchmakingLatency() {
+        return matchmakingLatency;
+    }
+
+    /**
+     * Gets the move round-trip latency.
+     *
+     * @return the latency recorder
+     */
+    public LatencyRecorder getMoveLatency() {
+        return moveLatency;
+    }
+
+    /**
+     * Counts a game finished by a player.
+     */
+    public void gameCompleted() {
+        playerGamesCompleted.incrementAndGet();
+    }
+
+    /**
+     * Counts a game abandoned by the opponent.
+     */
+    public void gameAbandoned() {
+        gamesAbandoned.incrementAndGet();
+    }
+
+    /**
+     * Counts an error.
+     */
+    public void error() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of errors.
+     *
+     * @return the number of errors
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Gets the number of finished games (each game is finished by two players).
+     *
+     * @return the number of finished games
+     */
+    public long getGamesCompleted() {
+        return playerGamesCompleted.get() / 2;
+    }
+
+    /**
+     * Prints the report of the run.
+     *
+     * @param out the stream to print to
+     */
+    public void report(final PrintStream out) {
+        final double elapsedSeconds = (System.nanoTime() - startedAt) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        out.printf("elapsed      %.3fs%n", elapsedSeconds);
+        out.println(connectLatency.summary());
+        out.println(matchmakingLatency.summary());
+        out.println(moveLatency.summary());
+        out.printf("games        completed=%d abandoned=%d (%.1f games/s)%n",
+                getGamesCompleted(), gamesAbandoned.get(), getGamesCompleted() / elapsedSeconds);
+        out.printf("errors       %d%n", errors.get());
+    }
+}
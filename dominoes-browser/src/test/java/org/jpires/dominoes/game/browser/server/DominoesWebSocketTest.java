@@ -2,10 +2,20 @@ package org.jpires.dominoes.game.browser.server;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import org.jpires.dominoes.game.browser.server.admission.AdmissionController;
+import org.jpires.dominoes.game.browser.server.cluster.ConsistentHashGameRouter;
+import org.jpires.dominoes.game.browser.server.cluster.InMemoryClusterStore;
+import org.jpires.dominoes.game.browser.server.cluster.LocalGameRouter;
+import org.jpires.dominoes.game.browser.server.cluster.LocalNodeTransport;
+import org.jpires.dominoes.game.browser.server.cluster.RelayedSession;
+import org.jpires.dominoes.game.browser.server.drain.NodeDrainer;
 import org.jpires.dominoes.game.browser.server.model.WebMessage;
+import org.jpires.dominoes.game.browser.server.ratelimit.RateLimiter;
 import org.jpires.dominoes.lib.MockWebGame;
 import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
 import org.jpires.dominoes.lib.model.Player;
 import org.jpires.dominoes.lib.WebGame;
 import org.jpires.dominoes.lib.model.WebPlayer;
@@ -17,12 +27,16 @@ import org.junit.Test;
 import javax.websocket.EncodeException;
 import javax.websocket.Session;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Joao Pires (jppires91@gmail.com)
@@ -153,6 +167,121 @@ public class DominoesWebSocketTest {
 
     }
 
+    @Test
+    public void testDrawFromStock() throws IOException, EncodeException {
+        DominoesSessions.clear();
+        DominoesWebSocket socket = new DominoesWebSocket();
+
+        DummyRemoteEndpointBasic endpointMessage = new DummyRemoteEndpointBasic();
+        DummySession session = new DummySession(endpointMessage, "dummy1");
+
+        DummyRemoteEndpointBasic endpointMessage2 = new DummyRemoteEndpointBasic();
+        DummySession session2 = new DummySession(endpointMessage2, "dummy2");
+
+        final WebPlayer player1 = new WebPlayer("dummyuser1", "dummy1", session);
+        final WebPlayer player2 = new WebPlayer("dummyuser2", "dummy2", session2);
+
+        final Queue<DominoPiece> stock = new LinkedBlockingQueue<>();
+
+        stock.offer(new DominoPiece(0, 0)); //piece of the board
+        stock.offer(new DominoPiece(6, 6)); //piece of player 1
+        stock.offer(new DominoPiece(5, 5)); //piece of player 2
+        stock.offer(new DominoPiece(1, 1)); //piece of player 1
+        stock.offer(new DominoPiece(5, 6)); //piece of player 2
+        stock.offer(new DominoPiece(4, 4)); //stock
+        stock.offer(new DominoPiece(0, 1)); //stock
+        stock.offer(new DominoPiece(2, 2)); //stock
+
+        final WebGame webGame = new MockWebGame(player1, player2, stock, new LinkedList<>());
+
+        DominoesSessions.putGame(session.getId(), webGame);
+        DominoesSessions.putGame(session2.getId(), webGame);
+
+        webGame.start(2);
+
+        //Player 1 draws until <0:1>, which is playable, on a single message
+        socket.onMessage(session, new WebMessage(MessageType.DRAW_FROM_STOCK));
+
+        final WebMessage messageWithPieces = (WebMessage) endpointMessage.getMessage();
+
+        Assert.assertEquals("Message is PIECES_FROM_STOCK", MessageType.PIECES_FROM_STOCK, messageWithPieces.getType());
+        Assert.assertEquals("Message has the two drawn pieces",
+                ImmutableList.of(new DominoPiece(4, 4), new DominoPiece(0, 1)),
+                messageWithPieces.getContent().get(Constants.NEW_PIECES_FROM_STOCK_FIELD));
+        Assert.assertEquals("Stock has one piece", 1, messageWithPieces.getContent().get(Constants.STOCK_SIZE_FIELD));
+        Assert.assertEquals("Only <0:1> (the 4th piece) is playable, on both sides", 0b11000000L,
+                messageWithPieces.getContent().get(Constants.PLAYABLE_MOVES_FIELD));
+        Assert.assertNull("Player 2 got no message", endpointMessage2.getMessage());
+
+        socket.onMessage(session, new WebMessage(MessageType.PLAY_A_PIECE, ImmutableMap.<String, Object>builder()
+                .put(Constants.PIECE_FIELD, new DominoPiece(0, 1))
+                .put(Constants.PLACE_FIELD, Place.R.name())
+                .build()));
+        endpointMessage.getMessage();
+        endpointMessage2.getMessage();
+
+        //Player 2 draws the last piece <2:2>, and still can't play: loses the turn
+        socket.onMessage(session2, new WebMessage(MessageType.DRAW_FROM_STOCK));
+
+        final WebMessage noPiecesMessage = (WebMessage) endpointMessage2.getMessage();
+
+        Assert.assertEquals("Message is NO_PIECES_ON_STOCK", MessageType.NO_PIECES_ON_STOCK, noPiecesMessage.getType());
+        Assert.assertEquals("Message has the drawn piece",
+                ImmutableList.of(new DominoPiece(2, 2)),
+                noPiecesMessage.getContent().get(Constants.NEW_PIECES_FROM_STOCK_FIELD));
+        Assert.assertEquals("Player 1 is playing now", MessageType.NEXT_PLAY, ((WebMessage) endpointMessage.getMessage()).getType());
+        Assert.assertSame("It's player 1 turn", player1, webGame.getPlayingPlayer());
+    }
+
+    @Test
+    public void testRepeatedCommand() throws IOException, EncodeException {
+        DominoesSessions.clear();
+        DominoesWebSocket socket = new DominoesWebSocket();
+
+        DummyRemoteEndpointBasic endpointMessage = new DummyRemoteEndpointBasic();
+        DummySession session = new DummySession(endpointMessage, "dummy1");
+
+        DummyRemoteEndpointBasic endpointMessage2 = new DummyRemoteEndpointBasic();
+        DummySession session2 = new DummySession(endpointMessage2, "dummy2");
+
+        final WebPlayer player1 = new WebPlayer("dummyuser1", "dummy1", session);
+        final WebPlayer player2 = new WebPlayer("dummyuser2", "dummy2", session2);
+
+        final Queue<DominoPiece> stock = new LinkedBlockingQueue<>();
+
+        stock.offer(new DominoPiece(0, 0)); //piece of the board
+        stock.offer(new DominoPiece(6, 6)); //piece of player 1
+        stock.offer(new DominoPiece(5, 5)); //piece of player 2
+        stock.offer(new DominoPiece(1, 1)); //piece of player 1
+        stock.offer(new DominoPiece(5, 6)); //piece of player 2
+        stock.offer(new DominoPiece(4, 4)); //stock
+        stock.offer(new DominoPiece(0, 1)); //stock
+        stock.offer(new DominoPiece(2, 2)); //stock
+
+        final WebGame webGame = new MockWebGame(player1, player2, stock, new LinkedList<>());
+
+        DominoesSessions.putGame(session.getId(), webGame);
+        DominoesSessions.putGame(session2.getId(), webGame);
+
+        webGame.start(2);
+
+        final WebMessage command = new WebMessage(MessageType.DRAW_FROM_STOCK, Collections.emptyMap(), null, 1L);
+        socket.onMessage(session, command);
+
+        final WebMessage response = (WebMessage) endpointMessage.getMessage();
+        Assert.assertEquals("Message is PIECES_FROM_STOCK", MessageType.PIECES_FROM_STOCK, response.getType());
+        Assert.assertEquals("Response has the sequence number of the command", Long.valueOf(1), response.getSeq());
+
+        //The retry is answered with the same response, without drawing again
+        socket.onMessage(session, command);
+
+        Assert.assertEquals("Same response was sent again", response, endpointMessage.getMessage());
+        Assert.assertNull("Only one response was sent", endpointMessage.getMessage());
+        Assert.assertEquals("Player 1 has only the two drawn pieces more", 4, player1.getPieces().size());
+        Assert.assertEquals("Stock has one piece", 1, webGame.getStockSize());
+        Assert.assertNull("Player 2 got no message", endpointMessage2.getMessage());
+    }
+
     @Test
     public void testGameOverWithPlayer1Win() throws IOException, EncodeException {
         DominoesSessions.clear();
@@ -495,9 +624,650 @@ public class DominoesWebSocketTest {
 
         socket.onClose(sessionPlayer1);
 
+        final WebGame game = DominoesSessions.getGame(sessionPlayer2.getId());
+
+        Assert.assertNotNull("The game is held while player 1 may resume it", game);
+        Assert.assertTrue("Player 1 is disconnected", game.getPlayer1().isDisconnected());
+        Assert.assertTrue("Player 2 session is still open", sessionPlayer2.isOpen());
+
+        //The grace window expires without player 1 resuming the game
+        socket.expireSeat(game, game.getPlayer1(), sessionPlayer1.getId());
+
         Assert.assertTrue("There's no game on with player 1 session", DominoesSessions.getGame(sessionPlayer1.getId()) == null);
         Assert.assertTrue("There's no game on with player 2 session", DominoesSessions.getGame(sessionPlayer2.getId()) == null);
+        Assert.assertTrue("Player 2 session is kept open", sessionPlayer2.isOpen());
+        Assert.assertEquals("Player 2 is told that player 1 left", MessageType.PLAYER_LEFT,
+                ((WebMessage) basicRemote2.getMessage()).getType());
+
+    }
+
+    @Test
+    public void testResumeGame() throws IOException, EncodeException {
+        DominoesSessions.clear();
+        DominoesWebSocket socket = new DominoesWebSocket();
+
+        DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+
+        DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy2");
+
+        socket.onOpen(sessionPlayer1, "dummyuser1");
+        basicRemote1.getMessage();
+        socket.onOpen(sessionPlayer2, "dummyuser2");
+
+        final WebMessage newGameMessage = (WebMessage) basicRemote1.getMessage();
+        final String resumeToken = (String) newGameMessage.getContent().get(Constants.RESUME_TOKEN_FIELD);
+
+        Assert.assertNotNull("NEW_GAME message has a resume token", resumeToken);
+
+        socket.onClose(sessionPlayer1);
+
+        DummyRemoteEndpointBasic basicRemote3 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer3 = new DummySession(basicRemote3, "dummy3",
+                ImmutableMap.of(Constants.RESUME_PARAMETER, Collections.singletonList(resumeToken)));
+
+        socket.onOpen(sessionPlayer3, "dummyuser1");
+
+        final WebMessage resumedMessage = (WebMessage) basicRemote3.getMessage();
+
+        Assert.assertEquals("Message is type of GAME_RESUMED", MessageType.GAME_RESUMED, resumedMessage.getType());
+        Assert.assertNull("Only a single snapshot is sent", basicRemote3.getMessage());
+
+        final Player player1 = OBJECT_MAPPER.convertValue(resumedMessage.getContent().get(Constants.PLAYER_FIELD), Player.class);
+
+        Assert.assertEquals("The snapshot has the player's hand", 7, player1.getPieces().size());
+
+        final WebGame game = DominoesSessions.getGame(sessionPlayer3.getId());
+
+        Assert.assertSame("The new session is attached to the same game", DominoesSessions.getGame(sessionPlayer2.getId()), game);
+        Assert.assertNull("The old session is not attached to the game", DominoesSessions.getGame(sessionPlayer1.getId()));
+        Assert.assertFalse("Player 1 is connected again", game.getPlayer1().isDisconnected());
+
+        //The grace window of the old session expires, but the player resumed the game meanwhile
+        socket.expireSeat(game, game.getPlayer1(), sessionPlayer1.getId());
+
+        Assert.assertNotNull("The game is still going on", DominoesSessions.getGame(sessionPlayer3.getId()));
+        Assert.assertTrue("Player 2 session is still open", sessionPlayer2.isOpen());
+    }
+
+    @Test
+    public void testRepeatedCommandAfterResume() throws IOException, EncodeException {
+        DominoesSessions.clear();
+        DominoesWebSocket socket = new DominoesWebSocket();
+
+        DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+
+        DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy2");
+
+        socket.onOpen(sessionPlayer1, "dummyuser1");
+        basicRemote1.getMessage();
+        socket.onOpen(sessionPlayer2, "dummyuser2");
+
+        final String resumeToken = (String) ((WebMessage) basicRemote1.getMessage()).getContent()
+                .get(Constants.RESUME_TOKEN_FIELD);
+        basicRemote2.getMessage();
+
+        final WebGame game = DominoesSessions.getGame(sessionPlayer1.getId());
+        final WebMessage command = new WebMessage(MessageType.GET_FROM_STOCK, Collections.emptyMap(), null, 1L);
+        socket.onMessage(sessionPlayer1, command);
+
+        final WebMessage response = (WebMessage) basicRemote1.getMessage();
+        Assert.assertEquals("Response has the sequence number of the command", Long.valueOf(1), response.getSeq());
+        final int stockSize = game.getStockSize();
+        final int pieces = game.getPlayer1().getPieces().size();
+
+        //the connection drops before the response arrives, and the browser resumes the game
+        socket.onClose(sessionPlayer1);
+
+        DummyRemoteEndpointBasic basicRemote3 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer3 = new DummySession(basicRemote3, "dummy3",
+                ImmutableMap.of(Constants.RESUME_PARAMETER, Collections.singletonList(resumeToken)));
+
+        socket.onOpen(sessionPlayer3, "dummyuser1");
+
+        Assert.assertEquals("Message is type of GAME_RESUMED", MessageType.GAME_RESUMED,
+                ((WebMessage) basicRemote3.getMessage()).getType());
+
+        //the command is sent again with the same sequence number, and answered without being handled again
+        socket.onMessage(sessionPlayer3, command);
+
+        Assert.assertEquals("Same response was sent again", response, basicRemote3.getMessage());
+        Assert.assertNull("Only one response was sent", basicRemote3.getMessage());
+        Assert.assertEquals("Stock size didn't change", stockSize, game.getStockSize());
+        Assert.assertEquals("Player 1 has the same pieces", pieces, game.getPlayer1().getPieces().size());
+    }
+
+    @Test
+    public void testRematch() throws IOException, EncodeException {
+        DominoesSessions.clear();
+        DominoesWebSocket socket = new DominoesWebSocket();
+
+        DummyRemoteEndpointBasic endpointMessage = new DummyRemoteEndpointBasic();
+        DummySession session = new DummySession(endpointMessage, "dummy1");
+
+        DummyRemoteEndpointBasic endpointMessage2 = new DummyRemoteEndpointBasic();
+        DummySession session2 = new DummySession(endpointMessage2, "dummy2");
+
+        final WebGame webGame = testFinishedGame(socket, session, endpointMessage, session2, endpointMessage2);
+
+        socket.onMessage(session, new WebMessage(MessageType.REMATCH));
+
+        Assert.assertEquals("Player 1 waits for player 2 to accept", MessageType.WAITING_FOR_PLAYER,
+                ((WebMessage) endpointMessage.getMessage()).getType());
+        Assert.assertEquals("Player 2 is asked for a rematch", MessageType.REMATCH,
+                ((WebMessage) endpointMessage2.getMessage()).getType());
+
+        socket.onMessage(session2, new WebMessage(MessageType.REMATCH));
+
+        final WebMessage newGameMessage = (WebMessage) endpointMessage.getMessage();
+        final WebMessage newGameMessage2 = (WebMessage) endpointMessage2.getMessage();
+
+        Assert.assertEquals("Message is type of NEW_GAME", MessageType.NEW_GAME, newGameMessage.getType());
+        Assert.assertEquals("Message is type of NEW_GAME", MessageType.NEW_GAME, newGameMessage2.getType());
+
+        Assert.assertSame("The same game is reused", webGame, DominoesSessions.getGame(session.getId()));
+        Assert.assertSame("The same game is reused", webGame, DominoesSessions.getGame(session2.getId()));
+        Assert.assertFalse("The game is going on", webGame.isOver());
+        Assert.assertEquals("Player 1 has 7 pieces", 7, webGame.getPlayer1().getPieces().size());
+        Assert.assertTrue("Player 1 session is open", session.isOpen());
+        Assert.assertTrue("Player 2 session is open", session2.isOpen());
+    }
+
+    @Test
+    public void testRequeue() throws IOException, EncodeException {
+        DominoesSessions.clear();
+        DominoesWebSocket socket = new DominoesWebSocket();
+
+        DummyRemoteEndpointBasic endpointMessage = new DummyRemoteEndpointBasic();
+        DummySession session = new DummySession(endpointMessage, "dummy1");
+
+        DummyRemoteEndpointBasic endpointMessage2 = new DummyRemoteEndpointBasic();
+        DummySession session2 = new DummySession(endpointMessage2, "dummy2");
+
+        final WebGame webGame = testFinishedGame(socket, session, endpointMessage, session2, endpointMessage2);
+        final WebPlayer player1 = webGame.getPlayer1();
+
+        socket.onMessage(session, new WebMessage(MessageType.REQUEUE));
+
+        Assert.assertEquals("Player 1 waits for a new player", MessageType.WAITING_FOR_PLAYER,
+                ((WebMessage) endpointMessage.getMessage()).getType());
+        Assert.assertEquals("Player 2 is told that player 1 left", MessageType.PLAYER_LEFT,
+                ((WebMessage) endpointMessage2.getMessage()).getType());
+        Assert.assertNull("There's no game on with player 2 session", DominoesSessions.getGame(session2.getId()));
+
+        //Player 2 is idle, but still connected, so he's able to wait for a new opponent
+        DominoesSessions.putPlayer(session2.getId(), webGame.getPlayer2());
+        socket.onMessage(session2, new WebMessage(MessageType.REQUEUE));
+
+        Assert.assertEquals("Message is type of NEW_GAME", MessageType.NEW_GAME,
+                ((WebMessage) endpointMessage.getMessage()).getType());
+        Assert.assertEquals("Message is type of NEW_GAME", MessageType.NEW_GAME,
+                ((WebMessage) endpointMessage2.getMessage()).getType());
+
+        final WebGame newGame = DominoesSessions.getGame(session.getId());
+
+        Assert.assertNotSame("It's a new game", webGame, newGame);
+        Assert.assertTrue("The same player is reused", newGame.getPlayer1() == player1 || newGame.getPlayer2() == player1);
+        Assert.assertEquals("Player 1 has 7 pieces", 7, player1.getPieces().size());
+    }
+
+    @Test
+    public void testGameOwnedByAnotherNode() throws IOException, EncodeException {
+        //only the node B is on the hash ring, so it owns every game
+        final InMemoryClusterStore clusterStore = new InMemoryClusterStore();
+        clusterStore.join("nodeB", "127.0.0.1:0");
+
+        final DominoesNode nodeA = new DominoesNode("nodeA", new InMemorySessionStore(),
+                new ConsistentHashGameRouter("nodeA", clusterStore, new LocalNodeTransport(), 16));
+        final DominoesNode nodeB = new DominoesNode("nodeB", new InMemorySessionStore(),
+                new ConsistentHashGameRouter("nodeB", clusterStore, new LocalNodeTransport(), 16));
+        nodeA.start();
+        nodeB.start();
+
+        try {
+            DominoesWebSocket socket = new DominoesWebSocket(nodeA);
+
+            DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+            DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+
+            DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+            DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy2");
+
+            testStartGame(socket, sessionPlayer1, basicRemote1, "dummyuser1", sessionPlayer2, basicRemote2, "dummyuser2");
+
+            Assert.assertNull("Game is not on node A", nodeA.getSessionStore().getGame(sessionPlayer1.getId()));
+            final WebGame game = nodeB.getSessionStore().getGame(RelayedSession.key("nodeA", sessionPlayer1.getId()));
+            Assert.assertNotNull("Game is on node B", game);
+
+            //messages are handled by node B and the answer is relayed back to the player
+            socket.onMessage(sessionPlayer1, new WebMessage(MessageType.ERROR_MESSAGE));
+
+            WebMessage messagePlayer1 = (WebMessage) basicRemote1.getMessage();
+            Assert.assertEquals("Message is of type ERROR_MESSAGE", MessageType.ERROR_MESSAGE, messagePlayer1.getType());
+            Assert.assertEquals("Message error is \"Unrecognized message type\"",
+                    "Unrecognized message type", messagePlayer1.getContent().get(Constants.ERROR_FIELD));
+
+            //closing the connection on node A holds the seat on node B
+            sessionPlayer1.close();
+            socket.onClose(sessionPlayer1);
+
+            Assert.assertTrue("Player 1 is disconnected on node B", game.getPlayer1().isDisconnected());
+            Assert.assertFalse("Relayed session is closed", game.getPlayer1().getSocketSession().isOpen());
+        } finally {
+            nodeA.stop();
+            nodeB.stop();
+        }
+    }
+
+    @Test
+    public void testMatchPlayersOfDifferentNodes() throws IOException, EncodeException {
+        final InMemoryClusterStore clusterStore = new InMemoryClusterStore();
+        clusterStore.join("nodeA", "127.0.0.1:0");
+        clusterStore.join("nodeB", "127.0.0.1:0");
+
+        final DominoesNode nodeA = new DominoesNode("nodeA", new InMemorySessionStore(),
+                new ConsistentHashGameRouter("nodeA", clusterStore, new LocalNodeTransport(), 16));
+        final DominoesNode nodeB = new DominoesNode("nodeB", new InMemorySessionStore(),
+                new ConsistentHashGameRouter("nodeB", clusterStore, new LocalNodeTransport(), 16));
+        nodeA.start();
+        nodeB.start();
+
+        try {
+            DominoesWebSocket socketA = new DominoesWebSocket(nodeA);
+            DominoesWebSocket socketB = new DominoesWebSocket(nodeB);
+
+            DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+            DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+
+            //session ids are only unique on their own node, so both players have the same one
+            DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+            DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy1");
+
+            //player 1 doesn't find an opponent on node A, and spills over to the global lobby
+            testWaitingGame(socketA, sessionPlayer1, basicRemote1, "dummyuser1");
+            socketA.spillOver(nodeA.getSessionStore().getPlayer(sessionPlayer1.getId()));
+
+            Assert.assertFalse("Player 1 is not waiting on node A",
+                    nodeA.getSessionStore().getPlayerFromQueue().isPresent());
+
+            //player 2 joins node B, and is matched right away with the player waiting on the global lobby
+            testWaitingGame(socketB, sessionPlayer2, basicRemote2, "dummyuser2");
+
+            Assert.assertEquals("Message is type of NEW_GAME", MessageType.NEW_GAME,
+                    ((WebMessage) basicRemote1.getMessage()).getType());
+            Assert.assertEquals("Message is type of NEW_GAME", MessageType.NEW_GAME,
+                    ((WebMessage) basicRemote2.getMessage()).getType());
+
+            //the player connected to the other node is kept by the id of its relayed session
+            final boolean ownedByA = nodeA.getSessionStore().getGame(sessionPlayer1.getId()) != null;
+            final DominoesNode ownerNode = ownedByA ? nodeA : nodeB;
+            final String player1Id = ownedByA ? sessionPlayer1.getId() : RelayedSession.key("nodeA", sessionPlayer1.getId());
+            final String player2Id = ownedByA ? RelayedSession.key("nodeB", sessionPlayer2.getId()) : sessionPlayer2.getId();
+            final WebGame game = ownerNode.getSessionStore().getGame(player1Id);
+            Assert.assertNotNull("Game is on the owner node", game);
+            Assert.assertSame("Both players are on the same game", game, ownerNode.getSessionStore().getGame(player2Id));
+            Assert.assertNotSame("The players are not the same", ownerNode.getSessionStore().getPlayer(player1Id),
+                    ownerNode.getSessionStore().getPlayer(player2Id));
+
+            //messages of both players reach the owner node
+            socketA.onMessage(sessionPlayer1, new WebMessage(MessageType.ERROR_MESSAGE));
+            socketB.onMessage(sessionPlayer2, new WebMessage(MessageType.ERROR_MESSAGE));
+
+            Assert.assertEquals("Message error is \"Unrecognized message type\"", "Unrecognized message type",
+                    ((WebMessage) basicRemote1.getMessage()).getContent().get(Constants.ERROR_FIELD));
+            Assert.assertEquals("Message error is \"Unrecognized message type\"", "Unrecognized message type",
+                    ((WebMessage) basicRemote2.getMessage()).getContent().get(Constants.ERROR_FIELD));
+        } finally {
+            nodeA.stop();
+            nodeB.stop();
+        }
+    }
+
+    @Test
+    public void testResumeGameOwnedByAnotherNode() throws IOException, EncodeException {
+        //only the node B is on the hash ring, so it owns every game
+        final InMemoryClusterStore clusterStore = new InMemoryClusterStore();
+        clusterStore.join("nodeB", "127.0.0.1:0");
+
+        final DominoesNode nodeA = new DominoesNode("nodeA", new InMemorySessionStore(),
+                new ConsistentHashGameRouter("nodeA", clusterStore, new LocalNodeTransport(), 16));
+        final DominoesNode nodeB = new DominoesNode("nodeB", new InMemorySessionStore(),
+                new ConsistentHashGameRouter("nodeB", clusterStore, new LocalNodeTransport(), 16));
+        nodeA.start();
+        nodeB.start();
+
+        try {
+            DominoesWebSocket socket = new DominoesWebSocket(nodeA);
+
+            DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+            DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+
+            DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+            DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy2");
+
+            socket.onOpen(sessionPlayer1, "dummyuser1");
+            basicRemote1.getMessage();
+            socket.onOpen(sessionPlayer2, "dummyuser2");
+
+            final String resumeToken = (String) ((WebMessage) basicRemote1.getMessage()).getContent()
+                    .get(Constants.RESUME_TOKEN_FIELD);
+            final WebGame game = nodeB.getSessionStore().getGame(RelayedSession.key("nodeA", sessionPlayer1.getId()));
+            Assert.assertNotNull("Game is on node B", game);
+
+            //the connection drops, and the player reconnects to node A with the resume token issued by node B
+            sessionPlayer1.close();
+            socket.onClose(sessionPlayer1);
+
+            DummyRemoteEndpointBasic basicRemote3 = new DummyRemoteEndpointBasic();
+            DummySession sessionPlayer3 = new DummySession(basicRemote3, "dummy3",
+                    ImmutableMap.of(Constants.RESUME_PARAMETER, Collections.singletonList(resumeToken)));
+
+            socket.onOpen(sessionPlayer3, "dummyuser1");
+
+            final WebMessage resumedMessage = (WebMessage) basicRemote3.getMessage();
+            Assert.assertEquals("Message is type of GAME_RESUMED", MessageType.GAME_RESUMED, resumedMessage.getType());
+            Assert.assertNull("Only a single snapshot is sent", basicRemote3.getMessage());
+
+            Assert.assertSame("The new session is attached to the same game on node B", game,
+                    nodeB.getSessionStore().getGame(RelayedSession.key("nodeA", sessionPlayer3.getId())));
+            Assert.assertNull("The old session is not attached to the game",
+                    nodeB.getSessionStore().getGame(RelayedSession.key("nodeA", sessionPlayer1.getId())));
+            Assert.assertFalse("Player 1 is connected again", game.getPlayer1().isDisconnected());
+
+            //messages of the new session reach node B
+            socket.onMessage(sessionPlayer3, new WebMessage(MessageType.ERROR_MESSAGE));
+
+            Assert.assertEquals("Message error is \"Unrecognized message type\"", "Unrecognized message type",
+                    ((WebMessage) basicRemote3.getMessage()).getContent().get(Constants.ERROR_FIELD));
+
+            //an unknown token of node B leaves the player waiting for a new opponent on node A
+            DummyRemoteEndpointBasic basicRemote4 = new DummyRemoteEndpointBasic();
+            DummySession sessionPlayer4 = new DummySession(basicRemote4, "dummy4",
+                    ImmutableMap.of(Constants.RESUME_PARAMETER, Collections.singletonList("nodeB/unknown")));
+
+            socket.onOpen(sessionPlayer4, "dummyuser4");
+
+            Assert.assertEquals("Message is type of WAITING_FOR_PLAYER", MessageType.WAITING_FOR_PLAYER,
+                    ((WebMessage) basicRemote4.getMessage()).getType());
+            Assert.assertNull("Session is not routed to node B", nodeA.getOwnerNode(sessionPlayer4.getId()));
+        } finally {
+            nodeA.stop();
+            nodeB.stop();
+        }
+    }
+
+    @Test
+    public void testFloodingSessionIsClosed() throws IOException, EncodeException {
+        //a session is allowed a burst of 3 messages
+        final DominoesNode node = new DominoesNode("limited", new InMemorySessionStore(), new LocalGameRouter("limited"),
+                new RateLimiter(1, 3, 0, 0, 0, 0));
+        DominoesWebSocket socket = new DominoesWebSocket(node);
+
+        DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+
+        DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy2");
+
+        testStartGame(socket, sessionPlayer1, basicRemote1, "dummyuser1", sessionPlayer2, basicRemote2, "dummyuser2");
+
+        for (int i = 0; i < 3; i++) {
+            socket.onText(sessionPlayer2, "{\"type\":\"GET_FROM_STOCK\"}");
+            Assert.assertTrue("Session is open while within the burst", sessionPlayer2.isOpen());
+        }
+
+        socket.onText(sessionPlayer2, "{\"type\":\"GET_FROM_STOCK\"}");
+        Assert.assertFalse("Session is closed after exceeding the burst", sessionPlayer2.isOpen());
+    }
+
+    @Test
+    public void testAbusiveSessionIsClosed() throws IOException, EncodeException {
+        //a session is allowed a burst of 2 invalid messages
+        final DominoesNode node = new DominoesNode("limited", new InMemorySessionStore(), new LocalGameRouter("limited"),
+                new RateLimiter(0, 0, 0, 0, 1, 2));
+        DominoesWebSocket socket = new DominoesWebSocket(node);
+
+        DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+
+        DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy2");
+
+        testStartGame(socket, sessionPlayer1, basicRemote1, "dummyuser1", sessionPlayer2, basicRemote2, "dummyuser2");
+
+        socket.onText(sessionPlayer1, "not a message");
+        Assert.assertEquals("Message error is \"Invalid message\"", "Invalid message",
+                ((WebMessage) basicRemote1.getMessage()).getContent().get(Constants.ERROR_FIELD));
+
+        socket.onText(sessionPlayer1, "{\"type\":\"ERROR_MESSAGE\"}");
+        Assert.assertEquals("Message error is \"Unrecognized message type\"", "Unrecognized message type",
+                ((WebMessage) basicRemote1.getMessage()).getContent().get(Constants.ERROR_FIELD));
+        Assert.assertTrue("Session is open while within the burst", sessionPlayer1.isOpen());
+
+        socket.onText(sessionPlayer1, "{\"type\":\"ERROR_MESSAGE\"}");
+        Assert.assertFalse("Session is closed after too many invalid messages", sessionPlayer1.isOpen());
+    }
+
+    @Test
+    public void testPlayersBeyondCapacityAreRejected() throws IOException, EncodeException {
+        //a node with room for a single game
+        final DominoesNode node = new DominoesNode("admission", new InMemorySessionStore(), new LocalGameRouter("admission"),
+                RateLimiter.unlimited(), new AdmissionController(0, 1, 0, 0, 0));
+        DominoesWebSocket socket = new DominoesWebSocket(node);
+
+        DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+
+        DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy2");
+
+        testStartGame(socket, sessionPlayer1, basicRemote1, "dummyuser1", sessionPlayer2, basicRemote2, "dummyuser2");
+
+        DummyRemoteEndpointBasic basicRemote3 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer3 = new DummySession(basicRemote3, "dummy3");
+        socket.onOpen(sessionPlayer3, "dummyuser3");
+
+        final WebMessage rejection = (WebMessage) basicRemote3.getMessage();
+        Assert.assertEquals("Message is RETRY_LATER", MessageType.RETRY_LATER, rejection.getType());
+        Assert.assertEquals("Message error is \"Too many games on the server\"", "Too many games on the server",
+                rejection.getContent().get(Constants.ERROR_FIELD));
+        Assert.assertFalse("Rejected session is closed", sessionPlayer3.isOpen());
+        Assert.assertTrue("Playing session is still open", sessionPlayer1.isOpen());
+        Assert.assertEquals("No player is waiting", 0, node.getSessionStore().getQueueSize());
+    }
+
+    @Test
+    public void testOverloadedNodeShedsWaitingPlayers() throws IOException, EncodeException {
+        final double[] heapUsage = {0.1};
+        final DominoesNode node = new DominoesNode("admission", new InMemorySessionStore(), new LocalGameRouter("admission"),
+                RateLimiter.unlimited(), new AdmissionController(0, 0, 0, 0.8, 0, () -> heapUsage[0]));
+        DominoesWebSocket socket = new DominoesWebSocket(node);
+
+        DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+        testWaitingGame(socket, sessionPlayer1, basicRemote1, "dummyuser1");
+
+        heapUsage[0] = 0.9;
+
+        DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy2");
+        socket.onOpen(sessionPlayer2, "dummyuser2");
+
+        Assert.assertEquals("New player is asked to retry later", MessageType.RETRY_LATER,
+                ((WebMessage) basicRemote2.getMessage()).getType());
+        Assert.assertFalse("New session is closed", sessionPlayer2.isOpen());
+        Assert.assertEquals("Waiting player is asked to retry later", MessageType.RETRY_LATER,
+                ((WebMessage) basicRemote1.getMessage()).getType());
+        Assert.assertFalse("Waiting session is closed", sessionPlayer1.isOpen());
+        Assert.assertEquals("No player is waiting", 0, node.getSessionStore().getQueueSize());
+    }
+
+    @Test
+    public void testDrainingNode() throws Exception {
+        final DominoesNode node = new DominoesNode("draining", new InMemorySessionStore(), new LocalGameRouter("draining"),
+                RateLimiter.unlimited(), AdmissionController.unlimited());
+        DominoesWebSocket socket = new DominoesWebSocket(node);
+
+        DummyRemoteEndpointBasic basicRemote1 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer1 = new DummySession(basicRemote1, "dummy1");
+
+        DummyRemoteEndpointBasic basicRemote2 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer2 = new DummySession(basicRemote2, "dummy2");
+
+        testStartGame(socket, sessionPlayer1, basicRemote1, "dummyuser1", sessionPlayer2, basicRemote2, "dummyuser2");
+
+        DummyRemoteEndpointBasic basicRemote3 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer3 = new DummySession(basicRemote3, "dummy3");
+        testWaitingGame(socket, sessionPlayer3, basicRemote3, "dummyuser3");
+
+        final CompletableFuture<Void> drained = node.drain();
+
+        Assert.assertEquals("Waiting player is asked to retry later", MessageType.RETRY_LATER,
+                ((WebMessage) basicRemote3.getMessage()).getType());
+        Assert.assertFalse("Waiting session is closed", sessionPlayer3.isOpen());
+
+        DummyRemoteEndpointBasic basicRemote4 = new DummyRemoteEndpointBasic();
+        DummySession sessionPlayer4 = new DummySession(basicRemote4, "dummy4");
+        socket.onOpen(sessionPlayer4, "dummyuser4");
+
+        Assert.assertEquals("New player is asked to retry later", MessageType.RETRY_LATER,
+                ((WebMessage) basicRemote4.getMessage()).getType());
+        Assert.assertFalse("New session is closed", sessionPlayer4.isOpen());
+        Assert.assertTrue("The game going on is kept", sessionPlayer1.isOpen() && sessionPlayer2.isOpen());
+        Assert.assertFalse("Node isn't drained while a game is going on", drained.isDone());
+
+        //The game ends (player 1 leaves it for good)
+        final WebGame game = node.getSessionStore().getGame(sessionPlayer1.getId());
+        socket.onClose(sessionPlayer1);
+        socket.expireSeat(game, game.getPlayer1(), sessionPlayer1.getId());
+
+        drained.get(10, TimeUnit.SECONDS);
+        Assert.assertTrue("Node is drained", node.isDrained());
+    }
+
+    @Test
+    public void testShutdownOnceDrained() throws Exception {
+        final DominoesNode node = new DominoesNode("node", new InMemorySessionStore(), new LocalGameRouter("node"),
+                RateLimiter.unlimited());
+        final CompletableFuture<Void> drained = new CompletableFuture<>();
+        final CompletableFuture<Boolean> shutdown = new CompletableFuture<>();
+
+        new NodeDrainer(node, drained, 10, 10_000, () -> shutdown.complete(drained.isDone())).start();
+
+        Assert.assertTrue("The process is shut down once the node is drained", shutdown.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMultiplexedConnection() throws IOException, EncodeException {
+        final DominoesNode node = new DominoesNode("node", new InMemorySessionStore(), new LocalGameRouter("node"),
+                RateLimiter.unlimited());
+        final DominoesWebSocket socket = new DominoesWebSocket(node);
+        final Map<String, List<String>> multiplex = ImmutableMap.of(Constants.MULTIPLEX_PARAMETER, Collections.singletonList("true"));
+
+        final DummyRemoteEndpointBasic endpointMessage = new DummyRemoteEndpointBasic();
+        final DummySession session = new DummySession(endpointMessage, "dummy1", multiplex);
+        final DummyRemoteEndpointBasic endpointMessage2 = new DummyRemoteEndpointBasic();
+        final DummySession session2 = new DummySession(endpointMessage2, "dummy2", multiplex);
+
+        socket.onOpen(session, "dummyuser1");
+        socket.onOpen(session2, "dummyuser2");
+        Assert.assertNull("Nothing happens until a game is joined", endpointMessage.getMessage());
+
+        //The games of the same connection don't play against each other
+        socket.onText(session, "{\"type\":\"JOIN_GAME\",\"gameId\":\"a\"}");
+        socket.onText(session, "{\"type\":\"JOIN_GAME\",\"gameId\":\"b\"}");
+        Assert.assertEquals("Game a is waiting", new WebMessage(MessageType.WAITING_FOR_PLAYER).withGameId("a"), endpointMessage.getMessage());
+        Assert.assertEquals("Game b is waiting", new WebMessage(MessageType.WAITING_FOR_PLAYER).withGameId("b"), endpointMessage.getMessage());
+
+        socket.onText(session2, "{\"type\":\"JOIN_GAME\",\"gameId\":\"x\"}");
+        socket.onText(session2, "{\"type\":\"JOIN_GAME\",\"gameId\":\"y\"}");
+
+        final WebMessage newGameA = (WebMessage) endpointMessage.getMessage();
+        final WebMessage newGameB = (WebMessage) endpointMessage.getMessage();
+        Assert.assertEquals("Game a started", MessageType.NEW_GAME, newGameA.getType());
+        Assert.assertEquals("Game a started", "a", newGameA.getGameId());
+        Assert.assertEquals("Game b started", MessageType.NEW_GAME, newGameB.getType());
+        Assert.assertEquals("Game b started", "b", newGameB.getGameId());
+        Assert.assertEquals("Game x started", "x", ((WebMessage) endpointMessage2.getMessage()).getGameId());
+        Assert.assertEquals("Game y started", "y", ((WebMessage) endpointMessage2.getMessage()).getGameId());
+
+        Assert.assertNotNull("Game a is being played", node.getSessionStore().getGame("dummy1/a"));
+        Assert.assertSame("Games a and x are the same", node.getSessionStore().getGame("dummy1/a"),
+                node.getSessionStore().getGame("dummy2/x"));
+
+        //Leaving a game keeps the other games of the connection
+        socket.onText(session, "{\"type\":\"LEAVE_GAME\",\"gameId\":\"a\"}");
+        Assert.assertEquals("Game x was left by the opponent", new WebMessage(MessageType.PLAYER_LEFT).withGameId("x"), endpointMessage2.getMessage());
+        Assert.assertNull("Game a is over", node.getSessionStore().getGame("dummy1/a"));
+        Assert.assertNotNull("Game b is still being played", node.getSessionStore().getGame("dummy1/b"));
+
+        socket.onText(session, "{\"type\":\"GET_FROM_STOCK\",\"gameId\":\"a\"}");
+        final WebMessage unknownGame = (WebMessage) endpointMessage.getMessage();
+        Assert.assertEquals("Game a is unknown", MessageType.ERROR_MESSAGE, unknownGame.getType());
+        Assert.assertEquals("Game a is unknown", "a", unknownGame.getGameId());
+
+        socket.onText(session, "{\"type\":\"GET_FROM_STOCK\"}");
+        Assert.assertEquals("A message without game id is refused", MessageType.ERROR_MESSAGE,
+                ((WebMessage) endpointMessage.getMessage()).getType());
+    }
+
+    @Test
+    public void testConcurrentGamesThroughHarness() throws Exception {
+        final DominoesNode node = new DominoesNode("harness", new InMemorySessionStore(), new LocalGameRouter("harness"),
+                RateLimiter.unlimited());
+        final EndpointHarness harness = new EndpointHarness(new DominoesWebSocket(node), 4, 10, 3);
+
+        Assert.assertTrue("All bots finished their games", harness.run(60_000));
+        Assert.assertEquals("All games were completed", 60, harness.getMetrics().getGamesCompleted());
+        Assert.assertEquals("There were no errors", 0, harness.getMetrics().getErrors());
+        Assert.assertTrue("Messages were handled", harness.getMessages() > 0);
+    }
+
+    private static WebGame testFinishedGame(final DominoesWebSocket socket,
+                                            final DummySession session,
+                                            final DummyRemoteEndpointBasic endpointMessage,
+                                            final DummySession session2,
+                                            final DummyRemoteEndpointBasic endpointMessage2) throws IOException, EncodeException {
+        final WebPlayer player1 = new WebPlayer("dummyuser1", session.getId(), session);
+        final WebPlayer player2 = new WebPlayer("dummyuser2", session2.getId(), session2);
+
+        final Queue<DominoPiece> stock = new LinkedBlockingQueue<>();
+
+        stock.offer(new DominoPiece(0, 0)); //piece of the board
+        stock.offer(new DominoPiece(0, 6)); //piece of player 1
+        stock.offer(new DominoPiece(6, 6)); //piece of player 2
+
+        //The rest of the pieces, to be used on a rematch
+        for (int i = 0; i <= 6; i++) {
+            for (int j = i; j <= 6; j++) {
+                final DominoPiece piece = new DominoPiece(i, j);
+                if (!stock.contains(piece)) {
+                    stock.offer(piece);
+                }
+            }
+        }
+
+        final WebGame webGame = new MockWebGame(player1, player2, stock, new LinkedList<>());
+
+        DominoesSessions.putGame(session.getId(), webGame);
+        DominoesSessions.putGame(session2.getId(), webGame);
+
+        webGame.start(1);
+
+        final Map<String, Object> messageContent = ImmutableMap.of(
+                Constants.PIECE_FIELD, new DominoPiece(0, 6),
+                Constants.PLACE_FIELD, "R"
+        );
+
+        socket.onMessage(session, new WebMessage(MessageType.PLAY_A_PIECE, messageContent));
+
+        Assert.assertEquals("Message is of type GAME_OVER", MessageType.GAME_OVER, ((WebMessage) endpointMessage.getMessage()).getType());
+        Assert.assertEquals("Message is of type GAME_OVER", MessageType.GAME_OVER, ((WebMessage) endpointMessage2.getMessage()).getType());
 
+        return webGame;
     }
 
     private static void testWaitingGame(final DominoesWebSocket socket,
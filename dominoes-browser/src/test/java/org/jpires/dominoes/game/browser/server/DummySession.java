@@ -24,9 +24,17 @@ public class DummySession implements Session {
 
     private String sessionId;
 
+    private Map<String, List<String>> requestParameterMap;
+
     public DummySession(final DummyRemoteEndpointBasic dummyRemoteEndpointBasic, final String sessionId) {
+        this(dummyRemoteEndpointBasic, sessionId, null);
+    }
+
+    public DummySession(final DummyRemoteEndpointBasic dummyRemoteEndpointBasic, final String sessionId,
+                        final Map<String, List<String>> requestParameterMap) {
         this.dummyRemoteEndpointBasic = dummyRemoteEndpointBasic;
         this.sessionId = sessionId;
+        this.requestParameterMap = requestParameterMap;
     }
 
     @Override
@@ -146,7 +154,7 @@ public class DummySession implements Session {
 
     @Override
     public Map<String, List<String>> getRequestParameterMap() {
-        return null;
+        return requestParameterMap;
     }
 
     @Override
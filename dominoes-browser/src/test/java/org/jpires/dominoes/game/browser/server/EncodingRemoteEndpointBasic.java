@@ -0,0 +1,23 @@
+package org.jpires.dominoes.game.browser.server;
+
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+import org.jpires.dominoes.game.browser.server.model.WebMessageEncoder;
+
+import javax.websocket.EncodeException;
+import java.io.IOException;
+
+/**
+ * Remote endpoint which encodes the sent messages with the real {@link WebMessageEncoder}, as the container does,
+ * and queues the encoded text.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class EncodingRemoteEndpointBasic extends DummyRemoteEndpointBasic {
+
+    private final WebMessageEncoder encoder = new WebMessageEncoder();
+
+    @Override
+    public void sendObject(final Object o) throws IOException, EncodeException {
+        super.sendObject(encoder.encode((WebMessage) o));
+    }
+}
@@ -0,0 +1,322 @@
+package org.jpires.dominoes.game.browser.server;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.game.browser.load.BotPlayer;
+import org.jpires.dominoes.game.browser.load.LatencyRecorder;
+import org.jpires.dominoes.game.browser.load.LoadMetrics;
+import org.jpires.dominoes.game.browser.server.admission.AdmissionController;
+import org.jpires.dominoes.game.browser.server.cluster.LocalGameRouter;
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+import org.jpires.dominoes.game.browser.server.model.WebMessageDecoder;
+import org.jpires.dominoes.game.browser.server.model.WebMessageEncoder;
+import org.jpires.dominoes.game.browser.server.ratelimit.RateLimiter;
+import org.jpires.dominoes.lib.utils.MessageType;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Endpoint Harness drives a {@link DominoesWebSocket} in process, without a container or a network: many
+ * {@link BotPlayer} bots play concurrent games straight through onOpen/onText/onClose, across several threads.
+ * The messages go through the real encoder and decoder, as they would on a container.
+ * <p>
+ * It reports the messages handled per second, the latency percentiles of onText, and the memory allocated by
+ * the server per move, to find server-side bottlenecks apart from the container and the network.
+ * <p>
+ * Usage: {@code EndpointHarness [threads] [botsPerThread] [gamesPerBot]}.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class EndpointHarness {
+
+    /**
+     * The endpoint.
+     */
+    private final DominoesWebSocket socket;
+
+    /**
+     * The number of threads.
+     */
+    private final int threads;
+
+    /**
+     * The number of bots driven by each thread.
+     */
+    private final int botsPerThread;
+
+    /**
+     * The number of games played by each bot.
+     */
+    private final int gamesPerBot;
+
+    /**
+     * The metrics of the bots (games, errors, move round-trip).
+     */
+    private final LoadMetrics metrics = new LoadMetrics();
+
+    /**
+     * The latency of onText (rate limits, decoding, handling and encoding of the answers).
+     */
+    private final LatencyRecorder handleLatency = new LatencyRecorder("onText");
+
+    /**
+     * Number of messages handled by onText.
+     */
+    private final LongAdder messages = new LongAdder();
+
+    /**
+     * Number of moves (play a piece or draw from stock) handled by onText.
+     */
+    private final LongAdder moves = new LongAdder();
+
+    /**
+     * Bytes allocated by the threads while on onText, or -1 if it isn't supported by the JVM.
+     */
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    /**
+     * The time (nanos) the run took.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Constructs a harness.
+     *
+     * @param socket        the endpoint
+     * @param threads       the number of threads
+     * @param botsPerThread the number of bots driven by each thread (an even number)
+     * @param gamesPerBot   the number of games played by each bot
+     */
+    public EndpointHarness(final DominoesWebSocket socket, final int threads, final int botsPerThread, final int gamesPerBot) {
+        Preconditions.checkArgument(botsPerThread > 1 && botsPerThread % 2 == 0, "The number of bots per thread must be even");
+        this.socket = socket;
+        this.threads = threads;
+        this.botsPerThread = botsPerThread;
+        this.gamesPerBot = gamesPerBot;
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args the number of threads, of bots per thread and of games per bot
+     * @throws Exception in case of any error on the run
+     */
+    public static void main(final String[] args) throws Exception {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        final int botsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        final int gamesPerBot = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        final DominoesNode node = new DominoesNode("harness", new InMemorySessionStore(), new LocalGameRouter("harness"),
+                RateLimiter.unlimited(), AdmissionController.unlimited());
+        final EndpointHarness harness = new EndpointHarness(new DominoesWebSocket(node), threads, botsPerThread, gamesPerBot);
+
+        if (!harness.run(TimeUnit.MINUTES.toMillis(10))) {
+            System.out.println("Timeout: not all bots finished");
+        }
+        harness.report(System.out);
+    }
+
+    /**
+     * Runs the games.
+     *
+     * @param timeoutMillis the maximum time of the run
+     * @return true if all bots finished their games, false otherwise
+     * @throws Exception in case of any error on the run
+     */
+    public boolean run(final long timeoutMillis) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final long startedAt = System.nanoTime();
+        final long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        final List<Future<Boolean>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final int worker = i;
+            workers.add(executor.submit(() -> runWorker(worker, deadline)));
+        }
+
+        boolean finished = true;
+        for (final Future<Boolean> worker : workers) {
+            finished &= worker.get();
+        }
+        elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        return finished;
+    }
+
+    /**
+     * Drives the bots of a thread until they finish their games.
+     *
+     * @param worker   the worker index
+     * @param deadline the time (nanos) to give up
+     * @return true if all bots finished their games, false otherwise
+     * @throws Exception in case of any error on the run
+     */
+    private boolean runWorker(final int worker, final long deadline) throws Exception {
+        final WebMessageEncoder encoder = new WebMessageEncoder();
+        final WebMessageDecoder decoder = new WebMessageDecoder();
+        final LatencyRecorder workerLatency = new LatencyRecorder("onText");
+        final AllocationCounter allocationCounter = AllocationCounter.create();
+        long workerAllocatedBytes = 0;
+
+        final BotPlayer[] bots = new BotPlayer[botsPerThread];
+        final DummySession[] sessions = new DummySession[botsPerThread];
+        final EncodingRemoteEndpointBasic[] remotes = new EncodingRemoteEndpointBasic[botsPerThread];
+
+        for (int i = 0; i < botsPerThread; i++) {
+            final String name = "bot-" + worker + "-" + i;
+            bots[i] = new BotPlayer(name, gamesPerBot, metrics);
+            remotes[i] = new EncodingRemoteEndpointBasic();
+            sessions[i] = new DummySession(remotes[i], name);
+            bots[i].onOpen();
+            socket.onOpen(sessions[i], name);
+        }
+
+        int finishedBots = 0;
+        while (finishedBots < botsPerThread && System.nanoTime() < deadline) {
+            boolean progress = false;
+            finishedBots = 0;
+
+            for (int i = 0; i < botsPerThread; i++) {
+                Object text;
+                while ((text = remotes[i].getMessage()) != null) {
+                    progress = true;
+
+                    //The bot (client side) decodes the message and answers it
+                    final WebMessage answer = bots[i].onMessage(decoder.decode((String) text));
+                    if (answer == null) {
+                        continue;
+                    }
+
+                    //The server handles the answer as received from the container: rate limits, decoding and handling
+                    final String answerText = encoder.encode(answer);
+                    final long allocatedBefore = allocationCounter.getAllocatedBytes();
+                    final long handleStartedAt = System.nanoTime();
+
+                    socket.onText(sessions[i], answerText);
+
+                    workerLatency.record(System.nanoTime() - handleStartedAt);
+                    workerAllocatedBytes += allocationCounter.getAllocatedBytes() - allocatedBefore;
+                    messages.increment();
+                    if (MessageType.PLAY_A_PIECE.equals(answer.getType()) || MessageType.DRAW_FROM_STOCK.equals(answer.getType())) {
+                        moves.increment();
+                    }
+                }
+                if (bots[i].isFinished()) {
+                    finishedBots++;
+                }
+            }
+
+            if (!progress) {
+                Thread.yield();
+            }
+        }
+
+        for (final DummySession session : sessions) {
+            session.close();
+            socket.onClose(session);
+        }
+
+        handleLatency.recordAll(workerLatency);
+        allocatedBytes.addAndGet(allocationCounter.isSupported() ? workerAllocatedBytes : -1);
+        return finishedBots == botsPerThread;
+    }
+
+    /**
+     * Gets the metrics of the bots.
+     *
+     * @return the metrics
+     */
+    public LoadMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the number of messages handled by onText.
+     *
+     * @return the number of messages
+     */
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    /**
+     * Prints the report of the run.
+     *
+     * @param out the stream to print to
+     */
+    public void report(final PrintStream out) {
+        final double elapsedSeconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+
+        out.printf("threads      %d x %d bots x %d games%n", threads, botsPerThread, gamesPerBot);
+        out.printf("messages     %d (%.0f msg/s)%n", messages.sum(), messages.sum() / elapsedSeconds);
+        out.println(handleLatency.summary());
+        if (allocatedBytes.get() >= 0 && moves.sum() > 0) {
+            out.printf("allocation   %d bytes/move%n", allocatedBytes.get() / moves.sum());
+        } else {
+            out.println("allocation   not supported by this JVM");
+        }
+        metrics.report(out);
+    }
+
+    /**
+     * Counter of the bytes allocated by the current thread, when supported by the JVM.
+     */
+    private static final class AllocationCounter {
+
+        /**
+         * The thread bean, or null if allocation counting isn't supported.
+         */
+        private final com.sun.management.ThreadMXBean threadBean;
+
+        /**
+         * Constructs a counter.
+         *
+         * @param threadBean the thread bean, or null if allocation counting isn't supported
+         */
+        private AllocationCounter(final com.sun.management.ThreadMXBean threadBean) {
+            this.threadBean = threadBean;
+        }
+
+        /**
+         * Creates a counter for the current JVM.
+         *
+         * @return the counter
+         */
+        static AllocationCounter create() {
+            final java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            if (threadBean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+                ((com.sun.management.ThreadMXBean) threadBean).setThreadAllocatedMemoryEnabled(true);
+                return new AllocationCounter((com.sun.management.ThreadMXBean) threadBean);
+            }
+            return new AllocationCounter(null);
+        }
+
+        /**
+         * Verifies if allocation counting is supported.
+         *
+         * @return true if it's supported, false otherwise
+         */
+        boolean isSupported() {
+            return threadBean != null;
+        }
+
+        /**
+         * Gets the bytes allocated by the current thread so far.
+         *
+         * @return the allocated bytes, or 0 if it isn't supported
+         */
+        long getAllocatedBytes() {
+            return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
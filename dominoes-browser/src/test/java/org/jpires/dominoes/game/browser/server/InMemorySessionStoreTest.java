@@ -0,0 +1,27 @@
+package org.jpires.dominoes.game.browser.server;
+
+import org.jpires.dominoes.lib.model.WebPlayer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class InMemorySessionStoreTest {
+
+    @Test
+    public void testQueueWithSameNamedPlayers() {
+        final InMemorySessionStore store = new InMemorySessionStore();
+        final WebPlayer player1 = new WebPlayer("player", "session1", null);
+        final WebPlayer player2 = new WebPlayer("player", "session2", null);
+        Assert.assertEquals("The players are equal (same name, no pieces)", player1, player2);
+
+        store.addPlayerToQueue(player1);
+        Assert.assertTrue("The waiting player is on the queue", store.isPlayerInQueue(player1));
+        Assert.assertFalse("The other player isn't on the queue", store.isPlayerInQueue(player2));
+
+        Assert.assertFalse("The other player isn't removed", store.removePlayerFromQueue(player2));
+        Assert.assertTrue("The waiting player is removed", store.removePlayerFromQueue(player1));
+        Assert.assertFalse("The waiting player isn't on the queue anymore", store.isPlayerInQueue(player1));
+    }
+}
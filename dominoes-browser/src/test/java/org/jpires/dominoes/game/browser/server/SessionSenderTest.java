@@ -0,0 +1,70 @@
+package org.jpires.dominoes.game.browser.server;
+
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+import org.jpires.dominoes.lib.utils.MessageType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.websocket.EncodeException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class SessionSenderTest {
+
+    @Test
+    public void testConcurrentSends() throws InterruptedException, ExecutionException {
+        //a remote endpoint refusing concurrent writes, as the one of the container does
+        final AtomicBoolean writing = new AtomicBoolean();
+        final DummyRemoteEndpointBasic basicRemote = new DummyRemoteEndpointBasic() {
+            @Override
+            public void sendObject(final Object o) throws IOException, EncodeException {
+                if (!writing.compareAndSet(false, true)) {
+                    throw new IllegalStateException("The remote endpoint was in state [TEXT_FULL_WRITING]");
+                }
+                Thread.yield();
+                super.sendObject(o);
+                writing.set(false);
+            }
+        };
+        final DummySession session = new DummySession(basicRemote, "dummy1");
+
+        //e.g. the player's own messages and the drain, sending to the same session
+        final int messages = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final List<Future<Void>> senders = new ArrayList<>();
+        for (final MessageType type : new MessageType[]{MessageType.NEXT_PLAY, MessageType.RETRY_LATER}) {
+            senders.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < messages; i++) {
+                    SessionSender.send(session, new WebMessage(type));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (final Future<Void> sender : senders) {
+                sender.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int sent = 0;
+        while (basicRemote.getMessage() != null) {
+            sent++;
+        }
+        Assert.assertEquals("Every message was sent", 2 * messages, sent);
+    }
+}
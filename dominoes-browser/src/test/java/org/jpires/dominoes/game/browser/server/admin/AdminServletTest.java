@@ -0,0 +1,137 @@
+package org.jpires.dominoes.game.browser.server.admin;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.jpires.dominoes.game.browser.server.DominoesNode;
+import org.jpires.dominoes.game.browser.server.DominoesWebSocket;
+import org.jpires.dominoes.game.browser.server.DummyRemoteEndpointBasic;
+import org.jpires.dominoes.game.browser.server.DummySession;
+import org.jpires.dominoes.game.browser.server.InMemorySessionStore;
+import org.jpires.dominoes.game.browser.server.admission.AdmissionController;
+import org.jpires.dominoes.game.browser.server.cluster.LocalGameRouter;
+import org.jpires.dominoes.game.browser.server.ratelimit.RateLimiter;
+import org.jpires.dominoes.lib.utils.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class AdminServletTest {
+
+    @Test
+    public void testLiveGames() throws Exception {
+        final DominoesNode node = new DominoesNode("admin", new InMemorySessionStore(), new LocalGameRouter("admin"),
+                RateLimiter.unlimited(), AdmissionController.unlimited());
+        final DominoesWebSocket socket = new DominoesWebSocket(node);
+        socket.onOpen(new DummySession(new DummyRemoteEndpointBasic(), "dummy1"), "dummyuser1");
+        socket.onOpen(new DummySession(new DummyRemoteEndpointBasic(), "dummy2"), "dummyuser2");
+
+        final AdminServlet servlet = new AdminServlet(node);
+
+        final AdminResponse gamesResponse = get(servlet, "/games", "127.0.0.1");
+        Assert.assertEquals("Games are listed", HttpServletResponse.SC_OK, gamesResponse.status);
+        final List<Map<String, Object>> games = Constants.OBJECT_MAPPER.readValue(gamesResponse.body(),
+                new TypeReference<List<Map<String, Object>>>() {
+                });
+        Assert.assertEquals("There's one live game", 1, games.size());
+        Assert.assertEquals("No piece was played yet", 0, games.get(0).get("moves"));
+        Assert.assertEquals("Stock has the pieces not dealt", 13, games.get(0).get("stockSize"));
+
+        final AdminResponse gameResponse = get(servlet, "/games/" + games.get(0).get("id"), "127.0.0.1");
+        final Map<String, Object> game = Constants.OBJECT_MAPPER.readValue(gameResponse.body(),
+                new TypeReference<Map<String, Object>>() {
+                });
+        Assert.assertEquals("Game is dumped", games.get(0).get("id"), game.get("gameId"));
+        Assert.assertEquals("Board has the first piece", 1, ((List<?>) game.get("board")).size());
+        Assert.assertEquals("Player 1 has 7 pieces", 7, ((List<?>) game.get("player1Pieces")).size());
+        Assert.assertNotNull("The seed is dumped, so the game is able to be replayed", game.get("seed"));
+
+        Assert.assertEquals("Unknown game is not found", HttpServletResponse.SC_NOT_FOUND,
+                get(servlet, "/games/unknown", "127.0.0.1").status);
+
+        final Map<String, Object> metrics = Constants.OBJECT_MAPPER.readValue(get(servlet, "/metrics", "127.0.0.1").body(),
+                new TypeReference<Map<String, Object>>() {
+                });
+        Assert.assertEquals("Nobody is waiting", 0, metrics.get("queueDepth"));
+        Assert.assertTrue("Latency histogram is shown", metrics.containsKey("messageLatencyMicros"));
+    }
+
+    @Test
+    public void testRemoteAddressIsRefused() throws Exception {
+        final AdminServlet servlet = new AdminServlet(new DominoesNode("admin", new InMemorySessionStore(),
+                new LocalGameRouter("admin"), RateLimiter.unlimited(), AdmissionController.unlimited()));
+
+        Assert.assertEquals("Remote address is refused", HttpServletResponse.SC_FORBIDDEN,
+                get(servlet, "/games", "203.0.113.7").status);
+    }
+
+    /**
+     * Sends a GET request to the servlet.
+     *
+     * @param servlet the servlet
+     * @param path    the path, after {@code /admin}
+     * @param address the remote address of the request
+     * @return the response
+     * @throws IOException in case of any error handling the request
+     */
+    private static AdminResponse get(final AdminServlet servlet, final String path, final String address) throws IOException {
+        final HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+                AdminServletTest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getPathInfo":
+                            return path;
+                        case "getRemoteAddr":
+                            return address;
+                        case "getMethod":
+                            return "GET";
+                        default:
+                            return null;
+                    }
+                });
+
+        final AdminResponse response = new AdminResponse();
+        servlet.doGet(request, response.proxy());
+        return response;
+    }
+
+    /**
+     * Response captured from the servlet.
+     */
+    private static final class AdminResponse {
+
+        private final StringWriter writer = new StringWriter();
+
+        private int status = HttpServletResponse.SC_OK;
+
+        private HttpServletResponse proxy() {
+            return (HttpServletResponse) Proxy.newProxyInstance(AdminServletTest.class.getClassLoader(),
+                    new Class<?>[]{HttpServletResponse.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setStatus":
+                            case "sendError":
+                                status = (Integer) args[0];
+                                return null;
+                            case "getWriter":
+                                return new PrintWriter(writer);
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private String body() {
+            return writer.toString();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.jpires.dominoes.game.browser.server.admin;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class HistogramTest {
+
+    @Test
+    public void testBucketsAndPercentiles() {
+        final Histogram histogram = new Histogram();
+
+        //90 fast values (on the bucket up to 7) and 10 slow ones (on the bucket up to 1023)
+        for (int i = 0; i < 90; i++) {
+            histogram.record(5);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000);
+        }
+
+        final Map<String, Object> snapshot = histogram.snapshot();
+        Assert.assertEquals("All values are counted", 100L, snapshot.get("count"));
+        Assert.assertEquals("Maximum is the slowest value", 1000L, snapshot.get("max"));
+        Assert.assertEquals("p50 is on the fast bucket", 7L, snapshot.get("p50"));
+        Assert.assertEquals("p90 is on the fast bucket", 7L, snapshot.get("p90"));
+        Assert.assertEquals("p99 is on the slow bucket", 1023L, snapshot.get("p99"));
+
+        @SuppressWarnings("unchecked")
+        final Map<String, Long> buckets = (Map<String, Long>) snapshot.get("buckets");
+        Assert.assertEquals("Only the non-empty buckets are shown", 2, buckets.size());
+        Assert.assertEquals("Fast bucket count", Long.valueOf(90), buckets.get("<=7"));
+        Assert.assertEquals("Slow bucket count", Long.valueOf(10), buckets.get("<=1023"));
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        final Map<String, Object> snapshot = new Histogram().snapshot();
+
+        Assert.assertEquals("Nothing is counted", 0L, snapshot.get("count"));
+        Assert.assertEquals("Percentiles of an empty histogram are 0", 0L, snapshot.get("p99"));
+    }
+}
@@ -0,0 +1,61 @@
+package org.jpires.dominoes.game.browser.server.admission;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class AdmissionControllerTest {
+
+    @Test
+    public void testConnectionCap() {
+        final AdmissionController controller = new AdmissionController(2, 0, 0, 0, 0);
+
+        Assert.assertTrue("First connection is admitted", controller.tryAdmitConnection("s1"));
+        Assert.assertTrue("Second connection is admitted", controller.tryAdmitConnection("s2"));
+        Assert.assertFalse("Third connection is rejected", controller.tryAdmitConnection("s3"));
+
+        //releasing a rejected connection doesn't make room for another one
+        controller.release("s3");
+        Assert.assertEquals("Two connections are admitted", 2, controller.getConnections());
+
+        controller.release("s1");
+        Assert.assertTrue("A released connection makes room for another one", controller.tryAdmitConnection("s4"));
+    }
+
+    @Test
+    public void testNewPlayerCaps() {
+        final AdmissionController controller = new AdmissionController(0, 10, 5, 0, 0);
+
+        Assert.assertNull("Player is admitted below the caps", controller.checkNewPlayer(9, 4));
+        Assert.assertNotNull("Player is rejected at the cap of games", controller.checkNewPlayer(10, 0));
+        Assert.assertNotNull("Player is rejected at the cap of waiting players", controller.checkNewPlayer(0, 5));
+        Assert.assertNull("Caps of 0 are disabled", AdmissionController.unlimited().checkNewPlayer(1_000_000, 1_000_000));
+    }
+
+    @Test
+    public void testOverload() {
+        final double[] heapUsage = {0.5};
+        final AdmissionController controller = new AdmissionController(0, 0, 0, 0.9, 100, () -> heapUsage[0]);
+
+        Assert.assertFalse("Node isn't overloaded", controller.isOverloaded());
+
+        heapUsage[0] = 0.95;
+        Assert.assertTrue("Node is overloaded above the heap threshold", controller.isOverloaded());
+        Assert.assertNotNull("New players are rejected", controller.checkNewPlayer(0, 0));
+
+        heapUsage[0] = 0.5;
+        for (int i = 0; i < 100; i++) {
+            controller.recordLatency(TimeUnit.MILLISECONDS.toNanos(500));
+        }
+        Assert.assertTrue("Node is overloaded above the latency threshold", controller.isOverloaded());
+
+        for (int i = 0; i < 100; i++) {
+            controller.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        Assert.assertFalse("Node recovers when the latency goes down", controller.isOverloaded());
+    }
+}
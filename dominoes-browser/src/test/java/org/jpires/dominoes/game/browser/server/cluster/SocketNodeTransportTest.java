@@ -0,0 +1,125 @@
+package org.jpires.dominoes.game.browser.server.cluster;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class SocketNodeTransportTest {
+
+    @Test
+    public void testSendWithSecret() throws Exception {
+        final InMemoryClusterStore clusterStore = new InMemoryClusterStore();
+        clusterStore.join("node1", "127.0.0.1:" + freePort());
+        clusterStore.join("node2", "127.0.0.1:" + freePort());
+
+        final SocketNodeTransport transport1 = new SocketNodeTransport(clusterStore, "secret");
+        final SocketNodeTransport transport2 = new SocketNodeTransport(clusterStore, "secret");
+        final BlockingQueue<RoutedMessage> received = new LinkedBlockingQueue<>();
+        transport1.start("node1", message -> { });
+        transport2.start("node2", received::add);
+        try {
+            transport1.send("node2", RoutedMessage.close("node1", "session1"));
+
+            final RoutedMessage message = received.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull("Message is received", message);
+            Assert.assertEquals("Message is the one sent", "session1", message.getSessionId());
+        } finally {
+            transport1.stop();
+            transport2.stop();
+        }
+    }
+
+    @Test
+    public void testWrongSecretIsRefused() throws Exception {
+        final InMemoryClusterStore clusterStore = new InMemoryClusterStore();
+        clusterStore.join("node1", "127.0.0.1:" + freePort());
+        clusterStore.join("node2", "127.0.0.1:" + freePort());
+
+        final SocketNodeTransport transport1 = new SocketNodeTransport(clusterStore, "guess");
+        final SocketNodeTransport transport2 = new SocketNodeTransport(clusterStore, "secret");
+        final BlockingQueue<RoutedMessage> received = new LinkedBlockingQueue<>();
+        transport1.start("node1", message -> { });
+        transport2.start("node2", received::add);
+        try {
+            transport1.send("node2", RoutedMessage.close("node1", "session1"));
+            Assert.assertNull("Message is not received", received.poll(500, TimeUnit.MILLISECONDS));
+        } finally {
+            transport1.stop();
+            transport2.stop();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAnyAddressNeedsSecret() throws IOException {
+        final InMemoryClusterStore clusterStore = new InMemoryClusterStore();
+        clusterStore.join("node1", "0.0.0.0:" + freePort());
+        new SocketNodeTransport(clusterStore, null).start("node1", message -> { });
+    }
+
+    @Test
+    public void testLongLineClosesConnection() throws Exception {
+        final int port = freePort();
+        final InMemoryClusterStore clusterStore = new InMemoryClusterStore();
+        clusterStore.join("node1", "127.0.0.1:" + port);
+
+        final SocketNodeTransport transport = new SocketNodeTransport(clusterStore, null);
+        transport.start("node1", message -> { });
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            final OutputStream out = socket.getOutputStream();
+            out.write('\n');
+
+            //The node stops reading once the line is too long, and closes the connection
+            final byte[] chunk = new byte[64 * 1024];
+            Arrays.fill(chunk, (byte) 'x');
+            try {
+                for (int i = 0; i < 64; i++) {
+                    out.write(chunk);
+                }
+            } catch (final IOException e) {
+                //The connection was reset by the node
+                return;
+            }
+            Assert.assertEquals("Connection is closed", -1, socket.getInputStream().read());
+        } finally {
+            transport.stop();
+        }
+    }
+
+    @Test
+    public void testReadLine() throws IOException {
+        final StringReader reader = new StringReader("abc\n\nabcdef\nabc");
+        Assert.assertEquals("Line is read", "abc", SocketNodeTransport.readLine(reader, 3));
+        Assert.assertEquals("Empty line is read", "", SocketNodeTransport.readLine(reader, 3));
+        try {
+            SocketNodeTransport.readLine(reader, 3);
+            Assert.fail("Long line is refused");
+        } catch (final IOException e) {
+            Assert.assertTrue("Error is the length", e.getMessage().contains("3 chars"));
+        }
+    }
+
+    /**
+     * Finds a free port on the loopback address.
+     *
+     * @return the port
+     * @throws IOException in case of any error
+     */
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
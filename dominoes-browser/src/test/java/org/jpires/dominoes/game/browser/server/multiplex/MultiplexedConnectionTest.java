@@ -0,0 +1,80 @@
+package org.jpires.dominoes.game.browser.server.multiplex;
+
+import org.jpires.dominoes.game.browser.server.DummyRemoteEndpointBasic;
+import org.jpires.dominoes.game.browser.server.DummySession;
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+import org.jpires.dominoes.lib.utils.MessageType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.websocket.EncodeException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class MultiplexedConnectionTest {
+
+    @Test
+    public void testConcurrentSendsFromTwoTables() throws InterruptedException, ExecutionException {
+        //a remote endpoint refusing concurrent writes, as the one of the container does
+        final AtomicBoolean writing = new AtomicBoolean();
+        final DummyRemoteEndpointBasic basicRemote = new DummyRemoteEndpointBasic() {
+            @Override
+            public void sendObject(final Object o) throws IOException, EncodeException {
+                if (!writing.compareAndSet(false, true)) {
+                    throw new IllegalStateException("The remote endpoint was in state [TEXT_FULL_WRITING]");
+                }
+                Thread.yield();
+                super.sendObject(o);
+                writing.set(false);
+            }
+        };
+        final MultiplexedConnection connection = new MultiplexedConnection(new DummySession(basicRemote, "dummy1"), "dummyuser1");
+        final TableSession table1 = connection.openTable("game1", table -> { });
+        final TableSession table2 = connection.openTable("game2", table -> { });
+
+        final int messages = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final List<Future<Void>> senders = new ArrayList<>();
+        for (final TableSession table : new TableSession[]{table1, table2}) {
+            senders.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < messages; i++) {
+                    table.getBasicRemote().sendObject(new WebMessage(MessageType.NEXT_PLAY));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (final Future<Void> sender : senders) {
+                sender.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int game1 = 0;
+        int game2 = 0;
+        WebMessage message;
+        while ((message = (WebMessage) basicRemote.getMessage()) != null) {
+            if ("game1".equals(message.getGameId())) {
+                game1++;
+            } else if ("game2".equals(message.getGameId())) {
+                game2++;
+            }
+        }
+        Assert.assertEquals("Every message of the game 1 was sent", messages, game1);
+        Assert.assertEquals("Every message of the game 2 was sent", messages, game2);
+    }
+}
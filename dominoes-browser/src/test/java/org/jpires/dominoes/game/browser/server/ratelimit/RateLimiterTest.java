@@ -0,0 +1,46 @@
+package org.jpires.dominoes.game.browser.server.ratelimit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void testAddressLimitSurvivesReconnect() {
+        final RateLimiter limiter = new RateLimiter(0, 0, 1, 3, 0, 0, 60_000);
+
+        limiter.register("session1", "10.0.0.1");
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue("Frame " + i + " is within the burst of the address", limiter.tryAcquire("session1"));
+        }
+        Assert.assertFalse("Burst of the address is exhausted", limiter.tryAcquire("session1"));
+        limiter.unregister("session1");
+
+        //The flooder reconnects, but its address isn't given a new burst
+        limiter.register("session2", "10.0.0.1");
+        Assert.assertFalse("Burst of the address is still exhausted", limiter.tryAcquire("session2"));
+        Assert.assertEquals("The address is kept", 1, limiter.getAddressCount());
+
+        limiter.register("session3", "10.0.0.2");
+        Assert.assertTrue("Other addresses are not limited", limiter.tryAcquire("session3"));
+    }
+
+    @Test
+    public void testIdleAddressIsForgotten() throws InterruptedException {
+        final RateLimiter limiter = new RateLimiter(0, 0, 1000, 2, 0, 0, 0);
+
+        limiter.register("session1", "10.0.0.1");
+        Assert.assertTrue("Frame is within the burst of the address", limiter.tryAcquire("session1"));
+        limiter.register("session2", "10.0.0.2");
+        Assert.assertEquals("An address with sessions is kept", 2, limiter.getAddressCount());
+
+        //The bucket of the address is full again after 1 ms, once its session is closed
+        limiter.unregister("session1");
+        Thread.sleep(10);
+        limiter.register("session3", "10.0.0.3");
+        Assert.assertEquals("The idle address is forgotten", 2, limiter.getAddressCount());
+    }
+}
@@ -0,0 +1,58 @@
+package org.jpires.dominoes.game.browser.server.ratelimit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void testBurstAndRefill() {
+        final TokenBucket bucket = new TokenBucket(10, 5);
+        final long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue("Token " + i + " is within the burst", bucket.tryAcquire(now));
+        }
+        Assert.assertFalse("Burst is exhausted", bucket.tryAcquire(now));
+
+        //10 tokens per second: one new token after 100 ms
+        final long later = now + TimeUnit.MILLISECONDS.toNanos(100);
+        Assert.assertTrue("A token was refilled", bucket.tryAcquire(later));
+        Assert.assertFalse("Only one token was refilled", bucket.tryAcquire(later));
+
+        //the bucket doesn't grow beyond the burst, no matter how long it was idle
+        final long muchLater = now + TimeUnit.SECONDS.toNanos(60);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue("Token " + i + " is within the burst", bucket.tryAcquire(muchLater));
+        }
+        Assert.assertFalse("Burst is exhausted", bucket.tryAcquire(muchLater));
+    }
+
+    @Test
+    public void testIdle() {
+        final TokenBucket bucket = new TokenBucket(10, 5);
+        final long now = System.nanoTime();
+        Assert.assertTrue("A new bucket is idle", bucket.isIdle(now, 0));
+
+        Assert.assertTrue("Token is taken", bucket.tryAcquire(now));
+        Assert.assertFalse("The bucket isn't full", bucket.isIdle(now, 0));
+        Assert.assertTrue("The bucket is full after 100 ms", bucket.isIdle(now + TimeUnit.MILLISECONDS.toNanos(100), 0));
+        Assert.assertFalse("The bucket wasn't full for 1 s", bucket.isIdle(now + TimeUnit.MILLISECONDS.toNanos(100),
+                TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void testUnlimitedBucket() {
+        final TokenBucket bucket = new TokenBucket(0, 0);
+        final long now = System.nanoTime();
+
+        for (int i = 0; i < 10_000; i++) {
+            Assert.assertTrue("Unlimited bucket always has tokens", bucket.tryAcquire(now));
+        }
+    }
+}
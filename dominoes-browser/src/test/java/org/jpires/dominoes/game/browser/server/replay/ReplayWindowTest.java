@@ -0,0 +1,46 @@
+package org.jpires.dominoes.game.browser.server.replay;
+
+import com.google.common.collect.ImmutableList;
+import org.jpires.dominoes.game.browser.server.model.WebMessage;
+import org.jpires.dominoes.lib.utils.MessageType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class ReplayWindowTest {
+
+    @Test
+    public void testRecordAndReplay() {
+        final ReplayWindow window = new ReplayWindow(4);
+        final List<WebMessage> responses = ImmutableList.of(new WebMessage(MessageType.NEXT_PLAY));
+
+        Assert.assertNull("Command wasn't handled yet", window.getResponses(0));
+        Assert.assertFalse("First command isn't stale", window.isStale(0));
+
+        window.record(0, responses);
+        Assert.assertSame("Responses are kept", responses, window.getResponses(0));
+        Assert.assertNull("Next command wasn't handled yet", window.getResponses(1));
+    }
+
+    @Test
+    public void testOldCommandsLeaveTheWindow() {
+        final ReplayWindow window = new ReplayWindow(4);
+
+        for (long sequence = 0; sequence < 6; sequence++) {
+            window.record(sequence, ImmutableList.of());
+        }
+
+        //commands 0 and 1 were overwritten by 4 and 5
+        Assert.assertNull("Command 0 left the window", window.getResponses(0));
+        Assert.assertNull("Command 1 left the window", window.getResponses(1));
+        Assert.assertTrue("Command 0 is stale", window.isStale(0));
+        Assert.assertTrue("Command 1 is stale", window.isStale(1));
+        Assert.assertNotNull("Command 2 is on the window", window.getResponses(2));
+        Assert.assertFalse("Command 2 isn't stale", window.isStale(2));
+        Assert.assertFalse("Command 6 isn't stale", window.isStale(6));
+    }
+}
@@ -5,14 +5,17 @@ import com.google.common.base.Preconditions;
 import org.jpires.dominoes.lib.model.DominoPiece;
 import org.jpires.dominoes.lib.model.Place;
 import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.model.Stock;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The Game Board.
@@ -37,7 +40,7 @@ public class Game {
     /**
      * The stock, which contains dominoes pieces ready to be get from.
      */
-    private final Queue<DominoPiece> stock;
+    private Stock stock;
 
     /**
      * The board of play (line of play).
@@ -49,6 +52,16 @@ public class Game {
      */
     private Player playingPlayer;
 
+    /**
+     * The number on the left open end of the board (kept up to date on every move).
+     */
+    private int leftEnd;
+
+    /**
+     * The number on the right open end of the board (kept up to date on every move).
+     */
+    private int rightEnd;
+
     /**
      * Creates a new game.
      * Constructs the stock with valid dominoes pieces, distribute the games through players,
@@ -70,11 +83,43 @@ public class Game {
      * @param player2 the player2
      */
     public Game(final Player player1, final Player player2) {
-        this.stock = createRandomStock();
-        this.board = new LinkedList<>();
+        this(player1, player2, ThreadLocalRandom.current().nextLong());
+    }
 
-        this.player1 = player1;
-        this.player2 = player2;
+    /**
+     * Creates a new game with the stock shuffled by a seed.
+     * The same seed always gives the same deal, so a game is able to be replayed exactly by its seed and moves.
+     *
+     * @param player1 the player1
+     * @param player2 the player2
+     * @param seed    the seed of the stock
+     */
+    public Game(final Player player1, final Player player2, final long seed) {
+        this(player1, player2, Stock.shuffled(seed));
+    }
+
+    /**
+     * Creates a new game with a given stock (e.g. a stock dealt in advance by a {@link StockPool}).
+     *
+     * @param player1 the player1
+     * @param player2 the player2
+     * @param stock   the stock
+     */
+    public Game(final Player player1, final Player player2, final Stock stock) {
+        this(player1, player2, stock, new LinkedList<>());
+    }
+
+    /**
+     * Creates a new game with a given stock (e.g. to replay a recorded game).
+     * The first piece of the stock is the one put on the board, and the following ones are given alternately to
+     * player 1 and player 2.
+     *
+     * @param player1    the player1
+     * @param player2    the player2
+     * @param stockOrder the pieces of the stock, in the order they will be taken
+     */
+    public Game(final Player player1, final Player player2, final List<DominoPiece> stockOrder) {
+        this(player1, player2, Stock.of(stockOrder), new LinkedList<>());
     }
 
     /**
@@ -88,10 +133,27 @@ public class Game {
      */
     @VisibleForTesting
     Game(final Player player1, final Player player2, final Queue<DominoPiece> stock, final LinkedList<DominoPiece> board) {
+        this(player1, player2, Stock.of(stock), board);
+    }
+
+    /**
+     * Creates a new game with a given stock and board.
+     *
+     * @param player1 the player 1
+     * @param player2 the player 2
+     * @param stock   the stock
+     * @param board   the board
+     */
+    private Game(final Player player1, final Player player2, final Stock stock, final LinkedList<DominoPiece> board) {
         this.player1 = player1;
         this.player2 = player2;
         this.stock = stock;
         this.board = board;
+
+        if (!board.isEmpty()) {
+            this.leftEnd = board.getFirst().getLeft();
+            this.rightEnd = board.getLast().getRight();
+        }
     }
 
     /**
@@ -109,6 +171,8 @@ public class Game {
     public void start(int nrPieces) {
         //Put the first piece on the board
         board.add(stock.poll());
+        leftEnd = board.getFirst().getLeft();
+        rightEnd = board.getFirst().getRight();
 
         //Give 7 pieces to each player
         for (int i = 1; i <= nrPieces; i++) {
@@ -120,14 +184,133 @@ public class Game {
         this.playingPlayer = player1;
     }
 
+    /**
+     * Resets the game, so the same players are able to play a new game.
+     * All pieces (from the board, the stock and the players' hands) are collected back and shuffled into the stock,
+     * by a new seed.
+     * The game needs to be started again after being reset.
+     */
+    public void reset() {
+        reset(Stock.shuffled(ThreadLocalRandom.current().nextLong()));
+    }
+
+    /**
+     * Resets the game with a new stock (e.g. a stock dealt in advance by a {@link StockPool}), so the same players
+     * are able to play a new game.
+     * The game needs to be started again after being reset.
+     *
+     * @param newStock the new stock
+     */
+    public synchronized void reset(final Stock newStock) {
+        board.clear();
+        player1.reset();
+        player2.reset();
+
+        this.stock = newStock;
+        this.playingPlayer = null;
+    }
+
+    /**
+     * Creates a copy of the game (the board, the stock, the players' hands and the turn), with new pieces, so a move
+     * is able to be tried on the copy without changing this game (e.g. to enumerate the game tree).
+     * The players of the copy are new {@link Player}s with the same names.
+     *
+     * @return the copy of the game
+     */
+    public synchronized Game copy() {
+        final Player copy1 = copyOf(player1);
+        final Player copy2 = copyOf(player2);
+        final LinkedList<DominoPiece> boardCopy = new LinkedList<>();
+        for (final DominoPiece piece : board) {
+            boardCopy.add(new DominoPiece(piece.getLeft(), piece.getRight()));
+        }
+
+        final Game copy = new Game(copy1, copy2, Stock.of(stock.toList()), boardCopy);
+        copy.playingPlayer = playingPlayer == player1 ? copy1 : playingPlayer == player2 ? copy2 : null;
+        return copy;
+    }
+
+    /**
+     * Creates a copy of a player, with new pieces.
+     *
+     * @param player the player
+     * @return the copy of the player
+     */
+    private static Player copyOf(final Player player) {
+        final Player copy = new Player(player.getName());
+        for (final DominoPiece piece : player.getPieces()) {
+            copy.givePiece(new DominoPiece(piece.getLeft(), piece.getRight()));
+        }
+        return copy;
+    }
+
     /**
      * Verifies if a certain piece is playable on the board.
      *
      * @param piece the piece to be verified
      * @return true if piece is playable on the board, false otherwise
+     * @throws NoSuchElementException if the board is empty (the game isn't started)
      */
     public boolean isPlayable(final DominoPiece piece) {
-        return board.getFirst().isPlayableOnLeft(piece) || board.getLast().isPlayableOnRight(piece);
+        checkStarted();
+        return piece.getLeft() == leftEnd || piece.getRight() == leftEnd
+                || piece.getLeft() == rightEnd || piece.getRight() == rightEnd;
+    }
+
+    /**
+     * Gets the moves a player is able to make, as a bitmask of (piece, place) pairs.
+     * For the piece at index {@code i} of the player's pieces, the bit {@code 2 * i} is set if the piece is playable on
+     * the left, and the bit {@code 2 * i + 1} is set if it's playable on the right.
+     * <p>
+     * It only compares the pieces with the two open ends of the board (a hand has at most 26 pieces, so the mask
+     * fits in 52 bits, which is safe as a JSON number).
+     *
+     * @param player the player
+     * @return the playable moves of the player (0 if none of the pieces is playable)
+     * @throws NoSuchElementException if the board is empty (the game isn't started)
+     */
+    public long getPlayableMoves(final Player player) {
+        checkStarted();
+        final int leftEndBit = 1 << leftEnd;
+        final int rightEndBit = 1 << rightEnd;
+
+        long playableMoves = 0;
+        int index = 0;
+        for (final DominoPiece piece : player.getPieces()) {
+            final int pieceBits = 1 << piece.getLeft() | 1 << piece.getRight();
+            if ((pieceBits & leftEndBit) != 0) {
+                playableMoves |= 1L << (2 * index);
+            }
+            if ((pieceBits & rightEndBit) != 0) {
+                playableMoves |= 1L << (2 * index + 1);
+            }
+            index++;
+        }
+
+        return playableMoves;
+    }
+
+    /**
+     * Checks that there is a piece on the board, so the open ends are known (they're 0 until the game is started).
+     *
+     * @throws NoSuchElementException if the board is empty
+     */
+    private void checkStarted() {
+        if (board.isEmpty()) {
+            throw new NoSuchElementException("The board is empty");
+        }
+    }
+
+    /**
+     * Verifies if a move is on a bitmask of playable moves (as given by {@link #getPlayableMoves(Player)}).
+     *
+     * @param playableMoves the playable moves
+     * @param index         the index of the piece on the player's pieces
+     * @param place         the place (left or right) to play the piece
+     * @return true if the move is playable, false otherwise
+     */
+    public static boolean isPlayableMove(final long playableMoves, final int index, final Place place) {
+        return (playableMoves & 1L << (2 * index + (Place.L.equals(place) ? 0 : 1))) != 0;
     }
 
     /**
@@ -161,6 +344,7 @@ public class Game {
 
             //add the piece to the begin of line of play
             board.addFirst(piece);
+            leftEnd = piece.getLeft();
 
         }
         //Else (if player wants to play the piece on right), we will get the last piece from the board
@@ -171,6 +355,7 @@ public class Game {
 
             //add the piece to the end of line of play
             board.addLast(piece);
+            rightEnd = piece.getRight();
         }
 
         //Removes the piece from the player's hand
@@ -187,7 +372,29 @@ public class Game {
      * @return true if player can't play with their own pieces, false otherwise
      */
     public boolean playerNeedsFromStock(final Player player) {
-        return player.getPieces().stream().noneMatch(this::isPlayable);
+        return getPlayableMoves(player) == 0;
+    }
+
+    /**
+     * Gives the player pieces from the stock until they are able to play, or until the stock is empty.
+     * It replaces the round trip of asking one piece at a time.
+     *
+     * @param player the player asking for pieces
+     * @return the pieces given to the player, in the order they were drawn (empty if the player was already able to play)
+     * @throws IllegalArgumentException if it's not the turn of the player to play
+     */
+    public synchronized List<DominoPiece> drawUntilPlayable(final Player player) {
+        //Verifies if it's the player's turn
+        Preconditions.checkArgument(getPlayingPlayer() == player, "It's not your turn to play");
+
+        final List<DominoPiece> drawnPieces = new ArrayList<>();
+        while (hasStock() && playerNeedsFromStock(player)) {
+            final DominoPiece pieceFromStock = getFromStock();
+            player.givePiece(pieceFromStock);
+            drawnPieces.add(pieceFromStock);
+        }
+
+        return drawnPieces;
     }
 
     /**
@@ -232,28 +439,29 @@ public class Game {
     }
 
     /**
-     * Constructs the stock.
-     * A stock is a Queue, to be easier to get pieces from.
-     * Constructs first a list of valid dominoes pieces, it shuffles the list and then it will be added to the queue.
+     * Creates the list of valid dominoes pieces, ordered by their index (see {@link DominoPiece#toIndex()}).
+     *
+     * @return a new list with one of each piece
      */
-    private static Queue<DominoPiece> createRandomStock() {
-        final Queue<DominoPiece> queue = new LinkedBlockingQueue<>();
-
-        //Creates a list of pieces
-        final List<DominoPiece> piecesList = new ArrayList<>();
+    public static List<DominoPiece> createPieces() {
+        final List<DominoPiece> piecesList = new ArrayList<>(DominoPiece.NUMBER_OF_PIECES);
         for (int i = 0; i <= 6; i++) {
             for (int j = i; j <= 6; j++) {
                 piecesList.add(new DominoPiece(i, j));
             }
         }
+        return piecesList;
+    }
 
-        //Shuffles the list
-        Collections.shuffle(piecesList);
-
-        //Fulfil the queue (to be return as a new stock)
-        piecesList.forEach(queue::offer);
-
-        return queue;
+    /**
+     * Creates the list of valid dominoes pieces shuffled by a seed.
+     * The same seed always gives the same order, so a stock is able to be recorded by its seed alone.
+     *
+     * @param seed the seed of the shuffle
+     * @return a new shuffled list with one of each piece
+     */
+    public static List<DominoPiece> shuffledPieces(final long seed) {
+        return Stock.shuffled(seed).toList();
     }
 
     /**
@@ -283,6 +491,15 @@ public class Game {
         return stock.size();
     }
 
+    /**
+     * Gets the seed the stock was shuffled with.
+     *
+     * @return the seed, or empty if the stock was given (e.g. on tests)
+     */
+    public OptionalLong getSeed() {
+        return stock.getSeed();
+    }
+
     /**
      * Gets the Player 1 on the board.
      *
@@ -312,14 +529,12 @@ public class Game {
     }
 
     /**
-     * Gets the stock.
-     * Only visible for tests.
+     * Gets the pieces left on the stock, in the order they will be taken.
      *
-     * @return the stock
+     * @return a copy of the stock
      */
-    @VisibleForTesting
-    Queue<DominoPiece> getStock() {
-        return stock;
+    public List<DominoPiece> getStock() {
+        return stock.toList();
     }
 
     /**
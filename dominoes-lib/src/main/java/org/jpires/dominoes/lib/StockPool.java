@@ -0,0 +1,140 @@
+package org.jpires.dominoes.lib;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.model.Stock;
+
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock Pool keeps stocks shuffled in advance, so a new game just takes one instead of shuffling its stock on the
+ * thread creating it.
+ * <p>
+ * The pool is a bounded lock-free queue, refilled by a background thread when it falls to half of its capacity.
+ * If the pool is empty (e.g. on a burst of new games), the stock is shuffled on the spot.
+ * The background thread is a daemon, created when the pool is first refilled.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class StockPool {
+
+    /**
+     * The maximum number of stocks kept.
+     */
+    private final int capacity;
+
+    /**
+     * The stocks shuffled in advance.
+     */
+    private final Queue<Stock> stocks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of stocks kept (the size of a concurrent queue isn't a constant-time operation).
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Indicates if the pool is being refilled.
+     */
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    /**
+     * The number of stocks shuffled on the spot, since the pool was empty.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The background thread refilling the pool.
+     */
+    private final ExecutorService producer;
+
+    /**
+     * The seeds of the stocks shuffled by the background thread.
+     */
+    private final SplittableRandom seeds = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+
+    /**
+     * Constructs an empty pool. It's filled on the first stock taken.
+     *
+     * @param capacity the maximum number of stocks kept (0 to always shuffle the stock on the spot)
+     */
+    public StockPool(final int capacity) {
+        Preconditions.checkArgument(capacity >= 0, "The capacity of the pool can't be negative");
+        this.capacity = capacity;
+        this.producer = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "stock-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Takes a stock shuffled in advance, or shuffles one on the spot if the pool is empty.
+     *
+     * @return a new stock, with all the pieces
+     */
+    public Stock take() {
+        Stock stock = stocks.poll();
+        if (stock != null) {
+            size.decrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            stock = Stock.shuffled(ThreadLocalRandom.current().nextLong());
+        }
+
+        if (size.get() <= capacity / 2) {
+            refill();
+        }
+        return stock;
+    }
+
+    /**
+     * Asks the background thread to refill the pool, unless it's already being refilled (or stopped).
+     */
+    public void refill() {
+        if (capacity > 0 && !producer.isShutdown() && refilling.compareAndSet(false, true)) {
+            producer.execute(() -> {
+                try {
+                    while (size.get() < capacity && !producer.isShutdown()) {
+                        stocks.offer(Stock.shuffled(seeds.nextLong()));
+                        size.incrementAndGet();
+                    }
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the background thread. Stocks are shuffled on the spot from now on.
+     */
+    public void stop() {
+        producer.shutdownNow();
+    }
+
+    /**
+     * Gets the number of stocks kept.
+     *
+     * @return the size of the pool
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Gets the number of stocks shuffled on the spot, since the pool was empty.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
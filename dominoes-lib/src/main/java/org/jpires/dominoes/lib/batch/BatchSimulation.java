@@ -0,0 +1,440 @@
+package org.jpires.dominoes.lib.batch;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Stock;
+import org.jpires.dominoes.lib.record.GameRecord;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Batch Simulation advances a batch of games in lockstep, for offline strategy research.
+ * <p>
+ * The games are kept as a struct of arrays: each field of a game (the hands of both players, the open ends of the
+ * board, the stock and its cursor, the turn) is a primitive array indexed by the game, so each step is a few loops
+ * over contiguous arrays, without any object being created. A hand is a mask of 28 bits, one per piece index (see
+ * {@link DominoPiece#toIndex()}), and the board is just its two open ends.
+ * <p>
+ * A step is made of kernels, each one a loop over all the games:
+ * - {@link #computeLegalMoves()}: the pieces of the player to move playable on each end;
+ * - a policy choosing a move for each game, as a {@link GameRecord} move (e.g. {@link #chooseFirstMoves(byte[])});
+ * - {@link #applyMoves(byte[])}: plays, draws or passes;
+ * - {@link #updateOver()}: finds the games over.
+ * <p>
+ * The rules are the ones of {@link Game}, one move at a time: a player draws a single piece per move, and passes
+ * when the stock is empty and none of his pieces is playable. The moves are not validated, so they must be chosen
+ * from the legal moves.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class BatchSimulation {
+
+    /**
+     * The pieces (as a mask of piece indexes) with each number.
+     */
+    private static final int[] PIECES_WITH = new int[7];
+
+    /**
+     * The sum of the two numbers of each piece (playing a piece on an end, the end becomes the sum minus the end).
+     */
+    private static final byte[] PIECE_SUMS = new byte[DominoPiece.NUMBER_OF_PIECES];
+
+    static {
+        for (int index = 0; index < DominoPiece.NUMBER_OF_PIECES; index++) {
+            final DominoPiece piece = DominoPiece.fromIndex(index);
+            PIECES_WITH[piece.getLeft()] |= 1 << index;
+            PIECES_WITH[piece.getRight()] |= 1 << index;
+            PIECE_SUMS[index] = (byte) (piece.getLeft() + piece.getRight());
+        }
+    }
+
+    /**
+     * The number of games.
+     */
+    private final int size;
+
+    /**
+     * The number of pieces dealt to each player.
+     */
+    private final int piecesPerPlayer;
+
+    /**
+     * The hand of the player 1 of each game.
+     */
+    private final int[] hands1;
+
+    /**
+     * The hand of the player 2 of each game.
+     */
+    private final int[] hands2;
+
+    /**
+     * The number on the left open end of the board of each game.
+     */
+    private final byte[] leftEnds;
+
+    /**
+     * The number on the right open end of the board of each game.
+     */
+    private final byte[] rightEnds;
+
+    /**
+     * The stocks of all the games (28 piece indexes per game, in the order they are taken).
+     */
+    private final byte[] stocks;
+
+    /**
+     * The position of the next piece to take from the stock of each game.
+     */
+    private final byte[] stockCursors;
+
+    /**
+     * The player to move on each game (0 for player 1, 1 for player 2).
+     */
+    private final byte[] turns;
+
+    /**
+     * Indicates if each game is over.
+     */
+    private final boolean[] over;
+
+    /**
+     * The pieces of the player to move playable on the left end, on each game.
+     */
+    private final int[] legalLeft;
+
+    /**
+     * The pieces of the player to move playable on the right end, on each game.
+     */
+    private final int[] legalRight;
+
+    /**
+     * The indexes of a stock being dealt.
+     */
+    private final int[] dealt = new int[DominoPiece.NUMBER_OF_PIECES];
+
+    /**
+     * Constructs a batch of games, with 7 pieces for each player.
+     * The games need to be dealt before being played.
+     *
+     * @param size the number of games
+     */
+    public BatchSimulation(final int size) {
+        this(size, GameRecord.DEFAULT_PIECES_PER_PLAYER);
+    }
+
+    /**
+     * Constructs a batch of games.
+     * The games need to be dealt before being played.
+     *
+     * @param size            the number of games
+     * @param piecesPerPlayer the number of pieces dealt to each player
+     */
+    public BatchSimulation(final int size, final int piecesPerPlayer) {
+        Preconditions.checkArgument(size > 0, "The number of games must be positive");
+        Preconditions.checkArgument(piecesPerPlayer > 0 && 2 * piecesPerPlayer < DominoPiece.NUMBER_OF_PIECES,
+                "Invalid number of pieces per player %s", piecesPerPlayer);
+        this.size = size;
+        this.piecesPerPlayer = piecesPerPlayer;
+        this.hands1 = new int[size];
+        this.hands2 = new int[size];
+        this.leftEnds = new byte[size];
+        this.rightEnds = new byte[size];
+        this.stocks = new byte[size * DominoPiece.NUMBER_OF_PIECES];
+        this.stockCursors = new byte[size];
+        this.turns = new byte[size];
+        this.over = new boolean[size];
+        this.legalLeft = new int[size];
+        this.legalRight = new int[size];
+    }
+
+    /**
+     * Deals a game from a seeded stock: the same deal as a {@link Game} created with the seed
+     * (see {@link Stock#shuffled(long)}).
+     *
+     * @param game the index of the game
+     * @param seed the seed of the stock
+     */
+    public void deal(final int game, final long seed) {
+        Stock.shuffleIndexes(seed, dealt);
+        final int offset = game * DominoPiece.NUMBER_OF_PIECES;
+        for (int i = 0; i < dealt.length; i++) {
+            stocks[offset + i] = (byte) dealt[i];
+        }
+
+        //The first piece is put on the board, and the following ones are given alternately to each player
+        final DominoPiece first = DominoPiece.fromIndex(dealt[0]);
+        leftEnds[game] = (byte) first.getLeft();
+        rightEnds[game] = (byte) first.getRight();
+
+        int hand1 = 0;
+        int hand2 = 0;
+        for (int i = 0; i < piecesPerPlayer; i++) {
+            hand1 |= 1 << dealt[1 + 2 * i];
+            hand2 |= 1 << dealt[2 + 2 * i];
+        }
+        hands1[game] = hand1;
+        hands2[game] = hand2;
+        stockCursors[game] = (byte) (1 + 2 * piecesPerPlayer);
+        turns[game] = 0;
+        over[game] = false;
+    }
+
+    /**
+     * Deals all the games, each one from a random seed.
+     */
+    public void dealAll() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int game = 0; game < size; game++) {
+            deal(game, random.nextLong());
+        }
+    }
+
+    /**
+     * Computes the legal moves of the player to move on each game: the pieces playable on each end of the board.
+     * A game over has no legal moves.
+     */
+    public void computeLegalMoves() {
+        for (int game = 0; game < size; game++) {
+            final int hand = over[game] ? 0 : turns[game] == 0 ? hands1[game] : hands2[game];
+            legalLeft[game] = hand & PIECES_WITH[leftEnds[game]];
+            legalRight[game] = hand & PIECES_WITH[rightEnds[game]];
+        }
+    }
+
+    /**
+     * Chooses a move for each game, by a simple policy: plays the playable piece with the lowest index (on the left
+     * end, if it's playable there), or draws a piece, or passes if the stock is empty.
+     * The legal moves need to be computed before.
+     *
+     * @param moves the array to fill with the move of each game (see {@link GameRecord})
+     */
+    public void chooseFirstMoves(final byte[] moves) {
+        for (int game = 0; game < size; game++) {
+            final int left = legalLeft[game];
+            final int legal = left | legalRight[game];
+            if (legal != 0) {
+                final int piece = Integer.numberOfTrailingZeros(legal);
+                moves[game] = (byte) (2 * piece + ((left >>> piece & 1) ^ 1));
+            } else {
+                moves[game] = stockCursors[game] < DominoPiece.NUMBER_OF_PIECES ? GameRecord.DRAW : GameRecord.PASS;
+            }
+        }
+    }
+
+    /**
+     * Applies a move on each game not over yet: plays a piece (and passes the turn), draws a piece from the stock, or
+     * passes the turn.
+     *
+     * @param moves the move of each game (see {@link GameRecord}), chosen from the legal moves
+     */
+    public void applyMoves(final byte[] moves) {
+        for (int game = 0; game < size; game++) {
+            if (over[game]) {
+                continue;
+            }
+
+            final int move = moves[game];
+            final int turn = turns[game];
+            if (move < GameRecord.DRAW) {
+                final int piece = move >>> 1;
+                if (turn == 0) {
+                    hands1[game] ^= 1 << piece;
+                } else {
+                    hands2[game] ^= 1 << piece;
+                }
+                if ((move & 1) == 0) {
+                    leftEnds[game] = (byte) (PIECE_SUMS[piece] - leftEnds[game]);
+                } else {
+                    rightEnds[game] = (byte) (PIECE_SUMS[piece] - rightEnds[game]);
+                }
+                turns[game] = (byte) (turn ^ 1);
+            } else if (move == GameRecord.DRAW) {
+                final int piece = stocks[game * DominoPiece.NUMBER_OF_PIECES + stockCursors[game]++];
+                if (turn == 0) {
+                    hands1[game] |= 1 << piece;
+                } else {
+                    hands2[game] |= 1 << piece;
+                }
+            } else {
+                turns[game] = (byte) (turn ^ 1);
+            }
+        }
+    }
+
+    /**
+     * Finds the games over: a player has no pieces, or the stock is empty and none of the players is able to play.
+     *
+     * @return the number of games not over yet
+     */
+    public int updateOver() {
+        int playing = 0;
+        for (int game = 0; game < size; game++) {
+            final int hand1 = hands1[game];
+            final int hand2 = hands2[game];
+            final int ends = PIECES_WITH[leftEnds[game]] | PIECES_WITH[rightEnds[game]];
+            final boolean gameOver = hand1 == 0 || hand2 == 0
+                    || stockCursors[game] == DominoPiece.NUMBER_OF_PIECES && ((hand1 | hand2) & ends) == 0;
+            over[game] = gameOver;
+            playing += gameOver ? 0 : 1;
+        }
+        return playing;
+    }
+
+    /**
+     * Plays all the games until they are over, choosing the moves by {@link #chooseFirstMoves(byte[])}.
+     *
+     * @return the number of steps (the moves of the longest game)
+     */
+    public int playFirstMoves() {
+        final byte[] moves = new byte[size];
+        int steps = 0;
+        while (updateOver() > 0) {
+            computeLegalMoves();
+            chooseFirstMoves(moves);
+            applyMoves(moves);
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Gets the number of games.
+     *
+     * @return the size of the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the hand of a player.
+     *
+     * @param game   the index of the game
+     * @param player the player (1 or 2)
+     * @return the mask of the piece indexes on the hand
+     */
+    public int getHand(final int game, final int player) {
+        return player == 1 ? hands1[game] : hands2[game];
+    }
+
+    /**
+     * Gets the number of pieces of a player.
+     *
+     * @param game   the index of the game
+     * @param player the player (1 or 2)
+     * @return the number of pieces on the hand
+     */
+    public int getPieces(final int game, final int player) {
+        return Integer.bitCount(getHand(game, player));
+    }
+
+    /**
+     * Gets the number on the left open end of the board.
+     *
+     * @param game the index of the game
+     * @return the left end
+     */
+    public int getLeftEnd(final int game) {
+        return leftEnds[game];
+    }
+
+    /**
+     * Gets the number on the right open end of the board.
+     *
+     * @param game the index of the game
+     * @return the right end
+     */
+    public int getRightEnd(final int game) {
+        return rightEnds[game];
+    }
+
+    /**
+     * Gets the number of pieces left on the stock.
+     *
+     * @param game the index of the game
+     * @return the stock size
+     */
+    public int getStockSize(final int game) {
+        return DominoPiece.NUMBER_OF_PIECES - stockCursors[game];
+    }
+
+    /**
+     * Gets the player to move.
+     *
+     * @param game the index of the game
+     * @return the player (1 or 2)
+     */
+    public int getPlayingPlayer(final int game) {
+        return turns[game] + 1;
+    }
+
+    /**
+     * Gets the pieces of the player to move playable on the left end (as computed by {@link #computeLegalMoves()}).
+     *
+     * @param game the index of the game
+     * @return the mask of the piece indexes
+     */
+    public int getLegalLeft(final int game) {
+        return legalLeft[game];
+    }
+
+    /**
+     * Gets the pieces of the player to move playable on the right end (as computed by {@link #computeLegalMoves()}).
+     *
+     * @param game the index of the game
+     * @return the mask of the piece indexes
+     */
+    public int getLegalRight(final int game) {
+        return legalRight[game];
+    }
+
+    /**
+     * Verifies if a game is over (as found by {@link #updateOver()}).
+     *
+     * @param game the index of the game
+     * @return true if the game is over, false otherwise
+     */
+    public boolean isOver(final int game) {
+        return over[game];
+    }
+
+    /**
+     * Gets the winner of a game over: who got less pieces.
+     *
+     * @param game the index of the game
+     * @return the winner (1 or 2), or 0 in case of a draw
+     */
+    public int getWinner(final int game) {
+        final int pieces1 = getPieces(game, 1);
+        final int pieces2 = getPieces(game, 2);
+        return pieces1 < pieces2 ? 1 : pieces2 < pieces1 ? 2 : 0;
+    }
+
+    /**
+     * Plays batches of games by {@link #chooseFirstMoves(byte[])}, and prints the throughput.
+     *
+     * @param args the number of games per batch and the number of batches (65536 and 100 by default)
+     */
+    public static void main(final String[] args) {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 65_536;
+        final int batches = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        final BatchSimulation simulation = new BatchSimulation(size);
+        final int[] wins = new int[3];
+        final long start = System.nanoTime();
+        for (int batch = 0; batch < batches; batch++) {
+            simulation.dealAll();
+            simulation.playFirstMoves();
+            for (int game = 0; game < size; game++) {
+                wins[simulation.getWinner(game)]++;
+            }
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        final long games = (long) size * batches;
+        System.out.printf("Player 1 won %d, player 2 won %d, %d draws%n", wins[1], wins[2], wins[0]);
+        System.out.printf("Played %d games in %.1f s (%.0f games per second)%n", games, seconds, games / seconds);
+    }
+}
@@ -0,0 +1,109 @@
+package org.jpires.dominoes.lib.fuzz;
+
+import org.jpires.dominoes.lib.batch.BatchSimulation;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.record.GameRecord;
+
+/**
+ * Batch Engine is the {@link Engine} of a {@link BatchSimulation} of a single game.
+ * <p>
+ * The batch simulation doesn't validate the moves, so a move is checked against its legal moves (as computed by
+ * {@link BatchSimulation#computeLegalMoves()}) before being applied.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class BatchEngine implements Engine {
+
+    /**
+     * The simulation of the game.
+     */
+    private final BatchSimulation batch = new BatchSimulation(1);
+
+    /**
+     * The move to apply.
+     */
+    private final byte[] moves = new byte[1];
+
+    @Override
+    public void deal(final long seed) {
+        batch.deal(0, seed);
+        batch.updateOver();
+    }
+
+    @Override
+    public boolean apply(final byte move) {
+        if (move < 0 || move > GameRecord.PASS || (getLegalMoves() >>> move & 1) == 0) {
+            return false;
+        }
+
+        moves[0] = move;
+        batch.applyMoves(moves);
+        batch.updateOver();
+        return true;
+    }
+
+    @Override
+    public long getLegalMoves() {
+        if (batch.isOver(0)) {
+            return 0;
+        }
+
+        batch.computeLegalMoves();
+        final int legalLeft = batch.getLegalLeft(0);
+        final int legalRight = batch.getLegalRight(0);
+        if ((legalLeft | legalRight) == 0) {
+            return 1L << (batch.getStockSize(0) > 0 ? GameRecord.DRAW : GameRecord.PASS);
+        }
+
+        long legalMoves = 0;
+        for (int piece = 0; piece < DominoPiece.NUMBER_OF_PIECES; piece++) {
+            legalMoves |= (long) (legalLeft >>> piece & 1) << (2 * piece);
+            legalMoves |= (long) (legalRight >>> piece & 1) << (2 * piece + 1);
+        }
+        return legalMoves;
+    }
+
+    @Override
+    public boolean isPlayable(final int piece) {
+        final DominoPiece dominoPiece = DominoPiece.fromIndex(piece);
+        final int leftEnd = batch.getLeftEnd(0);
+        final int rightEnd = batch.getRightEnd(0);
+        return dominoPiece.getLeft() == leftEnd || dominoPiece.getRight() == leftEnd
+                || dominoPiece.getLeft() == rightEnd || dominoPiece.getRight() == rightEnd;
+    }
+
+    @Override
+    public int getLeftEnd() {
+        return batch.getLeftEnd(0);
+    }
+
+    @Override
+    public int getRightEnd() {
+        return batch.getRightEnd(0);
+    }
+
+    @Override
+    public int getPlayingPlayer() {
+        return batch.getPlayingPlayer(0);
+    }
+
+    @Override
+    public int getHand(final int player) {
+        return batch.getHand(0, player);
+    }
+
+    @Override
+    public int getStockSize() {
+        return batch.getStockSize(0);
+    }
+
+    @Override
+    public boolean isOver() {
+        return batch.isOver(0);
+    }
+
+    @Override
+    public int getWinner() {
+        return batch.isOver(0) ? batch.getWinner(0) : 0;
+    }
+}
@@ -0,0 +1,362 @@
+package org.jpires.dominoes.lib.fuzz;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.record.GameRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Differential Fuzzer applies random sequences of moves, legal and illegal, to a reference {@link Engine} (the rules
+ * of {@link org.jpires.dominoes.lib.Game}, see {@link GameEngine}) and to a candidate one (e.g. a faster
+ * implementation, see {@link BatchEngine}), and compares them after every move: if the move was accepted, the
+ * playable pieces, the open ends of the board, the turn, the hands, the stock, the legal moves, if the game is over
+ * and who won.
+ * <p>
+ * Each sequence is a new deal, played until the game is over (plus a move after it, which must be refused by both):
+ * each move is either one of the legal moves of the reference, or, at a given rate, any move at all (mostly
+ * illegal ones). The sequences are fuzzed in parallel, each one by its own engines, and they are deterministic by
+ * the seed of the run and the number of the sequence.
+ * <p>
+ * The first difference found is shrunk to a minimal reproducer: the moves after the difference are dropped, and
+ * then smaller and smaller chunks of moves are removed while the engines still disagree.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class DifferentialFuzzer {
+
+    /**
+     * The maximum number of moves of a sequence (a game takes far fewer legal moves).
+     */
+    private static final int MAX_MOVES = 256;
+
+    /**
+     * The factory of the reference engines.
+     */
+    private final Supplier<? extends Engine> reference;
+
+    /**
+     * The factory of the candidate engines.
+     */
+    private final Supplier<? extends Engine> candidate;
+
+    /**
+     * The rate of random moves (mostly illegal ones), instead of legal moves.
+     */
+    private final double illegalRate;
+
+    /**
+     * The number of moves fuzzed.
+     */
+    private final LongAdder moves = new LongAdder();
+
+    /**
+     * Constructs a fuzzer.
+     *
+     * @param reference   the factory of the reference engines
+     * @param candidate   the factory of the candidate engines
+     * @param illegalRate the rate of random moves (mostly illegal ones), instead of legal moves
+     */
+    public DifferentialFuzzer(final Supplier<? extends Engine> reference, final Supplier<? extends Engine> candidate,
+                              final double illegalRate) {
+        Preconditions.checkArgument(illegalRate >= 0 && illegalRate <= 1, "The rate of illegal moves must be between 0 and 1");
+        this.reference = reference;
+        this.candidate = candidate;
+        this.illegalRate = illegalRate;
+    }
+
+    /**
+     * Fuzzes sequences of moves in parallel, until the engines disagree.
+     *
+     * @param seed      the seed of the run
+     * @param sequences the number of sequences
+     * @param threads   the number of threads
+     * @return the first divergence found, shrunk, or empty if the engines always agree
+     */
+    public Optional<Divergence> run(final long seed, final long sequences, final int threads) {
+        Preconditions.checkArgument(threads > 0, "The number of threads must be positive");
+
+        final AtomicReference<Divergence> found = new AtomicReference<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                final long from = sequences * thread / threads;
+                final long to = sequences * (thread + 1) / threads;
+                tasks.add(executor.submit(() -> {
+                    final Engine referenceEngine = reference.get();
+                    final Engine candidateEngine = candidate.get();
+                    for (long sequence = from; sequence < to && found.get() == null; sequence++) {
+                        fuzz(seed, sequence, referenceEngine, candidateEngine)
+                                .ifPresent(divergence -> found.compareAndSet(null, divergence));
+                    }
+                }));
+            }
+
+            for (final Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fuzzing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error fuzzing", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return Optional.ofNullable(found.get()).map(this::shrink);
+    }
+
+    /**
+     * Fuzzes a sequence of moves.
+     *
+     * @param seed            the seed of the run
+     * @param sequence        the number of the sequence
+     * @param referenceEngine the reference engine
+     * @param candidateEngine the candidate engine
+     * @return the divergence, or empty if the engines agree
+     */
+    private Optional<Divergence> fuzz(final long seed, final long sequence, final Engine referenceEngine,
+                                      final Engine candidateEngine) {
+        final SplittableRandom random = new SplittableRandom(seed ^ sequence * 0x9E3779B97F4A7C15L);
+        final long dealSeed = random.nextLong();
+        final byte[] sequenceMoves = new byte[MAX_MOVES];
+
+        String difference = deal(dealSeed, referenceEngine, candidateEngine);
+        int step = 0;
+        while (difference == null && step < MAX_MOVES) {
+            final boolean over = referenceEngine.isOver();
+            final long legalMoves = referenceEngine.getLegalMoves();
+            final byte move = over || legalMoves == 0 || random.nextDouble() < illegalRate
+                    ? (byte) random.nextInt(GameRecord.PASS + 1) : pick(legalMoves, random);
+
+            sequenceMoves[step++] = move;
+            difference = apply(move, referenceEngine, candidateEngine);
+            if (over) {
+                break;
+            }
+        }
+        moves.add(step);
+
+        return difference == null ? Optional.empty()
+                : Optional.of(new Divergence(dealSeed, Arrays.copyOf(sequenceMoves, step), step, difference));
+    }
+
+    /**
+     * Replays a sequence of moves on new engines, until they disagree.
+     *
+     * @param seed  the seed of the deal
+     * @param moves the moves
+     * @return the divergence (with the moves until the difference), or empty if the engines agree
+     */
+    public Optional<Divergence> replay(final long seed, final byte[] moves) {
+        final Engine referenceEngine = reference.get();
+        final Engine candidateEngine = candidate.get();
+        String difference = deal(seed, referenceEngine, candidateEngine);
+        int step = 0;
+        while (difference == null && step < moves.length) {
+            difference = apply(moves[step++], referenceEngine, candidateEngine);
+        }
+
+        return difference == null ? Optional.empty()
+                : Optional.of(new Divergence(seed, Arrays.copyOf(moves, step), step, difference));
+    }
+
+    /**
+     * Shrinks a divergence to a minimal reproducer: the moves after the difference are dropped, and chunks of moves
+     * are removed (from half of the moves down to a single move) while the engines still disagree.
+     *
+     * @param divergence the divergence
+     * @return the shrunk divergence
+     */
+    public Divergence shrink(final Divergence divergence) {
+        Divergence shrunk = replay(divergence.getSeed(), divergence.getMoves()).orElse(divergence);
+        for (int chunk = Math.max(1, shrunk.getMoves().length / 2); chunk > 0; chunk /= 2) {
+            for (int from = 0; from < shrunk.getMoves().length; ) {
+                final byte[] shrunkMoves = shrunk.getMoves();
+                final int to = Math.min(shrunkMoves.length, from + chunk);
+                final byte[] candidateMoves = new byte[shrunkMoves.length - (to - from)];
+                System.arraycopy(shrunkMoves, 0, candidateMoves, 0, from);
+                System.arraycopy(shrunkMoves, to, candidateMoves, from, shrunkMoves.length - to);
+
+                final Optional<Divergence> smaller = replay(divergence.getSeed(), candidateMoves);
+                if (smaller.isPresent()) {
+                    shrunk = smaller.get();
+                } else {
+                    from += chunk;
+                }
+            }
+        }
+        return shrunk;
+    }
+
+    /**
+     * Gets the number of moves fuzzed so far.
+     *
+     * @return the number of moves
+     */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Deals a new game on both engines, and compares them.
+     *
+     * @param seed            the seed of the deal
+     * @param referenceEngine the reference engine
+     * @param candidateEngine the candidate engine
+     * @return the difference, or null if the engines agree
+     */
+    private static String deal(final long seed, final Engine referenceEngine, final Engine candidateEngine) {
+        try {
+            referenceEngine.deal(seed);
+        } catch (RuntimeException e) {
+            return "The reference failed to deal: " + e;
+        }
+        try {
+            candidateEngine.deal(seed);
+        } catch (RuntimeException e) {
+            return "The candidate failed to deal: " + e;
+        }
+        return compare(referenceEngine, candidateEngine);
+    }
+
+    /**
+     * Applies a move on both engines, and compares them.
+     *
+     * @param move            the move
+     * @param referenceEngine the reference engine
+     * @param candidateEngine the candidate engine
+     * @return the difference, or null if the engines agree
+     */
+    private static String apply(final byte move, final Engine referenceEngine, final Engine candidateEngine) {
+        final boolean referenceApplied;
+        try {
+            referenceApplied = referenceEngine.apply(move);
+        } catch (RuntimeException e) {
+            return "The reference failed to apply " + Divergence.describe(move) + ": " + e;
+        }
+
+        final boolean candidateApplied;
+        try {
+            candidateApplied = candidateEngine.apply(move);
+        } catch (RuntimeException e) {
+            return "The candidate failed to apply " + Divergence.describe(move) + ": " + e;
+        }
+
+        if (referenceApplied != candidateApplied) {
+            return difference("applied " + Divergence.describe(move), referenceApplied, candidateApplied);
+        }
+        return compare(referenceEngine, candidateEngine);
+    }
+
+    /**
+     * Compares the state of both engines.
+     *
+     * @param referenceEngine the reference engine
+     * @param candidateEngine the candidate engine
+     * @return the difference, or null if the engines agree
+     */
+    private static String compare(final Engine referenceEngine, final Engine candidateEngine) {
+        try {
+            if (referenceEngine.getLeftEnd() != candidateEngine.getLeftEnd()) {
+                return difference("left end", referenceEngine.getLeftEnd(), candidateEngine.getLeftEnd());
+            }
+            if (referenceEngine.getRightEnd() != candidateEngine.getRightEnd()) {
+                return difference("right end", referenceEngine.getRightEnd(), candidateEngine.getRightEnd());
+            }
+            for (int piece = 0; piece < DominoPiece.NUMBER_OF_PIECES; piece++) {
+                if (referenceEngine.isPlayable(piece) != candidateEngine.isPlayable(piece)) {
+                    return difference("playable " + DominoPiece.fromIndex(piece), referenceEngine.isPlayable(piece),
+                            candidateEngine.isPlayable(piece));
+                }
+            }
+            if (referenceEngine.getPlayingPlayer() != candidateEngine.getPlayingPlayer()) {
+                return difference("playing player", referenceEngine.getPlayingPlayer(), candidateEngine.getPlayingPlayer());
+            }
+            for (int player = 1; player <= 2; player++) {
+                if (referenceEngine.getHand(player) != candidateEngine.getHand(player)) {
+                    return difference("hand of player " + player, Integer.toBinaryString(referenceEngine.getHand(player)),
+                            Integer.toBinaryString(candidateEngine.getHand(player)));
+                }
+            }
+            if (referenceEngine.getStockSize() != candidateEngine.getStockSize()) {
+                return difference("stock size", referenceEngine.getStockSize(), candidateEngine.getStockSize());
+            }
+            if (referenceEngine.getLegalMoves() != candidateEngine.getLegalMoves()) {
+                return difference("legal moves", Long.toBinaryString(referenceEngine.getLegalMoves()),
+                        Long.toBinaryString(candidateEngine.getLegalMoves()));
+            }
+            if (referenceEngine.isOver() != candidateEngine.isOver()) {
+                return difference("over", referenceEngine.isOver(), candidateEngine.isOver());
+            }
+            if (referenceEngine.getWinner() != candidateEngine.getWinner()) {
+                return difference("winner", referenceEngine.getWinner(), candidateEngine.getWinner());
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return "Failed to compare the engines: " + e;
+        }
+    }
+
+    /**
+     * Describes a difference.
+     *
+     * @param what           what is different
+     * @param referenceValue the value of the reference
+     * @param candidateValue the value of the candidate
+     * @return the description of the difference
+     */
+    private static String difference(final String what, final Object referenceValue, final Object candidateValue) {
+        return String.format("%s: reference=%s, candidate=%s", what, referenceValue, candidateValue);
+    }
+
+    /**
+     * Picks one of the legal moves at random.
+     *
+     * @param legalMoves the legal moves (at least one)
+     * @param random     the random generator
+     * @return the move
+     */
+    private static byte pick(final long legalMoves, final SplittableRandom random) {
+        long remaining = legalMoves;
+        for (int skip = random.nextInt(Long.bitCount(legalMoves)); skip > 0; skip--) {
+            remaining &= remaining - 1;
+        }
+        return (byte) Long.numberOfTrailingZeros(remaining);
+    }
+
+    /**
+     * Fuzzes {@link BatchEngine} against {@link GameEngine}, and prints the throughput and the divergence found.
+     *
+     * @param args the number of sequences, the number of threads, the seed of the run and the rate of illegal moves
+     *             (1000000, the number of processors, a random seed and 0.2 by default)
+     */
+    public static void main(final String[] args) {
+        final long sequences = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        final long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        final double illegalRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.2;
+
+        final DifferentialFuzzer fuzzer = new DifferentialFuzzer(GameEngine::new, BatchEngine::new, illegalRate);
+        final long start = System.nanoTime();
+        final Optional<Divergence> divergence = fuzzer.run(seed, sequences, threads);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Fuzzed %d moves of seed %d in %.1f s (%.0f moves per second)%n", fuzzer.getMoves(), seed,
+                seconds, fuzzer.getMoves() / seconds);
+        System.out.println(divergence.map(Divergence::toString).orElse("The engines always agree"));
+    }
+}
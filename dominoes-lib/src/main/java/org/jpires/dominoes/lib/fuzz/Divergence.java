@@ -0,0 +1,130 @@
+package org.jpires.dominoes.lib.fuzz;
+
+import org.jpires.dominoes.lib.record.GameRecord;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * Divergence is a sequence of moves on which two {@link Engine}s disagree: the seed of the deal, the moves (legal or
+ * not) applied to both engines, and the first difference found.
+ * It reproduces the difference by {@link DifferentialFuzzer#replay(long, byte[])}.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public final class Divergence {
+
+    /**
+     * The seed of the deal.
+     */
+    private final long seed;
+
+    /**
+     * The moves applied to both engines (see {@link GameRecord}).
+     */
+    private final byte[] moves;
+
+    /**
+     * The number of moves applied when the difference was found (0 if right after the deal).
+     */
+    private final int step;
+
+    /**
+     * The difference found.
+     */
+    private final String difference;
+
+    /**
+     * Constructs a divergence.
+     *
+     * @param seed       the seed of the deal
+     * @param moves      the moves applied to both engines
+     * @param step       the number of moves applied when the difference was found
+     * @param difference the difference found
+     */
+    public Divergence(final long seed, final byte[] moves, final int step, final String difference) {
+        this.seed = seed;
+        this.moves = moves.clone();
+        this.step = step;
+        this.difference = difference;
+    }
+
+    /**
+     * Gets the seed of the deal.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the moves applied to both engines.
+     *
+     * @return a copy of the moves (see {@link GameRecord})
+     */
+    public byte[] getMoves() {
+        return moves.clone();
+    }
+
+    /**
+     * Gets the number of moves applied when the difference was found.
+     *
+     * @return the step (0 if right after the deal)
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Gets the difference found.
+     *
+     * @return the difference
+     */
+    public String getDifference() {
+        return difference;
+    }
+
+    /**
+     * Describes a move, as a piece and a place (e.g. {@code <2:5>L}), DRAW or PASS (or its number, if it's not a
+     * valid move).
+     *
+     * @param move the move
+     * @return the description of the move
+     */
+    static String describe(final byte move) {
+        if (GameRecord.isPlay(move)) {
+            return GameRecord.getPiece(move).toString() + GameRecord.getPlace(move);
+        }
+        return move == GameRecord.DRAW ? "DRAW" : move == GameRecord.PASS ? "PASS" : Byte.toString(move);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final Divergence that = (Divergence) o;
+        return seed == that.seed && step == that.step && Arrays.equals(moves, that.moves)
+                && difference.equals(that.difference);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(seed) + Arrays.hashCode(moves)) + step;
+    }
+
+    @Override
+    public String toString() {
+        final StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (final byte move : moves) {
+            joiner.add(describe(move));
+        }
+        return String.format("Divergence{seed=%d, moves=%s, step=%d, difference=%s}", seed, joiner, step, difference);
+    }
+}
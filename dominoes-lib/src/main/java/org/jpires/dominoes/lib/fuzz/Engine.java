@@ -0,0 +1,100 @@
+package org.jpires.dominoes.lib.fuzz;
+
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.record.GameRecord;
+
+/**
+ * Engine is a single game of dominoes driven by moves, as seen by the {@link DifferentialFuzzer}: the rules of
+ * {@link Game} (see {@link GameEngine}) or of a faster implementation of them (see {@link BatchEngine}).
+ * <p>
+ * The moves are the ones of {@link GameRecord}: a piece played on a place, a draw of a single piece from the stock,
+ * or a pass. The pieces are given by their index (see {@link DominoPiece#toIndex()}), and the players are 1 and 2.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public interface Engine {
+
+    /**
+     * Deals a new game, as a {@link Game} with the stock shuffled by a seed, started with 7 pieces per player.
+     *
+     * @param seed the seed of the stock
+     */
+    void deal(long seed);
+
+    /**
+     * Applies a move of the player about to move, if it's legal.
+     * A play is legal if the player has the piece and it's playable on that place, a draw if the player is unable to
+     * play and the stock isn't empty, and a pass if the player is unable to play and the stock is empty. No move is
+     * legal once the game is over.
+     *
+     * @param move the move (see {@link GameRecord})
+     * @return true if the move was applied, false if it's illegal (the game isn't changed)
+     */
+    boolean apply(byte move);
+
+    /**
+     * Gets the legal moves of the player about to move.
+     *
+     * @return the legal moves, as a mask with the bit of each move (see {@link GameRecord}) set
+     */
+    long getLegalMoves();
+
+    /**
+     * Verifies if a piece is playable on the board.
+     *
+     * @param piece the index of the piece
+     * @return true if the piece is playable, false otherwise
+     */
+    boolean isPlayable(int piece);
+
+    /**
+     * Gets the number on the left open end of the board.
+     *
+     * @return the number on the left end
+     */
+    int getLeftEnd();
+
+    /**
+     * Gets the number on the right open end of the board.
+     *
+     * @return the number on the right end
+     */
+    int getRightEnd();
+
+    /**
+     * Gets the player about to move.
+     *
+     * @return 1 or 2
+     */
+    int getPlayingPlayer();
+
+    /**
+     * Gets the hand of a player.
+     *
+     * @param player the player (1 or 2)
+     * @return the hand, as a mask of piece indexes
+     */
+    int getHand(int player);
+
+    /**
+     * Gets the number of pieces on the stock.
+     *
+     * @return the stock size
+     */
+    int getStockSize();
+
+    /**
+     * Verifies if the game is over.
+     *
+     * @return true if the game is over, false otherwise
+     */
+    boolean isOver();
+
+    /**
+     * Gets the winner of the game.
+     *
+     * @return 1 or 2, or 0 if the game isn't over or it's a draw
+     */
+    int getWinner();
+}
@@ -0,0 +1,123 @@
+package org.jpires.dominoes.lib.fuzz;
+
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.record.GameRecord;
+
+import java.util.List;
+
+/**
+ * Game Engine is the reference {@link Engine}: each move is applied to a {@link Game}, by its own methods
+ * ({@link Game#play(Player, DominoPiece, org.jpires.dominoes.lib.model.Place)}, {@link Game#getFromStock()} and
+ * {@link Game#switchPlayer()}), and the state is read from the game, its board and its players.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class GameEngine implements Engine {
+
+    /**
+     * The game.
+     */
+    private Game game;
+
+    @Override
+    public void deal(final long seed) {
+        game = new Game(new Player("1"), new Player("2"), seed);
+        game.start();
+    }
+
+    @Override
+    public boolean apply(final byte move) {
+        if (game.isOver()) {
+            return false;
+        }
+
+        final Player player = game.getPlayingPlayer();
+        if (GameRecord.isPlay(move)) {
+            try {
+                game.play(player, GameRecord.getPiece(move), GameRecord.getPlace(move));
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        if (!game.playerNeedsFromStock(player) || (move == GameRecord.DRAW) != game.hasStock()) {
+            return false;
+        }
+        if (move == GameRecord.DRAW) {
+            player.givePiece(game.getFromStock());
+        } else {
+            game.switchPlayer();
+        }
+        return true;
+    }
+
+    @Override
+    public long getLegalMoves() {
+        if (game.isOver()) {
+            return 0;
+        }
+
+        final Player player = game.getPlayingPlayer();
+        final long playableMoves = game.getPlayableMoves(player);
+        if (playableMoves == 0) {
+            return 1L << (game.hasStock() ? GameRecord.DRAW : GameRecord.PASS);
+        }
+
+        long legalMoves = 0;
+        final List<DominoPiece> pieces = player.getPieces();
+        for (int index = 0; index < pieces.size(); index++) {
+            final int piece = pieces.get(index).toIndex();
+            legalMoves |= (playableMoves >>> (2 * index) & 1) << (2 * piece);
+            legalMoves |= (playableMoves >>> (2 * index + 1) & 1) << (2 * piece + 1);
+        }
+        return legalMoves;
+    }
+
+    @Override
+    public boolean isPlayable(final int piece) {
+        return game.isPlayable(DominoPiece.fromIndex(piece));
+    }
+
+    @Override
+    public int getLeftEnd() {
+        return game.getBoard().get(0).getLeft();
+    }
+
+    @Override
+    public int getRightEnd() {
+        final List<DominoPiece> board = game.getBoard();
+        return board.get(board.size() - 1).getRight();
+    }
+
+    @Override
+    public int getPlayingPlayer() {
+        return game.getPlayingPlayer() == game.getPlayer1() ? 1 : 2;
+    }
+
+    @Override
+    public int getHand(final int player) {
+        int hand = 0;
+        for (final DominoPiece piece : (player == 1 ? game.getPlayer1() : game.getPlayer2()).getPieces()) {
+            hand |= 1 << piece.toIndex();
+        }
+        return hand;
+    }
+
+    @Override
+    public int getStockSize() {
+        return game.getStockSize();
+    }
+
+    @Override
+    public boolean isOver() {
+        return game.isOver();
+    }
+
+    @Override
+    public int getWinner() {
+        return game.getWinner().map(winner -> winner == game.getPlayer1() ? 1 : 2).orElse(0);
+    }
+}
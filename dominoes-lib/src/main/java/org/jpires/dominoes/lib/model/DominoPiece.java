@@ -12,6 +12,11 @@ import java.util.Objects;
  */
 public class DominoPiece {
 
+    /**
+     * The number of pieces in a set (one of each pair of numbers).
+     */
+    public static final int NUMBER_OF_PIECES = 28;
+
     /**
      * Left part.
      */
@@ -118,6 +123,36 @@ public class DominoPiece {
         return right;
     }
 
+    /**
+     * Converts this piece to its index on the set, whichever the orientation.
+     * Pieces are numbered from 0 to 27, in the order {@code <0:0>, <0:1>, ..., <0:6>, <1:1>, ..., <6:6>}.
+     *
+     * @return the index of the piece
+     */
+    public int toIndex() {
+        final int low = Math.min(left, right);
+        final int high = Math.max(left, right);
+        return low * 7 - low * (low - 1) / 2 + high - low;
+    }
+
+    /**
+     * Creates the piece with a certain index on the set (see {@link #toIndex()}).
+     *
+     * @param index the index of the piece
+     * @return a new piece
+     * @throws IllegalArgumentException if the index is not in interval [0,27]
+     */
+    public static DominoPiece fromIndex(final int index) {
+        Preconditions.checkArgument(index >= 0 && index < NUMBER_OF_PIECES, "The index of a piece should be in interval [0,27]");
+        int low = 0;
+        int first = 0;
+        while (index >= first + 7 - low) {
+            first += 7 - low;
+            low++;
+        }
+        return new DominoPiece(low, low + index - first);
+    }
+
     /**
      * To String method in order to print the piece in the right format.
      *
@@ -153,12 +188,13 @@ public class DominoPiece {
     }
 
     /**
-     * Hashcode implementation
+     * Hashcode implementation.
+     * Consistent with equals: a piece has the same hashcode whichever the orientation (e.g. after being rotated).
      *
      * @return the hashcode of this piece.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(left, right);
+        return Objects.hash(Math.min(left, right), Math.max(left, right));
     }
 }
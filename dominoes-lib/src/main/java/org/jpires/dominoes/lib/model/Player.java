@@ -100,6 +100,13 @@ public class Player {
         pieces.remove(piece);
     }
 
+    /**
+     * Resets the player, removing all pieces from his "hand", so the player is able to play a new game.
+     */
+    public void reset() {
+        pieces.clear();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
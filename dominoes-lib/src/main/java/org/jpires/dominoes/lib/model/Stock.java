@@ -0,0 +1,156 @@
+package org.jpires.dominoes.lib.model;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+
+/**
+ * The stock, which contains dominoes pieces ready to be get from.
+ * The pieces are kept in a primitive array, in the order they are taken, and a cursor points to the next one, so
+ * taking a piece is a plain array read.
+ * <p>
+ * It's not thread-safe: the stock belongs to a game, and it's only changed while the game is being played.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class Stock {
+
+    /**
+     * The pieces of the stock, each one as {@code 7 * left + right} (keeping the orientation of the piece).
+     */
+    private final byte[] pieces;
+
+    /**
+     * The position of the next piece to take.
+     */
+    private int cursor;
+
+    /**
+     * The seed the stock was shuffled with (empty if the pieces were given).
+     */
+    private final OptionalLong seed;
+
+    /**
+     * Constructs a stock.
+     *
+     * @param pieces the pieces of the stock, each one as {@code 7 * left + right}
+     * @param seed   the seed the stock was shuffled with
+     */
+    private Stock(final byte[] pieces, final OptionalLong seed) {
+        this.pieces = pieces;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates a stock with all the pieces, shuffled by a seed.
+     * The same seed always gives the same stock, so a game is able to be replayed by its seed.
+     *
+     * @param seed the seed of the shuffle
+     * @return a new stock with 28 pieces
+     */
+    public static Stock shuffled(final long seed) {
+        final int[] indexes = new int[DominoPiece.NUMBER_OF_PIECES];
+        shuffleIndexes(seed, indexes);
+
+        final byte[] pieces = new byte[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            final DominoPiece piece = DominoPiece.fromIndex(indexes[i]);
+            pieces[i] = (byte) (7 * piece.getLeft() + piece.getRight());
+        }
+        return new Stock(pieces, OptionalLong.of(seed));
+    }
+
+    /**
+     * Creates a stock with the given pieces.
+     *
+     * @param pieces the pieces, in the order they will be taken
+     * @return a new stock
+     */
+    public static Stock of(final Collection<DominoPiece> pieces) {
+        final byte[] encoded = new byte[pieces.size()];
+        int i = 0;
+        for (final DominoPiece piece : pieces) {
+            encoded[i++] = (byte) (7 * piece.getLeft() + piece.getRight());
+        }
+        return new Stock(encoded, OptionalLong.empty());
+    }
+
+    /**
+     * Shuffles the indexes of the pieces (see {@link DominoPiece#toIndex()}) by a seed, without creating the pieces,
+     * so it's suited to replay lots of stocks.
+     * It's the Fisher-Yates shuffle, driven by a {@link SplittableRandom}.
+     *
+     * @param seed    the seed of the shuffle
+     * @param indexes the array to fill with the shuffled indexes (with 28 positions)
+     */
+    public static void shuffleIndexes(final long seed, final int[] indexes) {
+        Preconditions.checkArgument(indexes.length == DominoPiece.NUMBER_OF_PIECES, "The stock should have 28 pieces");
+        final SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        for (int i = indexes.length; i > 1; i--) {
+            final int j = random.nextInt(i);
+            final int tmp = indexes[i - 1];
+            indexes[i - 1] = indexes[j];
+            indexes[j] = tmp;
+        }
+    }
+
+    /**
+     * Takes the next piece from the stock.
+     *
+     * @return the piece, or null if the stock is empty
+     */
+    public DominoPiece poll() {
+        if (cursor == pieces.length) {
+            return null;
+        }
+        final int piece = pieces[cursor++];
+        return new DominoPiece(piece / 7, piece % 7);
+    }
+
+    /**
+     * Verifies if the stock is empty.
+     *
+     * @return true if there are no pieces left, false otherwise
+     */
+    public boolean isEmpty() {
+        return cursor == pieces.length;
+    }
+
+    /**
+     * Gets the number of pieces left.
+     *
+     * @return the stock size
+     */
+    public int size() {
+        return pieces.length - cursor;
+    }
+
+    /**
+     * Gets the seed the stock was shuffled with.
+     *
+     * @return the seed, or empty if the pieces were given
+     */
+    public OptionalLong getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the pieces left.
+     *
+     * @return new pieces, in the order they will be taken
+     */
+    public List<DominoPiece> toList() {
+        final List<DominoPiece> list = new ArrayList<>(size());
+        for (int i = cursor; i < pieces.length; i++) {
+            list.add(new DominoPiece(pieces[i] / 7, pieces[i] % 7));
+        }
+        return list;
+    }
+}
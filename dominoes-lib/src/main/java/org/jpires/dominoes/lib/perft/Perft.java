@@ -0,0 +1,642 @@
+package org.jpires.dominoes.lib.perft;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.batch.BatchSimulation;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
+import org.jpires.dominoes.lib.model.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Perft enumerates the game tree from a position of a {@link Game}: it counts every sequence of moves (plays, draws
+ * from the stock and passes) of a given depth, to measure the size of the tree and to check a move generation.
+ * <p>
+ * The tree is enumerated on compact positions, as on {@link BatchSimulation}: the hands are masks of piece indexes
+ * (see {@link DominoPiece#toIndex()}), the board is just its two open ends, and the stock is a cursor on the order of
+ * the pieces left. The first plies are split into tasks of a work-stealing {@link ForkJoinPool}, and each task
+ * enumerates the rest of its subtree on its own, adding to the counters of its worker thread, which are only summed
+ * at the end. Optionally, the counts of the subtrees are memoized on a hash table, since the same position is reached
+ * by different orders of the same moves.
+ * <p>
+ * {@link #countReference(Game, int)} enumerates the same tree by the rules of {@link Game} itself, trying each move on
+ * a copy of the game, so a faster engine is checked against it by exact counts.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class Perft {
+
+    /**
+     * The pieces (as a mask of piece indexes) with each number.
+     */
+    private static final int[] PIECES_WITH = new int[7];
+
+    /**
+     * The sum of the two numbers of each piece (playing a piece on an end, the end becomes the sum minus the end).
+     */
+    private static final int[] PIECE_SUMS = new int[DominoPiece.NUMBER_OF_PIECES];
+
+    static {
+        for (int index = 0; index < DominoPiece.NUMBER_OF_PIECES; index++) {
+            final DominoPiece piece = DominoPiece.fromIndex(index);
+            PIECES_WITH[piece.getLeft()] |= 1 << index;
+            PIECES_WITH[piece.getRight()] |= 1 << index;
+            PIECE_SUMS[index] = piece.getLeft() + piece.getRight();
+        }
+    }
+
+    /**
+     * The kind of move of a play.
+     */
+    private static final int PLAY = 0;
+
+    /**
+     * The kind of move of a draw from the stock.
+     */
+    private static final int DRAW = 1;
+
+    /**
+     * The kind of move of a pass.
+     */
+    private static final int PASS = 2;
+
+    /**
+     * The remaining depth above which a subtree is split into tasks, instead of being enumerated by a single task.
+     */
+    private static final int SPLIT_DEPTH = 6;
+
+    /**
+     * The minimum remaining depth of a subtree to be memoized (smaller subtrees are cheaper to enumerate again).
+     */
+    private static final int MEMO_DEPTH = 2;
+
+    /**
+     * The maximum number of bits of the size of the hash table.
+     */
+    private static final int MAX_TABLE_BITS = 28;
+
+    /**
+     * The hand of the player 1.
+     */
+    private final int hand1;
+
+    /**
+     * The hand of the player 2.
+     */
+    private final int hand2;
+
+    /**
+     * The number on the left open end of the board.
+     */
+    private final int leftEnd;
+
+    /**
+     * The number on the right open end of the board.
+     */
+    private final int rightEnd;
+
+    /**
+     * The player about to move (0 for the player 1, 1 for the player 2).
+     */
+    private final int turn;
+
+    /**
+     * The pieces left on the stock (by their index), in the order they will be taken.
+     */
+    private final int[] stock;
+
+    /**
+     * Constructs the enumeration of the tree from the current position of a game.
+     *
+     * @param game the game (already started)
+     * @throws IllegalArgumentException if the game isn't started
+     */
+    public Perft(final Game game) {
+        Preconditions.checkArgument(game.getPlayingPlayer() != null, "The game isn't started");
+
+        final List<DominoPiece> board = game.getBoard();
+        this.hand1 = mask(game.getPlayer1().getPieces());
+        this.hand2 = mask(game.getPlayer2().getPieces());
+        this.leftEnd = board.get(0).getLeft();
+        this.rightEnd = board.get(board.size() - 1).getRight();
+        this.turn = game.getPlayingPlayer() == game.getPlayer1() ? 0 : 1;
+        this.stock = game.getStock().stream().mapToInt(DominoPiece::toIndex).toArray();
+    }
+
+    /**
+     * Counts the sequences of moves of a given depth, on a single thread and without memoization.
+     *
+     * @param depth the number of moves
+     * @return the counts
+     */
+    public PerftCounts count(final int depth) {
+        return count(depth, 1, 0);
+    }
+
+    /**
+     * Counts the sequences of moves of a given depth.
+     *
+     * @param depth     the number of moves
+     * @param threads   the number of worker threads
+     * @param tableBits the number of bits of the size of the hash table memoizing the subtrees (0 to not memoize)
+     * @return the counts
+     */
+    public PerftCounts count(final int depth, final int threads, final int tableBits) {
+        Preconditions.checkArgument(depth >= 0, "The depth can't be negative");
+        Preconditions.checkArgument(threads > 0, "There must be at least one thread");
+        Preconditions.checkArgument(tableBits >= 0 && tableBits <= MAX_TABLE_BITS,
+                "The table bits must be between 0 and " + MAX_TABLE_BITS);
+
+        final boolean over = isOver(hand1, hand2, leftEnd, rightEnd, 0);
+        if (depth == 0) {
+            return new PerftCounts(1, 0, 0, 0, over ? 1 : 0);
+        }
+        if (over) {
+            return new PerftCounts(0, 0, 0, 0, 0);
+        }
+
+        final Search search = new Search(tableBits);
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new SearchTask(search, hand1, hand2, leftEnd, rightEnd, 0, turn, depth));
+        } finally {
+            pool.shutdown();
+        }
+        return search.sum();
+    }
+
+    /**
+     * Counts the sequences of moves of a given depth from the current position of a game, by the rules of
+     * {@link Game}: each move is tried on a copy of the game (so the game itself isn't changed).
+     * A player draws a single piece per move, and passes when the stock is empty and none of his pieces is
+     * playable.
+     *
+     * @param game  the game (already started)
+     * @param depth the number of moves
+     * @return the counts
+     */
+    public static PerftCounts countReference(final Game game, final int depth) {
+        Preconditions.checkArgument(game.getPlayingPlayer() != null, "The game isn't started");
+        Preconditions.checkArgument(depth >= 0, "The depth can't be negative");
+
+        final Counters counters = new Counters();
+        if (depth == 0) {
+            counters.nodes++;
+            counters.gamesOver += game.isOver() ? 1 : 0;
+        } else if (!game.isOver()) {
+            searchReference(game, depth, counters);
+        }
+        return counters.toCounts();
+    }
+
+    /**
+     * Enumerates the moves of a game not over, by the rules of {@link Game}.
+     *
+     * @param game     the game
+     * @param depth    the remaining number of moves (at least 1)
+     * @param counters the counters
+     */
+    private static void searchReference(final Game game, final int depth, final Counters counters) {
+        final Player player = game.getPlayingPlayer();
+        final long playableMoves = game.getPlayableMoves(player);
+        if (playableMoves != 0) {
+            for (int index = 0; index < player.getPieces().size(); index++) {
+                for (final Place place : Place.values()) {
+                    if (Game.isPlayableMove(playableMoves, index, place)) {
+                        final Game child = game.copy();
+                        final Player childPlayer = child.getPlayingPlayer();
+                        child.play(childPlayer, childPlayer.getPiece(index), place);
+                        visitReference(child, depth - 1, PLAY, counters);
+                    }
+                }
+            }
+        } else if (game.hasStock()) {
+            final Game child = game.copy();
+            child.getPlayingPlayer().givePiece(child.getFromStock());
+            visitReference(child, depth - 1, DRAW, counters);
+        } else {
+            final Game child = game.copy();
+            child.switchPlayer();
+            visitReference(child, depth - 1, PASS, counters);
+        }
+    }
+
+    /**
+     * Visits the game after a move, by the rules of {@link Game}.
+     *
+     * @param game     the game after the move
+     * @param depth    the remaining number of moves
+     * @param kind     the kind of the move
+     * @param counters the counters
+     */
+    private static void visitReference(final Game game, final int depth, final int kind, final Counters counters) {
+        if (depth == 0) {
+            counters.count(kind, game.isOver());
+        } else if (!game.isOver()) {
+            searchReference(game, depth, counters);
+        }
+    }
+
+    /**
+     * Verifies if a compact position is over, by the rules of {@link Game#isOver()}.
+     *
+     * @param hand1    the hand of the player 1
+     * @param hand2    the hand of the player 2
+     * @param leftEnd  the number on the left open end
+     * @param rightEnd the number on the right open end
+     * @param cursor   the cursor of the stock
+     * @return true if the game is over, false otherwise
+     */
+    private boolean isOver(final int hand1, final int hand2, final int leftEnd, final int rightEnd, final int cursor) {
+        return hand1 == 0 || hand2 == 0 || cursor == stock.length
+                && ((hand1 | hand2) & (PIECES_WITH[leftEnd] | PIECES_WITH[rightEnd])) == 0;
+    }
+
+    /**
+     * Gets the mask of a list of pieces, by their index.
+     *
+     * @param pieces the pieces
+     * @return the mask of the pieces
+     */
+    private static int mask(final List<DominoPiece> pieces) {
+        int mask = 0;
+        for (final DominoPiece piece : pieces) {
+            mask |= 1 << piece.toIndex();
+        }
+        return mask;
+    }
+
+    /**
+     * The counters of the sequences of moves, of a single thread.
+     */
+    private static final class Counters {
+
+        /**
+         * The number of sequences of moves.
+         */
+        private long nodes;
+
+        /**
+         * The number of sequences ending with a play.
+         */
+        private long plays;
+
+        /**
+         * The number of sequences ending with a draw.
+         */
+        private long draws;
+
+        /**
+         * The number of sequences ending with a pass.
+         */
+        private long passes;
+
+        /**
+         * The number of sequences ending the game.
+         */
+        private long gamesOver;
+
+        /**
+         * Counts a sequence of moves.
+         *
+         * @param kind the kind of its last move
+         * @param over if the game is over after the sequence
+         */
+        private void count(final int kind, final boolean over) {
+            nodes++;
+            if (kind == PLAY) {
+                plays++;
+            } else if (kind == DRAW) {
+                draws++;
+            } else {
+                passes++;
+            }
+            if (over) {
+                gamesOver++;
+            }
+        }
+
+        /**
+         * Adds the counts of a memoized subtree.
+         *
+         * @param entry the entry of the subtree
+         */
+        private void add(final Entry entry) {
+            nodes += entry.nodes;
+            plays += entry.plays;
+            draws += entry.draws;
+            passes += entry.passes;
+            gamesOver += entry.gamesOver;
+        }
+
+        /**
+         * Gets the counts.
+         *
+         * @return the counts
+         */
+        private PerftCounts toCounts() {
+            return new PerftCounts(nodes, plays, draws, passes, gamesOver);
+        }
+    }
+
+    /**
+     * An entry of the hash table: the counts of a subtree, by the key of its position and remaining depth.
+     */
+    private static final class Entry {
+
+        /**
+         * The key of the position (the hands, the ends and the turn).
+         */
+        private final long position;
+
+        /**
+         * The cursor of the stock and the remaining depth.
+         */
+        private final long cursorAndDepth;
+
+        /**
+         * The counts of the subtree.
+         */
+        private final long nodes, plays, draws, passes, gamesOver;
+
+        /**
+         * Constructs an entry.
+         *
+         * @param position       the key of the position
+         * @param cursorAndDepth the cursor of the stock and the remaining depth
+         * @param counters       the counters after the subtree was enumerated
+         * @param before         the counts before the subtree was enumerated
+         */
+        private Entry(final long position, final long cursorAndDepth, final Counters counters, final PerftCounts before) {
+            this.position = position;
+            this.cursorAndDepth = cursorAndDepth;
+            this.nodes = counters.nodes - before.getNodes();
+            this.plays = counters.plays - before.getPlays();
+            this.draws = counters.draws - before.getDraws();
+            this.passes = counters.passes - before.getPasses();
+            this.gamesOver = counters.gamesOver - before.getGamesOver();
+        }
+    }
+
+    /**
+     * A single enumeration: the counters of each worker thread and the hash table.
+     */
+    private final class Search {
+
+        /**
+         * The counters of all worker threads.
+         */
+        private final Queue<Counters> allCounters = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The counters of each worker thread.
+         */
+        private final ThreadLocal<Counters> counters = ThreadLocal.withInitial(() -> {
+            final Counters threadCounters = new Counters();
+            allCounters.add(threadCounters);
+            return threadCounters;
+        });
+
+        /**
+         * The hash table (null if the subtrees aren't memoized).
+         * An entry is replaced by any other with the same index: the entries are immutable, so they are shared by
+         * the threads without any lock.
+         */
+        private final AtomicReferenceArray<Entry> table;
+
+        /**
+         * The number of bits of the size of the hash table.
+         */
+        private final int tableBits;
+
+        /**
+         * Constructs a search.
+         *
+         * @param tableBits the number of bits of the size of the hash table (0 to not memoize)
+         */
+        private Search(final int tableBits) {
+            this.table = tableBits > 0 ? new AtomicReferenceArray<>(1 << tableBits) : null;
+            this.tableBits = tableBits;
+        }
+
+        /**
+         * Enumerates the moves of a position not over.
+         *
+         * @param hand1    the hand of the player 1
+         * @param hand2    the hand of the player 2
+         * @param leftEnd  the number on the left open end
+         * @param rightEnd the number on the right open end
+         * @param cursor   the cursor of the stock
+         * @param turn     the player about to move
+         * @param depth    the remaining number of moves (at least 1)
+         * @param counters the counters of this thread
+         * @param tasks    the tasks to add the subtrees to be split, or null to enumerate them on this thread
+         */
+        private void search(final int hand1, final int hand2, final int leftEnd, final int rightEnd, final int cursor,
+                            final int turn, final int depth, final Counters counters, final List<SearchTask> tasks) {
+            if (table == null || tasks != null || depth < MEMO_DEPTH) {
+                expand(hand1, hand2, leftEnd, rightEnd, cursor, turn, depth, counters, tasks);
+                return;
+            }
+
+            final long position = hand1 | (long) hand2 << 28 | (long) leftEnd << 56 | (long) rightEnd << 59
+                    | (long) turn << 62;
+            final long cursorAndDepth = cursor | (long) depth << 5;
+            final int index = (int) ((position ^ cursorAndDepth * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L
+                    >>> (64 - tableBits));
+            final Entry entry = table.get(index);
+            if (entry != null && entry.position == position && entry.cursorAndDepth == cursorAndDepth) {
+                counters.add(entry);
+                return;
+            }
+
+            final PerftCounts before = counters.toCounts();
+            expand(hand1, hand2, leftEnd, rightEnd, cursor, turn, depth, counters, null);
+            table.set(index, new Entry(position, cursorAndDepth, counters, before));
+        }
+
+        /**
+         * Generates the moves of a position not over (the same ones of {@link Game}), and visits each position after
+         * a move.
+         *
+         * @param hand1    the hand of the player 1
+         * @param hand2    the hand of the player 2
+         * @param leftEnd  the number on the left open end
+         * @param rightEnd the number on the right open end
+         * @param cursor   the cursor of the stock
+         * @param turn     the player about to move
+         * @param depth    the remaining number of moves (at least 1)
+         * @param counters the counters of this thread
+         * @param tasks    the tasks to add the subtrees to be split, or null to enumerate them on this thread
+         */
+        private void expand(final int hand1, final int hand2, final int leftEnd, final int rightEnd, final int cursor,
+                            final int turn, final int depth, final Counters counters, final List<SearchTask> tasks) {
+            final int hand = turn == 0 ? hand1 : hand2;
+            final int playableLeft = hand & PIECES_WITH[leftEnd];
+            final int playableRight = hand & PIECES_WITH[rightEnd];
+
+            if ((playableLeft | playableRight) != 0) {
+                for (int pieces = playableLeft; pieces != 0; pieces &= pieces - 1) {
+                    final int index = Integer.numberOfTrailingZeros(pieces);
+                    final int bit = 1 << index;
+                    visit(turn == 0 ? hand1 & ~bit : hand1, turn == 1 ? hand2 & ~bit : hand2,
+                            PIECE_SUMS[index] - leftEnd, rightEnd, cursor, 1 - turn, depth - 1, PLAY, counters, tasks);
+                }
+                for (int pieces = playableRight; pieces != 0; pieces &= pieces - 1) {
+                    final int index = Integer.numberOfTrailingZeros(pieces);
+                    final int bit = 1 << index;
+                    visit(turn == 0 ? hand1 & ~bit : hand1, turn == 1 ? hand2 & ~bit : hand2,
+                            leftEnd, PIECE_SUMS[index] - rightEnd, cursor, 1 - turn, depth - 1, PLAY, counters, tasks);
+                }
+            } else if (cursor < stock.length) {
+                final int bit = 1 << stock[cursor];
+                visit(turn == 0 ? hand1 | bit : hand1, turn == 1 ? hand2 | bit : hand2,
+                        leftEnd, rightEnd, cursor + 1, turn, depth - 1, DRAW, counters, tasks);
+            } else {
+                visit(hand1, hand2, leftEnd, rightEnd, cursor, 1 - turn, depth - 1, PASS, counters, tasks);
+            }
+        }
+
+        /**
+         * Visits the position after a move: it's counted if it's at the depth, or its subtree is enumerated if the
+         * game isn't over.
+         *
+         * @param hand1    the hand of the player 1
+         * @param hand2    the hand of the player 2
+         * @param leftEnd  the number on the left open end
+         * @param rightEnd the number on the right open end
+         * @param cursor   the cursor of the stock
+         * @param turn     the player about to move
+         * @param depth    the remaining number of moves
+         * @param kind     the kind of the move
+         * @param counters the counters of this thread
+         * @param tasks    the tasks to add the subtrees to be split, or null to enumerate them on this thread
+         */
+        private void visit(final int hand1, final int hand2, final int leftEnd, final int rightEnd, final int cursor,
+                           final int turn, final int depth, final int kind, final Counters counters,
+                           final List<SearchTask> tasks) {
+            final boolean over = isOver(hand1, hand2, leftEnd, rightEnd, cursor);
+            if (depth == 0) {
+                counters.count(kind, over);
+            } else if (!over) {
+                if (tasks != null) {
+                    tasks.add(new SearchTask(this, hand1, hand2, leftEnd, rightEnd, cursor, turn, depth));
+                } else {
+                    search(hand1, hand2, leftEnd, rightEnd, cursor, turn, depth, counters, null);
+                }
+            }
+        }
+
+        /**
+         * Sums the counters of all worker threads.
+         *
+         * @return the counts
+         */
+        private PerftCounts sum() {
+            final Counters total = new Counters();
+            for (final Counters threadCounters : allCounters) {
+                total.nodes += threadCounters.nodes;
+                total.plays += threadCounters.plays;
+                total.draws += threadCounters.draws;
+                total.passes += threadCounters.passes;
+                total.gamesOver += threadCounters.gamesOver;
+            }
+            return total.toCounts();
+        }
+    }
+
+    /**
+     * A task enumerating the subtree of a position not over: it's split into a task per move while the subtree is
+     * deep enough, otherwise it's enumerated on the worker thread running the task.
+     */
+    private static final class SearchTask extends RecursiveAction {
+
+        /**
+         * The version of the serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The search.
+         */
+        private final Search search;
+
+        /**
+         * The position.
+         */
+        private final int hand1, hand2, leftEnd, rightEnd, cursor, turn;
+
+        /**
+         * The remaining number of moves.
+         */
+        private final int depth;
+
+        /**
+         * Constructs a task.
+         *
+         * @param search   the search
+         * @param hand1    the hand of the player 1
+         * @param hand2    the hand of the player 2
+         * @param leftEnd  the number on the left open end
+         * @param rightEnd the number on the right open end
+         * @param cursor   the cursor of the stock
+         * @param turn     the player about to move
+         * @param depth    the remaining number of moves (at least 1)
+         */
+        private SearchTask(final Search search, final int hand1, final int hand2, final int leftEnd,
+                           final int rightEnd, final int cursor, final int turn, final int depth) {
+            this.search = search;
+            this.hand1 = hand1;
+            this.hand2 = hand2;
+            this.leftEnd = leftEnd;
+            this.rightEnd = rightEnd;
+            this.cursor = cursor;
+            this.turn = turn;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            final Counters counters = search.counters.get();
+            if (depth <= SPLIT_DEPTH) {
+                search.search(hand1, hand2, leftEnd, rightEnd, cursor, turn, depth, counters, null);
+                return;
+            }
+
+            final List<SearchTask> tasks = new ArrayList<>();
+            search.search(hand1, hand2, leftEnd, rightEnd, cursor, turn, depth, counters, tasks);
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Counts the sequences of moves from a new game, and prints the counts and the speed.
+     *
+     * @param args the depth, the seed of the game, the number of threads and the number of bits of the size of the
+     *             hash table (36, 1, the number of processors and 20 by default)
+     */
+    public static void main(final String[] args) {
+        final int depth = args.length > 0 ? Integer.parseInt(args[0]) : 36;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        final int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        final int tableBits = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        final Game game = new Game(new Player("p1"), new Player("p2"), seed);
+        game.start();
+
+        final long start = System.nanoTime();
+        final PerftCounts counts = new Perft(game).count(depth, threads, tableBits);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(counts);
+        System.out.printf("Counted %d nodes in %.2f s (%.0f nodes per second)%n", counts.getNodes(), seconds,
+                counts.getNodes() / seconds);
+    }
+}
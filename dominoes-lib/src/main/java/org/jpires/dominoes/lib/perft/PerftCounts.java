@@ -0,0 +1,126 @@
+package org.jpires.dominoes.lib.perft;
+
+import java.util.Objects;
+
+/**
+ * Perft Counts are the counts of an enumeration of the game tree (see {@link Perft}) to a given depth.
+ * <p>
+ * Only the sequences of exactly that many moves are counted (a sequence ending the game earlier has no node at
+ * that depth), and each one is counted by its last move.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public final class PerftCounts {
+
+    /**
+     * The number of sequences of moves (the nodes at the depth).
+     */
+    private final long nodes;
+
+    /**
+     * The number of sequences ending with a play.
+     */
+    private final long plays;
+
+    /**
+     * The number of sequences ending with a draw from the stock.
+     */
+    private final long draws;
+
+    /**
+     * The number of sequences ending with a pass.
+     */
+    private final long passes;
+
+    /**
+     * The number of sequences ending the game.
+     */
+    private final long gamesOver;
+
+    /**
+     * Constructs the counts.
+     *
+     * @param nodes     the number of sequences of moves
+     * @param plays     the number of sequences ending with a play
+     * @param draws     the number of sequences ending with a draw from the stock
+     * @param passes    the number of sequences ending with a pass
+     * @param gamesOver the number of sequences ending the game
+     */
+    public PerftCounts(final long nodes, final long plays, final long draws, final long passes, final long gamesOver) {
+        this.nodes = nodes;
+        this.plays = plays;
+        this.draws = draws;
+        this.passes = passes;
+        this.gamesOver = gamesOver;
+    }
+
+    /**
+     * Gets the number of sequences of moves (the nodes at the depth).
+     *
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the number of sequences ending with a play.
+     *
+     * @return the number of plays
+     */
+    public long getPlays() {
+        return plays;
+    }
+
+    /**
+     * Gets the number of sequences ending with a draw from the stock.
+     *
+     * @return the number of draws
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * Gets the number of sequences ending with a pass.
+     *
+     * @return the number of passes
+     */
+    public long getPasses() {
+        return passes;
+    }
+
+    /**
+     * Gets the number of sequences ending the game.
+     *
+     * @return the number of games over
+     */
+    public long getGamesOver() {
+        return gamesOver;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final PerftCounts that = (PerftCounts) o;
+        return nodes == that.nodes && plays == that.plays && draws == that.draws && passes == that.passes
+                && gamesOver == that.gamesOver;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nodes, plays, draws, passes, gamesOver);
+    }
+
+    @Override
+    public String toString() {
+        return "PerftCounts{" +
+                "nodes=" + nodes +
+                ", plays=" + plays +
+                ", draws=" + draws +
+                ", passes=" + passes +
+                ", gamesOver=" + gamesOver +
+                '}';
+    }
+}
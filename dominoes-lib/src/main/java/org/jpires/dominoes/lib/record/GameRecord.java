@@ -0,0 +1,444 @@
+package org.jpires.dominoes.lib.record;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
+import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.model.Stock;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Game Record is the compact representation of a game: the initial stock, the ids of the players and one byte per
+ * move, so a game is able to be replayed move by move.
+ * <p>
+ * The initial stock is recorded either by the seed it was shuffled with (see {@link Game#shuffledPieces(long)}) or,
+ * if it wasn't shuffled by a seed, by its permutation of the 28 pieces.
+ * <p>
+ * Each move is a byte:
+ * - {@code 2 * index + place} (0-55) for a piece played, where {@code index} is the index of the piece
+ * (see {@link DominoPiece#toIndex()}) and {@code place} is 0 for the left and 1 for the right;
+ * - {@link #DRAW} for a piece drawn from the stock by the playing player;
+ * - {@link #PASS} for a player passing their turn.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public final class GameRecord {
+
+    /**
+     * The default number of pieces given to each player.
+     */
+    public static final int DEFAULT_PIECES_PER_PLAYER = 7;
+
+    /**
+     * The move of drawing a piece from the stock.
+     */
+    public static final byte DRAW = 2 * DominoPiece.NUMBER_OF_PIECES;
+
+    /**
+     * The move of passing the turn.
+     */
+    public static final byte PASS = DRAW + 1;
+
+    /**
+     * The number of bytes of an encoded permutation of the pieces (28! is lower than 2^104).
+     */
+    static final int PERMUTATION_BYTES = 13;
+
+    /**
+     * The maximum number of moves of a game: each piece is drawn and played at most once, and each pass but the last
+     * is followed by a play (the game is over once both players are unable to play and the stock is empty).
+     */
+    static final int MAX_MOVES = 3 * DominoPiece.NUMBER_OF_PIECES + 1;
+
+    /**
+     * The id of the player 1.
+     */
+    private final long player1Id;
+
+    /**
+     * The id of the player 2.
+     */
+    private final long player2Id;
+
+    /**
+     * The number of pieces given to each player.
+     */
+    private final int piecesPerPlayer;
+
+    /**
+     * Indicates if the stock was shuffled by a seed.
+     */
+    private final boolean seeded;
+
+    /**
+     * The seed of the stock (only meaningful if the stock was shuffled by a seed).
+     */
+    private final long seed;
+
+    /**
+     * The index of each piece of the initial stock, in the order they are taken.
+     */
+    private final int[] stock;
+
+    /**
+     * The moves, one byte each.
+     */
+    private final byte[] moves;
+
+    /**
+     * Constructs a game record.
+     *
+     * @param player1Id       the id of the player 1
+     * @param player2Id       the id of the player 2
+     * @param piecesPerPlayer the number of pieces given to each player
+     * @param seeded          indicates if the stock was shuffled by a seed
+     * @param seed            the seed of the stock
+     * @param stock           the index of each piece of the initial stock
+     * @param moves           the moves
+     */
+    private GameRecord(final long player1Id, final long player2Id, final int piecesPerPlayer, final boolean seeded,
+                       final long seed, final int[] stock, final byte[] moves) {
+        Preconditions.checkArgument(player1Id >= 0 && player2Id >= 0, "The ids of the players can't be negative");
+        Preconditions.checkArgument(piecesPerPlayer >= 1 && 2 * piecesPerPlayer < DominoPiece.NUMBER_OF_PIECES,
+                "The number of pieces per player should be in interval [1,13]");
+        Preconditions.checkArgument(moves.length <= MAX_MOVES, "A game has at most %s moves", MAX_MOVES);
+        for (final byte move : moves) {
+            Preconditions.checkArgument(move >= 0 && move <= PASS, "Invalid move %s", move);
+        }
+        this.player1Id = player1Id;
+        this.player2Id = player2Id;
+        this.piecesPerPlayer = piecesPerPlayer;
+        this.seeded = seeded;
+        this.seed = seed;
+        this.stock = stock;
+        this.moves = moves.clone();
+    }
+
+    /**
+     * Creates the record of a game whose stock was shuffled by a seed.
+     *
+     * @param player1Id       the id of the player 1
+     * @param player2Id       the id of the player 2
+     * @param piecesPerPlayer the number of pieces given to each player
+     * @param seed            the seed of the stock (see {@link Game#shuffledPieces(long)})
+     * @param moves           the moves
+     * @return the game record
+     */
+    public static GameRecord ofSeed(final long player1Id, final long player2Id, final int piecesPerPlayer,
+                                    final long seed, final byte[] moves) {
+        final int[] stock = new int[DominoPiece.NUMBER_OF_PIECES];
+        Stock.shuffleIndexes(seed, stock);
+        return new GameRecord(player1Id, player2Id, piecesPerPlayer, true, seed, stock, moves);
+    }
+
+    /**
+     * Creates the record of a game given its initial stock.
+     *
+     * @param player1Id       the id of the player 1
+     * @param player2Id       the id of the player 2
+     * @param piecesPerPlayer the number of pieces given to each player
+     * @param stock           the pieces of the initial stock, in the order they are taken
+     * @param moves           the moves
+     * @return the game record
+     * @throws IllegalArgumentException if the stock doesn't have each of the 28 pieces exactly once
+     */
+    public static GameRecord ofStock(final long player1Id, final long player2Id, final int piecesPerPlayer,
+                                     final List<DominoPiece> stock, final byte[] moves) {
+        return new GameRecord(player1Id, player2Id, piecesPerPlayer, false, 0, indexesOf(stock), moves);
+    }
+
+    /**
+     * Encodes a piece played as a move.
+     *
+     * @param piece the piece played
+     * @param place the place (left or right) where it was played
+     * @return the move
+     */
+    public static byte play(final DominoPiece piece, final Place place) {
+        return (byte) (2 * piece.toIndex() + (Place.L.equals(place) ? 0 : 1));
+    }
+
+    /**
+     * Verifies if a move is a piece played (and not a draw or a pass).
+     *
+     * @param move the move
+     * @return true if a piece was played, false otherwise
+     */
+    public static boolean isPlay(final byte move) {
+        return move >= 0 && move < DRAW;
+    }
+
+    /**
+     * Gets the piece played on a move.
+     *
+     * @param move the move
+     * @return a new piece, equal to the one played
+     * @throws IllegalArgumentException if the move is not a piece played
+     */
+    public static DominoPiece getPiece(final byte move) {
+        Preconditions.checkArgument(isPlay(move), "The move %s is not a piece played", move);
+        return DominoPiece.fromIndex(move >> 1);
+    }
+
+    /**
+     * Gets the place where a piece was played on a move.
+     *
+     * @param move the move
+     * @return the place (left or right)
+     * @throws IllegalArgumentException if the move is not a piece played
+     */
+    public static Place getPlace(final byte move) {
+        Preconditions.checkArgument(isPlay(move), "The move %s is not a piece played", move);
+        return (move & 1) == 0 ? Place.L : Place.R;
+    }
+
+    /**
+     * Replays the game, with players named after their ids.
+     *
+     * @return the game, after the last move recorded
+     */
+    public Game replay() {
+        return replay(new Player(Long.toString(player1Id)), new Player(Long.toString(player2Id)));
+    }
+
+    /**
+     * Replays the game with the given players.
+     *
+     * @param player1 the player 1 (with no pieces)
+     * @param player2 the player 2 (with no pieces)
+     * @return the game, after the last move recorded
+     * @throws IllegalArgumentException if a move is not valid on the game
+     */
+    public Game replay(final Player player1, final Player player2) {
+        return replay(player1, player2, (game, moveIndex) -> {
+        });
+    }
+
+    /**
+     * Replays the game with the given players, notifying a listener before each move.
+     *
+     * @param player1    the player 1 (with no pieces)
+     * @param player2    the player 2 (with no pieces)
+     * @param beforeMove the listener, given the game and the index of the move about to be made
+     * @return the game, after the last move recorded
+     * @throws IllegalArgumentException if a move is not valid on the game
+     */
+    public Game replay(final Player player1, final Player player2, final ObjIntConsumer<Game> beforeMove) {
+        final Game game = seeded ? new Game(player1, player2, seed) : new Game(player1, player2, getStock());
+        game.start(piecesPerPlayer);
+
+        for (int moveIndex = 0; moveIndex < moves.length; moveIndex++) {
+            beforeMove.accept(game, moveIndex);
+
+            final byte move = moves[moveIndex];
+            final Player player = game.getPlayingPlayer();
+            if (move == DRAW) {
+                Preconditions.checkArgument(game.hasStock(), "A piece was drawn from an empty stock");
+                player.givePiece(game.getFromStock());
+            } else if (move == PASS) {
+                game.switchPlayer();
+            } else {
+                final int index = player.getPieces().indexOf(getPiece(move));
+                Preconditions.checkArgument(index >= 0, "The player doesn't have the piece %s", getPiece(move));
+                game.play(player, player.getPiece(index), getPlace(move));
+            }
+        }
+
+        return game;
+    }
+
+    /**
+     * Gets the id of the player 1.
+     *
+     * @return the id of the player 1
+     */
+    public long getPlayer1Id() {
+        return player1Id;
+    }
+
+    /**
+     * Gets the id of the player 2.
+     *
+     * @return the id of the player 2
+     */
+    public long getPlayer2Id() {
+        return player2Id;
+    }
+
+    /**
+     * Gets the number of pieces given to each player.
+     *
+     * @return the number of pieces per player
+     */
+    public int getPiecesPerPlayer() {
+        return piecesPerPlayer;
+    }
+
+    /**
+     * Verifies if the stock was shuffled by a seed.
+     *
+     * @return true if the stock is recorded by its seed, false if it's recorded by its permutation
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Gets the seed of the stock.
+     *
+     * @return the seed (only meaningful if {@link #isSeeded()})
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the initial stock.
+     *
+     * @return new pieces, in the order they are taken from the stock
+     */
+    public List<DominoPiece> getStock() {
+        final List<DominoPiece> pieces = new ArrayList<>(stock.length);
+        for (final int index : stock) {
+            pieces.add(DominoPiece.fromIndex(index));
+        }
+        return pieces;
+    }
+
+    /**
+     * Gets the number of moves.
+     *
+     * @return the number of moves
+     */
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * Gets a move.
+     *
+     * @param index the index of the move
+     * @return the move
+     */
+    public byte getMove(final int index) {
+        return moves[index];
+    }
+
+    /**
+     * Gets the moves.
+     *
+     * @return a copy of the moves
+     */
+    public byte[] getMoves() {
+        return moves.clone();
+    }
+
+    /**
+     * Encodes the permutation of the initial stock as a number (its rank on the lexicographic order of the
+     * permutations), in {@link #PERMUTATION_BYTES} big-endian bytes.
+     *
+     * @return the encoded permutation
+     */
+    byte[] encodeStock() {
+        final boolean[] taken = new boolean[DominoPiece.NUMBER_OF_PIECES];
+        BigInteger rank = BigInteger.ZERO;
+        for (int i = 0; i < stock.length; i++) {
+            //The Lehmer code: the number of pieces not taken yet with a lower index
+            int smaller = 0;
+            for (int index = 0; index < stock[i]; index++) {
+                if (!taken[index]) {
+                    smaller++;
+                }
+            }
+            taken[stock[i]] = true;
+            rank = rank.multiply(BigInteger.valueOf(stock.length - i)).add(BigInteger.valueOf(smaller));
+        }
+
+        final byte[] bytes = rank.toByteArray();
+        final byte[] encoded = new byte[PERMUTATION_BYTES];
+        final int length = Math.min(bytes.length, PERMUTATION_BYTES);
+        System.arraycopy(bytes, bytes.length - length, encoded, PERMUTATION_BYTES - length, length);
+        return encoded;
+    }
+
+    /**
+     * Decodes the permutation of an initial stock (see {@link #encodeStock()}).
+     *
+     * @param encoded the encoded permutation
+     * @return the pieces of the stock, in the order they are taken
+     * @throws IllegalArgumentException if the bytes are not a valid permutation
+     */
+    static List<DominoPiece> decodeStock(final byte[] encoded) {
+        BigInteger rank = new BigInteger(1, encoded);
+        final int[] lehmer = new int[DominoPiece.NUMBER_OF_PIECES];
+        for (int i = lehmer.length - 1; i >= 0; i--) {
+            final BigInteger[] division = rank.divideAndRemainder(BigInteger.valueOf(lehmer.length - i));
+            lehmer[i] = division[1].intValue();
+            rank = division[0];
+        }
+        Preconditions.checkArgument(rank.signum() == 0, "Invalid permutation of the stock");
+
+        final List<Integer> remaining = new ArrayList<>(DominoPiece.NUMBER_OF_PIECES);
+        for (int index = 0; index < DominoPiece.NUMBER_OF_PIECES; index++) {
+            remaining.add(index);
+        }
+        final List<DominoPiece> pieces = new ArrayList<>(DominoPiece.NUMBER_OF_PIECES);
+        for (final int code : lehmer) {
+            pieces.add(DominoPiece.fromIndex(remaining.remove(code)));
+        }
+        return pieces;
+    }
+
+    /**
+     * Gets the index of each piece of a stock.
+     *
+     * @param stock the pieces of the stock
+     * @return the indexes
+     * @throws IllegalArgumentException if the stock doesn't have each of the 28 pieces exactly once
+     */
+    private static int[] indexesOf(final List<DominoPiece> stock) {
+        Preconditions.checkArgument(stock.size() == DominoPiece.NUMBER_OF_PIECES, "The stock should have 28 pieces");
+        final boolean[] seen = new boolean[DominoPiece.NUMBER_OF_PIECES];
+        final int[] indexes = new int[stock.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = stock.get(i).toIndex();
+            Preconditions.checkArgument(!seen[indexes[i]], "The piece %s is repeated on the stock", stock.get(i));
+            seen[indexes[i]] = true;
+        }
+        return indexes;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final GameRecord that = (GameRecord) o;
+
+        return player1Id == that.player1Id && player2Id == that.player2Id && piecesPerPlayer == that.piecesPerPlayer
+                && seeded == that.seeded && seed == that.seed && Arrays.equals(stock, that.stock)
+                && Arrays.equals(moves, that.moves);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(stock) + Arrays.hashCode(moves);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GameRecord{player1Id=%d, player2Id=%d, %s, moves=%d}", player1Id, player2Id,
+                seeded ? "seed=" + seed : "stock=" + getStock(), moves.length);
+    }
+}
@@ -0,0 +1,168 @@
+package org.jpires.dominoes.lib.record;
+
+import com.google.common.io.CountingInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Game Record Reader reads the {@link GameRecord}s written by a {@link GameRecordWriter}, one at a time, so a
+ * stream of any size is able to be read.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class GameRecordReader implements Closeable {
+
+    /**
+     * The number of bytes read from the stream.
+     */
+    private final CountingInputStream counter;
+
+    /**
+     * The stream to read from.
+     */
+    private final DataInputStream in;
+
+    /**
+     * Constructs a reader, reading the header of the stream.
+     *
+     * @param in the stream to read from
+     * @throws IOException if the header can't be read, or it's not the header of a stream of game records
+     */
+    public GameRecordReader(final InputStream in) throws IOException {
+        this(in, true);
+    }
+
+    /**
+     * Constructs a reader.
+     *
+     * @param in     the stream to read from
+     * @param header indicates if the stream starts with the header (or with a record)
+     * @throws IOException if the header can't be read, or it's not the header of a stream of game records
+     */
+    private GameRecordReader(final InputStream in, final boolean header) throws IOException {
+        this.counter = new CountingInputStream(new BufferedInputStream(in));
+        this.in = new DataInputStream(counter);
+        if (header) {
+            checkMagic(this.in.readInt());
+        }
+    }
+
+    /**
+     * Checks the header of a stream of game records.
+     *
+     * @param magic the header read
+     * @throws IOException if it's not the header of a stream of game records
+     */
+    static void checkMagic(final int magic) throws IOException {
+        if (magic != GameRecordWriter.MAGIC) {
+            throw new IOException("Not a stream of game records");
+        }
+    }
+
+    /**
+     * Reads the game record at a certain offset of a file (e.g. given by a {@link PositionIndex}).
+     *
+     * @param file   the file of game records
+     * @param offset the offset of the record (see {@link #getOffset()})
+     * @return the game record
+     * @throws IOException if the record can't be read
+     */
+    public static GameRecord readAt(final Path file, final long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final GameRecordReader reader = new GameRecordReader(Channels.newInputStream(channel.position(offset)), false);
+            final GameRecord record = reader.read();
+            if (record == null) {
+                throw new EOFException("There's no game record at the offset " + offset);
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Gets the offset of the next record on the stream.
+     *
+     * @return the offset, in bytes, from the beginning of the stream
+     */
+    public long getOffset() {
+        return counter.getCount();
+    }
+
+    /**
+     * Reads the next game record.
+     *
+     * @return the game record, or null if the end of the stream was reached
+     * @throws IOException if the record can't be read (e.g. the stream ends in the middle of it)
+     */
+    public GameRecord read() throws IOException {
+        final int flags = in.read();
+        if (flags < 0) {
+            return null;
+        }
+
+        final long player1Id = readVarLong();
+        final long player2Id = readVarLong();
+        final int piecesPerPlayer = (flags & GameRecordWriter.CUSTOM_PIECES) != 0
+                ? in.readUnsignedByte() : GameRecord.DEFAULT_PIECES_PER_PLAYER;
+
+        final long seed;
+        final byte[] stock;
+        if ((flags & GameRecordWriter.SEEDED) != 0) {
+            seed = in.readLong();
+            stock = null;
+        } else {
+            seed = 0;
+            stock = new byte[GameRecord.PERMUTATION_BYTES];
+            in.readFully(stock);
+        }
+
+        final long moveCount = readVarLong();
+        if (moveCount > GameRecord.MAX_MOVES) {
+            throw new IOException("Invalid number of moves: " + moveCount);
+        }
+        final byte[] moves = new byte[(int) moveCount];
+        in.readFully(moves);
+
+        try {
+            return stock == null
+                    ? GameRecord.ofSeed(player1Id, player2Id, piecesPerPlayer, seed, moves)
+                    : GameRecord.ofStock(player1Id, player2Id, piecesPerPlayer, GameRecord.decodeStock(stock), moves);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid game record", e);
+        }
+    }
+
+    /**
+     * Reads a number written with 7 bits per byte (see {@link GameRecordWriter}).
+     *
+     * @return the number
+     * @throws IOException if the number can't be read
+     */
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.read();
+            if (b < 0) {
+                throw new EOFException("The stream ended in the middle of a game record");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid variable-length number");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
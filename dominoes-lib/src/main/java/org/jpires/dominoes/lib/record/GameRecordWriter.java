@@ -0,0 +1,106 @@
+package org.jpires.dominoes.lib.record;
+
+import org.jpires.dominoes.lib.Game;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Game Record Writer writes {@link GameRecord}s to a stream, one after the other.
+ * <p>
+ * The stream starts with the {@link #MAGIC} header, and each record is written as:
+ * - a flags byte ({@link #SEEDED}, {@link #CUSTOM_PIECES});
+ * - the ids of the player 1 and the player 2, as variable-length numbers (7 bits per byte);
+ * - the number of pieces per player, only if it isn't the default;
+ * - the seed the stock was shuffled with (8 bytes, see {@link Game#shuffledPieces(long)}), or the permutation of the stock (13 bytes);
+ * - the number of moves, as a variable-length number, followed by the moves (one byte each).
+ * <p>
+ * A typical game, with small player ids and a seeded stock, takes 20 to 40 bytes.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class GameRecordWriter implements Closeable, Flushable {
+
+    /**
+     * The header of a stream of game records.
+     */
+    static final int MAGIC = 0x444D5231;
+
+    /**
+     * Flag of a stock recorded by its seed.
+     */
+    static final int SEEDED = 1;
+
+    /**
+     * Flag of a number of pieces per player other than the default.
+     */
+    static final int CUSTOM_PIECES = 2;
+
+    /**
+     * The stream to write to.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Constructs a writer, writing the header of the stream.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the header can't be written
+     */
+    public GameRecordWriter(final OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+    }
+
+    /**
+     * Writes a game record.
+     *
+     * @param record the game record
+     * @throws IOException if the record can't be written
+     */
+    public void write(final GameRecord record) throws IOException {
+        final boolean customPieces = record.getPiecesPerPlayer() != GameRecord.DEFAULT_PIECES_PER_PLAYER;
+        out.writeByte((record.isSeeded() ? SEEDED : 0) | (customPieces ? CUSTOM_PIECES : 0));
+        writeVarLong(record.getPlayer1Id());
+        writeVarLong(record.getPlayer2Id());
+        if (customPieces) {
+            out.writeByte(record.getPiecesPerPlayer());
+        }
+        if (record.isSeeded()) {
+            out.writeLong(record.getSeed());
+        } else {
+            out.write(record.encodeStock());
+        }
+        writeVarLong(record.getMoveCount());
+        out.write(record.getMoves());
+    }
+
+    /**
+     * Writes a non-negative number with 7 bits per byte, the highest bit indicating more bytes follow.
+     *
+     * @param value the number
+     * @throws IOException if the number can't be written
+     */
+    private void writeVarLong(final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.writeByte((int) (remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
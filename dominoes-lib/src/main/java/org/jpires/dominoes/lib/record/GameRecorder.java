@@ -0,0 +1,92 @@
+package org.jpires.dominoes.lib.record;
+
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * Game Recorder collects the moves of a game while it's played, to create its {@link GameRecord} at the end.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class GameRecorder {
+
+    /**
+     * The id of the player 1.
+     */
+    private final long player1Id;
+
+    /**
+     * The id of the player 2.
+     */
+    private final long player2Id;
+
+    /**
+     * The number of pieces given to each player.
+     */
+    private final int piecesPerPlayer;
+
+    /**
+     * The moves recorded so far.
+     */
+    private final ByteArrayOutputStream moves = new ByteArrayOutputStream(64);
+
+    /**
+     * Constructs a recorder.
+     *
+     * @param player1Id       the id of the player 1
+     * @param player2Id       the id of the player 2
+     * @param piecesPerPlayer the number of pieces given to each player
+     */
+    public GameRecorder(final long player1Id, final long player2Id, final int piecesPerPlayer) {
+        this.player1Id = player1Id;
+        this.player2Id = player2Id;
+        this.piecesPerPlayer = piecesPerPlayer;
+    }
+
+    /**
+     * Records a piece played.
+     *
+     * @param piece the piece played
+     * @param place the place (left or right) where it was played
+     */
+    public void play(final DominoPiece piece, final Place place) {
+        moves.write(GameRecord.play(piece, place));
+    }
+
+    /**
+     * Records a piece drawn from the stock by the playing player.
+     */
+    public void draw() {
+        moves.write(GameRecord.DRAW);
+    }
+
+    /**
+     * Records the playing player passing their turn.
+     */
+    public void pass() {
+        moves.write(GameRecord.PASS);
+    }
+
+    /**
+     * Creates the record of a game whose stock was shuffled by a seed.
+     *
+     * @param seed the seed of the stock
+     * @return the game record, with the moves recorded so far
+     */
+    public GameRecord toRecord(final long seed) {
+        return GameRecord.ofSeed(player1Id, player2Id, piecesPerPlayer, seed, moves.toByteArray());
+    }
+
+    /**
+     * Creates the record of a game given its initial stock.
+     *
+     * @param stock the pieces of the initial stock, in the order they are taken
+     * @return the game record, with the moves recorded so far
+     */
+    public GameRecord toRecord(final List<DominoPiece> stock) {
+        return GameRecord.ofStock(player1Id, player2Id, piecesPerPlayer, stock, moves.toByteArray());
+    }
+}
@@ -0,0 +1,227 @@
+package org.jpires.dominoes.lib.record;
+
+import org.jpires.dominoes.lib.model.DominoPiece;
+
+/**
+ * Game Statistics aggregates the results of recorded games.
+ * It's not thread-safe: each thread aggregates its own statistics, which are then merged
+ * (see {@link #merge(GameStatistics)}).
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class GameStatistics {
+
+    /**
+     * The number of games.
+     */
+    private long games;
+
+    /**
+     * The number of games won by the player 1 (who plays first).
+     */
+    private long player1Wins;
+
+    /**
+     * The number of games won by the player 2.
+     */
+    private long player2Wins;
+
+    /**
+     * The number of games ending blocked: the stock is empty and none of the players is able to play.
+     */
+    private long blockedGames;
+
+    /**
+     * The number of pieces drawn from the stock, on all games.
+     */
+    private long draws;
+
+    /**
+     * The number of games by opening piece (the piece put on the board when the game starts).
+     */
+    private final long[] gamesByOpening = new long[DominoPiece.NUMBER_OF_PIECES];
+
+    /**
+     * The number of games won by the player 1, by opening piece.
+     */
+    private final long[] player1WinsByOpening = new long[DominoPiece.NUMBER_OF_PIECES];
+
+    /**
+     * The number of games won by the player 2, by opening piece.
+     */
+    private final long[] player2WinsByOpening = new long[DominoPiece.NUMBER_OF_PIECES];
+
+    /**
+     * Adds the result of a game.
+     *
+     * @param opening       the index of the opening piece (see {@link DominoPiece#toIndex()})
+     * @param player1Pieces the number of pieces left to the player 1
+     * @param player2Pieces the number of pieces left to the player 2
+     * @param piecesDrawn   the number of pieces drawn from the stock
+     */
+    public void addGame(final int opening, final int player1Pieces, final int player2Pieces, final int piecesDrawn) {
+        games++;
+        gamesByOpening[opening]++;
+        draws += piecesDrawn;
+
+        if (player1Pieces < player2Pieces) {
+            player1Wins++;
+            player1WinsByOpening[opening]++;
+        } else if (player2Pieces < player1Pieces) {
+            player2Wins++;
+            player2WinsByOpening[opening]++;
+        }
+
+        if (player1Pieces > 0 && player2Pieces > 0) {
+            blockedGames++;
+        }
+    }
+
+    /**
+     * Adds the statistics of other games to these ones.
+     *
+     * @param other the other statistics
+     * @return these statistics
+     */
+    public GameStatistics merge(final GameStatistics other) {
+        games += other.games;
+        player1Wins += other.player1Wins;
+        player2Wins += other.player2Wins;
+        blockedGames += other.blockedGames;
+        draws += other.draws;
+        for (int i = 0; i < DominoPiece.NUMBER_OF_PIECES; i++) {
+            gamesByOpening[i] += other.gamesByOpening[i];
+            player1WinsByOpening[i] += other.player1WinsByOpening[i];
+            player2WinsByOpening[i] += other.player2WinsByOpening[i];
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of games.
+     *
+     * @return the number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Gets the number of games won by the player 1.
+     *
+     * @return the number of games won by the player 1
+     */
+    public long getPlayer1Wins() {
+        return player1Wins;
+    }
+
+    /**
+     * Gets the number of games won by the player 2.
+     *
+     * @return the number of games won by the player 2
+     */
+    public long getPlayer2Wins() {
+        return player2Wins;
+    }
+
+    /**
+     * Gets the number of games ending blocked.
+     *
+     * @return the number of blocked games
+     */
+    public long getBlockedGames() {
+        return blockedGames;
+    }
+
+    /**
+     * Gets the number of pieces drawn from the stock, on all games.
+     *
+     * @return the number of pieces drawn
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * Gets the advantage of playing first: the rate of games won by the player 1 minus the rate of games won by the
+     * player 2.
+     *
+     * @return the first-player advantage (between -1 and 1)
+     */
+    public double getFirstPlayerAdvantage() {
+        return rate(player1Wins - player2Wins, games);
+    }
+
+    /**
+     * Gets the rate of games won by the player 1 (who plays first), given an opening piece.
+     *
+     * @param opening the opening piece
+     * @return the win rate of the player 1 (0 if there were no games with that opening)
+     */
+    public double getPlayer1WinRate(final DominoPiece opening) {
+        return rate(player1WinsByOpening[opening.toIndex()], gamesByOpening[opening.toIndex()]);
+    }
+
+    /**
+     * Gets the rate of games won by the player 2, given an opening piece.
+     *
+     * @param opening the opening piece
+     * @return the win rate of the player 2 (0 if there were no games with that opening)
+     */
+    public double getPlayer2WinRate(final DominoPiece opening) {
+        return rate(player2WinsByOpening[opening.toIndex()], gamesByOpening[opening.toIndex()]);
+    }
+
+    /**
+     * Gets the average number of pieces drawn from the stock per game.
+     *
+     * @return the average draws per game
+     */
+    public double getAverageDraws() {
+        return rate(draws, games);
+    }
+
+    /**
+     * Gets the rate of games ending blocked.
+     *
+     * @return the blocked-game frequency
+     */
+    public double getBlockedGameRate() {
+        return rate(blockedGames, games);
+    }
+
+    /**
+     * Divides two numbers, or gives 0 if there's nothing to divide by.
+     *
+     * @param count the count
+     * @param total the total
+     * @return the rate
+     */
+    private static double rate(final long count, final long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+
+    /**
+     * Gets a report of the statistics, to be printed.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        final StringBuilder report = new StringBuilder()
+                .append(String.format("Games: %d%n", games))
+                .append(String.format("Player 1 wins: %.2f%%, player 2 wins: %.2f%%, ties: %.2f%%%n",
+                        100 * rate(player1Wins, games), 100 * rate(player2Wins, games),
+                        100 * rate(games - player1Wins - player2Wins, games)))
+                .append(String.format("First-player advantage: %+.2f%%%n", 100 * getFirstPlayerAdvantage()))
+                .append(String.format("Average draws per game: %.2f%n", getAverageDraws()))
+                .append(String.format("Blocked games: %.2f%%%n", 100 * getBlockedGameRate()))
+                .append(String.format("Win rate by opening piece (player 1 / player 2):%n"));
+        for (int i = 0; i < DominoPiece.NUMBER_OF_PIECES; i++) {
+            final DominoPiece opening = DominoPiece.fromIndex(i);
+            report.append(String.format("  %s %6.2f%% / %6.2f%% (%d games)%n", opening,
+                    100 * getPlayer1WinRate(opening), 100 * getPlayer2WinRate(opening), gamesByOpening[i]));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,339 @@
+package org.jpires.dominoes.lib.record;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Position Index finds the positions of archived games (see {@link PositionKey}), telling in which game records
+ * they occurred, what was the next move and what was the outcome for the player about to move.
+ * <p>
+ * The index is a set of sorted runs (as written by {@link PositionIndexBuilder}), each one a file with:
+ * - a header: the {@link #MAGIC}, the number of entries per block and the number of entries;
+ * - the entries, sorted by key: the key of the position and the occurrence (16 bytes);
+ * - the summary: the key of the first entry of each block.
+ * <p>
+ * Only the summaries are kept in memory, so a lookup reads, from each run, the blocks holding the key (usually one
+ * block, a single page).
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class PositionIndex implements Closeable {
+
+    /**
+     * The header of a run of the index.
+     */
+    static final int MAGIC = 0x444D5049;
+
+    /**
+     * The size of the header of a run.
+     */
+    static final int HEADER_BYTES = 16;
+
+    /**
+     * The size of an entry.
+     */
+    static final int ENTRY_BYTES = 16;
+
+    /**
+     * The runs of the index.
+     */
+    private final List<Run> runs = new ArrayList<>();
+
+    /**
+     * Opens the runs of an index, loading their summaries.
+     *
+     * @param runFiles the files of the runs
+     * @throws IOException if a run can't be read, or it's not a run of a position index
+     */
+    public PositionIndex(final List<Path> runFiles) throws IOException {
+        try {
+            for (final Path runFile : runFiles) {
+                runs.add(new Run(runFile));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the occurrences of a position.
+     *
+     * @param key the key of the position (see {@link PositionKey})
+     * @return the occurrences, on all the runs (empty if the position never occurred)
+     * @throws IOException if a run can't be read
+     */
+    public List<Occurrence> lookup(final long key) throws IOException {
+        final List<Occurrence> occurrences = new ArrayList<>();
+        for (final Run run : runs) {
+            run.lookup(key, occurrences);
+        }
+        return occurrences;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (final Run run : runs) {
+            run.channel.close();
+        }
+    }
+
+    /**
+     * Occurrence of a position on an archived game.
+     */
+    public static final class Occurrence {
+
+        /**
+         * The maximum offset of a record (the offsets take 40 bits).
+         */
+        static final long MAX_RECORD_OFFSET = (1L << 40) - 1;
+
+        /**
+         * The maximum index of a move (the indexes take 16 bits).
+         */
+        static final int MAX_MOVE_INDEX = 0xFFFF;
+
+        /**
+         * The offset of the game record on the file of records.
+         */
+        private final long recordOffset;
+
+        /**
+         * The index of the move made on the position.
+         */
+        private final int moveIndex;
+
+        /**
+         * The move made on the position (see {@link GameRecord}).
+         */
+        private final byte nextMove;
+
+        /**
+         * The outcome of the game for the player about to move.
+         */
+        private final Outcome outcome;
+
+        /**
+         * Constructs an occurrence.
+         *
+         * @param recordOffset the offset of the game record on the file of records
+         * @param moveIndex    the index of the move made on the position
+         * @param nextMove     the move made on the position
+         * @param outcome      the outcome of the game for the player about to move
+         */
+        public Occurrence(final long recordOffset, final int moveIndex, final byte nextMove, final Outcome outcome) {
+            Preconditions.checkArgument(recordOffset >= 0 && recordOffset <= MAX_RECORD_OFFSET, "Invalid record offset %s", recordOffset);
+            Preconditions.checkArgument(moveIndex >= 0 && moveIndex <= MAX_MOVE_INDEX, "Invalid move index %s", moveIndex);
+            this.recordOffset = recordOffset;
+            this.moveIndex = moveIndex;
+            this.nextMove = nextMove;
+            this.outcome = outcome;
+        }
+
+        /**
+         * Decodes an occurrence, as stored on an entry of the index (see {@link #encode()}).
+         *
+         * @param value the encoded occurrence
+         * @return the occurrence
+         */
+        static Occurrence decode(final long value) {
+            return new Occurrence(value >>> 24, (int) (value >>> 8) & MAX_MOVE_INDEX, (byte) ((value >>> 2) & 0x3F),
+                    Outcome.values()[(int) value & 0x3]);
+        }
+
+        /**
+         * Encodes this occurrence, to be stored on an entry of the index: the offset of the record on the bits
+         * 24-63, the index of the move on the bits 8-23, the move on the bits 2-7 and the outcome on the bits 0-1.
+         *
+         * @return the encoded occurrence
+         */
+        long encode() {
+            return recordOffset << 24 | (long) moveIndex << 8 | nextMove << 2 | outcome.ordinal();
+        }
+
+        /**
+         * Gets the offset of the game record on the file of records (see {@link GameRecordReader#readAt(Path, long)}).
+         *
+         * @return the offset of the record
+         */
+        public long getRecordOffset() {
+            return recordOffset;
+        }
+
+        /**
+         * Gets the index of the move made on the position.
+         *
+         * @return the index of the move
+         */
+        public int getMoveIndex() {
+            return moveIndex;
+        }
+
+        /**
+         * Gets the move made on the position.
+         *
+         * @return the move (see {@link GameRecord})
+         */
+        public byte getNextMove() {
+            return nextMove;
+        }
+
+        /**
+         * Gets the outcome of the game for the player about to move.
+         *
+         * @return the outcome
+         */
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            return encode() == ((Occurrence) o).encode();
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(encode());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Occurrence{recordOffset=%d, moveIndex=%d, nextMove=%d, outcome=%s}",
+                    recordOffset, moveIndex, nextMove, outcome);
+        }
+    }
+
+    /**
+     * The outcome of a game for a player.
+     */
+    public enum Outcome {
+        WIN, LOSS, TIE
+    }
+
+    /**
+     * A sorted run of the index, with its summary in memory.
+     */
+    private static final class Run {
+
+        /**
+         * The file of the run.
+         */
+        private final FileChannel channel;
+
+        /**
+         * The number of entries per block.
+         */
+        private final int blockEntries;
+
+        /**
+         * The number of entries.
+         */
+        private final long entryCount;
+
+        /**
+         * The key of the first entry of each block.
+         */
+        private final long[] summary;
+
+        /**
+         * Opens a run, loading its summary.
+         *
+         * @param file the file of the run
+         * @throws IOException if the run can't be read, or it's not a run of a position index
+         */
+        private Run(final Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                final ByteBuffer header = read(0, HEADER_BYTES);
+                if (header.getInt() != MAGIC) {
+                    throw new IOException("Not a run of a position index: " + file);
+                }
+                this.blockEntries = header.getInt();
+                this.entryCount = header.getLong();
+
+                final int blocks = (int) ((entryCount + blockEntries - 1) / blockEntries);
+                final ByteBuffer summaryBuffer = read(HEADER_BYTES + entryCount * ENTRY_BYTES, blocks * Long.BYTES);
+                this.summary = new long[blocks];
+                summaryBuffer.asLongBuffer().get(summary);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Finds the occurrences of a position on this run.
+         *
+         * @param key         the key of the position
+         * @param occurrences the list to add the occurrences to
+         * @throws IOException if the run can't be read
+         */
+        private void lookup(final long key, final List<Occurrence> occurrences) throws IOException {
+            //The first block holding the key: the entries with the key may start on the block before the first
+            //block starting with the key
+            int block = Arrays.binarySearch(summary, key);
+            if (block < 0) {
+                block = -block - 2;
+            }
+            while (block > 0 && summary[block] == key) {
+                block--;
+            }
+            if (block < 0) {
+                return;
+            }
+
+            for (; block < summary.length && summary[block] <= key; block++) {
+                final long first = (long) block * blockEntries;
+                final int entries = (int) Math.min(blockEntries, entryCount - first);
+                final ByteBuffer buffer = read(HEADER_BYTES + first * ENTRY_BYTES, entries * ENTRY_BYTES);
+                for (int i = 0; i < entries; i++) {
+                    final long entryKey = buffer.getLong();
+                    final long value = buffer.getLong();
+                    if (entryKey == key) {
+                        occurrences.add(Occurrence.decode(value));
+                    } else if (entryKey > key) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Reads a region of the run.
+         *
+         * @param position the position of the region
+         * @param length   the length of the region
+         * @return a buffer with the region, ready to be read
+         * @throws IOException if the region can't be read
+         */
+        private ByteBuffer read(final long position, final int length) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("The run of the position index is truncated");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
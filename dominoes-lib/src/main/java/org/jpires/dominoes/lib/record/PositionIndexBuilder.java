@@ -0,0 +1,315 @@
+package org.jpires.dominoes.lib.record;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.Player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Position Index Builder writes a run of a {@link PositionIndex}, from the positions of archived games.
+ * <p>
+ * The entries are collected in memory up to a limit, sorted and spilled to a temporary file. When the builder is
+ * closed, the spilled runs are merged into the run of the index, followed by its summary.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class PositionIndexBuilder implements Closeable {
+
+    /**
+     * The default number of entries per block (a block of 4 KB, a page).
+     */
+    public static final int DEFAULT_BLOCK_ENTRIES = 256;
+
+    /**
+     * The default number of entries kept in memory before being spilled (16 MB).
+     */
+    public static final int DEFAULT_SPILL_ENTRIES = 1 << 20;
+
+    /**
+     * The file of the run being built.
+     */
+    private final Path file;
+
+    /**
+     * The number of entries per block.
+     */
+    private final int blockEntries;
+
+    /**
+     * The keys of the entries in memory.
+     */
+    private final long[] keys;
+
+    /**
+     * The values (encoded occurrences) of the entries in memory.
+     */
+    private final long[] values;
+
+    /**
+     * The number of entries in memory.
+     */
+    private int size;
+
+    /**
+     * The temporary files of the spilled runs.
+     */
+    private final List<Path> spills = new ArrayList<>();
+
+    /**
+     * The number of entries added.
+     */
+    private long entryCount;
+
+    /**
+     * Constructs a builder with the default sizes.
+     *
+     * @param file the file of the run to build
+     */
+    public PositionIndexBuilder(final Path file) {
+        this(file, DEFAULT_BLOCK_ENTRIES, DEFAULT_SPILL_ENTRIES);
+    }
+
+    /**
+     * Constructs a builder.
+     *
+     * @param file         the file of the run to build
+     * @param blockEntries the number of entries per block
+     * @param spillEntries the number of entries kept in memory before being spilled
+     */
+    public PositionIndexBuilder(final Path file, final int blockEntries, final int spillEntries) {
+        Preconditions.checkArgument(blockEntries > 0, "The number of entries per block must be positive");
+        Preconditions.checkArgument(spillEntries > 0 && spillEntries <= 1 << 30,
+                "The number of entries kept in memory should be in interval [1,2^30]");
+        this.file = file;
+        this.blockEntries = blockEntries;
+        this.keys = new long[spillEntries];
+        this.values = new long[spillEntries];
+    }
+
+    /**
+     * Builds a run of the index for a file of game records.
+     *
+     * @param records the file of game records
+     * @param index   the file of the run to build
+     * @throws IOException if the records can't be read or the run can't be written
+     */
+    public static void build(final Path records, final Path index) throws IOException {
+        try (InputStream in = Files.newInputStream(records);
+             GameRecordReader reader = new GameRecordReader(in);
+             PositionIndexBuilder builder = new PositionIndexBuilder(index)) {
+            long offset = reader.getOffset();
+            GameRecord record;
+            while ((record = reader.read()) != null) {
+                builder.addGame(offset, record);
+                offset = reader.getOffset();
+            }
+        }
+    }
+
+    /**
+     * Adds the positions of an archived game: the positions before each move, by the player about to move.
+     *
+     * @param recordOffset the offset of the game record on the file of records
+     * @param record       the game record
+     * @throws IOException if the entries can't be spilled
+     */
+    public void addGame(final long recordOffset, final GameRecord record) throws IOException {
+        final Player player1 = new Player("1");
+        final long[] positions = new long[record.getMoveCount()];
+        final boolean[] player1ToMove = new boolean[record.getMoveCount()];
+        final Game game = record.replay(player1, new Player("2"), (replayed, moveIndex) -> {
+            positions[moveIndex] = PositionKey.of(replayed, replayed.getPlayingPlayer());
+            player1ToMove[moveIndex] = replayed.getPlayingPlayer() == player1;
+        });
+
+        final int player1Pieces = game.getPlayer1().getPieces().size();
+        final int player2Pieces = game.getPlayer2().getPieces().size();
+        final int moves = Math.min(record.getMoveCount(), PositionIndex.Occurrence.MAX_MOVE_INDEX + 1);
+        for (int moveIndex = 0; moveIndex < moves; moveIndex++) {
+            final int ownPieces = player1ToMove[moveIndex] ? player1Pieces : player2Pieces;
+            final int otherPieces = player1ToMove[moveIndex] ? player2Pieces : player1Pieces;
+            final PositionIndex.Outcome outcome = ownPieces < otherPieces ? PositionIndex.Outcome.WIN
+                    : ownPieces > otherPieces ? PositionIndex.Outcome.LOSS : PositionIndex.Outcome.TIE;
+            add(positions[moveIndex],
+                    new PositionIndex.Occurrence(recordOffset, moveIndex, record.getMove(moveIndex), outcome));
+        }
+    }
+
+    /**
+     * Adds an entry.
+     *
+     * @param key        the key of the position
+     * @param occurrence the occurrence of the position
+     * @throws IOException if the entries can't be spilled
+     */
+    public void add(final long key, final PositionIndex.Occurrence occurrence) throws IOException {
+        Preconditions.checkArgument(key >= 0 && key < 1L << 33, "Invalid position key %s", key);
+        if (size == keys.length) {
+            spill();
+        }
+        keys[size] = key;
+        values[size] = occurrence.encode();
+        size++;
+        entryCount++;
+    }
+
+    /**
+     * Sorts the entries in memory by key (keeping the order they were added for the same key) and writes them to a
+     * temporary file.
+     *
+     * @throws IOException if the file can't be written
+     */
+    private void spill() throws IOException {
+        //Keys take 33 bits, so the key and the position of the entry are sorted together as a single long
+        final long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = keys[i] << 30 | i;
+        }
+        Arrays.sort(order);
+
+        final Path spill = Files.createTempFile(file.toAbsolutePath().getParent(), "positions", ".spill");
+        spills.add(spill);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spill)))) {
+            for (final long entry : order) {
+                final int i = (int) (entry & ((1 << 30) - 1));
+                out.writeLong(keys[i]);
+                out.writeLong(values[i]);
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * Merges the spilled runs into the run of the index, and writes its summary.
+     *
+     * @throws IOException if the run can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (size > 0 || spills.isEmpty()) {
+            spill();
+        }
+
+        final PriorityQueue<SpillCursor> cursors = new PriorityQueue<>(
+                (cursor1, cursor2) -> cursor1.key != cursor2.key ? Long.compare(cursor1.key, cursor2.key)
+                        : Integer.compare(cursor1.order, cursor2.order));
+        try {
+            for (int order = 0; order < spills.size(); order++) {
+                final SpillCursor cursor = new SpillCursor(spills.get(order), order);
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                } else {
+                    cursor.close();
+                }
+            }
+
+            final long[] summary = new long[(int) ((entryCount + blockEntries - 1) / blockEntries)];
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(PositionIndex.MAGIC);
+                out.writeInt(blockEntries);
+                out.writeLong(entryCount);
+
+                long written = 0;
+                while (!cursors.isEmpty()) {
+                    final SpillCursor cursor = cursors.poll();
+                    if (written % blockEntries == 0) {
+                        summary[(int) (written / blockEntries)] = cursor.key;
+                    }
+                    out.writeLong(cursor.key);
+                    out.writeLong(cursor.value);
+                    written++;
+
+                    if (cursor.next()) {
+                        cursors.add(cursor);
+                    } else {
+                        cursor.close();
+                    }
+                }
+
+                for (final long key : summary) {
+                    out.writeLong(key);
+                }
+            }
+        } finally {
+            for (final SpillCursor cursor : cursors) {
+                cursor.close();
+            }
+            for (final Path spill : spills) {
+                Files.deleteIfExists(spill);
+            }
+        }
+    }
+
+    /**
+     * Cursor over the entries of a spilled run.
+     */
+    private static final class SpillCursor implements Closeable {
+
+        /**
+         * The stream of the spilled run.
+         */
+        private final DataInputStream in;
+
+        /**
+         * The order of the spilled run (entries with the same key are merged by this order).
+         */
+        private final int order;
+
+        /**
+         * The key of the current entry.
+         */
+        private long key;
+
+        /**
+         * The value of the current entry.
+         */
+        private long value;
+
+        /**
+         * Opens a cursor before the first entry of a spilled run.
+         *
+         * @param spill the file of the spilled run
+         * @param order the order of the spilled run
+         * @throws IOException if the file can't be opened
+         */
+        private SpillCursor(final Path spill, final int order) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spill)));
+            this.order = order;
+        }
+
+        /**
+         * Moves to the next entry.
+         *
+         * @return true if there's a next entry, false if the end of the run was reached
+         * @throws IOException if the file can't be read
+         */
+        private boolean next() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            value = in.readLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
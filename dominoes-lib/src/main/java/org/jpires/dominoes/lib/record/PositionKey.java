@@ -0,0 +1,54 @@
+package org.jpires.dominoes.lib.record;
+
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Player;
+
+import java.util.List;
+
+/**
+ * Position Key gives the canonical key of a position: the pair of open ends of the board, whichever the side, and
+ * the hand of the player about to move.
+ * <p>
+ * The key is exact (two positions have the same key only if they have the same ends and hand): the bits 0-27 are
+ * the pieces of the hand, by their index (see {@link DominoPiece#toIndex()}), and the bits 28-32 are the index of
+ * the pair of ends, taken as a piece.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public final class PositionKey {
+
+    /**
+     * Private constructor, since it only has static methods.
+     */
+    private PositionKey() {
+    }
+
+    /**
+     * Gets the key of the position of a player on a game.
+     *
+     * @param game   the game (already started)
+     * @param player the player about to move
+     * @return the key of the position
+     */
+    public static long of(final Game game, final Player player) {
+        final List<DominoPiece> board = game.getBoard();
+        return of(board.get(0).getLeft(), board.get(board.size() - 1).getRight(), player.getPieces());
+    }
+
+    /**
+     * Gets the key of a position.
+     *
+     * @param leftEnd  the number on the left open end of the board
+     * @param rightEnd the number on the right open end of the board
+     * @param hand     the pieces of the player about to move
+     * @return the key of the position
+     */
+    public static long of(final int leftEnd, final int rightEnd, final List<DominoPiece> hand) {
+        long handMask = 0;
+        for (final DominoPiece piece : hand) {
+            handMask |= 1L << piece.toIndex();
+        }
+        return (long) new DominoPiece(leftEnd, rightEnd).toIndex() << DominoPiece.NUMBER_OF_PIECES | handMask;
+    }
+}
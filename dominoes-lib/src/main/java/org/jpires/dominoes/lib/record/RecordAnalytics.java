@@ -0,0 +1,528 @@
+package org.jpires.dominoes.lib.record;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Stock;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Record Analytics computes {@link GameStatistics} over files of game records (as written by
+ * {@link GameRecordWriter}).
+ * <p>
+ * The files are memory-mapped in segments, which are analyzed in parallel, so the records are never loaded into the
+ * heap. The segments are cut at fixed byte offsets, so each one is resynchronized to a record boundary by the thread
+ * analyzing it (the first byte from which a few records in a row are valid), and then the boundaries are chained:
+ * a segment has to start where the last record of the previous one ends, or else it's scanned again from there, so a
+ * false boundary never changes the result. Each game is replayed by its move bytes alone: the number of pieces of
+ * each player is all it takes to know the result, so no {@link Game}, players or pieces are created (the opening
+ * piece of a seeded stock is found with {@link Stock#shuffleIndexes(long, int[])}).
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class RecordAnalytics {
+
+    /**
+     * The default size of the segments analyzed in parallel.
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * The number of valid records in a row taken as a record boundary, when a segment is resynchronized.
+     */
+    private static final int RESYNC_RECORDS = 16;
+
+    /**
+     * The result of a resynchronization that needs a larger mapping of the file.
+     */
+    private static final int RESYNC_INCOMPLETE = -2;
+
+    /**
+     * The number of threads analyzing the segments.
+     */
+    private final int threads;
+
+    /**
+     * The size of the segments analyzed in parallel (a record starting on a segment may end on the next ones).
+     */
+    private final int segmentBytes;
+
+    /**
+     * Constructs the analytics.
+     *
+     * @param threads      the number of threads analyzing the segments
+     * @param segmentBytes the size of the segments analyzed in parallel
+     */
+    public RecordAnalytics(final int threads, final int segmentBytes) {
+        Preconditions.checkArgument(threads > 0, "The number of threads must be positive");
+        Preconditions.checkArgument(segmentBytes > 0, "The size of the segments must be positive");
+        this.threads = threads;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Analyzes files of game records.
+     *
+     * @param files the files
+     * @return the statistics of all the games on the files
+     * @throws IOException if a file can't be read, or it's not a valid file of game records
+     */
+    public GameStatistics analyze(final List<Path> files) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<FileChannel> channels = new ArrayList<>();
+        try {
+            final List<List<Future<Segment>>> segments = new ArrayList<>();
+            for (final Path file : files) {
+                final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                channels.add(channel);
+                segments.add(split(file, channel, executor));
+            }
+
+            final GameStatistics statistics = new GameStatistics();
+            for (int i = 0; i < files.size(); i++) {
+                join(files.get(i), channels.get(i), segments.get(i), statistics);
+            }
+            return statistics;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while analyzing the game records", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error analyzing the game records", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            for (final FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Cuts a file in segments, at fixed byte offsets, and submits each segment to be analyzed.
+     * The first segment starts on the first record, and the others are resynchronized to a record boundary.
+     *
+     * @param file     the file
+     * @param channel  the channel of the file
+     * @param executor the executor analyzing the segments
+     * @return the analysis of the segments submitted, in the order of the file
+     * @throws IOException if the file can't be read, or it's not a valid file of game records
+     */
+    private List<Future<Segment>> split(final Path file, final FileChannel channel, final ExecutorService executor)
+            throws IOException {
+        final long size = channel.size();
+        if (size < Integer.BYTES) {
+            throw new IOException("Not a file of game records: " + file);
+        }
+        GameRecordReader.checkMagic(channel.map(FileChannel.MapMode.READ_ONLY, 0, Integer.BYTES).getInt());
+
+        final List<Future<Segment>> segments = new ArrayList<>();
+        for (long start = Integer.BYTES; start < size; start += segmentBytes) {
+            final long segmentStart = start;
+            final long boundary = start == Integer.BYTES ? start : -1;
+            segments.add(executor.submit(() -> scan(file, channel, segmentStart, boundary)));
+        }
+        return segments;
+    }
+
+    /**
+     * Joins the analysis of the segments of a file, chaining their boundaries: a segment resynchronized to a
+     * boundary other than the end of the last record of the previous segment is scanned again from there.
+     *
+     * @param file       the file
+     * @param channel    the channel of the file
+     * @param segments   the analysis of the segments, in the order of the file
+     * @param statistics the statistics to add the games of the file to
+     * @throws IOException          if the file can't be read, or it's not a valid file of game records
+     * @throws InterruptedException if interrupted while waiting for the analysis of a segment
+     * @throws ExecutionException   if the analysis of a segment failed
+     */
+    private void join(final Path file, final FileChannel channel, final List<Future<Segment>> segments,
+                      final GameStatistics statistics) throws IOException, InterruptedException, ExecutionException {
+        final long size = channel.size();
+        long boundary = Integer.BYTES;
+        long segmentStart = Integer.BYTES;
+        for (final Future<Segment> future : segments) {
+            final long segmentEnd = Math.min(segmentStart + segmentBytes, size);
+
+            //A segment within a single record (started on a previous segment) has no games
+            if (boundary < segmentEnd) {
+                Segment segment = future.get();
+                if (segment.start != boundary) {
+                    segment = scan(file, channel, segmentStart, boundary);
+                }
+                statistics.merge(segment.statistics);
+                boundary = segment.end;
+            } else {
+                future.cancel(true);
+            }
+            segmentStart = segmentEnd;
+        }
+    }
+
+    /**
+     * Analyzes the records starting on a segment of a file. The segment is mapped with the bytes after it, so the
+     * last record is read to its end (the mapping grows if the record doesn't fit).
+     *
+     * @param file         the file
+     * @param channel      the channel of the file
+     * @param segmentStart the offset of the segment on the file
+     * @param boundary     the offset of the first record of the segment, or -1 to resynchronize to a record boundary
+     * @return the analysis of the segment (with no boundary, if it was resynchronized and no valid boundary was found)
+     * @throws IOException if the file can't be read, or a record starting on a known boundary is not valid
+     */
+    private Segment scan(final Path file, final FileChannel channel, final long segmentStart, final long boundary)
+            throws IOException {
+        final long size = channel.size();
+        final int segmentLength = (int) Math.min(segmentBytes, size - segmentStart);
+        long window = 2L * segmentBytes;
+        while (true) {
+            final long length = Math.min(Math.min(window, size - segmentStart), Integer.MAX_VALUE);
+            final MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, length);
+            final boolean complete = segmentStart + length == size;
+
+            final int start = boundary < 0 ? resync(mapping, segmentLength, complete) : (int) (boundary - segmentStart);
+            if (start == RESYNC_INCOMPLETE) {
+                window = 2 * window;
+                continue;
+            }
+            if (start < 0) {
+                return Segment.NONE;
+            }
+
+            //Skips the records starting on the segment, to find where the last one ends
+            final RecordScanner scanner = new RecordScanner(mapping);
+            scanner.position = start;
+            int end = start;
+            while (end < segmentLength && scanner.skipRecord()) {
+                end = scanner.position;
+            }
+
+            if (end < segmentLength) {
+                if (!complete) {
+                    window = 2 * window;
+                    continue;
+                }
+                if (boundary < 0) {
+                    return Segment.NONE;
+                }
+                throw new EOFException("The file ends in the middle of a game record: " + file);
+            }
+
+            try {
+                return new Segment(analyze(mapping, start, end), segmentStart + start, segmentStart + end);
+            } catch (final IOException | IllegalArgumentException e) {
+                //A false boundary may lead to records that aren't valid
+                if (boundary < 0) {
+                    return Segment.NONE;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Finds the first record boundary of a segment: a position from which {@link #RESYNC_RECORDS} records in a row are
+     * valid (or fewer, if the file ends before them).
+     *
+     * @param mapping       the mapping of the segment, and the bytes after it
+     * @param segmentLength the length of the segment
+     * @param complete      indicates if the mapping reaches the end of the file
+     * @return the position of the boundary, -1 if none was found on the segment, or {@link #RESYNC_INCOMPLETE} if the
+     * mapping ends before the records checked
+     */
+    private static int resync(final ByteBuffer mapping, final int segmentLength, final boolean complete) {
+        final RecordScanner scanner = new RecordScanner(mapping);
+        for (int position = 0; position < segmentLength; position++) {
+            scanner.position = position;
+            int records = 0;
+            while (records < RESYNC_RECORDS && scanner.checkRecord()) {
+                records++;
+            }
+
+            if (records == RESYNC_RECORDS) {
+                return position;
+            }
+            if (scanner.position >= mapping.limit()) {
+                if (!complete) {
+                    return RESYNC_INCOMPLETE;
+                }
+                if (records > 0) {
+                    return position;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Analyzes a segment of game records.
+     *
+     * @param segment the segment
+     * @param start   the position where the first record of the segment starts
+     * @param end     the position where the last record of the segment ends
+     * @return the statistics of the games on the segment
+     * @throws IOException if a record is not valid
+     */
+    static GameStatistics analyze(final ByteBuffer segment, final int start, final int end) throws IOException {
+        final GameStatistics statistics = new GameStatistics();
+        final RecordScanner scanner = new RecordScanner(segment);
+        scanner.position = start;
+        final int[] stock = new int[DominoPiece.NUMBER_OF_PIECES];
+        final byte[] permutation = new byte[GameRecord.PERMUTATION_BYTES];
+
+        while (scanner.position < end) {
+            final int flags = scanner.readByte();
+            scanner.readVarLong();
+            scanner.readVarLong();
+            final int piecesPerPlayer = (flags & GameRecordWriter.CUSTOM_PIECES) != 0
+                    ? scanner.readByte() : GameRecord.DEFAULT_PIECES_PER_PLAYER;
+
+            final int opening;
+            if ((flags & GameRecordWriter.SEEDED) != 0) {
+                Stock.shuffleIndexes(segment.getLong(scanner.position), stock);
+                scanner.position += Long.BYTES;
+                opening = stock[0];
+            } else {
+                for (int i = 0; i < permutation.length; i++) {
+                    permutation[i] = (byte) scanner.readByte();
+                }
+                opening = GameRecord.decodeStock(permutation).get(0).toIndex();
+            }
+
+            //Replays the moves, counting the pieces of each player
+            final int[] pieces = {piecesPerPlayer, piecesPerPlayer};
+            int playing = 0;
+            int piecesDrawn = 0;
+            final long moveCount = scanner.readVarLong();
+            for (long i = 0; i < moveCount; i++) {
+                final int move = scanner.readByte();
+                if (move == GameRecord.DRAW) {
+                    pieces[playing]++;
+                    piecesDrawn++;
+                } else if (move == GameRecord.PASS) {
+                    playing ^= 1;
+                } else if (move < GameRecord.DRAW) {
+                    pieces[playing]--;
+                    playing ^= 1;
+                } else {
+                    throw new IOException(String.format("Invalid move %d at byte %d of a segment", move, scanner.position - 1));
+                }
+            }
+
+            statistics.addGame(opening, pieces[0], pieces[1], piecesDrawn);
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Analyzes the files of game records given as arguments, and prints the statistics.
+     *
+     * @param args the paths of the files
+     * @throws IOException if a file can't be read, or it's not a valid file of game records
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: RecordAnalytics <records file>...");
+            System.exit(1);
+        }
+
+        final List<Path> files = new ArrayList<>();
+        for (final String arg : args) {
+            files.add(Paths.get(arg));
+        }
+
+        final long start = System.nanoTime();
+        final GameStatistics statistics = new RecordAnalytics(Runtime.getRuntime().availableProcessors(),
+                DEFAULT_SEGMENT_BYTES).analyze(files);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.print(statistics);
+        System.out.printf("Analyzed in %.1f s (%.0f games per second)%n", seconds, statistics.getGames() / seconds);
+    }
+
+    /**
+     * Segment is the analysis of the records starting on a segment of a file.
+     */
+    private static final class Segment {
+
+        /**
+         * The analysis of a segment where no record boundary was found.
+         */
+        private static final Segment NONE = new Segment(null, -1, -1);
+
+        /**
+         * The statistics of the games on the segment.
+         */
+        private final GameStatistics statistics;
+
+        /**
+         * The offset of the first record of the segment on the file.
+         */
+        private final long start;
+
+        /**
+         * The offset where the last record of the segment ends on the file (on the segment or after it).
+         */
+        private final long end;
+
+        /**
+         * Constructs the analysis of a segment.
+         *
+         * @param statistics the statistics of the games on the segment
+         * @param start      the offset of the first record of the segment on the file
+         * @param end        the offset where the last record of the segment ends on the file
+         */
+        private Segment(final GameStatistics statistics, final long start, final long end) {
+            this.statistics = statistics;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Record Scanner reads the fields of game records from a buffer, by absolute position.
+     */
+    private static final class RecordScanner {
+
+        /**
+         * The buffer.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * The position of the next byte to read.
+         */
+        private int position;
+
+        /**
+         * Constructs a scanner, from the beginning of a buffer.
+         *
+         * @param buffer the buffer
+         */
+        private RecordScanner(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Reads an unsigned byte.
+         *
+         * @return the byte
+         */
+        private int readByte() {
+            return buffer.get(position++) & 0xFF;
+        }
+
+        /**
+         * Reads a variable-length number (see {@link GameRecordWriter}).
+         *
+         * @return the number, or -1 if it doesn't end within the buffer
+         */
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64 && position < buffer.limit(); shift += 7) {
+                final int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Skips a game record, reading only its header.
+         *
+         * @return true if the record was skipped, false if it doesn't end within the buffer
+         */
+        private boolean skipRecord() {
+            if (position >= buffer.limit()) {
+                return false;
+            }
+
+            final int flags = readByte();
+            if (readVarLong() < 0 || readVarLong() < 0) {
+                return false;
+            }
+            if ((flags & GameRecordWriter.CUSTOM_PIECES) != 0) {
+                position++;
+            }
+            position += (flags & GameRecordWriter.SEEDED) != 0 ? Long.BYTES : GameRecord.PERMUTATION_BYTES;
+            if (position >= buffer.limit()) {
+                return false;
+            }
+
+            final long moveCount = readVarLong();
+            if (moveCount < 0 || moveCount > buffer.limit() - position) {
+                return false;
+            }
+            position += (int) moveCount;
+            return true;
+        }
+
+        /**
+         * Skips a game record, checking that every field of it is valid (e.g. to find a record boundary).
+         * If the record doesn't end within the buffer, the position is moved to the end of the buffer.
+         *
+         * @return true if a valid record was skipped, false if it's not valid or doesn't end within the buffer
+         */
+        private boolean checkRecord() {
+            if (position >= buffer.limit()) {
+                return false;
+            }
+
+            final int flags = readByte();
+            if ((flags & ~(GameRecordWriter.SEEDED | GameRecordWriter.CUSTOM_PIECES)) != 0
+                    || readVarLong() < 0 || readVarLong() < 0) {
+                return false;
+            }
+            if ((flags & GameRecordWriter.CUSTOM_PIECES) != 0) {
+                if (position >= buffer.limit()) {
+                    return false;
+                }
+                final int piecesPerPlayer = readByte();
+                if (piecesPerPlayer < 1 || 2 * piecesPerPlayer >= DominoPiece.NUMBER_OF_PIECES) {
+                    return false;
+                }
+            }
+
+            final int stockBytes = (flags & GameRecordWriter.SEEDED) != 0 ? Long.BYTES : GameRecord.PERMUTATION_BYTES;
+            if (stockBytes >= buffer.limit() - position) {
+                position = buffer.limit();
+                return false;
+            }
+            position += stockBytes;
+
+            final long moveCount = readVarLong();
+            if (moveCount < 0 || moveCount > GameRecord.MAX_MOVES) {
+                return false;
+            }
+            if (moveCount > buffer.limit() - position) {
+                position = buffer.limit();
+                return false;
+            }
+            for (long i = 0; i < moveCount; i++) {
+                if (readByte() > GameRecord.PASS) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
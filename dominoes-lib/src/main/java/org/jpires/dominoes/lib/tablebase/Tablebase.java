@@ -0,0 +1,271 @@
+package org.jpires.dominoes.lib.tablebase;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
+import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.record.GameRecord;
+import org.jpires.dominoes.lib.record.PositionIndex.Outcome;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tablebase answers the outcome of endgame positions, solved in advance by {@link TablebaseGenerator}: the positions
+ * with the stock empty and up to a maximum number of pieces on each hand.
+ * <p>
+ * The file of the tablebase has:
+ * - a header: the {@link #MAGIC}, the maximum number of pieces per hand and the number of positions;
+ * - the outcome of each position for the player about to move, on 2 bits, by the index of the position (see
+ * {@link TablebaseIndex}), 4 positions per byte.
+ * <p>
+ * The file is memory-mapped, so a position is answered by computing its index and reading its byte, with no search
+ * and nothing loaded into the heap. The mapping stays valid after the file is closed, and it's released along with
+ * the tablebase.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class Tablebase {
+
+    /**
+     * The maximum number of pieces per hand supported (a tablebase of 3 pieces per hand already has about 275
+     * million positions, on 69MB).
+     */
+    public static final int MAX_PIECES = 3;
+
+    /**
+     * The header of a tablebase.
+     */
+    static final int MAGIC = 0x444D5442;
+
+    /**
+     * The size of the header of a tablebase.
+     */
+    static final int HEADER_BYTES = 16;
+
+    /**
+     * The outcome codes, as stored on the file (0 is never stored, so an unsolved position is detected).
+     */
+    static final int WIN = Outcome.WIN.ordinal() + 1, LOSS = Outcome.LOSS.ordinal() + 1, TIE = Outcome.TIE.ordinal() + 1;
+
+    /**
+     * The pieces (as a mask of piece indexes) with each number.
+     */
+    static final int[] PIECES_WITH = new int[7];
+
+    /**
+     * The sum of the two numbers of each piece (playing a piece on an end, the end becomes the sum minus the end).
+     */
+    static final int[] PIECE_SUMS = new int[DominoPiece.NUMBER_OF_PIECES];
+
+    static {
+        for (int index = 0; index < DominoPiece.NUMBER_OF_PIECES; index++) {
+            final DominoPiece piece = DominoPiece.fromIndex(index);
+            PIECES_WITH[piece.getLeft()] |= 1 << index;
+            PIECES_WITH[piece.getRight()] |= 1 << index;
+            PIECE_SUMS[index] = piece.getLeft() + piece.getRight();
+        }
+    }
+
+    /**
+     * The index of the positions.
+     */
+    private final TablebaseIndex index;
+
+    /**
+     * The mapping of the file.
+     */
+    private final ByteBuffer outcomes;
+
+    /**
+     * Opens a tablebase, memory-mapping its file.
+     *
+     * @param file the file of the tablebase
+     * @throws IOException if the file can't be read, or it's not a valid tablebase
+     */
+    public Tablebase(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not an endgame tablebase: " + file);
+            }
+
+            this.outcomes = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            final int maxPieces = outcomes.getInt(4);
+            if (outcomes.getInt(0) != MAGIC || maxPieces < 1 || maxPieces > MAX_PIECES) {
+                throw new IOException("Not an endgame tablebase: " + file);
+            }
+
+            this.index = new TablebaseIndex(maxPieces);
+            if (outcomes.getLong(8) != index.size() || fileSize < HEADER_BYTES + (index.size() + 3) / 4) {
+                throw new EOFException("The endgame tablebase is truncated: " + file);
+            }
+        }
+    }
+
+    /**
+     * Gets the maximum number of pieces per hand of the positions.
+     *
+     * @return the maximum number of pieces per hand
+     */
+    public int getMaxPieces() {
+        return index.getMaxPieces();
+    }
+
+    /**
+     * Gets the outcome of a game for the player about to move, if both play perfectly.
+     *
+     * @param game the game
+     * @return the outcome, or empty if the game isn't on the tablebase (it isn't started or it's over, the stock
+     * isn't empty, or a hand has more than the maximum number of pieces)
+     */
+    public Optional<Outcome> probe(final Game game) {
+        if (!contains(game)) {
+            return Optional.empty();
+        }
+
+        final Player player = game.getPlayingPlayer();
+        final List<DominoPiece> board = game.getBoard();
+        return Optional.of(probe(mask(player.getPieces()), mask(otherPlayer(game, player).getPieces()),
+                board.get(0).getLeft(), board.get(board.size() - 1).getRight()));
+    }
+
+    /**
+     * Gets the outcome of a position for the player about to move, if both play perfectly.
+     *
+     * @param hand      the hand of the player about to move, as a mask of piece indexes (see {@link DominoPiece#toIndex()})
+     * @param otherHand the hand of the other player, as a mask of piece indexes
+     * @param leftEnd   the number on the left open end
+     * @param rightEnd  the number on the right open end
+     * @return the outcome
+     * @throws IllegalArgumentException if the hands aren't on the tablebase
+     */
+    public Outcome probe(final int hand, final int otherHand, final int leftEnd, final int rightEnd) {
+        Preconditions.checkArgument((hand & otherHand) == 0 && index.contains(hand, otherHand),
+                "The hands aren't on the tablebase");
+        final long position = index.index(hand, otherHand, leftEnd, rightEnd);
+        final int code = outcomes.get((int) (HEADER_BYTES + (position >>> 2))) >>> ((position & 3) * 2) & 3;
+        Preconditions.checkState(code != 0, "The position %s isn't solved", position);
+        return Outcome.values()[code - 1];
+    }
+
+    /**
+     * Gets the best move of the player about to move: the first move (by piece index, left before right) with the best
+     * outcome.
+     *
+     * @param game the game
+     * @return the move (see {@link GameRecord}, a pass if none of the pieces is playable), or empty if the game isn't
+     * on the tablebase
+     */
+    public Optional<Byte> bestMove(final Game game) {
+        if (!contains(game)) {
+            return Optional.empty();
+        }
+
+        final Player player = game.getPlayingPlayer();
+        final List<DominoPiece> board = game.getBoard();
+        final int hand = mask(player.getPieces());
+        final int otherHand = mask(otherPlayer(game, player).getPieces());
+        final int leftEnd = board.get(0).getLeft();
+        final int rightEnd = board.get(board.size() - 1).getRight();
+
+        byte bestMove = GameRecord.PASS;
+        int bestCode = 0;
+        for (final Place place : Place.values()) {
+            final int end = place == Place.L ? leftEnd : rightEnd;
+            for (int pieces = hand & PIECES_WITH[end]; pieces != 0; pieces &= pieces - 1) {
+                final int piece = Integer.numberOfTrailingZeros(pieces);
+                final int handLeft = hand & ~(1 << piece);
+                final int code;
+                if (handLeft == 0) {
+                    code = WIN;
+                } else if (place == Place.L) {
+                    code = negate(probe(otherHand, handLeft, PIECE_SUMS[piece] - leftEnd, rightEnd).ordinal() + 1);
+                } else {
+                    code = negate(probe(otherHand, handLeft, leftEnd, PIECE_SUMS[piece] - rightEnd).ordinal() + 1);
+                }
+                if (bestCode == 0 || isBetter(code, bestCode)) {
+                    bestCode = code;
+                    bestMove = GameRecord.play(DominoPiece.fromIndex(piece), place);
+                }
+            }
+        }
+        return Optional.of(bestMove);
+    }
+
+    /**
+     * Verifies if a game is on the tablebase.
+     *
+     * @param game the game
+     * @return true if the game is started and not over, the stock is empty and both hands have up to the maximum
+     * number of pieces, false otherwise
+     */
+    private boolean contains(final Game game) {
+        final Player player = game.getPlayingPlayer();
+        return player != null && !game.hasStock() && !game.isOver()
+                && index.contains(mask(player.getPieces()), mask(otherPlayer(game, player).getPieces()));
+    }
+
+    /**
+     * Gets the outcome code of the other player.
+     *
+     * @param code the outcome code of a player
+     * @return the outcome code of the other player
+     */
+    static int negate(final int code) {
+        return code == WIN ? LOSS : code == LOSS ? WIN : code;
+    }
+
+    /**
+     * Verifies if an outcome is better than another, for the same player.
+     *
+     * @param code  the outcome code
+     * @param other the other outcome code
+     * @return true if the outcome is better, false otherwise
+     */
+    static boolean isBetter(final int code, final int other) {
+        return score(code) > score(other);
+    }
+
+    /**
+     * Gets the score of an outcome, to compare outcomes.
+     *
+     * @param code the outcome code
+     * @return 2 for a win, 1 for a tie and 0 for a loss
+     */
+    private static int score(final int code) {
+        return code == WIN ? 2 : code == TIE ? 1 : 0;
+    }
+
+    /**
+     * Gets the other player of a game.
+     *
+     * @param game   the game
+     * @param player a player of the game
+     * @return the other player
+     */
+    private static Player otherPlayer(final Game game, final Player player) {
+        return player == game.getPlayer1() ? game.getPlayer2() : game.getPlayer1();
+    }
+
+    /**
+     * Gets the mask of a list of pieces, by their index.
+     *
+     * @param pieces the pieces
+     * @return the mask of the pieces
+     */
+    private static int mask(final List<DominoPiece> pieces) {
+        int mask = 0;
+        for (final DominoPiece piece : pieces) {
+            mask |= 1 << piece.toIndex();
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,263 @@
+package org.jpires.dominoes.lib.tablebase;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.model.DominoPiece;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.jpires.dominoes.lib.tablebase.Tablebase.LOSS;
+import static org.jpires.dominoes.lib.tablebase.Tablebase.PIECES_WITH;
+import static org.jpires.dominoes.lib.tablebase.Tablebase.PIECE_SUMS;
+import static org.jpires.dominoes.lib.tablebase.Tablebase.TIE;
+import static org.jpires.dominoes.lib.tablebase.Tablebase.WIN;
+
+/**
+ * Tablebase Generator solves every endgame position with up to a maximum number of pieces per hand, and writes the
+ * {@link Tablebase}.
+ * <p>
+ * With the stock empty, each play takes a piece from a hand, and a player only passes when the other one is able to
+ * play, so a position only depends on positions with one piece less. The positions are solved by levels, from the
+ * fewest pieces on both hands: the positions of a level are split by the hand of the player about to move and
+ * solved in parallel, each one by its moves alone, looking up the outcomes of the level before.
+ * <p>
+ * The outcomes are kept on 2 bits each, on the same layout as the file, so the tablebase is written as it's solved.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class TablebaseGenerator {
+
+    /**
+     * The number of hands of the player about to move solved by each task.
+     */
+    private static final int HANDS_PER_TASK = 64;
+
+    /**
+     * The index of the positions.
+     */
+    private final TablebaseIndex index;
+
+    /**
+     * The number of threads solving the positions.
+     */
+    private final int threads;
+
+    /**
+     * Constructs the generator.
+     *
+     * @param maxPieces the maximum number of pieces per hand (up to {@link Tablebase#MAX_PIECES})
+     * @param threads   the number of threads solving the positions
+     */
+    public TablebaseGenerator(final int maxPieces, final int threads) {
+        Preconditions.checkArgument(threads > 0, "The number of threads must be positive");
+        this.index = new TablebaseIndex(maxPieces);
+        this.threads = threads;
+    }
+
+    /**
+     * Solves all the positions and writes the tablebase.
+     *
+     * @param file the file of the tablebase
+     * @throws IOException if the tablebase can't be written
+     */
+    public void generate(final Path file) throws IOException {
+        final int maxPieces = index.getMaxPieces();
+        final AtomicLongArray outcomes = new AtomicLongArray(Math.toIntExact((index.size() + 31) / 32));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int pieces = 2; pieces <= 2 * maxPieces; pieces++) {
+                final List<Future<?>> tasks = new ArrayList<>();
+                for (int handPieces = Math.max(1, pieces - maxPieces); handPieces <= Math.min(maxPieces, pieces - 1); handPieces++) {
+                    final int[] hands = hands(handPieces);
+                    final int otherPieces = pieces - handPieces;
+                    for (int from = 0; from < hands.length; from += HANDS_PER_TASK) {
+                        final int start = from;
+                        final int end = Math.min(hands.length, from + HANDS_PER_TASK);
+                        tasks.add(executor.submit(() -> solve(hands, start, end, otherPieces, outcomes)));
+                    }
+                }
+
+                for (final Future<?> task : tasks) {
+                    task.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while solving the endgame positions", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error solving the endgame positions", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(Tablebase.MAGIC);
+            out.writeInt(maxPieces);
+            out.writeLong(index.size());
+            //The outcomes of a long are written from its lowest byte, so the position i is on the byte i / 4
+            for (int i = 0; i < outcomes.length(); i++) {
+                out.writeLong(Long.reverseBytes(outcomes.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Solves the positions of some hands of the player about to move, against all the other hands with a number of
+     * pieces.
+     *
+     * @param hands       the hands of the player about to move
+     * @param start       the first hand to solve
+     * @param end         the hand after the last one to solve
+     * @param otherPieces the number of pieces of the other hand
+     * @param outcomes    the outcomes
+     */
+    private void solve(final int[] hands, final int start, final int end, final int otherPieces,
+                       final AtomicLongArray outcomes) {
+        final int[] otherHands = hands(otherPieces);
+        for (int i = start; i < end; i++) {
+            final int hand = hands[i];
+            for (final int otherHand : otherHands) {
+                if ((hand & otherHand) != 0) {
+                    continue;
+                }
+                for (int leftEnd = 0; leftEnd < 7; leftEnd++) {
+                    for (int rightEnd = leftEnd; rightEnd < 7; rightEnd++) {
+                        final int code = solve(hand, otherHand, leftEnd, rightEnd, outcomes);
+                        final long position = index.index(hand, otherHand, leftEnd, rightEnd);
+                        final int word = (int) (position >>> 5);
+                        final long bits = (long) code << ((position & 31) * 2);
+                        long value;
+                        do {
+                            value = outcomes.get(word);
+                        } while (!outcomes.compareAndSet(word, value, value | bits));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves a position.
+     *
+     * @param hand      the hand of the player about to move
+     * @param otherHand the hand of the other player
+     * @param leftEnd   the number on the left open end
+     * @param rightEnd  the number on the right open end
+     * @param outcomes  the outcomes (with the positions with one piece less solved)
+     * @return the outcome code for the player about to move
+     */
+    private int solve(final int hand, final int otherHand, final int leftEnd, final int rightEnd,
+                      final AtomicLongArray outcomes) {
+        final int playable = PIECES_WITH[leftEnd] | PIECES_WITH[rightEnd];
+        if ((hand & playable) != 0) {
+            return solveMoves(hand, otherHand, leftEnd, rightEnd, outcomes);
+        }
+        if ((otherHand & playable) != 0) {
+            //The player passes
+            return Tablebase.negate(solveMoves(otherHand, hand, leftEnd, rightEnd, outcomes));
+        }
+
+        //The game is over: who got less pieces is the winner
+        final int pieces = Integer.bitCount(hand);
+        final int otherPieces = Integer.bitCount(otherHand);
+        return pieces < otherPieces ? WIN : pieces > otherPieces ? LOSS : TIE;
+    }
+
+    /**
+     * Solves a position where the player about to move is able to play, by the best outcome of his moves.
+     *
+     * @param hand      the hand of the player about to move
+     * @param otherHand the hand of the other player
+     * @param leftEnd   the number on the left open end
+     * @param rightEnd  the number on the right open end
+     * @param outcomes  the outcomes (with the positions with one piece less solved)
+     * @return the outcome code for the player about to move
+     */
+    private int solveMoves(final int hand, final int otherHand, final int leftEnd, final int rightEnd,
+                           final AtomicLongArray outcomes) {
+        int best = LOSS;
+        for (int pieces = hand & PIECES_WITH[leftEnd]; pieces != 0; pieces &= pieces - 1) {
+            final int piece = Integer.numberOfTrailingZeros(pieces);
+            best = best(best, hand & ~(1 << piece), otherHand, PIECE_SUMS[piece] - leftEnd, rightEnd, outcomes);
+        }
+        for (int pieces = hand & PIECES_WITH[rightEnd]; pieces != 0; pieces &= pieces - 1) {
+            final int piece = Integer.numberOfTrailingZeros(pieces);
+            best = best(best, hand & ~(1 << piece), otherHand, leftEnd, PIECE_SUMS[piece] - rightEnd, outcomes);
+        }
+        return best;
+    }
+
+    /**
+     * Gets the best of an outcome and the outcome of a move.
+     *
+     * @param best      the best outcome code so far
+     * @param handLeft  the hand of the player after the move
+     * @param otherHand the hand of the other player
+     * @param leftEnd   the number on the left open end after the move
+     * @param rightEnd  the number on the right open end after the move
+     * @param outcomes  the outcomes (with the positions with one piece less solved)
+     * @return the best outcome code
+     */
+    private int best(final int best, final int handLeft, final int otherHand, final int leftEnd, final int rightEnd,
+                     final AtomicLongArray outcomes) {
+        if (best == WIN || handLeft == 0) {
+            return WIN;
+        }
+
+        final long position = index.index(otherHand, handLeft, leftEnd, rightEnd);
+        final int code = (int) (outcomes.get((int) (position >>> 5)) >>> ((position & 31) * 2)) & 3;
+        Preconditions.checkState(code != 0, "The position %s isn't solved yet", position);
+        final int outcome = Tablebase.negate(code);
+        return Tablebase.isBetter(outcome, best) ? outcome : best;
+    }
+
+    /**
+     * Gets all the hands with a number of pieces.
+     *
+     * @param pieces the number of pieces
+     * @return the hands, as masks of piece indexes
+     */
+    private static int[] hands(final int pieces) {
+        final List<Integer> hands = new ArrayList<>();
+        //Gosper's hack: the next mask with the same number of bits
+        for (int hand = (1 << pieces) - 1; hand < 1 << DominoPiece.NUMBER_OF_PIECES; ) {
+            hands.add(hand);
+            final int lowest = hand & -hand;
+            final int ripple = hand + lowest;
+            hand = (((ripple ^ hand) >>> 2) / lowest) | ripple;
+        }
+        return hands.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Generates a tablebase, and prints the time it took.
+     *
+     * @param args the file of the tablebase, the maximum number of pieces per hand and the number of threads (3 and
+     *             the number of processors by default)
+     * @throws IOException if the tablebase can't be written
+     */
+    public static void main(final String[] args) throws IOException {
+        Preconditions.checkArgument(args.length > 0, "Usage: TablebaseGenerator <file> [maxPieces] [threads]");
+        final Path file = Paths.get(args[0]);
+        final int maxPieces = args.length > 1 ? Integer.parseInt(args[1]) : Tablebase.MAX_PIECES;
+        final int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        final TablebaseGenerator generator = new TablebaseGenerator(maxPieces, threads);
+        final long start = System.nanoTime();
+        generator.generate(file);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Solved %d positions in %.1f s (%d bytes)%n", generator.index.size(), seconds, Files.size(file));
+    }
+}
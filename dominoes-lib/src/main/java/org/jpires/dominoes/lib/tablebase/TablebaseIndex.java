@@ -0,0 +1,185 @@
+package org.jpires.dominoes.lib.tablebase;
+
+import com.google.common.base.Preconditions;
+import org.jpires.dominoes.lib.model.DominoPiece;
+
+/**
+ * Tablebase Index is the perfect hash of the endgame positions: it maps each position with up to a maximum number of
+ * pieces per hand to its own index, from 0 to the number of positions, with no collisions and no gaps.
+ * <p>
+ * A position is the hand of the player about to move, the hand of the other player (both masks of piece indexes, see
+ * {@link DominoPiece#toIndex()}) and the pair of open ends of the board, whichever the side. The index is made of:
+ * - the block of the number of pieces of the player about to move;
+ * - the rank of his hand among the hands with that number of pieces;
+ * - the rank of the other hand among the hands with up to the maximum number of pieces, without the pieces of the
+ * first hand (the hands are disjoint, so no index is wasted on hands sharing a piece);
+ * - the index of the pair of ends, taken as a piece.
+ * <p>
+ * The hands are ranked by the combinatorial number system: the rank of the pieces {@code c1 < c2 < ... < ck} is
+ * {@code C(c1, 1) + C(c2, 2) + ... + C(ck, k)}.
+ *
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+final class TablebaseIndex {
+
+    /**
+     * The number of pairs of ends.
+     */
+    static final int ENDS = DominoPiece.NUMBER_OF_PIECES;
+
+    /**
+     * The binomial coefficients C(n, k), for n and k up to the number of pieces.
+     */
+    private static final long[][] BINOMIALS = new long[DominoPiece.NUMBER_OF_PIECES + 1][DominoPiece.NUMBER_OF_PIECES + 1];
+
+    /**
+     * The index of each pair of ends.
+     */
+    private static final int[][] ENDS_INDEX = new int[7][7];
+
+    static {
+        for (int n = 0; n <= DominoPiece.NUMBER_OF_PIECES; n++) {
+            BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+            }
+        }
+        for (int leftEnd = 0; leftEnd < 7; leftEnd++) {
+            for (int rightEnd = 0; rightEnd < 7; rightEnd++) {
+                ENDS_INDEX[leftEnd][rightEnd] = new DominoPiece(Math.min(leftEnd, rightEnd), Math.max(leftEnd, rightEnd)).toIndex();
+            }
+        }
+    }
+
+    /**
+     * The maximum number of pieces per hand.
+     */
+    private final int maxPieces;
+
+    /**
+     * The first pair of hands of each block, by the number of pieces of the player about to move.
+     */
+    private final long[] blockStarts;
+
+    /**
+     * The number of other hands, for each number of pieces of the player about to move.
+     */
+    private final long[] otherHands;
+
+    /**
+     * The rank of the first other hand with each number of pieces, for each number of pieces of the player about to
+     * move.
+     */
+    private final long[][] otherStarts;
+
+    /**
+     * The number of positions.
+     */
+    private final long size;
+
+    /**
+     * Constructs the index of the positions with up to a maximum number of pieces per hand.
+     *
+     * @param maxPieces the maximum number of pieces per hand
+     */
+    TablebaseIndex(final int maxPieces) {
+        Preconditions.checkArgument(maxPieces > 0 && maxPieces <= Tablebase.MAX_PIECES,
+                "The maximum number of pieces must be between 1 and " + Tablebase.MAX_PIECES);
+        this.maxPieces = maxPieces;
+        this.blockStarts = new long[maxPieces + 1];
+        this.otherHands = new long[maxPieces + 1];
+        this.otherStarts = new long[maxPieces + 1][maxPieces + 1];
+
+        long pairs = 0;
+        for (int pieces = 1; pieces <= maxPieces; pieces++) {
+            final int piecesLeft = DominoPiece.NUMBER_OF_PIECES - pieces;
+            for (int otherPieces = 1; otherPieces <= maxPieces; otherPieces++) {
+                otherStarts[pieces][otherPieces] = otherHands[pieces];
+                otherHands[pieces] += BINOMIALS[piecesLeft][otherPieces];
+            }
+            blockStarts[pieces] = pairs;
+            pairs += BINOMIALS[DominoPiece.NUMBER_OF_PIECES][pieces] * otherHands[pieces];
+        }
+        this.size = pairs * ENDS;
+    }
+
+    /**
+     * Gets the index of a position.
+     * The hands must be disjoint, each one with 1 to the maximum number of pieces.
+     *
+     * @param hand      the hand of the player about to move
+     * @param otherHand the hand of the other player
+     * @param leftEnd   the number on the left open end
+     * @param rightEnd  the number on the right open end
+     * @return the index of the position
+     */
+    long index(final int hand, final int otherHand, final int leftEnd, final int rightEnd) {
+        final int pieces = Integer.bitCount(hand);
+        final int otherPieces = Integer.bitCount(otherHand);
+        final long pair = blockStarts[pieces] + rank(hand) * otherHands[pieces] + otherStarts[pieces][otherPieces]
+                + rank(compress(otherHand, hand));
+        return pair * ENDS + ENDS_INDEX[leftEnd][rightEnd];
+    }
+
+    /**
+     * Verifies if a pair of hands is on the index.
+     *
+     * @param hand      the hand of the player about to move
+     * @param otherHand the hand of the other player
+     * @return true if both hands have 1 to the maximum number of pieces, false otherwise
+     */
+    boolean contains(final int hand, final int otherHand) {
+        final int pieces = Integer.bitCount(hand);
+        final int otherPieces = Integer.bitCount(otherHand);
+        return pieces > 0 && pieces <= maxPieces && otherPieces > 0 && otherPieces <= maxPieces;
+    }
+
+    /**
+     * Gets the maximum number of pieces per hand.
+     *
+     * @return the maximum number of pieces
+     */
+    int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Gets the number of positions.
+     *
+     * @return the number of positions
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Ranks a hand among the hands with the same number of pieces.
+     *
+     * @param hand the hand
+     * @return the rank of the hand
+     */
+    private static long rank(final int hand) {
+        long rank = 0;
+        int k = 1;
+        for (int pieces = hand; pieces != 0; pieces &= pieces - 1) {
+            rank += BINOMIALS[Integer.numberOfTrailingZeros(pieces)][k++];
+        }
+        return rank;
+    }
+
+    /**
+     * Removes the pieces of a hand from the pieces of another, shifting the indexes of the pieces left down.
+     *
+     * @param hand    the hand to be compressed
+     * @param removed the pieces removed
+     * @return the compressed hand
+     */
+    private static int compress(final int hand, final int removed) {
+        int compressed = 0;
+        for (int pieces = hand; pieces != 0; pieces &= pieces - 1) {
+            final int index = Integer.numberOfTrailingZeros(pieces);
+            compressed |= 1 << (index - Integer.bitCount(removed & ((1 << index) - 1)));
+        }
+        return compressed;
+    }
+}
@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -75,6 +76,25 @@ public class GameTest {
                 g1.getBoard(), g2.getBoard());
     }
 
+    @Test
+    public void testSeededStock() {
+        Assert.assertEquals("The same seed gives the same stock", Game.shuffledPieces(42), Game.shuffledPieces(42));
+        Assert.assertEquals("The stock has all the pieces", DOMINOES_PIECES, ImmutableSet.copyOf(Game.shuffledPieces(42)));
+
+        final Game g1 = new Game(new Player("p1"), new Player("p2"), 42);
+        final Game g2 = new Game(new Player("p1"), new Player("p2"), 42);
+        g1.start();
+        g2.start();
+        Assert.assertEquals("The same seed gives the same deal", g1.getPlayer1().getPieces(), g2.getPlayer1().getPieces());
+        Assert.assertEquals("The seed of the game is kept", 42, g1.getSeed().getAsLong());
+        Assert.assertEquals("The stock is the seeded stock", Game.shuffledPieces(42).subList(15, 28), g1.getStock());
+
+        final Game g = new Game(new Player("p1"), new Player("p2"), Game.shuffledPieces(42));
+        g.start();
+
+        Assert.assertEquals("The first piece of the stock is put on the board", Game.shuffledPieces(42).get(0), g.getBoard().get(0));
+    }
+
     @Test
     public void testIsPlayable() {
         final Queue<DominoPiece> stock = new LinkedBlockingQueue<>();
@@ -87,6 +107,20 @@ public class GameTest {
         Assert.assertFalse("Piece 2,2 is not playable", g1.isPlayable(new DominoPiece(2,2)));
     }
 
+    @Test(expected = NoSuchElementException.class)
+    public void testIsPlayableOnEmptyBoard() {
+        final Game g1 = new Game(new Player("p1"), new Player("p2"), new LinkedBlockingQueue<>(), new LinkedList<>());
+        g1.isPlayable(new DominoPiece(0,0));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testPlayableMovesOnEmptyBoard() {
+        final Player player1 = new Player("p1");
+        player1.givePiece(new DominoPiece(0,3));
+        final Game g1 = new Game(player1, new Player("p2"), new LinkedBlockingQueue<>(), new LinkedList<>());
+        g1.getPlayableMoves(player1);
+    }
+
     @Test
     public void testPlayOnLeft() {
         final Queue<DominoPiece> stock = new LinkedBlockingQueue<>();
@@ -206,13 +240,83 @@ public class GameTest {
         Assert.assertEquals("The board has one piece <0:0>", ImmutableList.of(new DominoPiece(0,0)), board);
         Assert.assertEquals("Player 1 has one piece <6:6>", ImmutableList.of(new DominoPiece(6,6)), player1.getPieces());
         Assert.assertEquals("Player 2 has one piece <0:1>", ImmutableList.of(new DominoPiece(0,1)), player2.getPieces());
-        Assert.assertTrue("Stock has one piece <1:2>", Arrays.equals(expectedStock.toArray(), stock.toArray()));
+        Assert.assertTrue("Stock has one piece <1:2>", Arrays.equals(expectedStock.toArray(), g1.getStock().toArray()));
 
         Assert.assertTrue("Player 1 needs from stock", g1.playerNeedsFromStock(player1));
         Assert.assertFalse("Player 2 doesn't need from stock", g1.playerNeedsFromStock(player2));
 
     }
 
+    @Test
+    public void testDrawUntilPlayable() {
+        final Queue<DominoPiece> stock = new LinkedBlockingQueue<>();
+        stock.offer(new DominoPiece(0, 0));
+        stock.offer(new DominoPiece(6, 6));
+        stock.offer(new DominoPiece(0, 1));
+        stock.offer(new DominoPiece(5, 5));
+        stock.offer(new DominoPiece(4, 4));
+        stock.offer(new DominoPiece(0, 3));
+        stock.offer(new DominoPiece(2, 2));
+
+        final LinkedList<DominoPiece> board = new LinkedList<>();
+
+        final Player player1 = new Player("p1");
+        final Player player2 = new Player("p2");
+
+        final Game g1 = new Game(player1, player2, stock, board);
+        g1.start(1);
+
+        final List<DominoPiece> drawnPieces = g1.drawUntilPlayable(player1);
+
+        Assert.assertEquals("Player 1 drew until <0:3>", ImmutableList.of(new DominoPiece(5,5), new DominoPiece(4,4), new DominoPiece(0,3)), drawnPieces);
+        Assert.assertEquals("Player 1 has four pieces", 4, player1.getPieces().size());
+        Assert.assertFalse("Player 1 doesn't need from stock", g1.playerNeedsFromStock(player1));
+        Assert.assertEquals("Stock has one piece <2:2>", 1, g1.getStockSize());
+        Assert.assertTrue("Nothing is drawn when the player is able to play", g1.drawUntilPlayable(player1).isEmpty());
+        Assert.assertEquals("Stock still has one piece <2:2>", 1, g1.getStockSize());
+    }
+
+    @Test
+    public void testPlayableMoves() {
+        final Queue<DominoPiece> stock = new LinkedBlockingQueue<>();
+        stock.offer(new DominoPiece(2, 3)); //piece of the board
+        stock.offer(new DominoPiece(3, 3)); //piece of player 1
+        stock.offer(new DominoPiece(6, 6)); //piece of player 2
+        stock.offer(new DominoPiece(5, 5)); //piece of player 1
+        stock.offer(new DominoPiece(2, 6)); //piece of player 2
+        stock.offer(new DominoPiece(3, 2)); //piece of player 1
+        stock.offer(new DominoPiece(0, 0)); //piece of player 2
+
+        final Player player1 = new Player("p1");
+        final Player player2 = new Player("p2");
+
+        final Game g1 = new Game(player1, player2, stock, new LinkedList<>());
+        g1.start(3);
+
+        //<3:3> on the right, <5:5> nowhere, <3:2> on both sides
+        final long playableMoves = g1.getPlayableMoves(player1);
+        Assert.assertEquals("Player 1 playable moves", 0b110010L, playableMoves);
+        Assert.assertFalse("<3:3> is not playable on the left", Game.isPlayableMove(playableMoves, 0, Place.L));
+        Assert.assertTrue("<3:3> is playable on the right", Game.isPlayableMove(playableMoves, 0, Place.R));
+        Assert.assertFalse("<5:5> is not playable on the right", Game.isPlayableMove(playableMoves, 1, Place.R));
+        Assert.assertTrue("<3:2> is playable on the left", Game.isPlayableMove(playableMoves, 2, Place.L));
+
+        //The open ends are updated by the moves: <2:3><3:3> leaves <6:6> and <0:0> not playable
+        g1.play(player1, new DominoPiece(3, 3), Place.R);
+        Assert.assertEquals("Player 2 can only play <2:6> on the left", 0b0100L, g1.getPlayableMoves(player2));
+
+        g1.play(player2, new DominoPiece(2, 6), Place.L);
+        Assert.assertEquals("Player 1 can only play <3:2> on the right", 0b1000L, g1.getPlayableMoves(player1));
+        Assert.assertEquals("Player 2 can only play <6:6> on the left", 0b01L, g1.getPlayableMoves(player2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDrawUntilPlayableOutOfTurn() {
+        final Game g = new Game("player1", "player2");
+        g.start();
+        g.drawUntilPlayable(g.getOtherPlayer(g.getPlayingPlayer()));
+    }
+
 
     @Test
     public void testSmallGame() {
@@ -236,7 +340,7 @@ public class GameTest {
         Assert.assertEquals("The board has one piece <0:0>", ImmutableList.of(new DominoPiece(0,0)), ImmutableList.copyOf(board));
         Assert.assertEquals("Player 1 has one piece <6:6>", ImmutableList.of(new DominoPiece(6,6)), player1.getPieces());
         Assert.assertEquals("Player 2 has one piece <0:1>", ImmutableList.of(new DominoPiece(0,1)), player2.getPieces());
-        Assert.assertTrue("Stock has one piece <0:2>", Arrays.equals(expectedStock.toArray(), stock.toArray()));
+        Assert.assertTrue("Stock has one piece <0:2>", Arrays.equals(expectedStock.toArray(), g1.getStock().toArray()));
 
         Assert.assertTrue("Player 1 needs from stock", g1.playerNeedsFromStock(player1));
         Assert.assertFalse("Player 2 doesn't need from stock", g1.playerNeedsFromStock(player2));
@@ -275,4 +379,33 @@ public class GameTest {
             Assert.assertTrue("The board is valid",board.get(i).getRight() == board.get(i+1).getLeft());
         }
     }
+
+    @Test
+    public void testResetGame() {
+        final Game g = new Game("player1", "player2");
+        g.start();
+
+        final Player player1 = g.getPlayer1();
+        player1.getPieces().stream()
+                .filter(piece -> g.getBoard().get(0).isPlayableOnLeft(piece))
+                .findFirst()
+                .ifPresent(piece -> g.play(player1, piece, Place.L));
+        g.getPlayer2().givePiece(g.getFromStock());
+
+        g.reset();
+
+        Assert.assertTrue("The board is empty", g.getBoard().isEmpty());
+        Assert.assertTrue("Player 1 has no pieces", g.getPlayer1().getPieces().isEmpty());
+        Assert.assertTrue("Player 2 has no pieces", g.getPlayer2().getPieces().isEmpty());
+        Assert.assertEquals("The stock has all pieces", 28, g.getStockSize());
+        Assert.assertEquals("The stock is completed", DOMINOES_PIECES, ImmutableSet.copyOf(g.getStock()));
+
+        g.start();
+
+        Assert.assertSame("The same player 1 is playing again", player1, g.getPlayer1());
+        Assert.assertEquals("The board has one piece", 1, g.getBoard().size());
+        Assert.assertEquals("The Player 1 has 7 pieces", 7, g.getPlayer1().getPieces().size());
+        Assert.assertEquals("The stock has pieces 13 pieces", 13, g.getStockSize());
+        Assert.assertEquals("Is player 1 playing", player1, g.getPlayingPlayer());
+    }
 }
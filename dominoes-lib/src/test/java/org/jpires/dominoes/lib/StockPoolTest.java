@@ -0,0 +1,92 @@
+package org.jpires.dominoes.lib;
+
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.model.Stock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class StockPoolTest {
+
+    @Test
+    public void testTake() throws InterruptedException {
+        final StockPool pool = new StockPool(8);
+        try {
+            //The pool starts empty, so the first stock is shuffled on the spot, and the pool is refilled
+            final Stock first = pool.take();
+            Assert.assertEquals("The stock has all the pieces", DominoPiece.NUMBER_OF_PIECES, first.size());
+            Assert.assertTrue("The stock has a seed", first.getSeed().isPresent());
+            Assert.assertEquals("The first stock is a miss", 1, pool.getMisses());
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (pool.size() < 8 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals("The pool is refilled", 8, pool.size());
+
+            final Stock pooled = pool.take();
+            Assert.assertEquals("A pooled stock isn't a miss", 1, pool.getMisses());
+            Assert.assertEquals("The pooled stock has all the pieces", DominoPiece.NUMBER_OF_PIECES,
+                    new HashSet<>(pooled.toList()).size());
+            Assert.assertEquals("The pooled stock is the one of its seed",
+                    Stock.shuffled(pooled.getSeed().getAsLong()).toList(), pooled.toList());
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testDistinctStocks() {
+        final StockPool pool = new StockPool(16);
+        try {
+            final Set<Long> seeds = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                seeds.add(pool.take().getSeed().getAsLong());
+            }
+            Assert.assertEquals("Every stock has its own seed", 100, seeds.size());
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testNoCapacity() {
+        final StockPool pool = new StockPool(0);
+        pool.take();
+        pool.take();
+        Assert.assertEquals("The pool is never filled", 0, pool.size());
+        Assert.assertEquals("Every stock is shuffled on the spot", 2, pool.getMisses());
+    }
+
+    @Test
+    public void testStopped() {
+        final StockPool pool = new StockPool(8);
+        pool.stop();
+        Assert.assertEquals("A stopped pool still deals stocks", DominoPiece.NUMBER_OF_PIECES, pool.take().size());
+        Assert.assertEquals("A stopped pool isn't refilled", 0, pool.size());
+    }
+
+    @Test
+    public void testNewGame() {
+        final StockPool pool = new StockPool(4);
+        try {
+            final Stock stock = pool.take();
+            final long seed = stock.getSeed().getAsLong();
+            final Game game = new Game(new Player("1"), new Player("2"), stock);
+            Assert.assertEquals("The game keeps the seed of the stock", seed, game.getSeed().getAsLong());
+
+            game.start();
+            final Game replayed = new Game(new Player("1"), new Player("2"), seed);
+            replayed.start();
+            Assert.assertEquals("The game is the one of its seed", replayed.getBoard(), game.getBoard());
+        } finally {
+            pool.stop();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.jpires.dominoes.lib.batch;
+
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
+import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.record.GameRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class BatchSimulationTest {
+
+    private static final int GAMES = 500;
+
+    @Test
+    public void testDeal() {
+        final BatchSimulation batch = new BatchSimulation(1);
+        batch.deal(0, 42);
+
+        final Game game = new Game(new Player("p1"), new Player("p2"), 42);
+        game.start();
+
+        Assert.assertEquals("The left end is the one of the game", game.getBoard().get(0).getLeft(), batch.getLeftEnd(0));
+        Assert.assertEquals("The right end is the one of the game", game.getBoard().get(0).getRight(), batch.getRightEnd(0));
+        Assert.assertEquals("Player 1 has the hand of the game", mask(game.getPlayer1().getPieces()), batch.getHand(0, 1));
+        Assert.assertEquals("Player 2 has the hand of the game", mask(game.getPlayer2().getPieces()), batch.getHand(0, 2));
+        Assert.assertEquals("The stock has 13 pieces", game.getStockSize(), batch.getStockSize(0));
+        Assert.assertEquals("Player 1 is playing", 1, batch.getPlayingPlayer(0));
+    }
+
+    @Test
+    public void testLockstepWithGame() {
+        //Plays random games one at a time, recording their moves
+        final List<List<Byte>> recorded = new ArrayList<>();
+        final List<Game> games = new ArrayList<>();
+        final BatchSimulation batch = new BatchSimulation(GAMES);
+        final Random random = new Random(7);
+        for (int i = 0; i < GAMES; i++) {
+            final Game game = new Game(new Player("p1"), new Player("p2"), i);
+            recorded.add(playRandomGame(game, random));
+            games.add(game);
+            batch.deal(i, i);
+        }
+
+        //Replays the recorded moves in lockstep, verifying each move is a legal one
+        final byte[] moves = new byte[GAMES];
+        for (int step = 0; batch.updateOver() > 0; step++) {
+            batch.computeLegalMoves();
+            for (int i = 0; i < GAMES; i++) {
+                final List<Byte> gameMoves = recorded.get(i);
+                Assert.assertEquals("Game " + i + " is over only after its last move", step >= gameMoves.size(), batch.isOver(i));
+                if (step >= gameMoves.size()) {
+                    continue;
+                }
+
+                moves[i] = gameMoves.get(step);
+                final int legal = batch.getLegalLeft(i) | batch.getLegalRight(i);
+                if (GameRecord.isPlay(moves[i])) {
+                    final int legalOnPlace = GameRecord.getPlace(moves[i]) == Place.L ? batch.getLegalLeft(i) : batch.getLegalRight(i);
+                    Assert.assertTrue("The play is legal", (legalOnPlace & 1 << GameRecord.getPiece(moves[i]).toIndex()) != 0);
+                } else {
+                    Assert.assertEquals("The player only draws or passes if unable to play", 0, legal);
+                }
+            }
+            batch.applyMoves(moves);
+        }
+
+        for (int i = 0; i < GAMES; i++) {
+            final Game game = games.get(i);
+            Assert.assertEquals("Player 1 ends with the same hand", mask(game.getPlayer1().getPieces()), batch.getHand(i, 1));
+            Assert.assertEquals("Player 2 ends with the same hand", mask(game.getPlayer2().getPieces()), batch.getHand(i, 2));
+            Assert.assertEquals("The stock ends with the same size", game.getStockSize(), batch.getStockSize(i));
+            final int winner = game.getWinner().map(player -> player == game.getPlayer1() ? 1 : 2).orElse(0);
+            Assert.assertEquals("The winner is the same", winner, batch.getWinner(i));
+        }
+    }
+
+    @Test
+    public void testFirstMoves() {
+        final BatchSimulation batch = new BatchSimulation(GAMES);
+        for (int i = 0; i < GAMES; i++) {
+            batch.deal(i, i);
+        }
+        batch.playFirstMoves();
+
+        for (int i = 0; i < GAMES; i++) {
+            final Game game = new Game(new Player("p1"), new Player("p2"), i);
+            playFirstMoves(game);
+            Assert.assertTrue("The game is over", batch.isOver(i));
+            Assert.assertEquals("Player 1 ends with the same hand", mask(game.getPlayer1().getPieces()), batch.getHand(i, 1));
+            Assert.assertEquals("Player 2 ends with the same hand", mask(game.getPlayer2().getPieces()), batch.getHand(i, 2));
+        }
+    }
+
+    private static List<Byte> playRandomGame(final Game game, final Random random) {
+        final List<Byte> moves = new ArrayList<>();
+        game.start();
+        while (!game.isOver()) {
+            final Player player = game.getPlayingPlayer();
+            final long playableMoves = game.getPlayableMoves(player);
+            if (playableMoves != 0) {
+                final List<Integer> playable = new ArrayList<>();
+                for (int bit = 0; bit < 64; bit++) {
+                    if ((playableMoves & 1L << bit) != 0) {
+                        playable.add(bit);
+                    }
+                }
+                final int move = playable.get(random.nextInt(playable.size()));
+                final DominoPiece piece = player.getPiece(move / 2);
+                final Place place = move % 2 == 0 ? Place.L : Place.R;
+                moves.add(GameRecord.play(piece, place));
+                game.play(player, piece, place);
+            } else if (game.hasStock()) {
+                moves.add(GameRecord.DRAW);
+                player.givePiece(game.getFromStock());
+            } else {
+                moves.add(GameRecord.PASS);
+                game.switchPlayer();
+            }
+        }
+        return moves;
+    }
+
+    private static void playFirstMoves(final Game game) {
+        game.start();
+        while (!game.isOver()) {
+            final Player player = game.getPlayingPlayer();
+            final DominoPiece piece = player.getPieces().stream()
+                    .filter(game::isPlayable)
+                    .min(Comparator.comparingInt(DominoPiece::toIndex))
+                    .orElse(null);
+            if (piece != null) {
+                final int leftEnd = game.getBoard().get(0).getLeft();
+                final Place place = piece.getLeft() == leftEnd || piece.getRight() == leftEnd ? Place.L : Place.R;
+                game.play(player, piece, place);
+            } else if (game.hasStock()) {
+                player.givePiece(game.getFromStock());
+            } else {
+                game.switchPlayer();
+            }
+        }
+    }
+
+    private static int mask(final List<DominoPiece> pieces) {
+        int mask = 0;
+        for (final DominoPiece piece : pieces) {
+            mask |= 1 << piece.toIndex();
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,88 @@
+package org.jpires.dominoes.lib.fuzz;
+
+import org.jpires.dominoes.lib.record.GameRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Optional;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class DifferentialFuzzerTest {
+
+    @Test
+    public void testBatchEngine() {
+        final DifferentialFuzzer fuzzer = new DifferentialFuzzer(GameEngine::new, BatchEngine::new, 0.2);
+        final Optional<Divergence> divergence = fuzzer.run(1, 2000, 2);
+        Assert.assertFalse("The batch engine agrees with the game: " + divergence, divergence.isPresent());
+        Assert.assertTrue("Every sequence has moves", fuzzer.getMoves() >= 2000);
+    }
+
+    @Test
+    public void testOnlyIllegalMoves() {
+        final DifferentialFuzzer fuzzer = new DifferentialFuzzer(GameEngine::new, BatchEngine::new, 1);
+        final Optional<Divergence> divergence = fuzzer.run(2, 200, 1);
+        Assert.assertFalse("The batch engine refuses the same moves: " + divergence, divergence.isPresent());
+    }
+
+    @Test
+    public void testShrink() {
+        //An engine accepting a pass whenever the game isn't over (and ignoring it)
+        final DifferentialFuzzer fuzzer = new DifferentialFuzzer(GameEngine::new, () -> new BatchEngine() {
+            @Override
+            public boolean apply(final byte move) {
+                return move == GameRecord.PASS && !isOver() || super.apply(move);
+            }
+        }, 0.2);
+
+        final Divergence divergence = fuzzer.run(3, 1000, 1).orElseThrow(AssertionError::new);
+        Assert.assertArrayEquals("The divergence is shrunk to the pass", new byte[]{GameRecord.PASS}, divergence.getMoves());
+        Assert.assertEquals("The difference is found on the pass", 1, divergence.getStep());
+        Assert.assertTrue("The difference is the pass applied", divergence.getDifference().startsWith("applied PASS"));
+        Assert.assertEquals("The divergence is reproduced", Optional.of(divergence),
+                fuzzer.replay(divergence.getSeed(), divergence.getMoves()));
+    }
+
+    @Test
+    public void testWrongOrientation() {
+        //An engine turning the left end into the number of the piece played, instead of its other number
+        final DifferentialFuzzer fuzzer = new DifferentialFuzzer(GameEngine::new, () -> new BatchEngine() {
+            private int leftEnd = -1;
+
+            @Override
+            public void deal(final long seed) {
+                super.deal(seed);
+                leftEnd = -1;
+            }
+
+            @Override
+            public boolean apply(final byte move) {
+                final int end = super.getLeftEnd();
+                final boolean applied = super.apply(move);
+                if (applied && GameRecord.isPlay(move) && (move & 1) == 0) {
+                    leftEnd = end;
+                }
+                return applied;
+            }
+
+            @Override
+            public int getLeftEnd() {
+                return leftEnd < 0 ? super.getLeftEnd() : leftEnd;
+            }
+        }, 0);
+
+        final Divergence divergence = fuzzer.run(4, 100, 1).orElseThrow(AssertionError::new);
+        Assert.assertTrue("The difference is on the left end", divergence.getDifference().startsWith("left end"));
+        final byte[] moves = divergence.getMoves();
+        Assert.assertTrue("The divergence ends on a play on the left", GameRecord.isPlay(moves[moves.length - 1])
+                && (moves[moves.length - 1] & 1) == 0);
+
+        //The illegal moves change nothing, so they are all shrunk away
+        final GameEngine engine = new GameEngine();
+        engine.deal(divergence.getSeed());
+        for (final byte move : moves) {
+            Assert.assertTrue("Every move left is legal", engine.apply(move));
+        }
+    }
+}
@@ -55,4 +55,28 @@ public class DominoPieceTest {
 
         Assert.assertEquals("The piece <5:6> was rotated to <6:5>", "<6:5>", piece2.toString());
     }
+
+    @Test
+    public void testHashCodeWithRotation() {
+        final DominoPiece piece1 = new DominoPiece(6,6);
+        final DominoPiece piece2 = new DominoPiece(5,6);
+
+        piece1.playOnRight(piece2);
+
+        Assert.assertEquals("The rotated piece <6:5> is equal to <5:6>", new DominoPiece(5,6), piece2);
+        Assert.assertEquals("The rotated piece <6:5> has the same hashcode of <5:6>", new DominoPiece(5,6).hashCode(), piece2.hashCode());
+    }
+
+    @Test
+    public void testIndex() {
+        int index = 0;
+        for (int i = 0; i <= 6; i++) {
+            for (int j = i; j <= 6; j++) {
+                Assert.assertEquals("The index of the piece is its position on the set", index, new DominoPiece(j, i).toIndex());
+                Assert.assertEquals("The piece is created from its index", new DominoPiece(i, j), DominoPiece.fromIndex(index));
+                index++;
+            }
+        }
+        Assert.assertEquals("There are 28 pieces", DominoPiece.NUMBER_OF_PIECES, index);
+    }
 }
@@ -0,0 +1,83 @@
+package org.jpires.dominoes.lib.perft;
+
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.Player;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class PerftTest {
+
+    @Test
+    public void testDepthZeroAndOne() {
+        final Game game = newGame(3, 7);
+
+        Assert.assertEquals("The root is the only node at depth 0", new PerftCounts(1, 0, 0, 0, 0),
+                new Perft(game).count(0));
+
+        final PerftCounts counts = new Perft(game).count(1);
+        final long playableMoves = Long.bitCount(game.getPlayableMoves(game.getPlayer1()));
+        if (playableMoves > 0) {
+            Assert.assertEquals("There is a node per playable move", new PerftCounts(playableMoves, playableMoves, 0, 0, 0), counts);
+        } else {
+            Assert.assertEquals("The player draws if unable to play", new PerftCounts(1, 0, 1, 0, 0), counts);
+        }
+    }
+
+    @Test
+    public void testReference() {
+        //Full games, with most of the stock to draw from
+        for (long seed = 0; seed < 5; seed++) {
+            final Game game = newGame(seed, 7);
+            for (int depth = 1; depth <= 6; depth++) {
+                Assert.assertEquals("The counts of seed " + seed + " at depth " + depth + " are the reference ones",
+                        Perft.countReference(game, depth), new Perft(game).count(depth));
+            }
+        }
+
+        //Games with a single piece on the stock, soon passing and ending
+        for (long seed = 0; seed < 5; seed++) {
+            final Game game = newGame(seed, 13);
+            for (int depth = 1; depth <= 6; depth++) {
+                Assert.assertEquals("The counts of seed " + seed + " at depth " + depth + " are the reference ones",
+                        Perft.countReference(game, depth), new Perft(game).count(depth));
+            }
+        }
+    }
+
+    @Test
+    public void testGameNotChanged() {
+        final Game game = newGame(11, 7);
+        final String before = game.getBoard() + " " + game.getPlayer1().getPieces() + " " + game.getStock();
+        Perft.countReference(game, 5);
+        Assert.assertEquals("The game is the same after the enumeration", before,
+                game.getBoard() + " " + game.getPlayer1().getPieces() + " " + game.getStock());
+    }
+
+    @Test
+    public void testParallelAndMemoized() {
+        for (long seed = 0; seed < 3; seed++) {
+            for (final int pieces : new int[]{7, 13}) {
+                final Perft perft = new Perft(newGame(seed, pieces));
+                final PerftCounts counts = perft.count(10);
+                Assert.assertEquals("Parallel counts are the same", counts, perft.count(10, 4, 0));
+                Assert.assertEquals("Memoized counts are the same", counts, perft.count(10, 1, 16));
+                Assert.assertEquals("Parallel memoized counts are the same", counts, perft.count(10, 4, 16));
+                Assert.assertEquals("A tiny table still gives the same counts", counts, perft.count(10, 4, 2));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotStarted() {
+        new Perft(new Game(new Player("p1"), new Player("p2"), 1));
+    }
+
+    private static Game newGame(final long seed, final int pieces) {
+        final Game game = new Game(new Player("p1"), new Player("p2"), seed);
+        game.start(pieces);
+        return game;
+    }
+}
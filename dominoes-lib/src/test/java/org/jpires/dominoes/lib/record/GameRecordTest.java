@@ -0,0 +1,186 @@
+package org.jpires.dominoes.lib.record;
+
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
+import org.jpires.dominoes.lib.model.Player;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class GameRecordTest {
+
+    @Test
+    public void testMoves() {
+        final byte move = GameRecord.play(new DominoPiece(6, 3), Place.R);
+
+        Assert.assertTrue("The move is a piece played", GameRecord.isPlay(move));
+        Assert.assertEquals("The piece played is <3:6>", new DominoPiece(3, 6), GameRecord.getPiece(move));
+        Assert.assertEquals("The piece was played on the right", Place.R, GameRecord.getPlace(move));
+        Assert.assertFalse("A draw is not a piece played", GameRecord.isPlay(GameRecord.DRAW));
+        Assert.assertFalse("A pass is not a piece played", GameRecord.isPlay(GameRecord.PASS));
+    }
+
+    @Test
+    public void testReplaySeededGame() {
+        for (long seed = 0; seed < 100; seed++) {
+            final Game game = new Game(new Player("1"), new Player("2"), Game.shuffledPieces(seed));
+            final GameRecord record = playGame(game, new GameRecorder(1, 2, 7), 7, seed).toRecord(seed);
+
+            final Game replayed = record.replay();
+
+            Assert.assertTrue("The replayed game is over", replayed.isOver());
+            Assert.assertEquals("The board of the replayed game is the same", game.getBoard(), replayed.getBoard());
+            Assert.assertEquals("The pieces of the player 1 are the same",
+                    game.getPlayer1().getPieces(), replayed.getPlayer1().getPieces());
+            Assert.assertEquals("The pieces of the player 2 are the same",
+                    game.getPlayer2().getPieces(), replayed.getPlayer2().getPieces());
+            Assert.assertEquals("The stock has the same size", game.getStockSize(), replayed.getStockSize());
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final List<GameRecord> records = new ArrayList<>();
+        for (long seed = 0; seed < 50; seed++) {
+            final Game game = new Game(new Player("a"), new Player("b"), Game.shuffledPieces(seed));
+            records.add(playGame(game, new GameRecorder(seed, 1000 + seed, 7), 7, seed).toRecord(seed));
+        }
+        final List<DominoPiece> stock = Game.createPieces();
+        Collections.shuffle(stock, new Random(7));
+        final Game game = new Game(new Player("a"), new Player("b"), stock);
+        records.add(playGame(game, new GameRecorder(Long.MAX_VALUE, 0, 5), 5, 7).toRecord(stock));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GameRecordWriter writer = new GameRecordWriter(out)) {
+            for (final GameRecord record : records) {
+                writer.write(record);
+            }
+        }
+
+        final List<GameRecord> read = new ArrayList<>();
+        try (GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(out.toByteArray()))) {
+            GameRecord record;
+            while ((record = reader.read()) != null) {
+                read.add(record);
+            }
+        }
+
+        Assert.assertEquals("The records read are the records written", records, read);
+        Assert.assertEquals("The stock of the last record was kept", stock, read.get(read.size() - 1).getStock());
+    }
+
+    @Test
+    public void testRecordSize() throws IOException {
+        long totalSize = 0;
+        for (long seed = 0; seed < 100; seed++) {
+            final Game game = new Game(new Player("1"), new Player("2"), Game.shuffledPieces(seed));
+            final GameRecord record = playGame(game, new GameRecorder(1, 2, 7), 7, seed).toRecord(seed);
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GameRecordWriter writer = new GameRecordWriter(out)) {
+                writer.write(record);
+            }
+            totalSize += out.size() - 4;
+        }
+
+        final long averageSize = totalSize / 100;
+        Assert.assertTrue("A game record takes 20 to 40 bytes, but took " + averageSize,
+                averageSize >= 20 && averageSize <= 40);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedRecord() throws IOException {
+        final Game game = new Game(new Player("1"), new Player("2"), Game.shuffledPieces(1));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GameRecordWriter writer = new GameRecordWriter(out)) {
+            writer.write(playGame(game, new GameRecorder(1, 2, 7), 7, 1).toRecord(1L));
+        }
+
+        final byte[] bytes = out.toByteArray();
+        final GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(bytes, 0, bytes.length - 1));
+        reader.read();
+    }
+
+    @Test
+    public void testTooManyMoves() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GameRecordWriter writer = new GameRecordWriter(out)) {
+            writer.write(GameRecord.ofSeed(1, 2, 7, 1, new byte[0]));
+        }
+
+        //The number of moves (its last byte) is corrupted into 2^30, with no moves after it
+        final ByteArrayOutputStream corrupt = new ByteArrayOutputStream();
+        corrupt.write(out.toByteArray(), 0, out.size() - 1);
+        corrupt.write(new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x04});
+        try {
+            new GameRecordReader(new ByteArrayInputStream(corrupt.toByteArray())).read();
+            Assert.fail("The record is refused");
+        } catch (IOException e) {
+            Assert.assertEquals("The moves aren't allocated", "Invalid number of moves: " + (1 << 30), e.getMessage());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAStreamOfRecords() throws IOException {
+        new GameRecordReader(new ByteArrayInputStream("{\"type\":\"GAME\"}".getBytes()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStock() {
+        final List<DominoPiece> stock = Game.createPieces();
+        stock.set(0, new DominoPiece(6, 6));
+        GameRecord.ofStock(1, 2, 7, stock, new byte[0]);
+    }
+
+    /**
+     * Plays a game until it's over, recording the moves: the playing player plays a random playable piece, draws
+     * a piece if none is playable, or passes if the stock is empty.
+     *
+     * @param game            the game (not started)
+     * @param recorder        the recorder
+     * @param piecesPerPlayer the number of pieces given to each player
+     * @param seed            the seed of the choices of the players
+     * @return the recorder
+     */
+    static GameRecorder playGame(final Game game, final GameRecorder recorder, final int piecesPerPlayer,
+                                 final long seed) {
+        final Random random = new Random(seed);
+        game.start(piecesPerPlayer);
+        while (!game.isOver()) {
+            final Player player = game.getPlayingPlayer();
+            final long playableMoves = game.getPlayableMoves(player);
+            if (playableMoves != 0) {
+                final List<Integer> moves = new ArrayList<>();
+                for (int bit = 0; bit < 64; bit++) {
+                    if ((playableMoves & 1L << bit) != 0) {
+                        moves.add(bit);
+                    }
+                }
+                final int move = moves.get(random.nextInt(moves.size()));
+                final DominoPiece piece = player.getPiece(move / 2);
+                final Place place = move % 2 == 0 ? Place.L : Place.R;
+                recorder.play(piece, place);
+                game.play(player, piece, place);
+            } else if (game.hasStock()) {
+                recorder.draw();
+                player.givePiece(game.getFromStock());
+            } else {
+                recorder.pass();
+                game.switchPlayer();
+            }
+        }
+        return recorder;
+    }
+}
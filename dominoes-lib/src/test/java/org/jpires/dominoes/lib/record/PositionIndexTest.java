@@ -0,0 +1,135 @@
+package org.jpires.dominoes.lib.record;
+
+import com.google.common.collect.ImmutableSet;
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Player;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class PositionIndexTest {
+
+    @Test
+    public void testPositionKey() {
+        final List<DominoPiece> hand = Arrays.asList(new DominoPiece(0, 0), new DominoPiece(6, 5));
+
+        Assert.assertEquals("The ends are the same whichever the side", PositionKey.of(2, 4, hand),
+                PositionKey.of(4, 2, hand));
+        Assert.assertEquals("The hand is the same whichever the order", PositionKey.of(2, 4, hand),
+                PositionKey.of(2, 4, Arrays.asList(new DominoPiece(5, 6), new DominoPiece(0, 0))));
+        Assert.assertNotEquals("The ends are part of the position", PositionKey.of(2, 4, hand),
+                PositionKey.of(2, 5, hand));
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        final Path records = Files.createTempFile("games", ".dmr");
+        final Path run1 = Files.createTempFile("positions", ".idx");
+        final Path run2 = Files.createTempFile("positions", ".idx");
+        try {
+            final Map<Long, Set<PositionIndex.Occurrence>> expected = new HashMap<>();
+            final List<Long> offsets = new ArrayList<>();
+            try (OutputStream out = Files.newOutputStream(records); GameRecordWriter writer = new GameRecordWriter(out)) {
+                for (long seed = 0; seed < 200; seed++) {
+                    final Game game = new Game(new Player("a"), new Player("b"), Game.shuffledPieces(seed % 50));
+                    writer.write(GameRecordTest.playGame(game, new GameRecorder(1, 2, 7), 7, seed).toRecord(seed % 50));
+                }
+            }
+
+            //Small blocks and spills, so the entries of a key cross blocks, and spills are merged
+            try (InputStream in = Files.newInputStream(records); GameRecordReader reader = new GameRecordReader(in);
+                 PositionIndexBuilder builder1 = new PositionIndexBuilder(run1, 4, 100);
+                 PositionIndexBuilder builder2 = new PositionIndexBuilder(run2, 4, 100)) {
+                long offset = reader.getOffset();
+                GameRecord record;
+                while ((record = reader.read()) != null) {
+                    (offsets.size() % 2 == 0 ? builder1 : builder2).addGame(offset, record);
+                    addExpected(offset, record, expected);
+                    offsets.add(offset);
+                    offset = reader.getOffset();
+                }
+            }
+
+            try (PositionIndex index = new PositionIndex(Arrays.asList(run1, run2))) {
+                for (final Map.Entry<Long, Set<PositionIndex.Occurrence>> position : expected.entrySet()) {
+                    final List<PositionIndex.Occurrence> occurrences = index.lookup(position.getKey());
+                    Assert.assertEquals("All the occurrences were found", position.getValue(), ImmutableSet.copyOf(occurrences));
+                    Assert.assertEquals("An occurrence is found only once", position.getValue().size(), occurrences.size());
+                }
+
+                Assert.assertTrue("A position never played isn't found",
+                        index.lookup(PositionKey.of(6, 6, Collections.emptyList())).isEmpty());
+
+                final PositionIndex.Occurrence occurrence = index.lookup(expected.keySet().iterator().next()).get(0);
+                final GameRecord record = GameRecordReader.readAt(records, occurrence.getRecordOffset());
+                Assert.assertEquals("The next move is the move of the record",
+                        record.getMove(occurrence.getMoveIndex()), occurrence.getNextMove());
+            }
+
+            Assert.assertEquals("A record is read at its offset", GameRecordReader.readAt(records, offsets.get(7)),
+                    readAll(records).get(7));
+        } finally {
+            Files.delete(records);
+            Files.delete(run1);
+            Files.delete(run2);
+        }
+    }
+
+    /**
+     * Adds the occurrences of the positions of a game, found by replaying it move by move.
+     *
+     * @param offset   the offset of the record
+     * @param record   the record
+     * @param expected the occurrences by position
+     */
+    private static void addExpected(final long offset, final GameRecord record,
+                                    final Map<Long, Set<PositionIndex.Occurrence>> expected) {
+        final Game game = record.replay();
+        for (int moveIndex = 0; moveIndex < record.getMoveCount(); moveIndex++) {
+            final Game replayed = GameRecord.ofSeed(1, 2, 7, record.getSeed(),
+                    Arrays.copyOf(record.getMoves(), moveIndex)).replay();
+            final Player player = replayed.getPlayingPlayer();
+            final int ownPieces = (player.getName().equals("1") ? game.getPlayer1() : game.getPlayer2()).getPieces().size();
+            final int otherPieces = (player.getName().equals("1") ? game.getPlayer2() : game.getPlayer1()).getPieces().size();
+            final PositionIndex.Outcome outcome = ownPieces < otherPieces ? PositionIndex.Outcome.WIN
+                    : ownPieces > otherPieces ? PositionIndex.Outcome.LOSS : PositionIndex.Outcome.TIE;
+            expected.computeIfAbsent(PositionKey.of(replayed, player), key -> new HashSet<>())
+                    .add(new PositionIndex.Occurrence(offset, moveIndex, record.getMove(moveIndex), outcome));
+        }
+    }
+
+    /**
+     * Reads all the records of a file.
+     *
+     * @param records the file of records
+     * @return the records
+     * @throws IOException if the file can't be read
+     */
+    private static List<GameRecord> readAll(final Path records) throws IOException {
+        final List<GameRecord> all = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(records); GameRecordReader reader = new GameRecordReader(in)) {
+            GameRecord record;
+            while ((record = reader.read()) != null) {
+                all.add(record);
+            }
+        }
+        return all;
+    }
+}
@@ -0,0 +1,101 @@
+package org.jpires.dominoes.lib.record;
+
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Player;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class RecordAnalyticsTest {
+
+    @Test
+    public void testAnalyze() throws IOException {
+        final Path file1 = Files.createTempFile("games", ".dmr");
+        final Path file2 = Files.createTempFile("games", ".dmr");
+        try {
+            final GameStatistics expected = new GameStatistics();
+            writeGames(file1, 0, 300, expected);
+            writeGames(file2, 300, 200, expected);
+
+            //Tiny segments, so the files are split in lots of segments
+            final GameStatistics statistics = new RecordAnalytics(4, 100).analyze(Arrays.asList(file1, file2));
+
+            Assert.assertEquals("All the games were analyzed", 500, statistics.getGames());
+            Assert.assertEquals("The wins of the player 1 are the same", expected.getPlayer1Wins(), statistics.getPlayer1Wins());
+            Assert.assertEquals("The wins of the player 2 are the same", expected.getPlayer2Wins(), statistics.getPlayer2Wins());
+            Assert.assertEquals("The blocked games are the same", expected.getBlockedGames(), statistics.getBlockedGames());
+            Assert.assertEquals("The draws are the same", expected.getDraws(), statistics.getDraws());
+            for (final DominoPiece opening : Game.createPieces()) {
+                Assert.assertEquals("The win rate by opening is the same", expected.getPlayer1WinRate(opening),
+                        statistics.getPlayer1WinRate(opening), 0);
+            }
+        } finally {
+            Files.delete(file1);
+            Files.delete(file2);
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedFile() throws IOException {
+        final Path file = Files.createTempFile("games", ".dmr");
+        try {
+            writeGames(file, 0, 10, new GameStatistics());
+            final byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+            new RecordAnalytics(2, 64).analyze(Collections.singletonList(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Writes a file of random games, every tenth one with a stock not shuffled by a seed, and adds their results,
+     * as replayed by a {@link Game}, to the expected statistics.
+     *
+     * @param file     the file
+     * @param first    the seed of the first game
+     * @param count    the number of games
+     * @param expected the expected statistics
+     * @throws IOException if the file can't be written
+     */
+    private static void writeGames(final Path file, final long first, final int count, final GameStatistics expected)
+            throws IOException {
+        try (OutputStream out = Files.newOutputStream(file); GameRecordWriter writer = new GameRecordWriter(out)) {
+            for (long seed = first; seed < first + count; seed++) {
+                final GameRecord record;
+                if (seed % 10 == 0) {
+                    final List<DominoPiece> stock = Game.createPieces();
+                    Collections.shuffle(stock, new Random(seed));
+                    final Game game = new Game(new Player("a"), new Player("b"), stock);
+                    record = GameRecordTest.playGame(game, new GameRecorder(seed, seed + 1, 5), 5, seed).toRecord(stock);
+                } else {
+                    final Game game = new Game(new Player("a"), new Player("b"), Game.shuffledPieces(seed));
+                    record = GameRecordTest.playGame(game, new GameRecorder(seed, seed + 1, 7), 7, seed).toRecord(seed);
+                }
+                writer.write(record);
+
+                final Game replayed = record.replay();
+                int piecesDrawn = 0;
+                for (final byte move : record.getMoves()) {
+                    piecesDrawn += move == GameRecord.DRAW ? 1 : 0;
+                }
+                expected.addGame(record.getStock().get(0).toIndex(), replayed.getPlayer1().getPieces().size(),
+                        replayed.getPlayer2().getPieces().size(), piecesDrawn);
+            }
+        }
+    }
+}
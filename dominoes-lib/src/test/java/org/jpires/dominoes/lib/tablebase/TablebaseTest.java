@@ -0,0 +1,201 @@
+package org.jpires.dominoes.lib.tablebase;
+
+import org.jpires.dominoes.lib.Game;
+import org.jpires.dominoes.lib.model.DominoPiece;
+import org.jpires.dominoes.lib.model.Place;
+import org.jpires.dominoes.lib.model.Player;
+import org.jpires.dominoes.lib.model.Stock;
+import org.jpires.dominoes.lib.record.GameRecord;
+import org.jpires.dominoes.lib.record.PositionIndex.Outcome;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * @author Joao Pires (jppires91@gmail.com)
+ */
+public class TablebaseTest {
+
+    private static final int MAX_PIECES = 2;
+
+    private static Path file;
+
+    private static Tablebase tablebase;
+
+    @BeforeClass
+    public static void generate() throws IOException {
+        file = Files.createTempFile("endgames", ".dtb");
+        new TablebaseGenerator(MAX_PIECES, 2).generate(file);
+        tablebase = new Tablebase(file);
+    }
+
+    @AfterClass
+    public static void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testPerfectHash() {
+        final TablebaseIndex index = new TablebaseIndex(MAX_PIECES);
+        final boolean[] used = new boolean[(int) index.size()];
+        int positions = 0;
+        for (int hand = 1; hand < 1 << DominoPiece.NUMBER_OF_PIECES; hand = nextHand(hand)) {
+            for (int otherHand = 1; otherHand < 1 << DominoPiece.NUMBER_OF_PIECES; otherHand = nextHand(otherHand)) {
+                if ((hand & otherHand) != 0) {
+                    continue;
+                }
+                for (int leftEnd = 0; leftEnd < 7; leftEnd++) {
+                    for (int rightEnd = leftEnd; rightEnd < 7; rightEnd++) {
+                        final long position = index.index(hand, otherHand, leftEnd, rightEnd);
+                        Assert.assertTrue("The index is in range", position >= 0 && position < index.size());
+                        Assert.assertFalse("The index is unique", used[(int) position]);
+                        used[(int) position] = true;
+                        positions++;
+                        Assert.assertEquals("The ends are the same whichever the side", position,
+                                index.index(hand, otherHand, rightEnd, leftEnd));
+                    }
+                }
+            }
+        }
+        Assert.assertEquals("Every index is used", index.size(), positions);
+    }
+
+    @Test
+    public void testReference() {
+        final Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            final Game game = newEndgame(random);
+            final Optional<Outcome> outcome = tablebase.probe(game);
+            if (game.isOver()) {
+                Assert.assertFalse("A game over isn't on the tablebase", outcome.isPresent());
+                continue;
+            }
+
+            final int expected = solve(game);
+            Assert.assertEquals("The outcome is the one of the search", Outcome.values()[expected - 1], outcome.get());
+
+            final Game afterMove = game.copy();
+            final Player mover = afterMove.getPlayingPlayer();
+            applyMove(afterMove, tablebase.bestMove(game).get());
+            final int afterBestMove = afterMove.isOver() ? outcomeOf(afterMove, mover) : Tablebase.negate(solve(afterMove));
+            Assert.assertEquals("The best move keeps the outcome", expected, afterBestMove);
+        }
+    }
+
+    @Test
+    public void testNotCovered() {
+        final Game game = new Game(new Player("p1"), new Player("p2"), 1);
+        game.start(2);
+        Assert.assertFalse("A game with stock isn't on the tablebase", tablebase.probe(game).isPresent());
+        Assert.assertFalse("A game with stock has no best move", tablebase.bestMove(game).isPresent());
+
+        final Game bigHands = new Game(new Player("p1"), new Player("p2"), Stock.of(Game.shuffledPieces(1).subList(0, 7)));
+        bigHands.start(3);
+        Assert.assertFalse("Hands with more pieces aren't on the tablebase", tablebase.probe(bigHands).isPresent());
+
+        Assert.assertFalse("A game not started isn't on the tablebase",
+                tablebase.probe(new Game(new Player("p1"), new Player("p2"), 1)).isPresent());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotATablebase() throws IOException {
+        final Path other = Files.createTempFile("endgames", ".dtb");
+        try {
+            Files.write(other, new byte[64]);
+            new Tablebase(other);
+        } finally {
+            Files.deleteIfExists(other);
+        }
+    }
+
+    /**
+     * Creates a game with the stock empty and up to {@link #MAX_PIECES} pieces per hand, by a stock with only the
+     * first piece of the board and the pieces of the hands.
+     */
+    private static Game newEndgame(final Random random) {
+        final List<DominoPiece> pieces = new ArrayList<>(Game.createPieces());
+        Collections.shuffle(pieces, random);
+        final int handPieces = 1 + random.nextInt(MAX_PIECES);
+        final Game game = new Game(new Player("p1"), new Player("p2"), Stock.of(pieces.subList(0, 1 + 2 * handPieces)));
+        game.start(handPieces);
+        if (handPieces < MAX_PIECES && random.nextBoolean()) {
+            game.getPlayer2().givePiece(pieces.get(1 + 2 * handPieces));
+        }
+        if (random.nextBoolean()) {
+            game.switchPlayer();
+        }
+        return game;
+    }
+
+    /**
+     * Solves a game by a full search on copies of the game, by the rules of {@link Game}.
+     *
+     * @return the outcome code for the player about to move
+     */
+    private static int solve(final Game game) {
+        final Player player = game.getPlayingPlayer();
+        final long playableMoves = game.getPlayableMoves(player);
+        if (playableMoves == 0) {
+            final Game child = game.copy();
+            child.switchPlayer();
+            return Tablebase.negate(child.isOver() ? outcomeOf(child, child.getPlayingPlayer()) : solve(child));
+        }
+
+        int best = Tablebase.LOSS;
+        for (int index = 0; index < player.getPieces().size(); index++) {
+            for (final Place place : Place.values()) {
+                if (Game.isPlayableMove(playableMoves, index, place)) {
+                    final Game child = game.copy();
+                    child.play(child.getPlayingPlayer(), child.getPlayingPlayer().getPiece(index), place);
+                    final int outcome = Tablebase.negate(child.isOver()
+                            ? outcomeOf(child, child.getPlayingPlayer()) : solve(child));
+                    if (Tablebase.isBetter(outcome, best)) {
+                        best = outcome;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the outcome code of a game over for a player.
+     */
+    private static int outcomeOf(final Game game, final Player player) {
+        return game.getWinner().map(winner -> winner == player ? Tablebase.WIN : Tablebase.LOSS).orElse(Tablebase.TIE);
+    }
+
+    /**
+     * Applies a move (a play or a pass) to a game.
+     */
+    private static void applyMove(final Game game, final byte move) {
+        final Player player = game.getPlayingPlayer();
+        if (GameRecord.isPlay(move)) {
+            final int index = player.getPieces().indexOf(GameRecord.getPiece(move));
+            Assert.assertTrue("The best move is a piece of the player", index >= 0);
+            game.play(player, player.getPiece(index), GameRecord.getPlace(move));
+        } else {
+            Assert.assertEquals("The best move is a pass if unable to play", 0, game.getPlayableMoves(player));
+            game.switchPlayer();
+        }
+    }
+
+    private static int nextHand(final int hand) {
+        //The hands with up to MAX_PIECES pieces, in increasing order
+        int next = hand + 1;
+        while (Integer.bitCount(next) > MAX_PIECES) {
+            next += next & -next;
+        }
+        return next;
+    }
+}